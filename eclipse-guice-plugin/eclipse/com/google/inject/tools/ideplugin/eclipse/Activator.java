@@ -18,6 +18,10 @@ package com.google.inject.tools.ideplugin.eclipse;
 
 import com.google.inject.tools.ideplugin.eclipse.EclipsePluginModule.EclipseGuiceToolsModule;
 import com.google.inject.tools.suite.GuiceToolsModule;
+import com.google.inject.tools.suite.SharedExecutorProvider;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
@@ -37,7 +41,7 @@ public class Activator extends AbstractUIPlugin {
   private static Activator plugin;
   private static EclipsePluginModule module;
   private static GuiceToolsModule toolsModule;
-  private static Thread initThread = null;
+  private static Future<?> initialization = null;
 
   /**
    * Create an activator and a GuicePlugin using the 
@@ -63,20 +67,19 @@ public class Activator extends AbstractUIPlugin {
   @Override
   public void start(BundleContext context) throws Exception {
     super.start(context);
-    initThread = new Thread() {
-      @Override
+    initialization =
+        SharedExecutorProvider.sharedExecutor().submit(new Runnable() {
       public void run() {
         if (guicePlugin == null) {
           guicePlugin = new EclipseGuicePlugin(module, toolsModule);
         }
-        initThread = null;
       }
-    };
-    initThread.start();
+    });
   }
 
   @Override
   public void stop(BundleContext context) throws Exception {
+    EclipseProgressHandler.cancelAllJobs();
     plugin = null;
     super.stop(context);
   }
@@ -89,10 +92,15 @@ public class Activator extends AbstractUIPlugin {
    * Returns the GuicePlugin.
    */
   public EclipseGuicePlugin getGuicePlugin() {
-    if (initThread != null) {
+    if (initialization != null) {
       try {
-        initThread.join();
-      } catch (InterruptedException e) {}
+        initialization.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        new EclipseMessenger().logException(
+            "Guice plugin initialization failed", e.getCause());
+      }
     }
     if (guicePlugin == null) {
       guicePlugin = new EclipseGuicePlugin(module, toolsModule);
@@ -47,20 +47,25 @@ public class BindingsEditorAction implements IEditorActionDelegate {
    * Eclipse callback to have us run the bindings engine.
    */
   public void run(IAction action) {
-    JavaElementResolver resolver = new JavaElementResolver(editor);
-    EclipseJavaElement javaElement = resolver.getJavaElement()==null ? null :
-        new EclipseJavaElement(resolver.getJavaElement());
-    if (javaElement != null && javaElement.getType() != null) {
-      guicePlugin.getBindingsEngine(javaElement,
-          new EclipseJavaProject(resolver.getJavaElement().getJavaProject()));
+    final JavaElementResolver resolver = new JavaElementResolver(editor);
+    if (resolver.getJavaElement() != null) {
+      new FindBindingsJob(resolver.getJavaElement(), guicePlugin, new Runnable() {
+        public void run() {
+          notJavaElement(resolver);
+        }
+      }).schedule();
     } else {
-      IStatusLineManager statusManager = editor.getEditorSite().getActionBars().getStatusLineManager();
-      if (resolver.getSelection() != null) {
-        statusManager.setMessage(PluginTextValues.GUICE_PLUGIN_NAME + ": " +
-            PluginTextValues.SELECTION_NOT_JAVA_ELEMENT + " (" + resolver.getSelection() + ")");
-      } else {
-        statusManager.setMessage(PluginTextValues.GUICE_PLUGIN_NAME + ": " + PluginTextValues.SELECTION_NOT_JAVA_ELEMENT);
-      }
+      notJavaElement(resolver);
+    }
+  }
+
+  private void notJavaElement(JavaElementResolver resolver) {
+    IStatusLineManager statusManager = editor.getEditorSite().getActionBars().getStatusLineManager();
+    if (resolver.getSelection() != null) {
+      statusManager.setMessage(PluginTextValues.GUICE_PLUGIN_NAME + ": " +
+          PluginTextValues.SELECTION_NOT_JAVA_ELEMENT + " (" + resolver.getSelection() + ")");
+    } else {
+      statusManager.setMessage(PluginTextValues.GUICE_PLUGIN_NAME + ": " + PluginTextValues.SELECTION_NOT_JAVA_ELEMENT);
     }
   }
 
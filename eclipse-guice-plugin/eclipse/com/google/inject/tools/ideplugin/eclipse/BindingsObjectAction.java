@@ -51,11 +51,8 @@ public class BindingsObjectAction implements IObjectActionDelegate {
     IStructuredSelection selection = (IStructuredSelection) part.getSite()
         .getSelectionProvider().getSelection();
     IJavaElement element = (IJavaElement) selection.getFirstElement();
-    EclipseJavaElement javaElement = element==null ? null :
-        new EclipseJavaElement(element);
-    if (javaElement != null) {
-      guicePlugin.getBindingsEngine(javaElement,
-          new EclipseJavaProject(element.getJavaProject()));
+    if (element != null) {
+      new FindBindingsJob(element, guicePlugin, null).schedule();
     } else {
       guicePlugin.getMessenger().display(PluginTextValues.SELECTION_NO_BINDINGS);
     }
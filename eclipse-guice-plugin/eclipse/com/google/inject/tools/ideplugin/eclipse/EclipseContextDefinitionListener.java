@@ -16,6 +16,8 @@
 
 package com.google.inject.tools.ideplugin.eclipse;
 
+import java.util.concurrent.ExecutorService;
+
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.JavaModelException;
 
@@ -36,8 +38,9 @@ import com.google.inject.tools.suite.Messenger;
 class EclipseContextDefinitionListener extends EclipseSourceImpl
     implements CustomContextDefinitionSource {
   @Inject
-  public EclipseContextDefinitionListener(Messenger messenger) {
-    super(messenger);
+  public EclipseContextDefinitionListener(Messenger messenger,
+      EclipseTypeIndex typeIndex, ExecutorService executor) {
+    super(messenger, typeIndex, executor);
   }
   
   @Override
@@ -45,6 +48,14 @@ class EclipseContextDefinitionListener extends EclipseSourceImpl
     return Iterable.class.getName();
   }
   
+  /*
+   * Custom contexts name Iterable<Module> among their own superinterfaces.
+   */
+  @Override
+  protected boolean directSubtypesOnly() {
+    return true;
+  }
+  
   private static final String iterableLongModuleLong = 
     Iterable.class.getName() + "<" + Module.class.getName() + ">";
   private static final String iterableLongModule = 
@@ -18,7 +18,9 @@ package com.google.inject.tools.ideplugin.eclipse;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IAdaptable;
@@ -29,6 +31,7 @@ import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.IToolBarManager;
 import org.eclipse.jface.action.MenuManager;
 import org.eclipse.jface.action.Separator;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextOperationTarget;
@@ -47,9 +50,38 @@ import org.eclipse.ui.texteditor.IUpdate;
  * Displays error output from the Guice plugin that is logged to the
  * {@link com.google.inject.tools.suite.Messenger}.
  * 
+ * Messages are appended to the end of the log and only the most recent
+ * {@link #MAX_LINES} lines are kept.
+ * 
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 public class EclipseErrorView extends ViewPart {
+  /**
+   * The most lines of output retained in the view.
+   */
+  static final int MAX_LINES = 2000;
+
+  /**
+   * A message logged to the view, with the time it was logged.
+   */
+  static class LoggedMessage {
+    private final String message;
+    private final Date time;
+
+    LoggedMessage(String message) {
+      this.message = message;
+      this.time = new Date();
+    }
+
+    String message() {
+      return message;
+    }
+
+    Date time() {
+      return time;
+    }
+  }
+
   private IDocument document;
   private ITextViewer viewer;
 
@@ -177,10 +209,37 @@ public class EclipseErrorView extends ViewPart {
   }
 
   public void displayError(String message) {
-    String dateString =
-      new SimpleDateFormat("dd/MM HH:mm:ss").format(new Date());
-    String msg = "[" + dateString + "]   " + message;
-    document.set(document.get() + msg);
+    displayErrors(Collections.singletonList(new LoggedMessage(message)), 0);
+  }
+
+  /**
+   * Append the messages to the log, noting how many messages were dropped
+   * before them.
+   */
+  void displayErrors(List<LoggedMessage> messages, int dropped) {
+    if (document == null) {
+      return;
+    }
+    SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM HH:mm:ss");
+    StringBuilder text = new StringBuilder();
+    if (dropped > 0) {
+      text.append("[" + dropped + " messages dropped]\n");
+    }
+    for (LoggedMessage message : messages) {
+      text.append("[" + dateFormat.format(message.time()) + "]   "
+          + message.message());
+    }
+    try {
+      document.replace(document.getLength(), 0, text.toString());
+      int excessLines = document.getNumberOfLines() - MAX_LINES;
+      if (excessLines > 0) {
+        document.replace(0, document.getLineOffset(excessLines), "");
+      }
+    } catch (BadLocationException e) {
+      document.set(text.toString());
+    }
+    viewer.getTextWidget().setTopIndex(
+        viewer.getTextWidget().getLineCount() - 1);
   }
   
   protected void createToolbarActions() {
@@ -32,33 +32,31 @@ import com.google.inject.Inject;
 class EclipseGotoCodeLocationHandler implements GotoCodeLocationHandler {
   private final ProjectManager projectManager;
   private final Messenger messenger;
+  private final EclipseTypeLocator typeLocator;
 
   @Inject
   public EclipseGotoCodeLocationHandler(ProjectManager projectManager,
-      Messenger messenger) {
+      Messenger messenger, EclipseTypeLocator typeLocator) {
     this.projectManager = projectManager;
     this.messenger = messenger;
+    this.typeLocator = typeLocator;
   }
 
   public void run(GotoCodeLocation action) {
     try {
       EclipseJavaProject project =
           (EclipseJavaProject) projectManager.getCurrentProject();
-      String fixedName = action.getStackTraceElement().getClassName().replace('$', '.');
-      IType type =
-        project.getIJavaProject().findType(fixedName);
+      IType type = typeLocator.findType(project,
+          action.getStackTraceElement().getClassName());
       ICompilationUnit cu = type.getCompilationUnit();
       if (cu == null) {
         JavaUI.openInEditor(type);
       } else {
         ITextEditor editor = ((ITextEditor) JavaUI.openInEditor(cu));
-        int offset =
-          editor.getDocumentProvider().getDocument(editor.getEditorInput())
-          .getLineOffset(action.location() - 1);
-        int length =
-          editor.getDocumentProvider().getDocument(editor.getEditorInput())
-          .getLineLength(action.location() - 1);
-        editor.selectAndReveal(offset, length);
+        int[] range = typeLocator.lineRange(cu, action.location());
+        if (range != null) {
+          editor.selectAndReveal(range[0], range[1]);
+        }
       }
     } catch (Exception exception) {
       messenger.logException("GotoCodeLocation Action Exception", exception);
@@ -29,20 +29,21 @@ import com.google.inject.Inject;
 class EclipseGotoFileHandler implements GotoFileHandler {
   private final ProjectManager projectManager;
   private final Messenger messenger;
+  private final EclipseTypeLocator typeLocator;
 
   @Inject
   public EclipseGotoFileHandler(ProjectManager projectManager,
-      Messenger messenger) {
+      Messenger messenger, EclipseTypeLocator typeLocator) {
     this.projectManager = projectManager;
     this.messenger = messenger;
+    this.typeLocator = typeLocator;
   }
 
   public void run(GotoFile action) {
     try {
-      String fixedName = action.getClassname().replace('$', '.');
-      IType type =
-          ((EclipseJavaProject) projectManager.getCurrentProject())
-              .getIJavaProject().findType(fixedName);
+      IType type = typeLocator.findType(
+          (EclipseJavaProject) projectManager.getCurrentProject(),
+          action.getClassname());
       JavaUI.openInEditor(type);
     } catch (Exception exception) {
       messenger.logException("GotoFile Action Exception", exception);
@@ -39,10 +39,13 @@ public class EclipseGuicePlugin extends GuicePlugin {
   private static class GetToUIThread implements Runnable {
     private final Results results;
     private final Messenger messenger;
+    private final EclipseTypeLocator typeLocator;
 
-    public GetToUIThread(Results results, Messenger messenger) {
+    public GetToUIThread(Results results, Messenger messenger,
+        EclipseTypeLocator typeLocator) {
       this.results = results;
       this.messenger = messenger;
+      this.typeLocator = typeLocator;
     }
 
     public void run() {
@@ -50,7 +53,9 @@ public class EclipseGuicePlugin extends GuicePlugin {
         IWorkbenchPage activePage = PlatformUI.getWorkbench()
             .getWorkbenchWindows()[0].getActivePage();
         IViewPart viewPart = activePage.showView(PluginDefinitionValues.RESULTS_VIEW_ID);
-        ((EclipseResultsView) viewPart).displayResults(results);
+        EclipseResultsView resultsView = (EclipseResultsView) viewPart;
+        resultsView.setTypeLocator(typeLocator);
+        resultsView.displayResults(results);
       } catch (Throwable e) {
         messenger.logException("Error loading ResultsView", e);
       }
@@ -60,14 +65,17 @@ public class EclipseGuicePlugin extends GuicePlugin {
   @Singleton
   public static class ResultsViewImpl implements ResultsView {
     private final Messenger messenger;
+    private final EclipseTypeLocator typeLocator;
 
     @Inject
-    public ResultsViewImpl(Messenger messenger) {
+    public ResultsViewImpl(Messenger messenger, EclipseTypeLocator typeLocator) {
       this.messenger = messenger;
+      this.typeLocator = typeLocator;
     }
 
     public void displayResults(Results results) {
-      Display.getDefault().asyncExec(new GetToUIThread(results, messenger));
+      Display.getDefault().asyncExec(
+          new GetToUIThread(results, messenger, typeLocator));
     }
   }
 
@@ -26,6 +26,7 @@ import org.eclipse.jdt.core.ILocalVariable;
 import org.eclipse.jdt.core.IField;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeParameter;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.Signature;
 
 import com.google.inject.tools.ideplugin.JavaElement;
@@ -46,6 +47,7 @@ class EclipseJavaElement implements JavaElement {
   private String className;
   private final EclipseJavaProject javaProject;
   private boolean isConcrete;
+  private IType owningType;
 
   /**
    * Create a JavaElement.
@@ -110,24 +112,35 @@ class EclipseJavaElement implements JavaElement {
 
   private String getType(IJavaElement element, String signature) {
     try {
-      IType type = null;
+      String resolvedSignature = 
+        TypeUtil.resolveTypeSignature(getOwningType(), signature, false);
+      String className = getClassNameFromResolvedSignature(resolvedSignature);
+      return className;
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+  
+  /*
+   * The type signatures of the element are resolved relative to; found once
+   * since listing the types of a large unit is not cheap.
+   */
+  private IType getOwningType() throws JavaModelException {
+    if (owningType == null) {
+      owningType = (IType)element.getAncestor(IJavaElement.TYPE);
+    }
+    if (owningType == null) {
       ICompilationUnit compilationUnit = (ICompilationUnit)element.getAncestor(IJavaElement.COMPILATION_UNIT);
       if (compilationUnit != null) {
-        type = compilationUnit.getAllTypes()[0];
-        
+        owningType = compilationUnit.getAllTypes()[0];
       } else {
         IClassFile classFile = (IClassFile)element.getAncestor(IJavaElement.CLASS_FILE);
         if (classFile != null) {
-          type = classFile.getType();
+          owningType = classFile.getType();
         }
       }
-      String resolvedSignature = 
-        TypeUtil.resolveTypeSignature(type, signature, false);
-      String className = getClassNameFromResolvedSignature(resolvedSignature);
-      return className;
-    } catch (Throwable e) {
-      return null;
     }
+    return owningType;
   }
   
   private String getClassNameFromResolvedSignature(String resolvedSignature) {
@@ -215,18 +228,7 @@ class EclipseJavaElement implements JavaElement {
   
   private boolean findIsConcreteClass(String signature) {
     try {
-      IType type = null;
-      ICompilationUnit compilationUnit = (ICompilationUnit)element.getAncestor(IJavaElement.COMPILATION_UNIT);
-      if (compilationUnit != null) {
-        type = compilationUnit.getAllTypes()[0];
-        
-      } else {
-        IClassFile classFile = (IClassFile)element.getAncestor(IJavaElement.CLASS_FILE);
-        if (classFile != null) {
-          type = classFile.getType();
-        }
-      }
-      IType resolvedType = TypeUtil.resolveType(type, signature);
+      IType resolvedType = TypeUtil.resolveType(getOwningType(), signature);
       return findIsConcreteClass(resolvedType);
     } catch (Throwable throwable) {
       return false;
@@ -16,6 +16,8 @@
 
 package com.google.inject.tools.ideplugin.eclipse;
 
+import java.util.List;
+
 import com.google.inject.Singleton;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Display;
@@ -29,6 +31,10 @@ import com.google.inject.tools.suite.Messenger;
 /**
  * Eclipse implementation of the Messenger object.
  * 
+ * Logged messages are queued in a bounded buffer and handed to the
+ * {@link EclipseErrorView} in periodic batches on the UI thread, so logging
+ * never waits on the display.
+ * 
  * {@inheritDoc Messenger}
  * 
  * @author Darren Creutz (dcreutz@gmail.com)
@@ -52,28 +58,52 @@ class EclipseMessenger implements Messenger {
     }
   }
 
-  private class ErrorLogDisplayer implements Runnable {
-    private final String message;
+  /**
+   * How long to wait after a message is logged before flushing the buffer to
+   * the error view, in milliseconds.
+   */
+  static final int FLUSH_INTERVAL = 200;
 
-    public ErrorLogDisplayer(String message) {
-      this.message = message;
+  /**
+   * The most messages held waiting for the error view; older messages are
+   * dropped first.
+   */
+  static final int MAX_PENDING_MESSAGES = 500;
+
+  private final MessageBuffer pending = new MessageBuffer(MAX_PENDING_MESSAGES);
+
+  private final Runnable flushScheduler = new Runnable() {
+    public void run() {
+      try {
+        Display.getDefault().timerExec(FLUSH_INTERVAL, errorLogFlusher);
+      } catch (RuntimeException e) {
+        // the display is going away
+        pending.cancelFlush();
+      }
     }
+  };
 
+  private final Runnable errorLogFlusher = new Runnable() {
     public void run() {
+      List<EclipseErrorView.LoggedMessage> messages = pending.drain();
+      int dropped = pending.takeDropped();
+      if (messages.isEmpty() && dropped == 0) {
+        return;
+      }
       try {
         IWorkbenchPage activePage = PlatformUI.getWorkbench()
             .getWorkbenchWindows()[0].getActivePage();
         IViewPart viewPart = activePage.showView(
             PluginDefinitionValues.ERROR_VIEW_ID,
             null, IWorkbenchPage.VIEW_CREATE);
-        ((EclipseErrorView) viewPart).displayError(message);
+        ((EclipseErrorView) viewPart).displayErrors(messages, dropped);
       } catch (java.lang.IllegalStateException e) {
         // means we are running in testing mode
       } catch (Exception e) {
         // means something very bad happened
       }
     }
-  }
+  };
 
   public void display(String message) {
     try {
@@ -86,12 +116,17 @@ class EclipseMessenger implements Messenger {
   }
 
   private void log(String message) {
+    if (!pending.add(new EclipseErrorView.LoggedMessage(message))) {
+      return;
+    }
     try {
-      Display.getDefault().syncExec(new ErrorLogDisplayer(message));
+      Display.getDefault().asyncExec(flushScheduler);
     } catch (java.lang.UnsatisfiedLinkError error) {
       // means we are running in testing mode
+      pending.cancelFlush();
     } catch (Throwable t) {
       // means something very bad happened
+      pending.cancelFlush();
     }
   }
 
@@ -16,6 +16,8 @@
 
 package com.google.inject.tools.ideplugin.eclipse;
 
+import java.util.concurrent.ExecutorService;
+
 import org.eclipse.jdt.core.IType;
 
 import com.google.inject.Module;
@@ -34,8 +36,9 @@ import com.google.inject.tools.suite.Messenger;
 @Singleton
 class EclipseModulesListener extends EclipseSourceImpl implements ModulesSource {
   @Inject
-  public EclipseModulesListener(Messenger messenger) {
-    super(messenger);
+  public EclipseModulesListener(Messenger messenger, EclipseTypeIndex typeIndex,
+      ExecutorService executor) {
+    super(messenger, typeIndex, executor);
   }
   
   @Override
@@ -47,4 +50,12 @@ class EclipseModulesListener extends EclipseSourceImpl implements ModulesSource
   protected boolean isTypeWeCareAbout(IType type) {
     return true;
   }
+  
+  /*
+   * The builder maps the class files it compiles to the modules they define.
+   */
+  @Override
+  protected boolean changesReportedByBuilder(EclipseJavaProject project) {
+    return GuiceNature.hasNature(project.getIJavaProject().getProject());
+  }
 }
@@ -17,17 +17,25 @@
 package com.google.inject.tools.ideplugin.eclipse;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 
 import com.google.inject.Inject;
+import com.google.inject.tools.ideplugin.JavaProject;
 import com.google.inject.tools.suite.Messenger;
 import com.google.inject.tools.suite.ProgressHandler;
 
@@ -36,9 +44,27 @@ import com.google.inject.tools.suite.ProgressHandler;
  * 
  * {@inheritDoc ProgressHandler}
  * 
+ * Jobs are scheduled with a rule per project their steps work on, so the work
+ * of different projects runs concurrently while the work of one project is
+ * serialized.  Every job belongs to {@link #GUICE_JOB_FAMILY} and to the family
+ * of each of its projects so they can be cancelled together; a job repeating
+ * the work of an earlier one can cancel that by its label and project.
+ * 
+ * Work asked for by a job already holding the rule of one of its projects
+ * runs at once under the caller's rule, on the caller's thread: scheduled, it
+ * would wait for the caller to finish, which may in turn wait for it.
+ * 
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 class EclipseProgressHandler implements ProgressHandler {
+  /**
+   * The family of every job scheduled by the plugin.
+   */
+  static final Object GUICE_JOB_FAMILY = new Object();
+
+  private static final ConcurrentMap<String, ProjectRule> projectRules =
+      new ConcurrentHashMap<String, ProjectRule>();
+
   private final Messenger messenger;
   private final List<ProgressStep> steps;
   private ProgressHandlerJob job;
@@ -70,13 +96,32 @@ class EclipseProgressHandler implements ProgressHandler {
     go(label, backgroundAutomatically, false);
   }
 
-  class ExecuteAfterListener implements IJobChangeListener {
+  /*
+   * Runs the code to execute after the steps; if the job was cancelled before
+   * it started, the steps are cancelled so that nothing waits on them.
+   */
+  class JobDoneListener implements IJobChangeListener {
+    private final ProgressHandlerJob doneJob;
+
+    public JobDoneListener(ProgressHandlerJob doneJob) {
+      this.doneJob = doneJob;
+    }
+
     public void aboutToRun(IJobChangeEvent event) {
     }
     public void awake(IJobChangeEvent event) {
     }
     public void done(IJobChangeEvent event) {
-      executeAfter.run();
+      if (!doneJob.started) {
+        for (ProgressStep step : steps) {
+          step.cancel();
+          step.complete();
+        }
+        done = true;
+      }
+      if (executeAfter != null) {
+        executeAfter.run();
+      }
     }
     public void running(IJobChangeEvent event) {
     }
@@ -88,14 +133,118 @@ class EclipseProgressHandler implements ProgressHandler {
   
   public void go(String label, boolean backgroundAutomatically, boolean cancelThread) {
     done = false;
-    job = new ProgressHandlerJob(label, cancelThread);
-    job.setUser(!backgroundAutomatically);
-    if (executeAfter != null) {
-      job.addJobChangeListener(new ExecuteAfterListener());
+    Set<ProjectRule> rules = projectRules();
+    ISchedulingRule rule = schedulingRule(rules);
+    job = new ProgressHandlerJob(label, cancelThread, rules);
+    if (rule != null && heldByCaller(rule)) {
+      job.run(new NullProgressMonitor());
+      if (executeAfter != null) {
+        executeAfter.run();
+      }
+      return;
     }
+    job.setUser(!backgroundAutomatically);
+    job.setRule(rule);
+    job.addJobChangeListener(new JobDoneListener(job));
     job.schedule();
   }
 
+  private Set<ProjectRule> projectRules() {
+    Set<ProjectRule> rules = new LinkedHashSet<ProjectRule>();
+    for (ProgressStep step : steps) {
+      if (step instanceof ProjectProgressStep
+          && ((ProjectProgressStep) step).project() instanceof JavaProject) {
+        rules.add(ruleFor(((JavaProject) ((ProjectProgressStep) step).project())
+            .getName()));
+      }
+    }
+    return rules;
+  }
+
+  private ISchedulingRule schedulingRule(Set<ProjectRule> rules) {
+    if (rules.isEmpty()) {
+      return null;
+    }
+    return rules.size() == 1 ? rules.iterator().next()
+        : MultiRule.combine(rules.toArray(new ISchedulingRule[rules.size()]));
+  }
+
+  private static boolean heldByCaller(ISchedulingRule rule) {
+    ISchedulingRule currentRule = Job.getJobManager().currentRule();
+    return currentRule != null && currentRule.isConflicting(rule);
+  }
+
+  static ProjectRule ruleFor(String projectName) {
+    ProjectRule rule = projectRules.get(projectName);
+    if (rule == null) {
+      ProjectRule newRule = new ProjectRule(projectName);
+      rule = projectRules.putIfAbsent(projectName, newRule);
+      if (rule == null) {
+        rule = newRule;
+      }
+    }
+    return rule;
+  }
+
+  /**
+   * Cancel the jobs, scheduled or running, working on the given project.
+   */
+  static void cancelJobs(String projectName) {
+    Job.getJobManager().cancel(ruleFor(projectName));
+  }
+
+  /**
+   * Cancel the jobs with the given label working on the given project, such
+   * as an earlier run of work the user has asked for again.
+   */
+  static void cancelJobs(String projectName, String label) {
+    Job.getJobManager().cancel(new LabelFamily(ruleFor(projectName), label));
+  }
+
+  /**
+   * Cancel all the jobs scheduled by the plugin.
+   */
+  static void cancelAllJobs() {
+    Job.getJobManager().cancel(GUICE_JOB_FAMILY);
+  }
+
+  /**
+   * The scheduling rule, and job family, of the work on a single project.
+   */
+  static class ProjectRule implements ISchedulingRule {
+    private final String projectName;
+
+    ProjectRule(String projectName) {
+      this.projectName = projectName;
+    }
+
+    public boolean contains(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    public boolean isConflicting(ISchedulingRule rule) {
+      return rule == this;
+    }
+
+    @Override
+    public String toString() {
+      return "ProjectRule(" + projectName + ")";
+    }
+  }
+
+  /**
+   * The family of the jobs with a label working on a project.
+   */
+  static class LabelFamily {
+    private final ProjectRule rule;
+    private final String label;
+
+    LabelFamily(ProjectRule rule, String label) {
+      this.rule = rule;
+      this.label = label;
+    }
+  }
+
   public void waitFor() throws InterruptedException {
     job.join();
   }
@@ -147,16 +296,32 @@ class EclipseProgressHandler implements ProgressHandler {
   private class ProgressHandlerJob extends Job {
     private final String label;
     private final boolean cancelThread;
+    private final Set<ProjectRule> families;
     private volatile ProgressStep currentStep;
+    private volatile boolean started;
     
-    public ProgressHandlerJob(String label, boolean cancelThread) {
+    public ProgressHandlerJob(String label, boolean cancelThread,
+        Set<ProjectRule> families) {
       super(label);
       this.label = label;
       this.cancelThread = cancelThread;
+      this.families = families;
+      started = false;
+    }
+
+    @Override
+    public boolean belongsTo(Object family) {
+      if (family instanceof LabelFamily) {
+        LabelFamily labelFamily = (LabelFamily) family;
+        return families.contains(labelFamily.rule)
+            && label.equals(labelFamily.label);
+      }
+      return family == GUICE_JOB_FAMILY || families.contains(family);
     }
 
     @Override
     protected IStatus run(IProgressMonitor monitor) {
+      started = true;
       EclipseProgressHandler.this.monitor = monitor;
       monitor.beginTask(label, steps.size() * 1000);
       if (cancelThread) spinOffCancelThread(monitor);
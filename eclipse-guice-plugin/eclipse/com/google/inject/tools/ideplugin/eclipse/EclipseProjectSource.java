@@ -100,6 +100,7 @@ class EclipseProjectSource extends AbstractProjectSourceImpl {
             new EclipseJavaProject((IJavaProject) event.getDelta().getElement());
         switch (event.getDelta().getKind()) {
           case IJavaElementDelta.F_CLOSED:
+            EclipseProgressHandler.cancelJobs(javaManager.getName());
             javaManagerRemoved(javaManager);
             break;
           case IJavaElementDelta.F_OPENED:
@@ -16,25 +16,27 @@
 
 package com.google.inject.tools.ideplugin.eclipse;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.IOpenListener;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.OpenEvent;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.part.ViewPart;
-import org.eclipse.swt.layout.FillLayout;
-import org.eclipse.swt.layout.GridData;
-import org.eclipse.swt.layout.GridLayout;
-import org.eclipse.swt.SWT;
-import org.eclipse.ui.forms.ManagedForm;
-import org.eclipse.ui.forms.events.HyperlinkEvent;
-import org.eclipse.ui.forms.events.IHyperlinkListener;
-import org.eclipse.ui.forms.widgets.Form;
-import org.eclipse.ui.forms.widgets.FormToolkit;
-import org.eclipse.ui.forms.widgets.Hyperlink;
-import org.eclipse.ui.forms.widgets.ScrolledForm;
 
 import com.google.inject.tools.ideplugin.results.Results;
 import com.google.inject.tools.ideplugin.results.ResultsView;
-import com.google.inject.tools.ideplugin.results.ActionStringBuilder.ActionString;
 import com.google.inject.tools.ideplugin.results.ActionStringBuilder.ActionStringElement;
 import com.google.inject.tools.ideplugin.ActionsHandler;
 import com.google.inject.tools.suite.Messenger;
@@ -43,18 +45,25 @@ import com.google.inject.tools.suite.Messenger;
  * The Eclipse implementation of the {@link ResultsView}, a view for displaying
  * results and error messages (a view is a tab in the lower panel).
  * 
+ * The results are shown in a virtual tree, so rows (and their text) are only
+ * created as they become visible, and nodes added to the results after they
+ * are displayed appear as they arrive.
+ * 
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 public class EclipseResultsView extends ViewPart implements ResultsView {
-  private ManagedForm managedForm;
-  private Composite body;
-  private Messenger messenger;
+  private TreeViewer viewer;
+  private Results results;
+  private EclipseTypeLocator typeLocator;
+  private final Messenger messenger;
+  private final ResultsChangedListener resultsListener;
 
   /**
    * The constructor. This will be called by Eclipse internally.
    */
   public EclipseResultsView() {
     messenger = Activator.getDefault().getGuicePlugin().getMessenger();
+    resultsListener = new ResultsChangedListener();
   }
 
   private ActionsHandler getActionsHandler() {
@@ -68,112 +77,193 @@ public class EclipseResultsView extends ViewPart implements ResultsView {
    */
   @Override
   public void createPartControl(Composite parent) {
-    createManagedForm(parent);
+    createTreeViewer(parent);
     createToolbarActions();
   }
   
-  private void createManagedForm(Composite parent) {
-    managedForm = new ManagedForm(parent);
-    managedForm.getForm().setExpandHorizontal(true);
-    managedForm.getForm().setExpandVertical(true);
-    managedForm.getForm().getBody().setLayout(new FillLayout());
-    managedForm.getForm().setText(PluginTextValues.GUICE_RESULTS);
-    managedForm.getForm().pack();
-    managedForm.getForm().reflow(true);
+  private void createTreeViewer(Composite parent) {
+    viewer = new TreeViewer(parent, SWT.VIRTUAL | SWT.SINGLE | SWT.H_SCROLL | SWT.V_SCROLL);
+    viewer.setUseHashlookup(true);
+    viewer.setContentProvider(new LazyNodeContentProvider());
+    viewer.setLabelProvider(new NodeLabelProvider());
+    viewer.addOpenListener(new NodeOpenListener());
+    ColumnViewerToolTipSupport.enableFor(viewer);
+    setContentDescription(PluginTextValues.GUICE_RESULTS);
   }
 
-  private class HyperlinkListener implements IHyperlinkListener {
-    private final ActionsHandler.Action action;
+  /*
+   * Supplies children on demand as the tree asks for visible rows.  The
+   * results are locked while read since they may still be growing.
+   */
+  private class LazyNodeContentProvider implements ILazyTreeContentProvider {
+    private final Map<Results.Node, Results.Node> parents =
+        new IdentityHashMap<Results.Node, Results.Node>();
+
+    public void updateElement(Object parent, int index) {
+      Results.Node parentNode = (Results.Node) parent;
+      Results.Node child;
+      int childCount;
+      synchronized (lock()) {
+        if (index >= parentNode.children().size()) {
+          return;
+        }
+        child = parentNode.children().get(index);
+        childCount = child.children().size();
+      }
+      parents.put(child, parentNode);
+      viewer.replace(parent, index, child);
+      viewer.setChildCount(child, childCount);
+      if (typeLocator != null) {
+        typeLocator.prefetch(child);
+      }
+    }
+
+    public void updateChildCount(Object element, int currentChildCount) {
+      int childCount;
+      synchronized (lock()) {
+        childCount = ((Results.Node) element).children().size();
+      }
+      if (childCount != currentChildCount) {
+        viewer.setChildCount(element, childCount);
+      }
+    }
+
+    public Object getParent(Object element) {
+      return parents.get(element);
+    }
+
+    public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+      parents.clear();
+    }
+
+    public void dispose() {
+      parents.clear();
+    }
+
+    private Object lock() {
+      return results != null ? results : this;
+    }
+  }
 
-    public HyperlinkListener(ActionsHandler.Action action) {
-      this.action = action;
+  private static class NodeLabelProvider extends ColumnLabelProvider {
+    @Override
+    public String getText(Object element) {
+      return ((Results.Node) element).getTextString();
     }
 
-    public void linkActivated(HyperlinkEvent e) {
-      getActionsHandler().run(action);
+    @Override
+    public String getToolTipText(Object element) {
+      StringBuilder tooltip = new StringBuilder();
+      for (ActionStringElement textElement : ((Results.Node) element).getText().elements()) {
+        if (textElement.tooltip() != null) {
+          if (tooltip.length() > 0) {
+            tooltip.append("\n");
+          }
+          tooltip.append(textElement.tooltip());
+        }
+      }
+      return tooltip.length() > 0 ? tooltip.toString() : null;
     }
 
-    public void linkEntered(HyperlinkEvent e) {
+    @Override
+    public Color getForeground(Object element) {
+      return action((Results.Node) element) != null
+          ? Display.getCurrent().getSystemColor(SWT.COLOR_LINK_FOREGROUND) : null;
     }
+  }
 
-    public void linkExited(HyperlinkEvent e) {
+  /*
+   * Return the first action in the node's text, which is the one the
+   * hyperlinks of the node would have run.
+   */
+  private static ActionsHandler.Action action(Results.Node node) {
+    for (ActionStringElement element : node.getText().elements()) {
+      if (element.action() != null
+          && !(element.action() instanceof ActionsHandler.NullAction)) {
+        return element.action();
+      }
     }
+    return null;
   }
 
-  private Form makeFormFromNode(FormToolkit toolkit, Composite body,
-      int depth, Results.Node node) {
-    Form nodeForm = toolkit.createForm(body);
-    Composite nodeFormBody = nodeForm.getBody();
-    GridLayout layout = new GridLayout();
-    layout.marginHeight = 0;
-    layout.marginBottom = 0;
-    layout.marginLeft = 10 + 10 * depth;
-    layout.marginRight = 0;
-    layout.marginTop = 0;
-    layout.marginWidth = 0;
-    layout.numColumns = node.getText().elements().size();
-    layout.horizontalSpacing = 0;
-    layout.verticalSpacing = 0;
-    nodeFormBody.setLayout(layout);
-    ActionString text = node.getText();
-    for (ActionStringElement element : text.elements()) {
-      if (element.action() == null
-          || element.action() instanceof ActionsHandler.NullAction) {
-        Label label = toolkit.createLabel(nodeFormBody, element.label());
-        label.setToolTipText(element.tooltip());
-        label.setEnabled(true);
-        label.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, true, true, 1, 1));
-      } else {
-        Hyperlink link =
-            toolkit.createHyperlink(nodeFormBody, element.label(), SWT.WRAP);
-        link.addHyperlinkListener(new HyperlinkListener(element.action()));
-        link.setToolTipText(element.tooltip());
-        link.setEnabled(true);
-        link.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, true, true, 1, 1));
+  private class NodeOpenListener implements IOpenListener {
+    public void open(OpenEvent event) {
+      Object element = ((IStructuredSelection) event.getSelection()).getFirstElement();
+      if (element instanceof Results.Node) {
+        ActionsHandler.Action action = action((Results.Node) element);
+        if (action != null && getActionsHandler() != null) {
+          getActionsHandler().run(action);
+        } else if (!viewer.getExpandedState(element)) {
+          viewer.expandToLevel(element, 1);
+        }
       }
     }
-    for (Results.Node child : node.children()) {
-      Form subform = makeFormFromNode(toolkit, body, depth + 1, child);
-      subform.setLayoutData(new GridData(SWT.LEFT, SWT.TOP, true, true, 
-          node.getText().elements().size(), 1));
+  }
+
+  /*
+   * Refreshes the tree when results on display grow; refreshes requested while
+   * one is pending are coalesced.
+   */
+  private class ResultsChangedListener implements Results.ResultsListener {
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    public void resultsChanged(final Results changed) {
+      if (refreshPending.compareAndSet(false, true)) {
+        try {
+          Display.getDefault().asyncExec(new Runnable() {
+            public void run() {
+              refreshPending.set(false);
+              if (changed == results && viewer != null
+                  && !viewer.getControl().isDisposed()) {
+                viewer.refresh();
+              }
+            }
+          });
+        } catch (Throwable t) {
+          refreshPending.set(false);
+        }
+      }
     }
-    nodeForm.pack();
-    return nodeForm;
+  }
+
+  /**
+   * Look up the links of rows in the background as they are shown.
+   */
+  void setTypeLocator(EclipseTypeLocator typeLocator) {
+    this.typeLocator = typeLocator;
   }
 
   public void useResults(Results results) {
-    if (body != null) {
-      body.dispose();
-    }
-    
-    FormToolkit toolkit = managedForm.getToolkit();
-    ScrolledForm form = managedForm.getForm();
-    body = toolkit.createComposite(form.getBody());
-    GridLayout layout = new GridLayout();
-    layout.marginHeight = 0;
-    layout.marginBottom = 0;
-    layout.marginLeft = 0;
-    layout.marginRight = 0;
-    layout.marginTop = 0;
-    layout.marginWidth = 0;
-    layout.horizontalSpacing = 0;
-    layout.verticalSpacing = 3;
-    body.setLayout(layout);
+    if (this.results != null) {
+      this.results.removeListener(resultsListener);
+    }
+    this.results = results;
     Results.Node root = results.getRoot();
-    form.setText(root.getTextString());
+    setContentDescription(root.getTextString());
     this.setTitleToolTip(root.getTextString());
-    for (Results.Node child : root.children()) {
-      makeFormFromNode(toolkit, body, 1, child);
+    results.addListener(resultsListener);
+    viewer.setInput(root);
+    int childCount;
+    synchronized (results) {
+      childCount = root.children().size();
     }
-    body.pack();
-    form.reflow(true);
+    viewer.setChildCount(root, childCount);
+    viewer.expandToLevel(2);
   }
 
   @Override
   public void setFocus() {
-    if (managedForm != null) {
-      managedForm.getForm().setFocus();
+    if (viewer != null) {
+      viewer.getControl().setFocus();
+    }
+  }
+
+  @Override
+  public void dispose() {
+    if (results != null) {
+      results.removeListener(resultsListener);
     }
+    super.dispose();
   }
 
   public void displayResults(Results results) {
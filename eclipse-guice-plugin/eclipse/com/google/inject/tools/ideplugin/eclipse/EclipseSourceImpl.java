@@ -16,12 +16,21 @@
 
 package com.google.inject.tools.ideplugin.eclipse;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.core.ElementChangedEvent;
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.ICompilationUnit;
@@ -29,9 +38,8 @@ import org.eclipse.jdt.core.IElementChangedListener;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaElementDelta;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
-import org.eclipse.jdt.core.ITypeHierarchy;
-import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 
@@ -51,20 +59,31 @@ import com.google.inject.tools.suite.ProgressHandler.ProgressMonitor;
  */
 @Singleton
 abstract class EclipseSourceImpl extends AbstractSourceImpl {
-  private final Map<EclipseJavaProject, ITypeHierarchy> typeHierarchies;
   private final Map<EclipseJavaProject, Set<String>> cachedHierarchies;
+  private final Map<EclipseJavaProject, Map<String, Set<String>>> typesByUnit;
   private final Map<EclipseJavaProject, IType> types;
-  private final Map<EclipseJavaProject, ITypeHierarchyChangedListener> typeListeners;
+  private final Map<EclipseJavaProject, KnownSubtypes> knownSubtypes;
+  private final EclipseTypeIndex typeIndex;
+  private final ExecutorService executor;
+  private final ConcurrentMap<IJavaProject, EclipseJavaProject> projectWrappers;
+  private final Map<ICompilationUnit, PendingUnit> pendingUnits;
+  private final AtomicBoolean updatingUnits;
   private boolean listenForChanges;
   private ElementChangedListener changeListener;
   
   @Inject
-  public EclipseSourceImpl(Messenger messenger) {
+  public EclipseSourceImpl(Messenger messenger, EclipseTypeIndex typeIndex,
+      ExecutorService executor) {
     super(messenger);
-    typeHierarchies = new HashMap<EclipseJavaProject, ITypeHierarchy>();
+    this.typeIndex = typeIndex;
+    this.executor = executor;
+    projectWrappers = new ConcurrentHashMap<IJavaProject, EclipseJavaProject>();
+    pendingUnits = new LinkedHashMap<ICompilationUnit, PendingUnit>();
+    updatingUnits = new AtomicBoolean(false);
     cachedHierarchies = new HashMap<EclipseJavaProject, Set<String>>();
+    typesByUnit = new HashMap<EclipseJavaProject, Map<String, Set<String>>>();
     types = new HashMap<EclipseJavaProject, IType>();
-    typeListeners = new HashMap<EclipseJavaProject, ITypeHierarchyChangedListener>();
+    knownSubtypes = new HashMap<EclipseJavaProject, KnownSubtypes>();
   }
   
   public void listenForChanges(boolean listenForChanges) {
@@ -92,18 +111,22 @@ abstract class EclipseSourceImpl extends AbstractSourceImpl {
   private void stopListeningForChanges() {
     JavaCore.removeElementChangedListener(changeListener);
     for (JavaProject project : projects) {
-      if (typeHierarchies.get(project) != null) {
-        typeHierarchies.get(project).removeTypeHierarchyChangedListener(
-            typeListeners.get(project));
-      }
-      cachedHierarchies.remove(project);
-      typeListeners.remove(project);
-      typeHierarchies.remove(project);
-      types.remove(project);
+      forgetProject(project);
     }
     changeListener = null;
   }
   
+  /*
+   * Drop what is kept for a project that is closed, removed or no longer
+   * listened to.
+   */
+  private synchronized void forgetProject(JavaProject project) {
+    cachedHierarchies.remove(project);
+    typesByUnit.remove(project);
+    types.remove(project);
+    knownSubtypes.remove(project);
+  }
+  
   @Override
   protected void initialize(JavaProject javaManager) {
     super.initialize(javaManager);
@@ -114,24 +137,60 @@ abstract class EclipseSourceImpl extends AbstractSourceImpl {
   
   protected abstract String getTypeName();
   
+  /*
+   * Return true if only the direct implementors of the type in project sources
+   * can be types we care about.
+   */
+  protected boolean directSubtypesOnly() {
+    return false;
+  }
+  
+  /*
+   * Return true if the GuiceBuilder reports edits to our types in the project
+   * once they are compiled, so they need not be reported as they are made.
+   */
+  protected boolean changesReportedByBuilder(EclipseJavaProject project) {
+    return false;
+  }
+  
   protected abstract boolean isTypeWeCareAbout(IType type) throws JavaModelException;
   
+  /*
+   * Find the initial set of types from the shared type index, recording which
+   * compilation unit each came from; after that the set is maintained from the
+   * java element deltas of the units that change.
+   */
   protected void createTypeHierarchy(JavaProject project) {
     try {
       EclipseJavaProject javaManager = (EclipseJavaProject)project;
       IType type =
         javaManager.getIJavaProject().findType(getTypeName());
       if (type != null && type.getJavaProject().equals(javaManager.getIJavaProject())) {
-        types.put(javaManager, type);
-        typeHierarchies.put(javaManager, types.get(javaManager)
-            .newTypeHierarchy(null));
-        if (typeHierarchies.get(javaManager) != null) {
-          cachedHierarchies.put(javaManager, readHierarchy(javaManager));
-          typeListeners.put(javaManager, new MyTypeHierarchyChangedListener(javaManager));
-          typeHierarchies.get(javaManager).addTypeHierarchyChangedListener(
-              typeListeners.get(javaManager));
-        } else {
-          cachedHierarchies.put(javaManager, new HashSet<String>());
+        Set<String> names = new HashSet<String>();
+        Map<String, Set<String>> units = new HashMap<String, Set<String>>();
+        KnownSubtypes known =
+            new KnownSubtypes(getTypeName(), directSubtypesOnly());
+        for (IType subtype : typeIndex.getSubtypes(getTypeName(),
+            directSubtypesOnly(), javaManager.getIJavaProject(), null)) {
+          known.add(subtype);
+          if (isCandidate(javaManager, subtype)) {
+            names.add(subtype.getFullyQualifiedName());
+            ICompilationUnit cu = subtype.getCompilationUnit();
+            if (cu != null) {
+              Set<String> unitTypes = units.get(cu.getHandleIdentifier());
+              if (unitTypes == null) {
+                unitTypes = new HashSet<String>();
+                units.put(cu.getHandleIdentifier(), unitTypes);
+              }
+              unitTypes.add(subtype.getFullyQualifiedName());
+            }
+          }
+        }
+        synchronized (this) {
+          types.put(javaManager, type);
+          cachedHierarchies.put(javaManager, names);
+          typesByUnit.put(javaManager, units);
+          knownSubtypes.put(javaManager, known);
         }
       }
     } catch (Throwable throwable) {
@@ -139,38 +198,249 @@ abstract class EclipseSourceImpl extends AbstractSourceImpl {
     }
   }
   
-  private Set<String> readHierarchy(EclipseJavaProject project) {
-    Set<String> types = new HashSet<String>();
-    for (IType type : typeHierarchies.get(project).getAllSubtypes(this.types.get(project))) {
-      try {
-        if (isTypeWeCareAbout(type)) {
-          types.add(type.getFullyQualifiedName());
+  /*
+   * Return true if the given type, already known to be a subtype, is one this
+   * source reports for the given project.
+   */
+  private boolean isCandidate(EclipseJavaProject project, IType type) {
+    try {
+      return type.getJavaProject().equals(project.getIJavaProject()) &&
+          type.isClass() && !Flags.isAbstract(type.getFlags()) &&
+          isTypeWeCareAbout(type);
+    } catch (JavaModelException e) {
+      return false;
+    }
+  }
+  
+  /*
+   * Re-examine a single compilation unit and report the types it gained, lost
+   * or changed.  The types are checked against the known subtypes by the
+   * names of their supertypes.  Unless the unit is itself examined again for
+   * a change to its supertypes, the units of the known subtypes of its types
+   * are queued in turn, since what those inherit may have changed.
+   */
+  private void unitChanged(EclipseJavaProject project, ICompilationUnit cu,
+      int kind, boolean inherited) throws JavaModelException {
+    String unit = cu.getHandleIdentifier();
+    Set<String> supertypes;
+    synchronized (this) {
+      KnownSubtypes known = knownSubtypes.get(project);
+      if (known == null) {
+        return;
+      }
+      supertypes = known.supertypesOutside(unit);
+    }
+    Map<String, Set<String>> subtypes = new HashMap<String, Set<String>>();
+    Set<String> current = new HashSet<String>();
+    if (kind != IJavaElementDelta.REMOVED && cu.exists()) {
+      IType[] unitTypes = cu.getAllTypes();
+      subtypes = subtypesAmong(unitTypes, supertypes);
+      for (IType type : unitTypes) {
+        if (subtypes.containsKey(type.getFullyQualifiedName('.'))
+            && isCandidate(project, type)) {
+          current.add(type.getFullyQualifiedName());
         }
-      } catch (JavaModelException e) {}
+      }
+    }
+    Set<String> previous;
+    Set<String> subtypeUnits = new HashSet<String>();
+    synchronized (this) {
+      Map<String, Set<String>> units = typesByUnit.get(project);
+      Set<String> names = cachedHierarchies.get(project);
+      KnownSubtypes known = knownSubtypes.get(project);
+      if (units == null || names == null || known == null) {
+        return;
+      }
+      Set<String> changedTypes = new HashSet<String>(subtypes.keySet());
+      changedTypes.addAll(known.put(unit, subtypes).keySet());
+      if (!inherited && !directSubtypesOnly()) {
+        subtypeUnits.addAll(known.unitsBelow(changedTypes));
+        subtypeUnits.remove(unit);
+      }
+      previous = units.get(cu.getHandleIdentifier());
+      if (previous == null) {
+        previous = new HashSet<String>();
+      }
+      if (current.isEmpty()) {
+        units.remove(cu.getHandleIdentifier());
+      } else {
+        units.put(cu.getHandleIdentifier(), current);
+      }
+      names.removeAll(previous);
+      names.addAll(current);
+    }
+    for (String oldType : previous) {
+      if (!current.contains(oldType)) {
+        removed(project, oldType);
+      }
+    }
+    boolean reportChanges = inherited || (kind == IJavaElementDelta.CHANGED
+        && !changesReportedByBuilder(project));
+    for (String newType : current) {
+      if (!previous.contains(newType)) {
+        added(project, newType);
+      } else if (reportChanges) {
+        changed(project, newType);
+      }
+    }
+    for (String subtypeUnit : subtypeUnits) {
+      IJavaElement element = JavaCore.create(subtypeUnit);
+      if (element instanceof ICompilationUnit) {
+        queueUnit(project, (ICompilationUnit) element,
+            IJavaElementDelta.CHANGED, true);
+      }
     }
-    return types;
   }
   
-  class MyTypeHierarchyChangedListener implements ITypeHierarchyChangedListener {
-    private final EclipseJavaProject project;
-    public MyTypeHierarchyChangedListener(EclipseJavaProject project) {
-      this.project = project;
+  /*
+   * The subtypes among the types of a unit, by name with their direct
+   * supertypes.  Types of the unit may extend one another, so the types are
+   * gone over until no more are found.
+   */
+  private Map<String, Set<String>> subtypesAmong(IType[] unitTypes,
+      Set<String> supertypes) throws JavaModelException {
+    Map<IType, Set<String>> typeSupertypes =
+        new LinkedHashMap<IType, Set<String>>();
+    for (IType type : unitTypes) {
+      typeSupertypes.put(type, supertypeNames(type));
+    }
+    Map<String, Set<String>> subtypes = new HashMap<String, Set<String>>();
+    boolean found = true;
+    while (found) {
+      found = false;
+      for (Map.Entry<IType, Set<String>> type : typeSupertypes.entrySet()) {
+        String name = type.getKey().getFullyQualifiedName('.');
+        if (!subtypes.containsKey(name)
+            && !Collections.disjoint(type.getValue(), supertypes)) {
+          subtypes.put(name, type.getValue());
+          if (!directSubtypesOnly()) {
+            supertypes.add(name);
+            found = true;
+          }
+        }
+      }
+    }
+    return subtypes;
+  }
+  
+  /*
+   * The names of the direct supertypes of a source type, resolved in the
+   * context of the type without building its supertype hierarchy.
+   */
+  private static Set<String> supertypeNames(IType type)
+      throws JavaModelException {
+    Set<String> names = new HashSet<String>();
+    if (type.getSuperclassName() != null) {
+      resolve(type, type.getSuperclassName(), names);
+    }
+    for (String superInterface : type.getSuperInterfaceNames()) {
+      resolve(type, superInterface, names);
+    }
+    return names;
+  }
+  
+  private static void resolve(IType type, String name, Set<String> names)
+      throws JavaModelException {
+    int typeArguments = name.indexOf('<');
+    String[][] resolved = type.resolveType(
+        typeArguments < 0 ? name : name.substring(0, typeArguments));
+    if (resolved != null) {
+      for (String[] qualified : resolved) {
+        names.add(qualified[0].length() == 0
+            ? qualified[1] : qualified[0] + "." + qualified[1]);
+      }
+    }
+  }
+  
+  /*
+   * Every subtype of the type we look for in a project, reported or not, so
+   * that types are checked against it by name.  Those declared in the
+   * project's units are kept by unit with their direct supertypes; those of
+   * libraries never change while the project is open.
+   */
+  private static class KnownSubtypes {
+    private final String typeName;
+    private final boolean directOnly;
+    private final Set<String> librarySubtypes;
+    private final Map<String, Map<String, Set<String>>> subtypesByUnit;
+    
+    public KnownSubtypes(String typeName, boolean directOnly) {
+      this.typeName = typeName;
+      this.directOnly = directOnly;
+      librarySubtypes = new HashSet<String>();
+      subtypesByUnit = new HashMap<String, Map<String, Set<String>>>();
+    }
+    
+    public void add(IType subtype) throws JavaModelException {
+      String name = subtype.getFullyQualifiedName('.');
+      ICompilationUnit cu = subtype.getCompilationUnit();
+      if (cu == null) {
+        librarySubtypes.add(name);
+        return;
+      }
+      Map<String, Set<String>> subtypes =
+          subtypesByUnit.get(cu.getHandleIdentifier());
+      if (subtypes == null) {
+        subtypes = new HashMap<String, Set<String>>();
+        subtypesByUnit.put(cu.getHandleIdentifier(), subtypes);
+      }
+      subtypes.put(name, supertypeNames(subtype));
     }
-    public void typeHierarchyChanged(ITypeHierarchy hierarchy) {
-      typeHierarchies.put(project, hierarchy);
-      Set<String> oldTypes = cachedHierarchies.get(project);
-      Set<String> newTypes = readHierarchy(project);
-      for (String oldType : oldTypes) {
-        if (!newTypes.contains(oldType)) {
-          EclipseSourceImpl.this.removed(project, oldType);
+    
+    /*
+     * The names a type in the unit must directly extend to be a subtype:
+     * the type itself and, unless only direct subtypes count, the subtypes
+     * declared elsewhere.
+     */
+    public Set<String> supertypesOutside(String unit) {
+      Set<String> supertypes = new HashSet<String>();
+      supertypes.add(typeName);
+      if (!directOnly) {
+        supertypes.addAll(librarySubtypes);
+        for (Map.Entry<String, Map<String, Set<String>>> subtypes
+            : subtypesByUnit.entrySet()) {
+          if (!subtypes.getKey().equals(unit)) {
+            supertypes.addAll(subtypes.getValue().keySet());
+          }
         }
       }
-      for (String newType : newTypes) {
-        if (!oldTypes.contains(newType)) {
-          EclipseSourceImpl.this.added(project, newType);
+      return supertypes;
+    }
+    
+    /*
+     * Replace the subtypes declared in the unit, returning those it had.
+     */
+    public Map<String, Set<String>> put(String unit,
+        Map<String, Set<String>> subtypes) {
+      Map<String, Set<String>> previous = subtypes.isEmpty()
+          ? subtypesByUnit.remove(unit) : subtypesByUnit.put(unit, subtypes);
+      return previous != null
+          ? previous : Collections.<String, Set<String>>emptyMap();
+    }
+    
+    /*
+     * The units declaring the known subtypes, direct or not, of the types.
+     */
+    public Set<String> unitsBelow(Set<String> typeNames) {
+      Set<String> supertypes = new HashSet<String>(typeNames);
+      Set<String> units = new HashSet<String>();
+      boolean found = true;
+      while (found) {
+        found = false;
+        for (Map.Entry<String, Map<String, Set<String>>> subtypes
+            : subtypesByUnit.entrySet()) {
+          for (Map.Entry<String, Set<String>> subtype
+              : subtypes.getValue().entrySet()) {
+            if (!supertypes.contains(subtype.getKey())
+                && !Collections.disjoint(subtype.getValue(), supertypes)) {
+              supertypes.add(subtype.getKey());
+              units.add(subtypes.getKey());
+              found = true;
+            }
+          }
         }
       }
-      cachedHierarchies.put(project, newTypes);
+      return units;
     }
   }
   
@@ -201,19 +471,22 @@ abstract class EclipseSourceImpl extends AbstractSourceImpl {
   protected Set<String> locate(EclipseJavaProject javaManager, ProgressMonitor monitor)
       throws Throwable {
     monitor.begin(PluginTextValues.BUILDING_TYPE_HIERARCHY, 2);
-    IType type = javaManager.getIJavaProject().findType(getTypeName());
-    IProgressMonitor eclipsemonitor = 
+    IProgressMonitor eclipsemonitor;
+    if (monitor instanceof EclipseProgressHandler.EclipseProgressMonitor) {
+      eclipsemonitor =
         ((EclipseProgressHandler.EclipseProgressMonitor)monitor).getSubIProgressMonitor(1);
-    ITypeHierarchy hierarchy = type.newTypeHierarchy(eclipsemonitor);
+    } else {
+      //steps run by a ConcurrentProgressHandler report through their own monitors
+      eclipsemonitor = new NullProgressMonitor();
+    }
+    Set<IType> subclasses = typeIndex.getSubtypes(getTypeName(),
+        directSubtypesOnly(), javaManager.getIJavaProject(), eclipsemonitor);
     final Set<String> names = new HashSet<String>();
-    IType[] subclasses = hierarchy.getAllSubtypes(type);
     ProgressMonitor secondmonitor = monitor.getSubMonitor(1);
-    secondmonitor.begin(PluginTextValues.ANALYZING_TYPE_HIERARCHY, subclasses.length);
+    secondmonitor.begin(PluginTextValues.ANALYZING_TYPE_HIERARCHY, subclasses.size());
     for (IType subclass : subclasses) {
       try {
-        if (subclass.getJavaProject().equals(javaManager.getIJavaProject()) &&
-            subclass.isClass() && !Flags.isAbstract(subclass.getFlags()) &&
-            isTypeWeCareAbout(subclass)) {
+        if (isCandidate(javaManager, subclass)) {
           names.add(subclass.getFullyQualifiedName());
         }
       } catch (Throwable t) {
@@ -226,47 +499,191 @@ abstract class EclipseSourceImpl extends AbstractSourceImpl {
     return names;
   }
   
+  /*
+   * Runs on the JDT notification thread, so it only rejects irrelevant deltas
+   * and queues the compilation units that changed; the units are examined on
+   * the executor.  Repeated changes to a unit before it is examined coalesce.
+   */
   protected class ElementChangedListener implements
       IElementChangedListener {
+    private static final int CHANGED_UNIT_FLAGS = IJavaElementDelta.F_CONTENT
+        | IJavaElementDelta.F_CHILDREN | IJavaElementDelta.F_PRIMARY_RESOURCE;
+    
     public void elementChanged(ElementChangedEvent event) {
+      handleDelta(event.getDelta(), null);
+      scheduleUnitUpdates();
+    }
+    
+    private void handleDelta(IJavaElementDelta delta, EclipseJavaProject project) {
+      IJavaElement element = delta.getElement();
+      int kind = delta.getKind();
+      switch (element.getElementType()) {
+        case IJavaElement.JAVA_MODEL:
+          handleChildren(delta, null);
+          break;
+        case IJavaElement.JAVA_PROJECT:
+          if (kind == IJavaElementDelta.REMOVED
+              || (delta.getFlags() & IJavaElementDelta.F_CLOSED) != 0) {
+            EclipseJavaProject closed = projectWrappers.remove(element);
+            if (closed != null) {
+              forgetProject(closed);
+            }
+            break;
+          }
+          if ((delta.getFlags() & IJavaElementDelta.F_OPENED) != 0) {
+            reopenProject((IJavaProject) element);
+            break;
+          }
+          EclipseJavaProject javaProject = trackedProject(element);
+          if (javaProject != null) {
+            handleChildren(delta, javaProject);
+          }
+          break;
+        case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+          if (isSourceRoot((IPackageFragmentRoot) element)) {
+            handleChildren(delta, project);
+          }
+          break;
+        case IJavaElement.PACKAGE_FRAGMENT:
+          handleChildren(delta, project);
+          break;
+        case IJavaElement.COMPILATION_UNIT:
+          if (kind != IJavaElementDelta.CHANGED
+              || (delta.getFlags() & CHANGED_UNIT_FLAGS) != 0) {
+            queueUnit(project, (ICompilationUnit) element, kind, false);
+          }
+          break;
+        default:
+          // changes below the compilation unit are covered by the unit itself
+      }
+    }
+    
+    private void handleChildren(IJavaElementDelta delta, EclipseJavaProject project) {
+      if (delta.getKind() == IJavaElementDelta.CHANGED
+          && (delta.getFlags() & IJavaElementDelta.F_CHILDREN) == 0) {
+        return;
+      }
+      for (IJavaElementDelta child : delta.getAffectedChildren()) {
+        handleDelta(child, project);
+      }
+    }
+    
+    private boolean isSourceRoot(IPackageFragmentRoot root) {
+      if (root.isArchive() || root.isExternal()) {
+        return false;
+      }
       try {
-        handleDelta(event.getDelta());
+        return root.getKind() == IPackageFragmentRoot.K_SOURCE;
       } catch (JavaModelException e) {
-        hadProblem(e);
+        return false;
+      }
+    }
+  }
+  
+  /*
+   * Return the wrapper for the given project if it has the type we look for on
+   * its classpath, and null otherwise.
+   */
+  private EclipseJavaProject trackedProject(IJavaElement element) {
+    IJavaProject javaProject = (IJavaProject) element;
+    EclipseJavaProject project = projectWrappers.get(javaProject);
+    if (project == null) {
+      project = new EclipseJavaProject(javaProject);
+      EclipseJavaProject existing = projectWrappers.putIfAbsent(javaProject, project);
+      if (existing != null) {
+        project = existing;
       }
     }
+    synchronized (this) {
+      return types.containsKey(project) ? project : null;
+    }
+  }
+  
+  /*
+   * Find the types anew for a project we knew before it was closed, on the
+   * executor rather than the notification thread.
+   */
+  private void reopenProject(IJavaProject javaProject) {
+    final EclipseJavaProject project = new EclipseJavaProject(javaProject);
+    if (listenForChanges && projects.contains(project)) {
+      executor.submit(new Runnable() {
+        public void run() {
+          createTypeHierarchy(project);
+        }
+      });
+    }
+  }
+  
+  /*
+   * A unit already pending keeps the kind of its own change, and is examined
+   * for a change to its supertypes as well if either asked for that.
+   */
+  private void queueUnit(EclipseJavaProject project, ICompilationUnit cu,
+      int kind, boolean inherited) {
+    if (project != null) {
+      synchronized (pendingUnits) {
+        PendingUnit pending = pendingUnits.get(cu);
+        if (pending != null && inherited) {
+          kind = pending.kind;
+        }
+        if (pending != null && pending.inherited) {
+          inherited = true;
+        }
+        pendingUnits.put(cu, new PendingUnit(project, cu, kind, inherited));
+      }
+    }
+  }
+  
+  private static class PendingUnit {
+    private final EclipseJavaProject project;
+    private final ICompilationUnit cu;
+    private final int kind;
+    private final boolean inherited;
     
-    private void handleDelta(IJavaElementDelta delta) throws JavaModelException {
-      IJavaElement element = delta.getElement();
-      if (element instanceof ICompilationUnit) {
-        IJavaProject project = element.getJavaProject();
-        EclipseJavaProject javaManager = new EclipseJavaProject(project);
-        ICompilationUnit cu = (ICompilationUnit) element;
-        for (IType type : cu.getAllTypes()) {
-          if (typeHierarchies.get(javaManager) != null
-              && typeHierarchies.get(javaManager).contains(type)
-              && EclipseSourceImpl.this.isTypeWeCareAbout(type)) {
-            switch (delta.getKind()) {
-              case IJavaElementDelta.ADDED:
-                EclipseSourceImpl.this.added(javaManager, type
-                    .getFullyQualifiedName());
-                break;
-              case IJavaElementDelta.CHANGED:
-                EclipseSourceImpl.this.changed(javaManager, type
-                    .getFullyQualifiedName());
-                break;
-              case IJavaElementDelta.REMOVED:
-                EclipseSourceImpl.this.removed(javaManager, type
-                    .getFullyQualifiedName());
-                break;
-              default:
-                // do nothing
-            }
+    public PendingUnit(EclipseJavaProject project, ICompilationUnit cu,
+        int kind, boolean inherited) {
+      this.project = project;
+      this.cu = cu;
+      this.kind = kind;
+      this.inherited = inherited;
+    }
+  }
+  
+  private void scheduleUnitUpdates() {
+    boolean hasPending;
+    synchronized (pendingUnits) {
+      hasPending = !pendingUnits.isEmpty();
+    }
+    if (hasPending && updatingUnits.compareAndSet(false, true)) {
+      executor.submit(new Runnable() {
+        public void run() {
+          try {
+            processPendingUnits();
+          } finally {
+            updatingUnits.set(false);
+            scheduleUnitUpdates();
           }
         }
+      });
+    }
+  }
+  
+  private void processPendingUnits() {
+    while (true) {
+      List<PendingUnit> units;
+      synchronized (pendingUnits) {
+        if (pendingUnits.isEmpty()) {
+          return;
+        }
+        units = new ArrayList<PendingUnit>(pendingUnits.values());
+        pendingUnits.clear();
       }
-      for (IJavaElementDelta child : delta.getAffectedChildren()) {
-        handleDelta(child);
+      for (PendingUnit unit : units) {
+        try {
+          unitChanged(unit.project, unit.cu, unit.kind, unit.inherited);
+        } catch (Throwable throwable) {
+          hadProblem(throwable);
+        }
       }
     }
   }
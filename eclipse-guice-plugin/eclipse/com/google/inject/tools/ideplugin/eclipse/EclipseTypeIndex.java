@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Finds the subtypes of a type across the whole workspace using the JDT search
+ * index, and shares the result between the {@link EclipseSourceImpl}s and
+ * across projects.
+ * 
+ * Each pass searches for the implementors of every type found in the previous
+ * pass at once, so the number of searches is the depth of the hierarchy rather
+ * than one type hierarchy per project.  Results are cached per type name and
+ * dropped when types are added or removed, when supertypes change or when a
+ * classpath changes; other edits keep the cache.  Searches run without any
+ * lock, so invalidating from the java model listener never waits on them.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+@Singleton
+class EclipseTypeIndex {
+  /*
+   * Delta flags that can change which types are subtypes of which.
+   */
+  private static final int HIERARCHY_FLAGS = IJavaElementDelta.F_SUPER_TYPES
+      | IJavaElementDelta.F_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+      | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+      | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+      | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+  
+  private final ConcurrentMap<String, CachedSearch> subtypes;
+  private final AtomicInteger generation = new AtomicInteger();
+  
+  @Inject
+  public EclipseTypeIndex() {
+    subtypes = new ConcurrentHashMap<String, CachedSearch>();
+    JavaCore.addElementChangedListener(new IElementChangedListener() {
+      public void elementChanged(ElementChangedEvent event) {
+        if (changesHierarchy(event.getDelta())) {
+          invalidate();
+        }
+      }
+    }, ElementChangedEvent.POST_CHANGE);
+  }
+  
+  /*
+   * The search results for a type name, valid while the generation they were
+   * computed in is current.
+   */
+  private static class CachedSearch {
+    private final int generation;
+    private final Map<IJavaProject, Set<IType>> byProject;
+    
+    public CachedSearch(int generation,
+        Map<IJavaProject, Set<IType>> byProject) {
+      this.generation = generation;
+      this.byProject = byProject;
+    }
+  }
+  
+  /**
+   * Drop all cached search results.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    subtypes.clear();
+  }
+  
+  /**
+   * Return the subtypes of the named type declared in the given project.
+   * 
+   * @param typeName the fully qualified name of the type
+   * @param directOnly true to return only the direct implementors declared in
+   *   project sources, without searching libraries or walking the hierarchy
+   * @param project the project to return subtypes for
+   * @param monitor the monitor for the search, if one is needed
+   */
+  public Set<IType> getSubtypes(String typeName, boolean directOnly,
+      IJavaProject project, IProgressMonitor monitor) throws CoreException {
+    String key = (directOnly ? "direct:" : "all:") + typeName;
+    int current = generation.get();
+    CachedSearch cached = subtypes.get(key);
+    if (cached == null || cached.generation != current) {
+      cached = new CachedSearch(current, search(typeName, directOnly, monitor));
+      if (generation.get() == current) {
+        subtypes.put(key, cached);
+      }
+    }
+    Set<IType> result = cached.byProject.get(project);
+    return result != null ? result : Collections.<IType>emptySet();
+  }
+  
+  /*
+   * Return true if the delta adds or removes types or may change the
+   * supertypes of a type.  Edits inside a compilation unit arrive as fine
+   * grained deltas of its types; other content changes are treated as
+   * changing the hierarchy.
+   */
+  private boolean changesHierarchy(IJavaElementDelta delta) {
+    int kind = delta.getKind();
+    int elementType = delta.getElement().getElementType();
+    if (kind == IJavaElementDelta.ADDED || kind == IJavaElementDelta.REMOVED) {
+      return elementType <= IJavaElement.TYPE;
+    }
+    int flags = delta.getFlags();
+    if ((flags & HIERARCHY_FLAGS) != 0) {
+      return true;
+    }
+    if (elementType == IJavaElement.COMPILATION_UNIT
+        && (flags & IJavaElementDelta.F_CONTENT) != 0
+        && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0) {
+      return true;
+    }
+    for (IJavaElementDelta child : delta.getAffectedChildren()) {
+      if (changesHierarchy(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  private Map<IJavaProject, Set<IType>> search(String typeName,
+      boolean directOnly, IProgressMonitor monitor) throws CoreException {
+    Map<IJavaProject, Set<IType>> byProject =
+        new HashMap<IJavaProject, Set<IType>>();
+    SearchEngine engine = new SearchEngine();
+    IJavaSearchScope scope = createScope(directOnly);
+    SearchParticipant[] participants =
+        new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()};
+    Set<String> searched = new HashSet<String>();
+    List<String> frontier = new ArrayList<String>();
+    searched.add(typeName);
+    frontier.add(typeName);
+    while (!frontier.isEmpty()) {
+      TypeCollector collector = new TypeCollector();
+      engine.search(createPattern(frontier), participants, scope, collector,
+          monitor);
+      frontier = new ArrayList<String>();
+      for (IType type : collector.types) {
+        Set<IType> projectTypes = byProject.get(type.getJavaProject());
+        if (projectTypes == null) {
+          projectTypes = new HashSet<IType>();
+          byProject.put(type.getJavaProject(), projectTypes);
+        }
+        projectTypes.add(type);
+        String name = type.getFullyQualifiedName('.');
+        if (!directOnly && searched.add(name)) {
+          frontier.add(name);
+        }
+      }
+    }
+    return byProject;
+  }
+  
+  /*
+   * Search the sources and libraries of every java project, but not the JRE,
+   * which would otherwise pull in every collection class for Iterable.  Direct
+   * searches only look at project sources.
+   */
+  private IJavaSearchScope createScope(boolean directOnly)
+      throws JavaModelException {
+    IJavaProject[] projects = JavaCore.create(
+        ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+    int includeMask = directOnly ? IJavaSearchScope.SOURCES
+        : IJavaSearchScope.SOURCES | IJavaSearchScope.APPLICATION_LIBRARIES
+            | IJavaSearchScope.REFERENCED_PROJECTS;
+    return SearchEngine.createJavaSearchScope(projects, includeMask);
+  }
+  
+  private SearchPattern createPattern(List<String> typeNames) {
+    SearchPattern pattern = null;
+    for (String typeName : typeNames) {
+      SearchPattern typePattern = SearchPattern.createPattern(typeName,
+          IJavaSearchConstants.TYPE, IJavaSearchConstants.IMPLEMENTORS,
+          SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE);
+      pattern = pattern == null ? typePattern
+          : SearchPattern.createOrPattern(pattern, typePattern);
+    }
+    return pattern;
+  }
+  
+  private static class TypeCollector extends SearchRequestor {
+    private final Set<IType> types = new HashSet<IType>();
+    
+    @Override
+    public void acceptSearchMatch(SearchMatch match) {
+      if (match.getElement() instanceof IType) {
+        types.add((IType) match.getElement());
+      }
+    }
+  }
+}
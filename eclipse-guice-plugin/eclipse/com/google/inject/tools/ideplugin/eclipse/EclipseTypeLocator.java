@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.tools.ideplugin.ActionsHandler;
+import com.google.inject.tools.ideplugin.ProjectManager;
+import com.google.inject.tools.ideplugin.results.Results;
+import com.google.inject.tools.ideplugin.results.ActionStringBuilder.ActionStringElement;
+
+/**
+ * Finds the types, and the offsets of lines in their compilation units, that
+ * the goto actions of results jump to.  Rows are looked up in the background
+ * as they are displayed so that following a link is immediate.
+ * Entries are dropped as the Java model changes.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+@Singleton
+class EclipseTypeLocator {
+  private final ProjectManager projectManager;
+  private final ExecutorService executor;
+  private final ConcurrentMap<String, IType> types;
+  private final ConcurrentMap<String, int[]> lineStarts;
+  private final Queue<ActionsHandler.Action> pending;
+  private final AtomicBoolean scheduled;
+  private final Prefetcher prefetcher;
+
+  @Inject
+  public EclipseTypeLocator(ProjectManager projectManager,
+      ExecutorService executor) {
+    this.projectManager = projectManager;
+    this.executor = executor;
+    types = new ConcurrentHashMap<String, IType>();
+    lineStarts = new ConcurrentHashMap<String, int[]>();
+    pending = new ConcurrentLinkedQueue<ActionsHandler.Action>();
+    scheduled = new AtomicBoolean(false);
+    prefetcher = new Prefetcher();
+    JavaCore.addElementChangedListener(new Invalidator(),
+        ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+  }
+
+  /**
+   * Find the type with the given (binary or source) name in the project.
+   */
+  public IType findType(EclipseJavaProject project, String className)
+      throws JavaModelException {
+    String fixedName = className.replace('$', '.');
+    String key = project.getName() + "/" + fixedName;
+    IType type = types.get(key);
+    if (type == null || !type.exists()) {
+      type = project.getIJavaProject().findType(fixedName);
+      if (type != null) {
+        types.put(key, type);
+      }
+    }
+    return type;
+  }
+
+  /**
+   * Return the offset and length of the (one based) line of the compilation
+   * unit, or null if it has no such line.
+   */
+  public int[] lineRange(ICompilationUnit cu, int line)
+      throws JavaModelException {
+    int[] starts = lineStartsOf(cu);
+    if (line < 1 || line >= starts.length) {
+      return null;
+    }
+    return new int[] {starts[line - 1], starts[line] - starts[line - 1]};
+  }
+
+  /*
+   * The offsets each line begins at, followed by the length of the source.
+   */
+  private int[] lineStartsOf(ICompilationUnit cu) throws JavaModelException {
+    String key = cu.getHandleIdentifier();
+    int[] starts = lineStarts.get(key);
+    if (starts == null) {
+      String source = cu.getSource();
+      starts = source != null ? computeLineStarts(source) : new int[] {0};
+      lineStarts.put(key, starts);
+    }
+    return starts;
+  }
+
+  static int[] computeLineStarts(String source) {
+    List<Integer> starts = new ArrayList<Integer>();
+    starts.add(0);
+    for (int i = 0; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '\r' && i + 1 < source.length() && source.charAt(i + 1) == '\n') {
+        i++;
+      }
+      if (c == '\r' || c == '\n') {
+        starts.add(i + 1);
+      }
+    }
+    if (starts.get(starts.size() - 1) != source.length()) {
+      starts.add(source.length());
+    }
+    int[] result = new int[starts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = starts.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Look up, in the background, the types and lines the actions of the node
+   * link to.  The results view calls this for each row as it is shown, so
+   * only the text of rows on display is ever built.
+   */
+  public void prefetch(Results.Node node) {
+    for (ActionStringElement element : node.getText().elements()) {
+      if (element.action() != null) {
+        pending.add(element.action());
+      }
+    }
+    if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+      executor.execute(prefetcher);
+    }
+  }
+
+  /*
+   * Looks up the actions queued by prefetch; lookups already made are found
+   * in the caches.
+   */
+  private class Prefetcher implements Runnable {
+    public void run() {
+      scheduled.set(false);
+      EclipseJavaProject project =
+          (EclipseJavaProject) projectManager.getCurrentProject();
+      ActionsHandler.Action action;
+      while ((action = pending.poll()) != null) {
+        if (project != null) {
+          prefetch(project, action);
+        }
+      }
+    }
+
+    private void prefetch(EclipseJavaProject project,
+        ActionsHandler.Action action) {
+      try {
+        if (action instanceof ActionsHandler.GotoCodeLocation) {
+          ActionsHandler.GotoCodeLocation gotoLocation =
+              (ActionsHandler.GotoCodeLocation) action;
+          if (gotoLocation.getStackTraceElement() != null) {
+            IType type = findType(project,
+                gotoLocation.getStackTraceElement().getClassName());
+            if (type != null && type.getCompilationUnit() != null) {
+              lineStartsOf(type.getCompilationUnit());
+            }
+          }
+        } else if (action instanceof ActionsHandler.GotoFile) {
+          findType(project, ((ActionsHandler.GotoFile) action).getClassname());
+        }
+      } catch (Exception exception) {
+        // the action looks the type up again when run
+      }
+    }
+  }
+
+  private class Invalidator implements IElementChangedListener {
+    public void elementChanged(ElementChangedEvent event) {
+      if (!types.isEmpty() || !lineStarts.isEmpty()) {
+        visit(event.getDelta());
+      }
+    }
+
+    private void visit(IJavaElementDelta delta) {
+      IJavaElement element = delta.getElement();
+      switch (element.getElementType()) {
+        case IJavaElement.COMPILATION_UNIT:
+          lineStarts.remove(element.getHandleIdentifier());
+          if (delta.getKind() != IJavaElementDelta.CHANGED) {
+            types.clear();
+          }
+          break;
+        case IJavaElement.CLASS_FILE:
+          break;
+        default:
+          if (delta.getKind() != IJavaElementDelta.CHANGED
+              || (delta.getFlags() & IJavaElementDelta.F_CLASSPATH_CHANGED) != 0) {
+            types.clear();
+            lineStarts.clear();
+            return;
+          }
+          for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            visit(child);
+          }
+      }
+    }
+  }
+}
@@ -31,15 +31,15 @@ public class FindBindingsAction extends EclipseMenuAction {
   @Override
   public boolean runMyAction(IEditorPart part) {
     JavaElementResolver resolver = new JavaElementResolver(part);
-    EclipseJavaElement javaElement = new EclipseJavaElement(resolver.getJavaElement());
-    if (javaElement != null && javaElement.getType() != null) {
-      guicePlugin.getBindingsEngine(javaElement,
-         new EclipseJavaProject(resolver.getJavaElement().getJavaProject()));
-      return true;
-    } else {
-      guicePlugin.getMessenger().display(PluginTextValues.FIND_BINDINGS_NOT_AVAILABLE);
+    if (resolver.getJavaElement() == null) {
+      return false;
     }
-    return false;
+    new FindBindingsJob(resolver.getJavaElement(), guicePlugin, new Runnable() {
+      public void run() {
+        guicePlugin.getMessenger().display(PluginTextValues.FIND_BINDINGS_NOT_AVAILABLE);
+      }
+    }).schedule();
+    return true;
   }
   
   @Override
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.swt.widgets.Display;
+
+import com.google.inject.tools.ideplugin.GuicePlugin;
+import com.google.inject.tools.ideplugin.bindings.BindingsEngine;
+
+/**
+ * Resolves the {@link EclipseJavaElement} for a selection and finds its
+ * bindings, off the UI thread so that the editor action returns at once.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class FindBindingsJob extends Job {
+  private final IJavaElement element;
+  private final GuicePlugin guicePlugin;
+  private final Runnable notResolved;
+
+  /**
+   * Create the job.
+   * 
+   * @param element the element to find the bindings of
+   * @param guicePlugin the plugin
+   * @param notResolved run on the UI thread if the element has no type to find
+   *        bindings of, or null to try anyway
+   */
+  public FindBindingsJob(IJavaElement element, GuicePlugin guicePlugin,
+      Runnable notResolved) {
+    super(PluginTextValues.FIND_BINDINGS);
+    this.element = element;
+    this.guicePlugin = guicePlugin;
+    this.notResolved = notResolved;
+    setSystem(true);
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    EclipseJavaElement javaElement = new EclipseJavaElement(element);
+    if (notResolved == null || javaElement.getType() != null) {
+      EclipseJavaProject project =
+          new EclipseJavaProject(element.getJavaProject());
+      EclipseProgressHandler.cancelJobs(project.getName(),
+          BindingsEngine.LABEL);
+      guicePlugin.getBindingsEngine(javaElement, project);
+    } else {
+      Display.getDefault().asyncExec(notResolved);
+    }
+    return Status.OK_STATUS;
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+import com.google.inject.tools.ideplugin.GuicePlugin;
+import com.google.inject.tools.ideplugin.ProjectManager;
+import com.google.inject.tools.suite.module.ModuleManager;
+import com.google.inject.tools.suite.module.ModuleRepresentation;
+
+/**
+ * Builder that reruns the module contexts affected by a build.  It runs after
+ * the Java builder, maps the class files that changed to the modules they
+ * define and tells the {@link ModuleManager} about those modules, so contexts
+ * are only evaluated against freshly compiled classes.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class GuiceBuilder extends IncrementalProjectBuilder {
+  public static final String BUILDER_ID = PluginDefinitionValues.BUILDER_ID;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected IProject[] build(int kind, Map args, IProgressMonitor monitor)
+      throws CoreException {
+    GuicePlugin guicePlugin = Activator.getDefault().getGuicePlugin();
+    IJavaProject javaProject = JavaCore.create(getProject());
+    if (guicePlugin == null || javaProject == null || !javaProject.exists()) {
+      return null;
+    }
+    EclipseJavaProject project = new EclipseJavaProject(javaProject);
+    ProjectManager projectManager = guicePlugin.getProjectManager();
+    if (!projectManager.isInitialized(project)) {
+      // initializing the project runs its contexts anyway
+      return null;
+    }
+    ModuleManager moduleManager = projectManager.findModuleManager(project);
+    if (moduleManager == null) {
+      return null;
+    }
+    Set<String> modules = new HashSet<String>();
+    for (ModuleRepresentation module : moduleManager.getModules()) {
+      modules.add(module.getName());
+    }
+    IResourceDelta delta = kind == FULL_BUILD ? null : getDelta(getProject());
+    if (delta != null) {
+      modules = changedModules(javaProject, delta, modules);
+    }
+    if (!modules.isEmpty() && !monitor.isCanceled()) {
+      monitor.subTask(PluginTextValues.RUNNING_CONTEXTS);
+      moduleManager.modulesChanged(modules);
+    }
+    return null;
+  }
+
+  /*
+   * Return the modules whose class files (or those of their inner classes)
+   * were added, changed or removed in the output folders of the project.
+   */
+  private Set<String> changedModules(IJavaProject javaProject,
+      IResourceDelta delta, final Set<String> modules) throws CoreException {
+    final Set<IPath> outputLocations = outputLocations(javaProject);
+    final Set<String> changed = new HashSet<String>();
+    delta.accept(new IResourceDeltaVisitor() {
+      public boolean visit(IResourceDelta child) {
+        IResource resource = child.getResource();
+        if (resource.getType() != IResource.FILE) {
+          return true;
+        }
+        if (!"class".equals(resource.getFileExtension())) {
+          return false;
+        }
+        for (IPath outputLocation : outputLocations) {
+          if (outputLocation.isPrefixOf(resource.getFullPath())) {
+            String className = resource.getFullPath()
+                .removeFirstSegments(outputLocation.segmentCount())
+                .removeFileExtension().toString().replace('/', '.');
+            addModule(className, modules, changed);
+          }
+        }
+        return false;
+      }
+    });
+    return changed;
+  }
+
+  /*
+   * Credit a change to a nested class to each class enclosing it.
+   */
+  private void addModule(String className, Set<String> modules,
+      Set<String> changed) {
+    String name = className;
+    while (name != null) {
+      if (modules.contains(name)) {
+        changed.add(name);
+      }
+      int nested = name.lastIndexOf('$');
+      name = nested > 0 ? name.substring(0, nested) : null;
+    }
+  }
+
+  private Set<IPath> outputLocations(IJavaProject javaProject)
+      throws CoreException {
+    Set<IPath> outputLocations = new HashSet<IPath>();
+    outputLocations.add(javaProject.getOutputLocation());
+    for (IClasspathEntry entry : javaProject.getRawClasspath()) {
+      if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE
+          && entry.getOutputLocation() != null) {
+        outputLocations.add(entry.getOutputLocation());
+      }
+    }
+    return outputLocations;
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IProjectNature;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Project nature that installs the {@link GuiceBuilder} after the Java
+ * builder.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class GuiceNature implements IProjectNature {
+  public static final String NATURE_ID = PluginDefinitionValues.NATURE_ID;
+
+  private IProject project;
+
+  public void configure() throws CoreException {
+    IProjectDescription description = project.getDescription();
+    List<ICommand> commands =
+        new ArrayList<ICommand>(Arrays.asList(description.getBuildSpec()));
+    int javaBuilder = -1;
+    for (int i = 0; i < commands.size(); i++) {
+      String builderName = commands.get(i).getBuilderName();
+      if (GuiceBuilder.BUILDER_ID.equals(builderName)) {
+        return;
+      }
+      if (JavaCore.BUILDER_ID.equals(builderName)) {
+        javaBuilder = i;
+      }
+    }
+    ICommand command = description.newCommand();
+    command.setBuilderName(GuiceBuilder.BUILDER_ID);
+    commands.add(javaBuilder >= 0 ? javaBuilder + 1 : commands.size(), command);
+    description.setBuildSpec(commands.toArray(new ICommand[commands.size()]));
+    project.setDescription(description, null);
+  }
+
+  public void deconfigure() throws CoreException {
+    IProjectDescription description = project.getDescription();
+    List<ICommand> commands = new ArrayList<ICommand>();
+    for (ICommand command : description.getBuildSpec()) {
+      if (!GuiceBuilder.BUILDER_ID.equals(command.getBuilderName())) {
+        commands.add(command);
+      }
+    }
+    description.setBuildSpec(commands.toArray(new ICommand[commands.size()]));
+    project.setDescription(description, null);
+  }
+
+  public IProject getProject() {
+    return project;
+  }
+
+  public void setProject(IProject project) {
+    this.project = project;
+  }
+
+  /**
+   * Return true if the project has the Guice nature, that is if the
+   * {@link GuiceBuilder} reports its changes.
+   */
+  public static boolean hasNature(IProject project) {
+    try {
+      return project.isOpen() && project.hasNature(NATURE_ID);
+    } catch (CoreException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Add the Guice nature to the project if it does not have it, remove it
+   * otherwise.
+   */
+  public static void toggleNature(IProject project) throws CoreException {
+    IProjectDescription description = project.getDescription();
+    List<String> natures =
+        new ArrayList<String>(Arrays.asList(description.getNatureIds()));
+    if (!natures.remove(NATURE_ID)) {
+      natures.add(NATURE_ID);
+    }
+    description.setNatureIds(natures.toArray(new String[natures.size()]));
+    project.setDescription(description, null);
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A bounded ring buffer of messages waiting to be shown in the
+ * {@link EclipseErrorView}.  When full the oldest message is overwritten and
+ * counted as dropped.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class MessageBuffer {
+  private final EclipseErrorView.LoggedMessage[] messages;
+  private int head;
+  private int size;
+  private int dropped;
+  private boolean flushPending;
+
+  MessageBuffer(int capacity) {
+    messages = new EclipseErrorView.LoggedMessage[capacity];
+  }
+
+  /**
+   * Add a message to the buffer.
+   * 
+   * @return true if no flush of the buffer is pending, meaning the caller
+   *         should schedule one
+   */
+  synchronized boolean add(EclipseErrorView.LoggedMessage message) {
+    if (size == messages.length) {
+      messages[head] = message;
+      head = (head + 1) % messages.length;
+      dropped++;
+    } else {
+      messages[(head + size) % messages.length] = message;
+      size++;
+    }
+    if (flushPending) {
+      return false;
+    }
+    flushPending = true;
+    return true;
+  }
+
+  /**
+   * Forget that a flush is pending, because scheduling it failed; the
+   * messages stay buffered and the next message added schedules a flush.
+   */
+  synchronized void cancelFlush() {
+    flushPending = false;
+  }
+
+  /**
+   * Remove and return the buffered messages, oldest first.
+   */
+  synchronized List<EclipseErrorView.LoggedMessage> drain() {
+    flushPending = false;
+    if (size == 0) {
+      return Collections.emptyList();
+    }
+    List<EclipseErrorView.LoggedMessage> drained =
+        new ArrayList<EclipseErrorView.LoggedMessage>(size);
+    for (int i = 0; i < size; i++) {
+      int index = (head + i) % messages.length;
+      drained.add(messages[index]);
+      messages[index] = null;
+    }
+    head = 0;
+    size = 0;
+    return drained;
+  }
+
+  /**
+   * Return the number of messages dropped since the last call and reset it.
+   */
+  synchronized int takeDropped() {
+    int result = dropped;
+    dropped = 0;
+    return result;
+  }
+}
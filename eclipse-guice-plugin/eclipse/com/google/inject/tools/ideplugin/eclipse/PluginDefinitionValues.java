@@ -30,6 +30,10 @@ final class PluginDefinitionValues {
   public static final String RESULTS_VIEW_ID = BASE_ID + ".EclipseResultsView";
   public static final String ERROR_VIEW_ID = BASE_ID + ".EclipseErrorView";
   
+  //Builder and nature IDs
+  public static final String BUILDER_ID = BUNDLE_ID + ".guiceBuilder";
+  public static final String NATURE_ID = BUNDLE_ID + ".guiceNature";
+  
   public static final String PREFERENCES_ID = BASE_ID + ".preferences";
   
   //Library locations
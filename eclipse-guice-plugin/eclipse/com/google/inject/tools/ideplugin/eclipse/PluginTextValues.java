@@ -57,6 +57,7 @@ final class PluginTextValues {
   
   public static final String BUILDING_TYPE_HIERARCHY = "Building Guice Type Hierarchy";
   public static final String ANALYZING_TYPE_HIERARCHY = "Analyzing Guice Type Hierarchy";
+  public static final String RUNNING_CONTEXTS = "Running Guice Contexts";
   
   // Actions text
   public static final String FIND_BINDINGS = "Find Bindings";
@@ -23,6 +23,7 @@ import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IObjectActionDelegate;
 import org.eclipse.ui.IWorkbenchPart;
 
+import com.google.inject.tools.ideplugin.GuicePlugin;
 import com.google.inject.tools.ideplugin.JavaProject;
 
 /**
@@ -47,6 +48,8 @@ public class RunModulesNowAction implements IEditorActionDelegate,
   public void run(IAction action) {
     JavaProject project = new EclipseJavaProject(new JavaProjectResolver(editor).getProject());
     if (project != null) {
+      EclipseProgressHandler.cancelJobs(project.getName(),
+          GuicePlugin.RUN_MODULES_NOW_LABEL + project.getName());
       Activator.getDefault().getGuicePlugin().runModulesNow(project, false);
     }
   }
@@ -18,6 +18,7 @@ package com.google.inject.tools.ideplugin.eclipse;
 
 import org.eclipse.ui.IEditorPart;
 
+import com.google.inject.tools.ideplugin.GuicePlugin;
 import com.google.inject.tools.ideplugin.JavaProject;
 
 /**
@@ -34,6 +35,8 @@ public class RunModulesNowAction2 extends EclipseMenuAction {
   protected boolean runMyAction(IEditorPart part) {
     JavaProject project = new EclipseJavaProject(new JavaProjectResolver(part).getProject());
     if (project != null) {
+      EclipseProgressHandler.cancelJobs(project.getName(),
+          GuicePlugin.RUN_MODULES_NOW_LABEL + project.getName());
       Activator.getDefault().getGuicePlugin().runModulesNow(project, false);
       return true;
     }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.IObjectActionDelegate;
+import org.eclipse.ui.IWorkbenchPart;
+
+import com.google.inject.tools.suite.Messenger;
+
+/**
+ * Menu action to add or remove the {@link GuiceBuilder} on the selected
+ * projects.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ToggleGuiceBuilderAction implements IObjectActionDelegate {
+  private ISelection selection;
+
+  public void setActivePart(IAction action, IWorkbenchPart targetPart) {
+  }
+
+  public void selectionChanged(IAction action, ISelection selection) {
+    this.selection = selection;
+  }
+
+  public void run(IAction action) {
+    if (!(selection instanceof IStructuredSelection)) {
+      return;
+    }
+    for (Object element : ((IStructuredSelection) selection).toArray()) {
+      IProject project = null;
+      if (element instanceof IProject) {
+        project = (IProject) element;
+      } else if (element instanceof IAdaptable) {
+        project = (IProject) ((IAdaptable) element).getAdapter(IProject.class);
+      }
+      if (project != null) {
+        try {
+          GuiceNature.toggleNature(project);
+        } catch (CoreException e) {
+          Messenger messenger = Activator.getDefault().getGuicePlugin().getMessenger();
+          messenger.logException("Error toggling the Guice builder", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.eclipse;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Caches the results of {@link TypeUtil} resolutions per compilation unit (or
+ * class file).  A unit's entries are dropped when it changes; the whole cache
+ * is dropped when types are added or removed, or when a classpath changes,
+ * since either can change how names in other units resolve.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+final class TypeResolutionCache {
+  /**
+   * Stored in place of a resolution that came back null.
+   */
+  static final Object NULL_VALUE = new Object();
+
+  private static final ConcurrentMap<String, ConcurrentMap<String, Object>> units =
+      new ConcurrentHashMap<String, ConcurrentMap<String, Object>>();
+  private static final AtomicBoolean listening = new AtomicBoolean(false);
+
+  private TypeResolutionCache() {
+  }
+
+  /**
+   * Return the cached resolution of the key within the type's unit,
+   * {@link #NULL_VALUE} if it resolved to null, or null if it is not cached.
+   */
+  static Object lookup(IType owningType, String key) {
+    String unitKey = unitKey(owningType);
+    if (unitKey == null) {
+      return null;
+    }
+    ConcurrentMap<String, Object> resolutions = units.get(unitKey);
+    return resolutions != null ? resolutions.get(key) : null;
+  }
+
+  /**
+   * Cache the resolution of the key within the type's unit.
+   */
+  static void store(IType owningType, String key, Object value) {
+    String unitKey = unitKey(owningType);
+    if (unitKey == null) {
+      return;
+    }
+    listen();
+    ConcurrentMap<String, Object> resolutions = units.get(unitKey);
+    if (resolutions == null) {
+      ConcurrentMap<String, Object> newResolutions =
+          new ConcurrentHashMap<String, Object>();
+      resolutions = units.putIfAbsent(unitKey, newResolutions);
+      if (resolutions == null) {
+        resolutions = newResolutions;
+      }
+    }
+    resolutions.put(key, value != null ? value : NULL_VALUE);
+  }
+
+  private static String unitKey(IType owningType) {
+    if (owningType == null) {
+      return null;
+    }
+    IJavaElement unit = owningType.getCompilationUnit();
+    if (unit == null) {
+      unit = owningType.getClassFile();
+    }
+    return unit != null ? unit.getHandleIdentifier() : null;
+  }
+
+  private static void listen() {
+    if (listening.compareAndSet(false, true)) {
+      JavaCore.addElementChangedListener(new Invalidator(),
+          ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+    }
+  }
+
+  private static class Invalidator implements IElementChangedListener {
+    private static final int CLEAR_ALL_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+        | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+        | IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED;
+
+    public void elementChanged(ElementChangedEvent event) {
+      if (!units.isEmpty()) {
+        visit(event.getDelta());
+      }
+    }
+
+    private void visit(IJavaElementDelta delta) {
+      switch (delta.getElement().getElementType()) {
+        case IJavaElement.JAVA_MODEL:
+        case IJavaElement.JAVA_PROJECT:
+        case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+        case IJavaElement.PACKAGE_FRAGMENT:
+          if (delta.getKind() != IJavaElementDelta.CHANGED
+              || (delta.getFlags() & CLEAR_ALL_FLAGS) != 0) {
+            units.clear();
+            return;
+          }
+          for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            visit(child);
+          }
+          break;
+        case IJavaElement.COMPILATION_UNIT:
+        case IJavaElement.CLASS_FILE:
+          units.remove(delta.getElement().getHandleIdentifier());
+          if (delta.getKind() != IJavaElementDelta.CHANGED
+              || typesAddedOrRemoved(delta)) {
+            units.clear();
+          }
+          break;
+        default:
+          // nothing below a unit is cached separately
+      }
+    }
+
+    /*
+     * A content change without fine grained children may hide added or
+     * removed types, so it counts as one.
+     */
+    private boolean typesAddedOrRemoved(IJavaElementDelta delta) {
+      if ((delta.getFlags() & IJavaElementDelta.F_CONTENT) != 0
+          && (delta.getFlags() & IJavaElementDelta.F_FINE_GRAINED) == 0) {
+        return true;
+      }
+      for (IJavaElementDelta child : delta.getAffectedChildren()) {
+        if (child.getElement().getElementType() == IJavaElement.TYPE
+            && child.getKind() != IJavaElementDelta.CHANGED) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
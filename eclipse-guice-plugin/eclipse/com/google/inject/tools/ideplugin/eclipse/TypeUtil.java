@@ -37,6 +37,27 @@ import org.eclipse.jdt.core.Signature;
 final class TypeUtil 
 {
   static IType resolveType(final IType owningType, final String typeSignature)
+  {
+    final String key = cacheKey(owningType, "T", typeSignature); //$NON-NLS-1$
+    final Object cached = TypeResolutionCache.lookup(owningType, key);
+    
+    if (cached != null)
+    {
+      return cached == TypeResolutionCache.NULL_VALUE ? null : (IType) cached;
+    }
+    
+    final IType type = resolveTypeUncached(owningType, typeSignature);
+    TypeResolutionCache.store(owningType, key, type);
+    return type;
+  }
+  
+  private static String cacheKey(final IType owningType, final String kind, final String typeSignature)
+  {
+    return owningType == null ? null
+        : owningType.getFullyQualifiedName() + ":" + kind + ":" + typeSignature; //$NON-NLS-1$ //$NON-NLS-2$
+  }
+  
+  private static IType resolveTypeUncached(final IType owningType, final String typeSignature)
   {
     // if type signature is already resolved then simply look it up
     if (typeSignature.charAt(0) == Signature.C_RESOLVED
@@ -115,6 +136,21 @@ final class TypeUtil
    * typeSignature unchanged if cannot resolve.
    */
   public static String resolveTypeSignature(final IType owningType, final String typeSignature, boolean eraseTypeParameters)
+  {
+    final String key = cacheKey(owningType, eraseTypeParameters ? "E" : "S", typeSignature); //$NON-NLS-1$ //$NON-NLS-2$
+    final Object cached = TypeResolutionCache.lookup(owningType, key);
+    
+    if (cached != null)
+    {
+      return (String) cached;
+    }
+    
+    final String resolved = resolveTypeSignatureUncached(owningType, typeSignature, eraseTypeParameters);
+    TypeResolutionCache.store(owningType, key, resolved);
+    return resolved;
+  }
+  
+  private static String resolveTypeSignatureUncached(final IType owningType, final String typeSignature, boolean eraseTypeParameters)
   {
     final int sigKind = Signature.getTypeSignatureKind(typeSignature);
     
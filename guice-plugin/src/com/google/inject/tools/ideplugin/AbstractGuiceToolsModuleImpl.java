@@ -19,6 +19,9 @@ package com.google.inject.tools.ideplugin;
 import com.google.inject.binder.AnnotatedBindingBuilder;
 import com.google.inject.tools.suite.GuiceToolsModule;
 import com.google.inject.tools.suite.ProblemsHandler;
+import com.google.inject.tools.suite.code.CodeRunnerModule;
+import com.google.inject.tools.suite.code.RemoteSnippetRunner;
+import com.google.inject.tools.suite.server.AnalysisClient;
 
 /**
  * The abstract implementation of the {@link GuiceToolsModule} specific to the IDE plugin.
@@ -31,4 +34,22 @@ public abstract class AbstractGuiceToolsModuleImpl extends GuiceToolsModule {
       AnnotatedBindingBuilder<ProblemsHandler> bindProblemsHandler) {
     bindProblemsHandler.to(ProblemsHandlerImpl.class).asEagerSingleton();
   }
+  
+  /**
+   * Run the snippets on the analysis server if the IDE was started with its
+   * port, sharing the results with the other IDE windows on this machine.
+   */
+  @Override
+  protected CodeRunnerModule codeRunnerModule() {
+    if (!AnalysisClient.isConfigured()) {
+      return super.codeRunnerModule();
+    }
+    return new CodeRunnerModule() {
+      @Override
+      protected void bindRemoteSnippetRunner(
+          AnnotatedBindingBuilder<RemoteSnippetRunner> bindRemoteSnippetRunner) {
+        bindRemoteSnippetRunner.to(AnalysisClient.class);
+      }
+    };
+  }
 }
@@ -39,6 +39,13 @@ import com.google.inject.tools.suite.module.ModuleManager;
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 public abstract class GuicePlugin {
+  /**
+   * The label of the job running a project's modules now, followed by the
+   * project name.
+   */
+  public static final String RUN_MODULES_NOW_LABEL =
+      "Running Guice Modules for ";
+  
   private final Injector injector;
   private final Provider<ProgressHandler> progressHandlerProvider;
 
@@ -110,7 +117,7 @@ public abstract class GuicePlugin {
     }
   }
   
-  class ConfigurePluginAction implements ProgressHandler.ProgressStep {
+  class ConfigurePluginAction implements ProgressHandler.ProjectProgressStep {
     private final JavaProject project;
     private boolean done;
     
@@ -135,13 +142,17 @@ public abstract class GuicePlugin {
       return "Configuring Guice Plugin for " + project.getName();
     }
 
+    public JavaProject project() {
+      return project;
+    }
+
     public void run(ProgressMonitor monitor) {
       done = false;
       getProjectManager().getModuleManager(project);
     }
   }
   
-  class RunModulesNowAction implements ProgressHandler.ProgressStep {
+  class RunModulesNowAction implements ProgressHandler.ProjectProgressStep {
     private final JavaProject project;
     private boolean done;
     
@@ -163,7 +174,11 @@ public abstract class GuicePlugin {
     }
 
     public String label() {
-      return "Configuring Guice Plugin for " + project.getName();
+      return RUN_MODULES_NOW_LABEL + project.getName();
+    }
+
+    public JavaProject project() {
+      return project;
     }
 
     public void run(ProgressMonitor monitor) {
@@ -30,6 +30,8 @@ public class IDEPluginSettings implements Settings {
   public static final String activateByDefaultName = "Activate Contexts By Default";
   public static final String listenForChangesName = "Listen for Changes";
   public static final String runAutomaticallyName = "Run Contexts Automatically";
+  public static final String storeBindingsOffHeapName = "Store Bindings Off Heap";
+  public static final String useBindingIndexName = "Use Prebuilt Binding Index";
   
   public interface ProjectSettingsVisitor {
     public void visit(String name, boolean value);
@@ -51,6 +53,14 @@ public class IDEPluginSettings implements Settings {
    * Should the plugin listen for changes to contexts.
    */
   private boolean listenForChanges;
+  /**
+   * Should the bindings of module contexts be stored off heap.
+   */
+  private boolean storeBindingsOffHeap;
+  /**
+   * Should contexts be loaded from a binding index on the classpath.
+   */
+  private boolean useBindingIndex;
   
   /**
    * Create settings with default values.
@@ -59,6 +69,8 @@ public class IDEPluginSettings implements Settings {
     activateByDefault = false;
     runAutomatically = false;
     listenForChanges = false;
+    storeBindingsOffHeap = false;
+    useBindingIndex = true;
   }
   
   /**
@@ -70,6 +82,8 @@ public class IDEPluginSettings implements Settings {
     activateByDefault = values.get(0);
     runAutomatically = values.get(1);
     listenForChanges = values.get(2);
+    storeBindingsOffHeap = values.size() > 3 ? values.get(3) : false;
+    useBindingIndex = values.size() > 4 ? values.get(4) : true;
   }
   
   private void parse(String string, List<Boolean> values) {
@@ -89,6 +103,8 @@ public class IDEPluginSettings implements Settings {
     activateByDefault = saver.getBoolean(activateByDefaultName);
     listenForChanges = saver.getBoolean(listenForChangesName);
     runAutomatically = saver.getBoolean(runAutomaticallyName);
+    storeBindingsOffHeap = saver.getBoolean(storeBindingsOffHeapName);
+    useBindingIndex = saver.getBoolean(useBindingIndexName);
   }
   
   /**
@@ -96,18 +112,22 @@ public class IDEPluginSettings implements Settings {
    */
   public String serialize() {
     return String.valueOf(activateByDefault) + ";" + String.valueOf(runAutomatically)
-      + ";" + String.valueOf(listenForChanges);
+      + ";" + String.valueOf(listenForChanges) + ";" + String.valueOf(storeBindingsOffHeap)
+      + ";" + String.valueOf(useBindingIndex);
   }
   
   public void accept(ProjectSettingsVisitor visitor) {
     visitor.visit(activateByDefaultName, activateByDefault);
     visitor.visit(listenForChangesName, listenForChanges);
     visitor.visit(runAutomaticallyName, runAutomatically);
+    visitor.visit(storeBindingsOffHeapName, storeBindingsOffHeap);
+    visitor.visit(useBindingIndexName, useBindingIndex);
   }
   
   @Override
   public int hashCode() {
-    return (activateByDefault ? 4 : 0) + (listenForChanges ? 2 : 0) + (runAutomatically ? 1 : 0);
+    return (useBindingIndex ? 16 : 0) + (storeBindingsOffHeap ? 8 : 0) + (activateByDefault ? 4 : 0)
+      + (listenForChanges ? 2 : 0) + (runAutomatically ? 1 : 0);
   }
   
   @Override
@@ -116,13 +136,16 @@ public class IDEPluginSettings implements Settings {
     IDEPluginSettings settings = (IDEPluginSettings)object;
     return (settings.activateByDefault == activateByDefault)
     && (settings.listenForChanges == listenForChanges)
-    && (settings.runAutomatically == runAutomatically);
+    && (settings.runAutomatically == runAutomatically)
+    && (settings.storeBindingsOffHeap == storeBindingsOffHeap)
+    && (settings.useBindingIndex == useBindingIndex);
   }
   
   @Override
   public String toString() {
     return "ProjectSettings: activateByDefault="+activateByDefault+" listenForChanges="
-      +listenForChanges+" runAutomatically="+runAutomatically;
+      +listenForChanges+" runAutomatically="+runAutomatically
+      +" storeBindingsOffHeap="+storeBindingsOffHeap+" useBindingIndex="+useBindingIndex;
   }
   
   public boolean activateByDefault() {
@@ -137,6 +160,14 @@ public class IDEPluginSettings implements Settings {
     return listenForChanges;
   }
   
+  public boolean storeBindingsOffHeap() {
+    return storeBindingsOffHeap;
+  }
+  
+  public boolean useBindingIndex() {
+    return useBindingIndex;
+  }
+  
   public void setActivateByDefault(boolean activateByDefault) {
     this.activateByDefault = activateByDefault;
   }
@@ -148,4 +179,12 @@ public class IDEPluginSettings implements Settings {
   public void setListenForChanges(boolean listenForChanges) {
     this.listenForChanges = listenForChanges;
   }
+  
+  public void setStoreBindingsOffHeap(boolean storeBindingsOffHeap) {
+    this.storeBindingsOffHeap = storeBindingsOffHeap;
+  }
+  
+  public void setUseBindingIndex(boolean useBindingIndex) {
+    this.useBindingIndex = useBindingIndex;
+  }
 }
@@ -16,45 +16,136 @@
 
 package com.google.inject.tools.ideplugin;
 
-// TODO: Phase II: make concurrent!
-
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.tools.suite.Messenger;
 import com.google.inject.tools.suite.ProblemsHandler;
 import com.google.inject.tools.suite.snippets.problems.CodeProblem;
 
+import java.util.Queue;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Standard implementation of the {@link ProblemsHandler}.
  * 
+ * Problems are queued by the caller and published to the {@link Messenger} by a
+ * single consumer running on the shared executor, in batches no more often
+ * than every {@link #PUBLISH_INTERVAL} milliseconds.  The interval is waited
+ * out on a timer, so no executor thread sleeps.  A problem reported again
+ * while still waiting to be published (for instance by several contexts at
+ * once) is only published once.
+ * 
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 @Singleton
 class ProblemsHandlerImpl implements ProblemsHandler {
+  static final long PUBLISH_INTERVAL = 250;
+  static final int MAX_BATCH_SIZE = 100;
+
+  private static final Timer timer = new Timer("Guice Tools Problems", true);
+
   private final Messenger messenger;
+  private final ExecutorService executor;
+  private final long publishInterval;
+  private final Queue<CodeProblem> pending;
+  private final ConcurrentMap<CodeProblem, Boolean> queued;
+  private final AtomicBoolean publishing;
 
   /**
    * Create an ProblemsHandlerImpl. This should be injected.
    * 
    * @param messenger the Messenger
+   * @param executor the executor to publish problems from
    */
   @Inject
-  public ProblemsHandlerImpl(Messenger messenger) {
-    this.messenger = messenger;
+  public ProblemsHandlerImpl(Messenger messenger, ExecutorService executor) {
+    this(messenger, executor, PUBLISH_INTERVAL);
   }
 
-  private void foundProblem(CodeProblem problem) {
-    // TODO: Phase II: what to do? somehow do codeassist with problems
-    messenger.logMessage("Problem found: " + problem.toString());
+  ProblemsHandlerImpl(Messenger messenger, ExecutorService executor,
+      long publishInterval) {
+    this.messenger = messenger;
+    this.executor = executor;
+    this.publishInterval = publishInterval;
+    this.pending = new ConcurrentLinkedQueue<CodeProblem>();
+    this.queued = new ConcurrentHashMap<CodeProblem, Boolean>();
+    this.publishing = new AtomicBoolean(false);
   }
 
   public void foundProblems(Set<? extends CodeProblem> problems) {
     if (problems != null) {
       for (CodeProblem problem : problems) {
-        foundProblem(problem);
+        if (queued.putIfAbsent(problem, Boolean.TRUE) == null) {
+          pending.add(problem);
+        }
+      }
+      schedulePublisher();
+    }
+  }
+
+  /*
+   * Start the publisher once the publish interval is over, so that problems
+   * arriving together are coalesced.
+   */
+  private void schedulePublisher() {
+    if (!pending.isEmpty() && publishing.compareAndSet(false, true)) {
+      if (publishInterval > 0) {
+        timer.schedule(new TimerTask() {
+          @Override
+          public void run() {
+            submitPublisher();
+          }
+        }, publishInterval);
+      } else {
+        submitPublisher();
+      }
+    }
+  }
+
+  private void submitPublisher() {
+    try {
+      executor.submit(new Publisher());
+    } catch (RuntimeException e) {
+      publishing.set(false);
+    }
+  }
+
+  /*
+   * The single consumer, handing a batch of problems to the messenger.
+   */
+  private class Publisher implements Runnable {
+    public void run() {
+      try {
+        publishBatch();
+      } finally {
+        publishing.set(false);
+        schedulePublisher();
+      }
+    }
+  }
+
+  private void publishBatch() {
+    StringBuilder message = new StringBuilder();
+    int count = 0;
+    CodeProblem problem;
+    while (count < MAX_BATCH_SIZE && (problem = pending.poll()) != null) {
+      queued.remove(problem);
+      // TODO: Phase II: what to do? somehow do codeassist with problems
+      if (count > 0) {
+        message.append("\n");
       }
+      message.append("Problem found: ").append(problem.toString());
+      count++;
+    }
+    if (count > 0) {
+      messenger.logMessage(message.toString());
     }
   }
 }
@@ -42,10 +42,24 @@ public interface ProjectManager {
   public void settingsChanged(JavaProject javaProject, IDEPluginSettings settings);
 
   /**
-   * Return the {@link ModuleManager} for the given project.
+   * Return the {@link ModuleManager} for the given project, waiting for any
+   * pending initialization of that project (but not of other projects).
    */
   public ModuleManager getModuleManager(JavaProject javaProject);
 
+  /**
+   * Return true if the given project has no initialization pending, so that
+   * its {@link ModuleManager} reflects the project's current state.
+   */
+  public boolean isInitialized(JavaProject javaProject);
+
+  /**
+   * Return the {@link ModuleManager} the given project already has, or null;
+   * unlike {@link #getModuleManager(JavaProject)} this neither waits, creates
+   * a manager nor makes the project the current one.
+   */
+  public ModuleManager findModuleManager(JavaProject javaProject);
+
   /**
    * Return the {@link ModuleManager} for the current project.
    */
@@ -30,10 +30,15 @@ import com.google.inject.tools.suite.module.ModuleManager;
 import com.google.inject.tools.suite.module.ModuleRepresentation;
 import com.google.inject.tools.suite.module.ModuleManager.PostUpdater;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * {@inheritDoc ProjectManager}
@@ -48,7 +53,7 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
   private final CustomContextDefinitionSource customContextDefinitionSource;
   private final ProjectSource projectSource;
   private final Provider<ProgressHandler> progressHandlerProvider;
-  private final Set<ProgressHandler> progressHandlers;
+  private final ConcurrentMap<JavaProject, ProjectReadiness> readiness;
   private JavaProject currentProject;
 
   private static final boolean shouldListenForChanges = false;
@@ -63,10 +68,11 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     this.customContextDefinitionSource = customContextDefinitionSource;
     this.progressHandlerProvider = progressHandlerProvider;
     this.projectSource = projectSource;
-    this.progressHandlers = new HashSet<ProgressHandler>();
+    this.readiness = new ConcurrentHashMap<JavaProject, ProjectReadiness>();
     projectSource.addListener(this);
     customContextDefinitionSource.addListener(this);
-    this.moduleManagers = new HashMap<JavaProject, ModuleManager>();
+    this.moduleManagers =
+        Collections.synchronizedMap(new HashMap<JavaProject, ModuleManager>());
     currentProject = null;
     modulesSource.addListener(this);
     listenForChanges(shouldListenForChanges);
@@ -79,24 +85,43 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     customContextDefinitionSource.listenForChanges(listen);
   }
   
+  /*
+   * Each project gets its own progress handler, so the projects initialize
+   * concurrently, each under its own project's scheduling, and no step waits
+   * on the others.  The steps are made up front so that the projects are
+   * known to be initializing, and queries against them wait, from the moment
+   * the initialization is queued.
+   */
   private void initializeProjects(boolean waitFor) {
-    ProgressHandler progressHandler = setupProgressHandler(waitFor);
+    List<ProgressHandler> progressHandlers = new ArrayList<ProgressHandler>();
     for (JavaProject project : projectSource.getOpenProjects()) {
-      progressHandler.step(new ModuleInitializationStep(project));
-      progressHandler.step(new ContextInitializationStep(project));
+      ProgressHandler progressHandler = progressHandlerProvider.get();
+      ModuleInitializationStep moduleStep =
+          new ModuleInitializationStep(project);
+      progressHandler.step(moduleStep);
+      progressHandler.step(new ContextInitializationStep(project, moduleStep));
+      progressHandlers.add(progressHandler);
+    }
+    for (ProgressHandler progressHandler : progressHandlers) {
+      progressHandler.go("Guice Plugin Initialization", true);
     }
-    progressHandler.go("Guice Plugin Initialization", true);
     if (waitFor) {
       try {
-        progressHandler.waitFor();
+        for (ProgressHandler progressHandler : progressHandlers) {
+          progressHandler.waitFor();
+        }
       } catch (InterruptedException e) {}
     }
   }
   
   private void initializeProject(JavaProject project, boolean waitFor) {
-    ProgressHandler progressHandler = setupProgressHandler(waitFor);
-    progressHandler.step(new ModuleInitializationStep(project));
-    progressHandler.step(new ContextInitializationStep(project));
+    if (waitFor) {
+      awaitInitialization(project);
+    }
+    ProgressHandler progressHandler = progressHandlerProvider.get();
+    ModuleInitializationStep moduleStep = new ModuleInitializationStep(project);
+    progressHandler.step(moduleStep);
+    progressHandler.step(new ContextInitializationStep(project, moduleStep));
     progressHandler.go("Guice Plugin Update", false);
     if (waitFor) {
       try {
@@ -105,18 +130,60 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     }
   }
   
-  private ProgressHandler setupProgressHandler(boolean waitFor) {
-    if (waitFor) {
+  /*
+   * Tracks the initializations queued for one project, so that queries against
+   * a project wait only for that project rather than for every project open.
+   */
+  private static class ProjectReadiness {
+    private int pending = 0;
+    
+    public synchronized void initializing() {
+      pending++;
+    }
+    
+    public synchronized void initialized() {
+      if (pending > 0) {
+        pending--;
+      }
+      if (pending == 0) {
+        notifyAll();
+      }
+    }
+    
+    public synchronized boolean isReady() {
+      return pending == 0;
+    }
+    
+    public synchronized void awaitReady() throws InterruptedException {
+      while (pending > 0) {
+        wait();
+      }
+    }
+  }
+  
+  private ProjectReadiness readinessOf(JavaProject project) {
+    ProjectReadiness projectReadiness = readiness.get(project);
+    if (projectReadiness == null) {
+      ProjectReadiness newReadiness = new ProjectReadiness();
+      projectReadiness = readiness.putIfAbsent(project, newReadiness);
+      if (projectReadiness == null) {
+        projectReadiness = newReadiness;
+      }
+    }
+    return projectReadiness;
+  }
+  
+  private void awaitInitialization(JavaProject project) {
+    ProjectReadiness projectReadiness = readiness.get(project);
+    if (projectReadiness != null) {
       try {
-        waitForAllProgressHandlers();
+        projectReadiness.awaitReady();
       } catch (InterruptedException e) {}
     }
-    ProgressHandler progressHandler = progressHandlerProvider.get();
-    progressHandlers.add(progressHandler);
-    return progressHandler;
   }
   
-  private abstract class InitializationProgressStep implements ProgressHandler.ProgressStep {
+  private abstract class InitializationProgressStep
+      implements ProgressHandler.ProjectProgressStep {
     protected final JavaProject project;
     protected ModuleManager moduleManager;
     private boolean done;
@@ -142,6 +209,10 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
       return "Initializing project for guice plugin: " + project.getName();
     }
 
+    public JavaProject project() {
+      return project;
+    }
+
     public void run(ProgressMonitor monitor) {
       done = false;
       moduleManager = createModuleManager(project);
@@ -165,15 +236,54 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     }
   }
   
-  private class ContextInitializationStep extends InitializationProgressStep {
-    public ContextInitializationStep(JavaProject project) {
+  /*
+   * The last step of a project's initialization; the project is ready once it
+   * has run or been cancelled.
+   */
+  private class ContextInitializationStep extends InitializationProgressStep
+      implements ProgressHandler.DependentProgressStep {
+    private final Collection<ModuleInitializationStep> dependencies;
+    private final ProjectReadiness projectReadiness;
+    private final AtomicBoolean finished;
+    
+    public ContextInitializationStep(JavaProject project,
+        ModuleInitializationStep moduleStep) {
       super(project);
+      dependencies = Collections.singleton(moduleStep);
+      projectReadiness = readinessOf(project);
+      projectReadiness.initializing();
+      finished = new AtomicBoolean(false);
+    }
+    
+    public Collection<ModuleInitializationStep> dependencies() {
+      return dependencies;
+    }
+    
+    @Override
+    public void cancel() {
+      finish();
+    }
+    
+    @Override
+    public void complete() {
+      super.complete();
+      finish();
     }
     
     @Override
     public void runit(ProgressMonitor monitor) {
-      for (String customContextName : customContextDefinitionSource.get(project, monitor)) {
-        moduleManager.addApplicationContext(customContextName);
+      try {
+        for (String customContextName : customContextDefinitionSource.get(project, monitor)) {
+          moduleManager.addApplicationContext(customContextName);
+        }
+      } finally {
+        finish();
+      }
+    }
+    
+    private void finish() {
+      if (finished.compareAndSet(false, true)) {
+        projectReadiness.initialized();
       }
     }
   }
@@ -243,11 +353,18 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
   }
 
   public ModuleManager getModuleManager(JavaProject javaManager) {
-    try {
-      waitForAllProgressHandlers();
-    } catch (InterruptedException e) {}
+    awaitInitialization(javaManager);
     return createModuleManager(javaManager);
   }
+  
+  public boolean isInitialized(JavaProject javaProject) {
+    ProjectReadiness projectReadiness = readiness.get(javaProject);
+    return projectReadiness == null || projectReadiness.isReady();
+  }
+  
+  public ModuleManager findModuleManager(JavaProject javaProject) {
+    return moduleManagers.get(javaProject);
+  }
 
   public ModuleManager getModuleManager() {
     return createModuleManager(currentProject);
@@ -267,6 +384,7 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     settings.setRunAutomatically(moduleManagers.get(javaManager).runAutomatically());
     javaManager.saveSettings(settings);
     moduleManagers.remove(javaManager);
+    readiness.remove(javaManager);
   }
 
   public void javaManagerAdded(ProjectSource source, 
@@ -283,7 +401,7 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     return currentProject;
   }
 
-  private ModuleManager createModuleManager(JavaProject javaManager) {
+  private synchronized ModuleManager createModuleManager(JavaProject javaManager) {
     currentProject = javaManager;
     if (moduleManagers.get(javaManager) == null) {
       listenForChanges(javaManager.loadSettings().listenForChanges());
@@ -297,21 +415,16 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
   /*
    * Ask the ModulesListener for all the modules in the user's code.
    */
-  private synchronized void initModules(JavaProject javaManager, ProgressMonitor monitor) {
+  private void initModules(JavaProject javaManager, ProgressMonitor monitor) {
     if (javaManager != null) {
-      for (String moduleName : modulesSource.get(javaManager, monitor)) {
-        initModule(moduleManagers.get(javaManager), moduleName);
-      }
+      moduleManagers.get(javaManager).addModules(
+          modulesSource.get(javaManager, monitor), false);
     }
     if (moduleManagers.get(javaManager).runAutomatically()) {
       cleanAllModules(moduleManagers.get(javaManager), true, true);
     }
   }
 
-  private void initModule(ModuleManager moduleManager, String moduleName) {
-    moduleManager.addModule(moduleName, false);
-  }
-  
   public boolean findNewContexts(JavaProject javaManager, boolean waitFor,
       boolean backgroundAutomatically) {
     initializeProject(javaManager, waitFor);
@@ -360,7 +473,7 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     progressHandler.go("Finding New Guice Contexts", backgroundAutomatically);
   }
   
-  private class FindNewContextsThread implements ProgressHandler.ProgressStep {
+  private class FindNewContextsThread implements ProgressHandler.ProjectProgressStep {
     private final JavaProject javaManager;
     private final PostUpdater postUpdater;
     private final boolean backgroundAutomatically;
@@ -390,6 +503,10 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
       return "Finding New Guice Contexts for " + javaManager.getName();
     }
 
+    public JavaProject project() {
+      return javaManager;
+    }
+
     public void run(ProgressMonitor monitor) {
       done = false;
       postUpdater.execute(findNewContexts(javaManager, true, backgroundAutomatically));
@@ -409,19 +526,6 @@ class ProjectManagerImpl implements ProjectManager, SourceListener, ProjectSourc
     return null;
   }
   
-  private void waitForAllProgressHandlers() throws InterruptedException {
-    Set<ProgressHandler> toRemove = new HashSet<ProgressHandler>();
-    for (ProgressHandler progressHandler : progressHandlers) {
-      if (progressHandler.isDone()) {
-        toRemove.add(progressHandler);
-      }
-      progressHandler.waitFor();
-    }
-    for (ProgressHandler progressHandler : toRemove) {
-      progressHandlers.remove(progressHandler);
-    }
-  }
-  
   public void settingsChanged(JavaProject project, IDEPluginSettings settings) {
     if (project == null) {
       for (ModuleManager moduleManager : moduleManagers.values()) {
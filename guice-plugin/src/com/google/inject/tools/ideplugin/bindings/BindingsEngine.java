@@ -17,6 +17,7 @@
 package com.google.inject.tools.ideplugin.bindings;
 
 import java.util.Collections;
+import java.util.Set;
 
 import com.google.inject.tools.ideplugin.JavaElement;
 import com.google.inject.tools.ideplugin.JavaProject;
@@ -43,6 +44,11 @@ import com.google.inject.tools.suite.snippets.problems.CodeProblem;
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 public final class BindingsEngine {
+  /**
+   * The label of the job finding the bindings.
+   */
+  public static final String LABEL = "Finding Guice Bindings";
+  
   /**
    * Create a BindingsEngineImpl. This should be created by the
    * {@link com.google.inject.tools.ideplugin.GuicePlugin}.
@@ -64,10 +70,10 @@ public final class BindingsEngine {
       new BindingsEngineThread(projectManager, project, problemsHandler,
           resultsHandler, messenger, element);
     progressHandler.step(engineThread);
-    progressHandler.go("Finding Guice Bindings", true);
+    progressHandler.go(LABEL, true);
   }
 
-  private class BindingsEngineThread implements ProgressHandler.ProgressStep {
+  private class BindingsEngineThread implements ProgressHandler.ProjectProgressStep {
     private final ProjectManager projectManager;
     private final JavaProject project;
     private final ProblemsHandler problemsHandler;
@@ -104,6 +110,10 @@ public final class BindingsEngine {
       return "Finding Guice Bindings for " + ClassNameUtility.shorten(element.getClassName());
     }
 
+    public JavaProject project() {
+      return project;
+    }
+
     public void run(ProgressMonitor monitor) {
       done = false;
       ModuleManager moduleManager = projectManager.getModuleManager(project);
@@ -115,10 +125,12 @@ public final class BindingsEngine {
       if (!moduleManager.update(true, false)) {
         results.userCancelled();
       } else {
-        if ((moduleManager.getActiveModuleContexts() != null)
-            && (moduleManager.getActiveModuleContexts().size() > 0)) {
-          for (ModuleContextRepresentation moduleContext : moduleManager
-              .getActiveModuleContexts()) {
+        Set<ModuleContextRepresentation> activeModuleContexts =
+            moduleManager.getActiveModuleContexts();
+        if ((activeModuleContexts != null)
+            && (activeModuleContexts.size() > 0)) {
+          boolean displayed = false;
+          for (ModuleContextRepresentation moduleContext : activeModuleContexts) {
             BindingLocator locater;
             if (element.isInjectionPoint()) {
               locater = new BindingLocator(theClass, element.getAnnotations(),
@@ -139,9 +151,12 @@ public final class BindingsEngine {
               results.put(locater.getModuleContext().getName(),
                   locater.getCodeLocations(), locater.getProblems());
             }
-          }
-          if (!results.isEmpty()) {
-            resultsHandler.displayLocationsResults(results);
+            // show results as soon as there are any; the view picks up the
+            // remaining contexts as they are added
+            if (!displayed && !results.isEmpty()) {
+              resultsHandler.displayLocationsResults(results);
+              displayed = true;
+            }
           }
         } else {
           messenger.display("No active module contexts configured.");
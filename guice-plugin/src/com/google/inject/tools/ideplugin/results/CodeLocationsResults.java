@@ -16,6 +16,7 @@
 
 package com.google.inject.tools.ideplugin.results;
 
+import com.google.inject.tools.ideplugin.results.ActionStringBuilder.ActionString;
 import com.google.inject.tools.suite.module.ClassNameUtility;
 import com.google.inject.tools.suite.snippets.BindingCodeLocation;
 import com.google.inject.tools.suite.snippets.CodeLocation;
@@ -113,9 +114,13 @@ public class CodeLocationsResults extends Results {
      * @param location the {@link CodeLocation}
      */
     public CodeLocationNode(CodeLocation location) {
-      super(new ActionStringBuilder(location).getActionString());
       this.location = location;
     }
+
+    @Override
+    protected ActionString createText() {
+      return new ActionStringBuilder(location).getActionString();
+    }
     
     protected void createProblemsNode() {
       if (!location.getProblems().isEmpty()) {
@@ -149,8 +154,15 @@ public class CodeLocationsResults extends Results {
   }
   
   static class LinkedToBindingCodeLocationNode extends Node {
+    private final BindingCodeLocation location;
+
     public LinkedToBindingCodeLocationNode(BindingCodeLocation location) {
-      super(new ActionStringBuilder(location).getActionString());
+      this.location = location;
+    }
+
+    @Override
+    protected ActionString createText() {
+      return new ActionStringBuilder(location).getActionString();
     }
   }
   
@@ -189,10 +201,14 @@ public class CodeLocationsResults extends Results {
      * @param problem the problem
      */
     public ProblemNode(CodeProblem problem) {
-      super(new ActionStringBuilder(problem).getActionString());
       this.problem = problem;
     }
 
+    @Override
+    protected ActionString createText() {
+      return new ActionStringBuilder(problem).getActionString();
+    }
+
     /**
      * Return the {@link CodeProblem}.
      * 
@@ -237,6 +253,7 @@ public class CodeLocationsResults extends Results {
     }
     node.addLocations(locations);
     node.addProblems(problems);
+    fireResultsChanged();
   }
 
   @Override
@@ -18,6 +18,7 @@ package com.google.inject.tools.ideplugin.results;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import com.google.inject.tools.ideplugin.ActionsHandler;
 import com.google.inject.tools.ideplugin.results.ActionStringBuilder.ActionString;
 
@@ -35,7 +36,7 @@ public class Results {
    * responsible.
    */
   public static class Node {
-    protected final ActionString text;
+    private ActionString text;
     protected final List<Node> children;
 
     /**
@@ -48,6 +49,16 @@ public class Results {
       this.children = new ArrayList<Node>();
     }
 
+    /**
+     * Create a new Node whose text is built by {@link #createText()} the first
+     * time it is needed, which for a large result set is only when the node
+     * is displayed.
+     */
+    protected Node() {
+      this.text = null;
+      this.children = new ArrayList<Node>();
+    }
+
     public Node(String label, String tooltip) {
       this.text = new ActionString();
       this.text.addText(label, tooltip);
@@ -63,15 +74,25 @@ public class Results {
     /**
      * Return the text of this node with its actions.
      */
-    public ActionString getText() {
+    public synchronized ActionString getText() {
+      if (text == null) {
+        text = createText();
+      }
       return text;
     }
 
+    /**
+     * Build the text of a node created without one.
+     */
+    protected ActionString createText() {
+      return new ActionString();
+    }
+
     /**
      * Return the text as a string.
      */
     public String getTextString() {
-      return text.toString();
+      return getText().toString();
     }
 
     /**
@@ -118,13 +139,46 @@ public class Results {
     }
   }
 
+  /**
+   * Listener notified when nodes are added to results that may already be on
+   * display.  Listeners are called on the thread adding the nodes.
+   */
+  public interface ResultsListener {
+    public void resultsChanged(Results results);
+  }
+
   private final Node root;
+  private final List<ResultsListener> listeners;
 
   /**
    * Create a new Results object with the given title.
    */
   public Results(String title, String tooltip) {
     root = new Node(title, tooltip);
+    listeners = new CopyOnWriteArrayList<ResultsListener>();
+  }
+
+  /**
+   * Add a listener to be told when these results change.
+   */
+  public void addListener(ResultsListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Remove a listener added by {@link #addListener(ResultsListener)}.
+   */
+  public void removeListener(ResultsListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Notify the listeners that nodes have been added.
+   */
+  protected void fireResultsChanged() {
+    for (ResultsListener listener : listeners) {
+      listener.resultsChanged(this);
+    }
   }
 
   /**
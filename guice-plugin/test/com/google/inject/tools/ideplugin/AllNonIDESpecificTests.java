@@ -35,6 +35,7 @@ public class AllNonIDESpecificTests {
     suite.addTestSuite(CodeLocationsResultsTest.class);
     suite.addTestSuite(ResultsHandlerTest.class);
     suite.addTestSuite(ProjectSettingsTest.class);
+    suite.addTestSuite(ProblemsHandlerTest.class);
 
     return suite;
   }
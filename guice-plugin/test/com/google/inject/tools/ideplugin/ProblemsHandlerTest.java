@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin;
+
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit test the ProblemsHandler implementation.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ProblemsHandlerTest extends TestCase {
+  private ExecutorService executor;
+  
+  @Override
+  protected void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+  
+  @Override
+  protected void tearDown() {
+    executor.shutdownNow();
+  }
+  
+  /**
+   * Test that a problem reported repeatedly before publication is published once.
+   */
+  public void testDuplicateProblemsPublishedOnce() throws Exception {
+    RecordingMessenger messenger = new RecordingMessenger();
+    ProblemsHandlerImpl problemsHandler =
+        new ProblemsHandlerImpl(messenger, executor, 200);
+    CodeProblem problem = new CodeProblem(new Exception("problem"));
+    CodeProblem otherProblem = new CodeProblem(new Exception("other problem"));
+    Set<CodeProblem> problems = new HashSet<CodeProblem>();
+    problems.add(problem);
+    problemsHandler.foundProblems(problems);
+    problems.add(otherProblem);
+    problemsHandler.foundProblems(problems);
+    assertEquals(2, messenger.awaitProblems(2));
+    assertEquals(1, messenger.messages());
+  }
+  
+  /**
+   * Test that large numbers of problems are published in bounded batches.
+   */
+  public void testProblemsPublishedInBatches() throws Exception {
+    RecordingMessenger messenger = new RecordingMessenger();
+    ProblemsHandlerImpl problemsHandler =
+        new ProblemsHandlerImpl(messenger, executor, 0);
+    Set<CodeProblem> problems = new HashSet<CodeProblem>();
+    int count = ProblemsHandlerImpl.MAX_BATCH_SIZE * 2 + 1;
+    for (int i = 0; i < count; i++) {
+      problems.add(new CodeProblem(new Exception("problem " + i)));
+    }
+    problemsHandler.foundProblems(problems);
+    assertEquals(count, messenger.awaitProblems(count));
+    assertEquals(3, messenger.messages());
+  }
+  
+  private static class RecordingMessenger implements Messenger {
+    private final List<String> messages = new ArrayList<String>();
+    private int problems = 0;
+    
+    public synchronized void logMessage(String message) {
+      messages.add(message);
+      problems += message.split("\n").length;
+      notifyAll();
+    }
+    
+    public synchronized int messages() {
+      return messages.size();
+    }
+    
+    public synchronized int awaitProblems(int expected) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (problems < expected && System.currentTimeMillis() < deadline) {
+        wait(deadline - System.currentTimeMillis());
+      }
+      return problems;
+    }
+    
+    public void display(String message) {
+    }
+    
+    public void logException(String label, Throwable throwable) {
+    }
+    
+    public void logCodeRunnerMessage(String message) {
+    }
+    
+    public void logCodeRunnerException(String label, Throwable throwable) {
+    }
+  }
+}
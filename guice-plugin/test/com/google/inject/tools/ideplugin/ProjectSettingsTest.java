@@ -29,8 +29,19 @@ public class ProjectSettingsTest extends TestCase {
     settings.setActivateByDefault(true);
     settings.setListenForChanges(false);
     settings.setRunAutomatically(true);
+    settings.setStoreBindingsOffHeap(true);
+    settings.setUseBindingIndex(false);
     String serialized = settings.serialize();
     IDEPluginSettings settings2 = new IDEPluginSettings(serialized);
     assertTrue(settings.equals(settings2));
   }
+  
+  public void testReadingSettingsSavedBeforeOffHeapOption() {
+    IDEPluginSettings settings = new IDEPluginSettings("true;false;true");
+    assertTrue(settings.activateByDefault());
+    assertFalse(settings.runAutomatically());
+    assertTrue(settings.listenForChanges());
+    assertFalse(settings.storeBindingsOffHeap());
+    assertTrue(settings.useBindingIndex());
+  }
 }
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.ideplugin.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Module;
+import com.google.inject.tools.ideplugin.results.ActionStringBuilder;
+import com.google.inject.tools.suite.benchmark.Benchmark;
+import com.google.inject.tools.suite.benchmark.SizedModule;
+import com.google.inject.tools.suite.snippets.BindingCodeLocation;
+import com.google.inject.tools.suite.snippets.CodeLocation;
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.InjectorRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+
+/**
+ * Benchmarks of the plugin's rendering of results, on the binding locations of
+ * a context of the given number of bindings.
+ * 
+ * Run with the names of the benchmarks to run, or none to run them all; the
+ * {@link Benchmark} system properties apply.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class PluginBenchmarks {
+  /**
+   * Renders every binding location of a context as the results view does.
+   */
+  static class ActionStringRendering extends Benchmark {
+    private List<CodeLocation> locations;
+    
+    public ActionStringRendering() {
+      super("ActionStringBuilder rendering");
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      Map<KeyRepresentation, BindingRepresentation> bindings =
+          new InjectorRepresentation(Collections.<Module>singleton(
+              new SizedModule(size))).bindings();
+      locations = new ArrayList<CodeLocation>();
+      for (Map.Entry<KeyRepresentation, BindingRepresentation> binding
+          : bindings.entrySet()) {
+        if (binding.getValue() != null) {
+          locations.add(new BindingCodeLocation("Rendering", binding.getKey(),
+              binding.getValue()));
+        }
+      }
+      if (locations.isEmpty()) {
+        throw new IllegalStateException("The injector of the module failed");
+      }
+    }
+    
+    @Override
+    protected Object run() {
+      int length = 0;
+      for (CodeLocation location : locations) {
+        length += new ActionStringBuilder(location).getActionString().toString().length();
+      }
+      return length;
+    }
+  }
+  
+  public static void main(String[] args) throws Exception {
+    Benchmark.runAll(System.out, args, new ActionStringRendering());
+  }
+}
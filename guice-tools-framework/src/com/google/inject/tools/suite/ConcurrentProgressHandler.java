@@ -0,0 +1,338 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An implementation of {@link ProgressHandler} that runs its steps concurrently
+ * on an executor, by default the one shared by the tools suite.  A
+ * {@link DependentProgressStep} is started only once all of its dependencies
+ * (among the steps of this handler) are complete; steps depending on a step
+ * that was cancelled or failed are cancelled rather than run.
+ * 
+ * The progress of all the steps is aggregated and, if a parent
+ * {@link ProgressMonitor} is given, reported to it.  The handler does not
+ * display anything itself; it is meant to be run from within a step of the
+ * handler that does, or headless.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ConcurrentProgressHandler implements ProgressHandler {
+  /**
+   * Units of the parent monitor given to each step.
+   */
+  static final int STEP_UNITS = 1000;
+  
+  private final Executor executor;
+  private final ProgressMonitor parent;
+  private final List<ProgressStep> steps;
+  private final Set<ProgressStep> running;
+  private final Object progressLock;
+  private volatile boolean cancelled;
+  private volatile boolean done;
+  private volatile CountDownLatch finished;
+  private AtomicInteger remaining;
+  private double total;
+  private double worked;
+  private int reported;
+  private Runnable executeAfter;
+  
+  /**
+   * Create a handler running on the shared executor and reporting to no one.
+   */
+  public ConcurrentProgressHandler() {
+    this(SharedExecutorProvider.sharedExecutor(), null);
+  }
+  
+  /**
+   * Create a handler running on the shared executor and reporting the
+   * aggregated progress to the given monitor.
+   */
+  public ConcurrentProgressHandler(ProgressMonitor parent) {
+    this(SharedExecutorProvider.sharedExecutor(), parent);
+  }
+  
+  public ConcurrentProgressHandler(Executor executor, ProgressMonitor parent) {
+    this.executor = executor;
+    this.parent = parent;
+    this.steps = new ArrayList<ProgressStep>();
+    this.running = Collections.synchronizedSet(new HashSet<ProgressStep>());
+    this.progressLock = new Object();
+    this.finished = new CountDownLatch(0);
+    this.done = false;
+    this.cancelled = false;
+  }
+  
+  private class StepNode implements Runnable {
+    private final ProgressStep step;
+    private final StepMonitor monitor;
+    private final List<StepNode> dependents;
+    private final AtomicInteger waitingOn;
+    private volatile boolean dependencyFailed;
+    
+    public StepNode(ProgressStep step) {
+      this.step = step;
+      this.monitor = new StepMonitor(STEP_UNITS);
+      this.dependents = new ArrayList<StepNode>();
+      this.waitingOn = new AtomicInteger();
+      this.dependencyFailed = false;
+    }
+    
+    public void run() {
+      boolean succeeded = false;
+      try {
+        if (!cancelled && !dependencyFailed) {
+          running.add(step);
+          try {
+            step.run(monitor);
+          } finally {
+            running.remove(step);
+          }
+          succeeded = !cancelled;
+        }
+      } finally {
+        if (!succeeded) {
+          step.cancel();
+        }
+        step.complete();
+        monitor.done();
+        for (StepNode dependent : dependents) {
+          if (!succeeded) {
+            dependent.dependencyFailed = true;
+          }
+          if (dependent.waitingOn.decrementAndGet() == 0) {
+            executor.execute(dependent);
+          }
+        }
+        if (remaining.decrementAndGet() == 0) {
+          finish();
+        }
+      }
+    }
+  }
+  
+  /*
+   * Monitor handed to a step; it accounts for a share of the total work and
+   * converts whatever units the step uses into that share.
+   */
+  private class StepMonitor implements ProgressMonitor {
+    private final double share;
+    private double unitShare;
+    private double used;
+    
+    public StepMonitor(double share) {
+      this.share = share;
+      this.unitShare = 0;
+      this.used = 0;
+    }
+    
+    public synchronized void begin(String label, int units) {
+      unitShare = units > 0 ? (share - used) / units : 0;
+    }
+    
+    public synchronized ProgressMonitor getSubMonitor(int parentunits) {
+      double subShare = Math.min(parentunits * unitShare, share - used);
+      used += subShare;
+      return new StepMonitor(subShare);
+    }
+    
+    public void worked(int workedunits) {
+      double amount;
+      synchronized (this) {
+        amount = Math.min(workedunits * unitShare, share - used);
+        used += amount;
+      }
+      addWork(amount);
+    }
+    
+    public void done() {
+      double amount;
+      synchronized (this) {
+        amount = share - used;
+        used = share;
+      }
+      addWork(amount);
+    }
+  }
+  
+  private void addWork(double amount) {
+    if (amount <= 0) {
+      return;
+    }
+    synchronized (progressLock) {
+      worked += amount;
+      int units = (int) worked - reported;
+      if (units > 0 && parent != null) {
+        parent.worked(units);
+      }
+      reported += Math.max(units, 0);
+    }
+  }
+  
+  /**
+   * Return the fraction (between 0 and 1) of the work done so far.
+   */
+  public double getProgress() {
+    synchronized (progressLock) {
+      return total == 0 ? (done ? 1 : 0) : Math.min(worked / total, 1);
+    }
+  }
+  
+  public void go(String label, boolean backgroundAutomatically) {
+    go(label, backgroundAutomatically, false);
+  }
+  
+  /**
+   * Start running the steps and return immediately; use {@link #waitFor()} to
+   * block until they are done.  Cancellation is immediate through
+   * {@link #cancel()} so no thread is needed to poll for it.
+   */
+  public synchronized void go(String label, boolean backgroundAutomatically,
+      boolean cancelThread) {
+    done = false;
+    cancelled = false;
+    Map<ProgressStep, StepNode> nodes = new HashMap<ProgressStep, StepNode>();
+    List<StepNode> order = new ArrayList<StepNode>();
+    for (ProgressStep step : steps) {
+      StepNode node = new StepNode(step);
+      nodes.put(step, node);
+      order.add(node);
+    }
+    for (StepNode node : order) {
+      if (node.step instanceof DependentProgressStep) {
+        for (ProgressStep dependency
+            : ((DependentProgressStep) node.step).dependencies()) {
+          StepNode dependencyNode = nodes.get(dependency);
+          if (dependencyNode != null && dependencyNode != node) {
+            dependencyNode.dependents.add(node);
+            node.waitingOn.incrementAndGet();
+          }
+        }
+      }
+    }
+    synchronized (progressLock) {
+      total = order.size() * STEP_UNITS;
+      worked = 0;
+      reported = 0;
+    }
+    if (parent != null) {
+      parent.begin(label, order.size() * STEP_UNITS);
+    }
+    remaining = new AtomicInteger(order.size());
+    finished = new CountDownLatch(1);
+    if (order.isEmpty()) {
+      finish();
+      return;
+    }
+    Set<StepNode> circular = findCircularDependencies(order);
+    for (StepNode node : circular) {
+      node.dependencyFailed = true;
+      node.waitingOn.set(0);
+    }
+    List<StepNode> startable = new ArrayList<StepNode>();
+    for (StepNode node : order) {
+      if (node.waitingOn.get() == 0) {
+        startable.add(node);
+      }
+    }
+    for (StepNode node : startable) {
+      executor.execute(node);
+    }
+  }
+  
+  /*
+   * Return the steps that can never start because they are part of, or depend
+   * on, a cycle of dependencies; these are cancelled instead of run.
+   */
+  private Set<StepNode> findCircularDependencies(List<StepNode> nodes) {
+    Map<StepNode, Integer> waitingOn = new HashMap<StepNode, Integer>();
+    List<StepNode> ready = new ArrayList<StepNode>();
+    for (StepNode node : nodes) {
+      waitingOn.put(node, node.waitingOn.get());
+      if (node.waitingOn.get() == 0) {
+        ready.add(node);
+      }
+    }
+    Set<StepNode> unreached = new HashSet<StepNode>(nodes);
+    while (!ready.isEmpty()) {
+      StepNode node = ready.remove(ready.size() - 1);
+      unreached.remove(node);
+      for (StepNode dependent : node.dependents) {
+        int count = waitingOn.get(dependent) - 1;
+        waitingOn.put(dependent, count);
+        if (count == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    return unreached;
+  }
+  
+  private void finish() {
+    if (parent != null) {
+      parent.done();
+    }
+    done = true;
+    finished.countDown();
+    if (executeAfter != null) executeAfter.run();
+  }
+  
+  /**
+   * Cancel the steps: running steps are told to cancel, steps not yet started
+   * are cancelled without being run.
+   */
+  public void cancel() {
+    cancelled = true;
+    List<ProgressStep> toCancel;
+    synchronized (running) {
+      toCancel = new ArrayList<ProgressStep>(running);
+    }
+    for (ProgressStep step : toCancel) {
+      step.cancel();
+    }
+  }
+  
+  public boolean isCancelled() {
+    return cancelled;
+  }
+  
+  public boolean isDone() {
+    return done;
+  }
+  
+  public void waitFor() throws InterruptedException {
+    finished.await();
+  }
+  
+  public synchronized void step(ProgressStep step) {
+    steps.add(step);
+  }
+  
+  public void executeAfter(Runnable executeAfter) {
+    this.executeAfter = executeAfter;
+  }
+}
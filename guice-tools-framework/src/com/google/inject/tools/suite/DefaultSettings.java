@@ -29,4 +29,12 @@ class DefaultSettings implements Settings {
   public boolean runAutomatically() {
     return true;
   }
+  
+  public boolean storeBindingsOffHeap() {
+    return false;
+  }
+  
+  public boolean useBindingIndex() {
+    return true;
+  }
 }
@@ -16,6 +16,8 @@
 
 package com.google.inject.tools.suite;
 
+import java.util.concurrent.ExecutorService;
+
 import com.google.inject.AbstractModule;
 import com.google.inject.binder.AnnotatedBindingBuilder;
 import com.google.inject.tools.suite.code.CodeRunnerModule;
@@ -46,6 +48,7 @@ public abstract class GuiceToolsModule extends AbstractModule {
     bindJavaManager(bind(JavaManager.class));
     bindProgressHandler(bind(ProgressHandler.class));
     bindSettings(bind(Settings.class));
+    bindExecutorService(bind(ExecutorService.class));
   }
   
   protected CodeRunnerModule codeRunnerModule() {
@@ -80,4 +83,9 @@ public abstract class GuiceToolsModule extends AbstractModule {
       AnnotatedBindingBuilder<Settings> bindSettings) {
     bindSettings.to(DefaultSettings.class);
   }
+  
+  protected void bindExecutorService(
+      AnnotatedBindingBuilder<ExecutorService> bindExecutorService) {
+    bindExecutorService.toProvider(SharedExecutorProvider.class);
+  }
 }
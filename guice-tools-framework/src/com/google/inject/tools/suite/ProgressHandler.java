@@ -16,6 +16,8 @@
 
 package com.google.inject.tools.suite;
 
+import java.util.Collection;
+
 /**
  * The ProgressHandler is responsible for displaying a progress bar or other
  * indicator to the user during long operations. It should allow the user to
@@ -59,6 +61,30 @@ public interface ProgressHandler {
     public boolean isDone();
   }
   
+  /**
+   * A step that must not start before the steps it depends on are complete.
+   * Handlers that run their steps one at a time, in the order they were added,
+   * honor this as long as the dependencies are added first.
+   */
+  public interface DependentProgressStep extends ProgressStep {
+    /**
+     * Return the steps that must complete before this one runs.
+     */
+    public Collection<? extends ProgressStep> dependencies();
+  }
+  
+  /**
+   * A step that works on a single project.  Handlers may use this to run the
+   * steps of different projects concurrently while keeping the steps of any
+   * one project from overlapping.
+   */
+  public interface ProjectProgressStep extends ProgressStep {
+    /**
+     * Return the project this step works on.
+     */
+    public JavaManager project();
+  }
+  
   /**
    * Allows for progress updates from the steps.
    */
@@ -31,4 +31,15 @@ public interface Settings {
    * Should module contexts be run automatically (default is true).
    */
   public boolean runAutomatically();
+  
+  /**
+   * Should the bindings of module contexts be stored off heap (default is false).
+   */
+  public boolean storeBindingsOffHeap();
+  
+  /**
+   * Should module contexts found in a binding index on the project classpath
+   * be loaded from it rather than run (default is true).
+   */
+  public boolean useBindingIndex();
 }
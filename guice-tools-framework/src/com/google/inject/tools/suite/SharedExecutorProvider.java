@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.inject.Provider;
+
+/**
+ * Provides the executor shared by the whole tools suite for background work.
+ * 
+ * The tasks run on a bounded pool of named daemon threads.  Tasks that cannot
+ * start at once wait in the queue; they never run on the submitting thread,
+ * which may be the UI thread.  Tasks must not block waiting on other work
+ * submitted to the pool, so long running work finishes through callbacks.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class SharedExecutorProvider implements Provider<ExecutorService> {
+  /**
+   * Tasks mostly wait on code runner processes, so use more threads than cores.
+   */
+  static final int POOL_SIZE =
+      Math.max(4, Runtime.getRuntime().availableProcessors());
+  
+  private static ExecutorService sharedExecutor;
+  
+  /**
+   * Return the executor shared by the tools suite, creating it if need be.
+   */
+  public static synchronized ExecutorService sharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ToolsThreadFactory());
+    }
+    return sharedExecutor;
+  }
+  
+  public ExecutorService get() {
+    return sharedExecutor();
+  }
+  
+  private static class ToolsThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+    
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, "Guice Tools " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
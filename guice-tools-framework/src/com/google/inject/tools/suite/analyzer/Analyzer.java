@@ -0,0 +1,385 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.inject.Guice;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.module.BindingIndex;
+import com.google.inject.tools.suite.module.ModuleContextRepresentation;
+import com.google.inject.tools.suite.module.ModuleManager;
+
+/**
+ * Evaluates the module contexts of a classpath outside of any IDE and writes
+ * an XML report of their bindings and problems.
+ * 
+ * Every context is run in a virtual machine of its own by the
+ * {@link com.google.inject.tools.suite.code.CodeRunner}, as the IDE plugins
+ * do, with at most a given number of virtual machines running at once.
+ * 
+ * Run as part of a build with an index file, the analyzer also writes the
+ * {@link BindingIndex} the IDE plugins load the contexts from instead of
+ * running them; for a library the index goes in its jar as the
+ * {@link BindingIndex#RESOURCE}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class Analyzer {
+  /**
+   * Exit status when no problems were found.
+   */
+  public static final int OK = 0;
+  
+  /**
+   * Exit status when some context had problems or could not be run.
+   */
+  public static final int PROBLEMS = 1;
+  
+  /**
+   * Exit status when the command line could not be understood.
+   */
+  public static final int USAGE_ERROR = 2;
+  
+  static final String USAGE =
+      "Usage: java " + Analyzer.class.getName() + " [options] [module class...]\n"
+      + "  -classpath <path>         the classpath of the code to analyze\n"
+      + "  -context <class>          run a class implementing Iterable<Module> as a context\n"
+      + "  -custom <class>#<method>  run the modules a method returns as a context\n"
+      + "  -package <name>           only look for modules in the given package\n"
+      + "  -jvms <count>             the most virtual machines to run at once\n"
+      + "  -java <command>           the java command to run the contexts with\n"
+      + "  -J<flag>                  pass the flag to that java command\n"
+      + "  -guice <path>             the guice classpath to run the contexts with\n"
+      + "  -snippets <path>          the classpath of the tools suite snippets\n"
+      + "  -output <file>            write the report to a file instead of standard output\n"
+      + "  -index <file>             also write the binding index of the contexts to a file\n"
+      + "  -verbose                  log the output of the contexts to standard error\n"
+      + "Without any module class or context every module on the classpath with a\n"
+      + "public default constructor is run in a context of its own.  The exit status\n"
+      + "is " + OK + " if no problems were found, " + PROBLEMS + " if some were and "
+      + USAGE_ERROR + " on a usage error.";
+  
+  /**
+   * The options of an analysis, as given on the command line.
+   */
+  public static class Options {
+    private String classpath = "";
+    private String guiceClasspath;
+    private String snippetsClasspath;
+    private String javaCommand;
+    private final List<String> javaFlags = new ArrayList<String>();
+    private int virtualMachines = Runtime.getRuntime().availableProcessors();
+    private String output;
+    private String index;
+    private boolean verbose;
+    private final List<String> modules = new ArrayList<String>();
+    private final List<String> contexts = new ArrayList<String>();
+    private final List<String> customContexts = new ArrayList<String>();
+    private final List<String> packages = new ArrayList<String>();
+    
+    /**
+     * Parse the options from the command line.
+     * 
+     * @throws IllegalArgumentException if the command line is not valid
+     */
+    public static Options parse(String... args) {
+      Options options = new Options();
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if (arg.equals("-classpath") || arg.equals("-cp")) {
+          options.classpath = value(args, ++i, arg);
+        } else if (arg.equals("-context")) {
+          options.contexts.add(value(args, ++i, arg));
+        } else if (arg.equals("-custom")) {
+          String custom = value(args, ++i, arg);
+          int separator = custom.lastIndexOf('#');
+          if (separator <= 0 || separator == custom.length() - 1) {
+            throw new IllegalArgumentException(
+                "Custom contexts must be given as <class>#<method>: " + custom);
+          }
+          options.customContexts.add(custom);
+        } else if (arg.equals("-package")) {
+          options.packages.add(value(args, ++i, arg));
+        } else if (arg.equals("-jvms")) {
+          String count = value(args, ++i, arg);
+          try {
+            options.virtualMachines = Integer.parseInt(count);
+          } catch (NumberFormatException exception) {
+            options.virtualMachines = 0;
+          }
+          if (options.virtualMachines < 1) {
+            throw new IllegalArgumentException("Not a number of virtual machines: "
+                + count);
+          }
+        } else if (arg.equals("-java")) {
+          options.javaCommand = value(args, ++i, arg);
+        } else if (arg.startsWith("-J") && arg.length() > 2) {
+          options.javaFlags.add(arg.substring(2));
+        } else if (arg.equals("-guice")) {
+          options.guiceClasspath = value(args, ++i, arg);
+        } else if (arg.equals("-snippets")) {
+          options.snippetsClasspath = value(args, ++i, arg);
+        } else if (arg.equals("-output")) {
+          options.output = value(args, ++i, arg);
+        } else if (arg.equals("-index")) {
+          options.index = value(args, ++i, arg);
+        } else if (arg.equals("-verbose")) {
+          options.verbose = true;
+        } else if (arg.startsWith("-")) {
+          throw new IllegalArgumentException("Unknown option: " + arg);
+        } else {
+          options.modules.add(arg);
+        }
+      }
+      return options;
+    }
+    
+    private static String value(String[] args, int i, String option) {
+      if (i >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + option);
+      }
+      return args[i];
+    }
+    
+    public String getClasspath() {
+      return classpath;
+    }
+    
+    public String getGuiceClasspath() {
+      return guiceClasspath;
+    }
+    
+    public String getSnippetsClasspath() {
+      return snippetsClasspath;
+    }
+    
+    public String getJavaCommand() {
+      return javaCommand;
+    }
+    
+    public List<String> getJavaFlags() {
+      return Collections.unmodifiableList(javaFlags);
+    }
+    
+    public int getVirtualMachines() {
+      return virtualMachines;
+    }
+    
+    public String getOutput() {
+      return output;
+    }
+    
+    /**
+     * Return the file to write the binding index to, or null for none.
+     */
+    public String getIndex() {
+      return index;
+    }
+    
+    public boolean isVerbose() {
+      return verbose;
+    }
+    
+    /**
+     * Return the modules to run, each in a context of its own.
+     */
+    public List<String> getModules() {
+      return Collections.unmodifiableList(modules);
+    }
+    
+    /**
+     * Return the classes implementing Iterable&lt;Module&gt; to run as contexts.
+     */
+    public List<String> getContexts() {
+      return Collections.unmodifiableList(contexts);
+    }
+    
+    /**
+     * Return the custom contexts to run, as &lt;class&gt;#&lt;method&gt;.
+     */
+    public List<String> getCustomContexts() {
+      return Collections.unmodifiableList(customContexts);
+    }
+    
+    /**
+     * Return the packages to look for modules in, all of them if empty.
+     */
+    public List<String> getPackages() {
+      return Collections.unmodifiableList(packages);
+    }
+  }
+  
+  /**
+   * Messenger writing to the console; the output of the contexts themselves is
+   * only written if asked for.
+   */
+  public static class ConsoleMessenger implements Messenger {
+    private final PrintStream out;
+    private final boolean verbose;
+    
+    public ConsoleMessenger(PrintStream out, boolean verbose) {
+      this.out = out;
+      this.verbose = verbose;
+    }
+    
+    public void display(String message) {
+      out.println(message);
+    }
+    
+    public void logMessage(String message) {
+      out.println(message);
+    }
+    
+    public void logException(String label, Throwable throwable) {
+      out.println(label + ": " + throwable);
+    }
+    
+    public void logCodeRunnerMessage(String message) {
+      if (verbose) {
+        out.println(message);
+      }
+    }
+    
+    public void logCodeRunnerException(String label, Throwable throwable) {
+      if (verbose) {
+        out.println(label + ": " + throwable);
+      }
+    }
+  }
+  
+  private static class VirtualMachineThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+    
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Guice Analyzer " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+  
+  private final Options options;
+  private final Messenger messenger;
+  
+  public Analyzer(Options options, Messenger messenger) {
+    this.options = options;
+    this.messenger = messenger;
+  }
+  
+  /**
+   * Run the analysis and write the report.
+   * 
+   * @param out where to write the report
+   * @return {@link #OK} if no problems were found, {@link #PROBLEMS} otherwise
+   */
+  public int analyze(Writer out) throws IOException {
+    AnalyzerJavaManager javaManager = new AnalyzerJavaManager(options);
+    Collection<String> modules = options.getModules();
+    if (modules.isEmpty() && options.getContexts().isEmpty()
+        && options.getCustomContexts().isEmpty()) {
+      modules = new ModuleScanner(messenger, javaManager.getClasspathEntries(),
+          javaManager.getProjectClasspathEntries(), options.getPackages())
+          .findModules();
+      messenger.logMessage("Found " + modules.size() + " modules");
+    }
+    ExecutorService virtualMachines = Executors.newFixedThreadPool(
+        options.getVirtualMachines(), new VirtualMachineThreadFactory());
+    try {
+      ModuleManager moduleManager = Guice.createInjector(
+          new AnalyzerModule(javaManager, messenger, virtualMachines))
+          .getInstance(ModuleManager.class);
+      for (String module : modules) {
+        moduleManager.createModuleContext(module).addModule(module);
+      }
+      for (String context : options.getContexts()) {
+        moduleManager.addApplicationContext(context, context);
+      }
+      for (String custom : options.getCustomContexts()) {
+        int separator = custom.lastIndexOf('#');
+        moduleManager.addCustomContext(custom, custom.substring(0, separator),
+            custom.substring(separator + 1));
+      }
+      moduleManager.update(true, true);
+      Collection<ModuleContextRepresentation> contexts =
+          moduleManager.getModuleContexts();
+      int problems = new ReportWriter(out).write(contexts);
+      if (options.getIndex() != null) {
+        writeIndex(new File(options.getIndex()), contexts, javaManager);
+      }
+      for (ModuleContextRepresentation context : contexts) {
+        if (context.getProblems() == null) {
+          problems++;
+        }
+      }
+      return problems == 0 ? OK : PROBLEMS;
+    } finally {
+      virtualMachines.shutdownNow();
+    }
+  }
+  
+  private static void writeIndex(File file,
+      Collection<ModuleContextRepresentation> contexts,
+      JavaManager javaManager) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (directory != null) {
+      directory.mkdirs();
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      BindingIndex.write(out, contexts, javaManager);
+    } finally {
+      out.close();
+    }
+  }
+  
+  public static void main(String[] args) throws IOException {
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (IllegalArgumentException exception) {
+      System.err.println(exception.getMessage());
+      System.err.println(USAGE);
+      System.exit(USAGE_ERROR);
+      return;
+    }
+    Writer out = new OutputStreamWriter(options.getOutput() == null ? System.out
+        : new FileOutputStream(options.getOutput()), "UTF-8");
+    int status;
+    try {
+      status = new Analyzer(options, new ConsoleMessenger(System.err,
+          options.isVerbose())).analyze(out);
+    } finally {
+      out.close();
+    }
+    System.exit(status);
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.inject.Guice;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.snippets.CodeSnippet;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+/**
+ * {@link JavaManager} for the classpath and virtual machine given to the
+ * {@link Analyzer}.  Whatever is not given defaults to the java running the
+ * analyzer and to the snippets and guice it was itself loaded from.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class AnalyzerJavaManager implements JavaManager {
+  private final String projectClasspath;
+  private final String guiceClasspath;
+  private final String snippetsClasspath;
+  private final String javaCommand;
+  private final List<String> javaFlags;
+  
+  public AnalyzerJavaManager(Analyzer.Options options) {
+    this.projectClasspath = options.getClasspath();
+    this.guiceClasspath = options.getGuiceClasspath() != null
+        ? options.getGuiceClasspath()
+        : locationOf(Guice.class) + getClasspathDelimiter()
+            + locationOf(MethodInterceptor.class);
+    this.snippetsClasspath = options.getSnippetsClasspath() != null
+        ? options.getSnippetsClasspath() : locationOf(CodeSnippet.class);
+    this.javaCommand = options.getJavaCommand() != null
+        ? options.getJavaCommand()
+        : System.getProperty("java.home") + File.separator + "bin"
+            + File.separator + "java";
+    this.javaFlags = Collections.unmodifiableList(
+        new ArrayList<String>(options.getJavaFlags()));
+  }
+  
+  /*
+   * The jar or directory the given class was loaded from.
+   */
+  private static String locationOf(Class<?> theClass) {
+    try {
+      return new File(theClass.getProtectionDomain().getCodeSource()
+          .getLocation().toURI()).getPath();
+    } catch (Exception exception) {
+      return "";
+    }
+  }
+  
+  public String getClasspathDelimiter() {
+    return File.pathSeparator;
+  }
+
+  public String getGuiceClasspath() {
+    return guiceClasspath;
+  }
+
+  public String getJavaCommand() {
+    return javaCommand;
+  }
+
+  public List<String> getJavaFlags() {
+    return javaFlags;
+  }
+
+  public String getProjectClasspath() {
+    return projectClasspath;
+  }
+
+  public String getSnippetsClasspath() {
+    return snippetsClasspath;
+  }
+  
+  /**
+   * Return the entries of the guice and project classpaths, in that order.
+   */
+  public List<File> getClasspathEntries() {
+    List<File> entries = entries(guiceClasspath);
+    entries.addAll(entries(projectClasspath));
+    return entries;
+  }
+  
+  /**
+   * Return the entries of the project classpath.
+   */
+  public List<File> getProjectClasspathEntries() {
+    return entries(projectClasspath);
+  }
+  
+  private static List<File> entries(String classpath) {
+    List<File> entries = new ArrayList<File>();
+    for (String entry : classpath.split(File.pathSeparator)) {
+      if (entry.length() > 0) {
+        entries.add(new File(entry));
+      }
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.util.concurrent.Executor;
+
+import com.google.inject.Provider;
+import com.google.inject.binder.AnnotatedBindingBuilder;
+import com.google.inject.tools.suite.ConcurrentProgressHandler;
+import com.google.inject.tools.suite.GuiceToolsModule;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.ProgressHandler;
+import com.google.inject.tools.suite.Settings;
+
+/**
+ * The tools module of the {@link Analyzer}: the java manager is the classpath
+ * being analyzed and the code runners run their snippets concurrently on the
+ * executor bounding the number of virtual machines.  Contexts are always run,
+ * never loaded from a binding index, since writing the index is the point.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class AnalyzerModule extends GuiceToolsModule {
+  private final JavaManager javaManager;
+  private final Messenger messenger;
+  private final Executor virtualMachines;
+  
+  public AnalyzerModule(JavaManager javaManager, Messenger messenger,
+      Executor virtualMachines) {
+    this.javaManager = javaManager;
+    this.messenger = messenger;
+    this.virtualMachines = virtualMachines;
+  }
+  
+  @Override
+  protected void bindJavaManager(
+      AnnotatedBindingBuilder<JavaManager> bindJavaManager) {
+    bindJavaManager.toInstance(javaManager);
+  }
+  
+  @Override
+  protected void bindMessenger(
+      AnnotatedBindingBuilder<Messenger> bindMessenger) {
+    bindMessenger.toInstance(messenger);
+  }
+  
+  @Override
+  protected void bindProgressHandler(
+      AnnotatedBindingBuilder<ProgressHandler> bindProgressHandler) {
+    bindProgressHandler.toProvider(new Provider<ProgressHandler>() {
+      public ProgressHandler get() {
+        return new ConcurrentProgressHandler(virtualMachines, null);
+      }
+    });
+  }
+  
+  @Override
+  protected void bindSettings(AnnotatedBindingBuilder<Settings> bindSettings) {
+    bindSettings.toInstance(new Settings() {
+      public boolean activateByDefault() {
+        return true;
+      }
+      
+      /*
+       * The analyzer runs every context once after adding them all, rather
+       * than starting a run as each one is added.
+       */
+      public boolean runAutomatically() {
+        return false;
+      }
+      
+      public boolean storeBindingsOffHeap() {
+        return false;
+      }
+      
+      public boolean useBindingIndex() {
+        return false;
+      }
+    });
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import com.google.inject.tools.suite.Messenger;
+
+/**
+ * Finds the modules on a classpath that the {@link Analyzer} can create on its
+ * own: the public, concrete, top level or static implementations of
+ * {@link com.google.inject.Module} with a public default constructor.
+ * 
+ * The classes are loaded without being initialized, in a class loader of
+ * their own, so no user code runs in the analyzer itself.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class ModuleScanner {
+  private static final String CLASS_SUFFIX = ".class";
+  
+  private final Messenger messenger;
+  private final List<File> classpath;
+  private final List<File> entriesToScan;
+  private final List<String> packages;
+  
+  /**
+   * Create a scanner.
+   * 
+   * @param messenger where to log classes that cannot be read
+   * @param classpath the full classpath the classes are loaded from, guice
+   *        included
+   * @param entriesToScan the entries of the classpath to look for modules in
+   * @param packages the packages to restrict the search to, all if empty
+   */
+  public ModuleScanner(Messenger messenger, List<File> classpath,
+      List<File> entriesToScan, List<String> packages) {
+    this.messenger = messenger;
+    this.classpath = classpath;
+    this.entriesToScan = entriesToScan;
+    this.packages = packages;
+  }
+  
+  /**
+   * Return the names of the modules found, sorted.
+   */
+  public Set<String> findModules() throws IOException {
+    Set<String> modules = new TreeSet<String>();
+    ClassLoader loader = new URLClassLoader(urls(), null);
+    Class<?> moduleType;
+    try {
+      moduleType = loader.loadClass("com.google.inject.Module");
+    } catch (ClassNotFoundException exception) {
+      messenger.logException("Guice is not on the classpath", exception);
+      return modules;
+    }
+    for (File entry : entriesToScan) {
+      for (String className : classNames(entry)) {
+        if (isCreatableModule(loader, moduleType, className)) {
+          modules.add(className);
+        }
+      }
+    }
+    return modules;
+  }
+  
+  private URL[] urls() throws IOException {
+    URL[] urls = new URL[classpath.size()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = classpath.get(i).toURI().toURL();
+    }
+    return urls;
+  }
+  
+  private boolean isCreatableModule(ClassLoader loader, Class<?> moduleType,
+      String className) {
+    try {
+      Class<?> theClass = Class.forName(className, false, loader);
+      int modifiers = theClass.getModifiers();
+      if (!moduleType.isAssignableFrom(theClass) || theClass.isInterface()
+          || !Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers)) {
+        return false;
+      }
+      if (theClass.getEnclosingClass() != null && !Modifier.isStatic(modifiers)) {
+        return false;
+      }
+      return Modifier.isPublic(theClass.getConstructor().getModifiers());
+    } catch (NoSuchMethodException exception) {
+      return false;
+    } catch (LinkageError error) {
+      // it needs classes that are not on the classpath so could not be run
+      return false;
+    } catch (Throwable throwable) {
+      messenger.logException("Could not load " + className, throwable);
+      return false;
+    }
+  }
+  
+  /*
+   * The names of the named classes in a directory or jar that are in the
+   * packages we scan; anonymous classes and package-info can never be modules
+   * we can create.
+   */
+  private List<String> classNames(File entry) throws IOException {
+    List<String> classNames = new ArrayList<String>();
+    if (entry.isDirectory()) {
+      addClassNames(entry, "", classNames);
+    } else if (entry.isFile()) {
+      JarFile jar = new JarFile(entry);
+      try {
+        Enumeration<JarEntry> jarEntries = jar.entries();
+        while (jarEntries.hasMoreElements()) {
+          addClassName(jarEntries.nextElement().getName(), classNames);
+        }
+      } finally {
+        jar.close();
+      }
+    }
+    return classNames;
+  }
+  
+  private void addClassNames(File directory, String path, List<String> classNames) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        addClassNames(file, path + file.getName() + "/", classNames);
+      } else {
+        addClassName(path + file.getName(), classNames);
+      }
+    }
+  }
+  
+  private void addClassName(String path, List<String> classNames) {
+    if (!path.endsWith(CLASS_SUFFIX)) {
+      return;
+    }
+    String className = path.substring(0, path.length() - CLASS_SUFFIX.length())
+        .replace('/', '.');
+    if (className.indexOf('-') >= 0) {
+      return;
+    }
+    int nested = className.lastIndexOf('$');
+    if (nested >= 0 && nested + 1 < className.length()
+        && Character.isDigit(className.charAt(nested + 1))) {
+      return;
+    }
+    if (inPackages(className)) {
+      classNames.add(className);
+    }
+  }
+  
+  private boolean inPackages(String className) {
+    if (packages.isEmpty()) {
+      return true;
+    }
+    for (String packageName : packages) {
+      if (className.startsWith(packageName + ".")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.tools.suite.module.ModuleContextRepresentation;
+import com.google.inject.tools.suite.module.ModuleContextRepresentation.ModuleInstanceRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+
+/**
+ * Writes the results of an {@link Analyzer} run as XML:
+ * 
+ * <pre>
+ * &lt;guice-analysis contexts="1" problems="0"&gt;
+ *   &lt;context name="..." status="ok|problems|not-run"&gt;
+ *     &lt;module class="..."/&gt;
+ *     &lt;binding key="..." annotation="..." scope="..." to="..." provider="..."
+ *         instance="..." constant="..." file="..." line="..."/&gt;
+ *     &lt;problem type="..." message="..."/&gt;
+ *   &lt;/context&gt;
+ * &lt;/guice-analysis&gt;
+ * </pre>
+ * 
+ * Attributes without a value are left out.  Contexts, modules and bindings
+ * are sorted so that reports of the same code compare equal.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class ReportWriter {
+  private static final Comparator<KeyRepresentation> BY_KEY =
+      new Comparator<KeyRepresentation>() {
+    public int compare(KeyRepresentation key1, KeyRepresentation key2) {
+      int result = key1.bindWhat().compareTo(key2.bindWhat());
+      if (result != 0) {
+        return result;
+      }
+      String annotation1 = key1.annotatedWith() == null ? "" : key1.annotatedWith();
+      String annotation2 = key2.annotatedWith() == null ? "" : key2.annotatedWith();
+      return annotation1.compareTo(annotation2);
+    }
+  };
+  
+  private final Writer out;
+  
+  public ReportWriter(Writer out) {
+    this.out = out;
+  }
+  
+  /**
+   * Write the report on the given contexts.
+   * 
+   * @return the number of problems reported
+   */
+  public int write(Collection<? extends ModuleContextRepresentation> contexts)
+      throws IOException {
+    List<ModuleContextRepresentation> sorted =
+        new ArrayList<ModuleContextRepresentation>(contexts);
+    Collections.sort(sorted, new Comparator<ModuleContextRepresentation>() {
+      public int compare(ModuleContextRepresentation context1,
+          ModuleContextRepresentation context2) {
+        return context1.getName().compareTo(context2.getName());
+      }
+    });
+    int totalProblems = 0;
+    for (ModuleContextRepresentation context : sorted) {
+      if (context.getProblems() != null) {
+        totalProblems += context.getProblems().size();
+      }
+    }
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<guice-analysis");
+    attribute("contexts", String.valueOf(sorted.size()));
+    attribute("problems", String.valueOf(totalProblems));
+    out.write(">\n");
+    for (ModuleContextRepresentation context : sorted) {
+      writeContext(context);
+    }
+    out.write("</guice-analysis>\n");
+    out.flush();
+    return totalProblems;
+  }
+  
+  private void writeContext(ModuleContextRepresentation context)
+      throws IOException {
+    out.write("  <context");
+    attribute("name", context.getName());
+    attribute("status", context.getProblems() == null ? "not-run"
+        : context.getProblems().isEmpty() ? "ok" : "problems");
+    out.write(">\n");
+    List<String> moduleNames = new ArrayList<String>();
+    for (ModuleInstanceRepresentation module : context.getModules()) {
+      moduleNames.add(module.getClassName());
+    }
+    Collections.sort(moduleNames);
+    for (String moduleName : moduleNames) {
+      out.write("    <module");
+      attribute("class", moduleName);
+      out.write("/>\n");
+    }
+    Map<KeyRepresentation, BindingRepresentation> bindings = context.getBindings();
+    List<KeyRepresentation> keys = new ArrayList<KeyRepresentation>(bindings.keySet());
+    Collections.sort(keys, BY_KEY);
+    for (KeyRepresentation key : keys) {
+      writeBinding(key, bindings.get(key));
+    }
+    if (context.getProblems() != null) {
+      for (CodeProblem problem : context.getProblems()) {
+        out.write("    <problem");
+        attribute("type", problem.getClass().getSimpleName());
+        attribute("message", problem.getMessage());
+        out.write("/>\n");
+      }
+    }
+    out.write("  </context>\n");
+  }
+  
+  private void writeBinding(KeyRepresentation key, BindingRepresentation binding)
+      throws IOException {
+    out.write("    <binding");
+    attribute("key", key.bindWhat());
+    attribute("annotation", key.annotatedWith());
+    if (binding != null) {
+      attribute("scope", binding.scope());
+      attribute("to", binding.boundTo());
+      attribute("provider", binding.boundProvider());
+      attribute("instance", binding.boundInstance());
+      attribute("constant", binding.boundConstant());
+      attribute("file", binding.file());
+      if (binding.file() != null) {
+        attribute("line", String.valueOf(binding.location()));
+      }
+    }
+    out.write("/>\n");
+  }
+  
+  private void attribute(String name, String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    out.write(' ');
+    out.write(name);
+    out.write("=\"");
+    out.write(escape(value));
+    out.write('"');
+  }
+  
+  static String escape(String value) {
+    StringBuilder result = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&': result.append("&amp;"); break;
+        case '<': result.append("&lt;"); break;
+        case '>': result.append("&gt;"); break;
+        case '"': result.append("&quot;"); break;
+        case '\n': result.append("&#10;"); break;
+        case '\r': result.append("&#13;"); break;
+        case '\t': result.append("&#9;"); break;
+        default:
+          if (c < 0x20) {
+            result.append(' ');
+          } else {
+            result.append(c);
+          }
+      }
+    }
+    return result.toString();
+  }
+}
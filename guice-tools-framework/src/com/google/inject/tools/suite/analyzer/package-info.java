@@ -0,0 +1,30 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/**
+ * A command line analyzer running the guice tools suite outside of any IDE.
+ * 
+ * <p>
+ * The {@link com.google.inject.tools.suite.analyzer.Analyzer} is given a
+ * classpath and the modules and contexts to evaluate, or finds the modules on
+ * the classpath itself, runs every context in its own virtual machine through
+ * the {@link com.google.inject.tools.suite.code.CodeRunner} and writes an XML
+ * report of the bindings and problems found.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+
+package com.google.inject.tools.suite.analyzer;
@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Future;
 import com.google.inject.tools.suite.Messenger;
 import com.google.inject.tools.suite.snippets.CodeSnippet;
 import com.google.inject.tools.suite.snippets.CodeSnippetResult;
@@ -226,6 +227,17 @@ public interface CodeRunner {
    */
   public void run(String label);
 
+  /**
+   * Run the queued Runnables, returning a future that completes once they
+   * have all finished and gives every result they produced.
+   * 
+   * @param label the display label for this code run
+   * @param backgroundAutomatically true if the code run should be backgrounded
+   *        initially
+   */
+  public Future<List<CodeSnippetResult>> runAsync(String label,
+      boolean backgroundAutomatically);
+
   /**
    * Notify the runner that a result from a run is ready.
    * 
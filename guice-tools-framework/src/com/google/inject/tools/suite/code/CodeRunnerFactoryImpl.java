@@ -33,6 +33,7 @@ class CodeRunnerFactoryImpl implements CodeRunnerFactory {
   private final Provider<ProgressHandler> progressHandlerProvider;
   private final Provider<Messenger> messengerProvider;
   private final Provider<JavaManager> javaManagerProvider;
+  private final Provider<RemoteSnippetRunner> remoteSnippetRunnerProvider;
 
   /**
    * The factory should be injected.
@@ -41,10 +42,12 @@ class CodeRunnerFactoryImpl implements CodeRunnerFactory {
   public CodeRunnerFactoryImpl(
       Provider<ProgressHandler> progressHandlerProvider, 
       Provider<Messenger> messengerProvider,
-      Provider<JavaManager> javaManagerProvider) {
+      Provider<JavaManager> javaManagerProvider,
+      Provider<RemoteSnippetRunner> remoteSnippetRunnerProvider) {
     this.progressHandlerProvider = progressHandlerProvider;
     this.messengerProvider = messengerProvider;
     this.javaManagerProvider = javaManagerProvider;
+    this.remoteSnippetRunnerProvider = remoteSnippetRunnerProvider;
   }
 
   /**
@@ -52,7 +55,7 @@ class CodeRunnerFactoryImpl implements CodeRunnerFactory {
    */
   public CodeRunner create(JavaManager project) {
     return new CodeRunnerImpl(project, progressHandlerProvider.get(),
-        messengerProvider.get());
+        messengerProvider.get(), remoteSnippetRunnerProvider.get());
   }
   
   public CodeRunner get() {
@@ -18,12 +18,20 @@ package com.google.inject.tools.suite.code;
 
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.HashSet;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.inject.Inject;
 import com.google.inject.tools.suite.JavaManager;
@@ -42,17 +50,33 @@ class CodeRunnerImpl implements CodeRunner {
   private final Messenger messenger;
   private final Set<CodeRunListener> listeners;
   private final JavaManager project;
+  private final RemoteSnippetRunner remoteSnippetRunner;
   private final Map<Runnable, RunnableProgressStep> progressSteps;
-  private boolean cancelled;
+  private final Object completionLock = new Object();
+  private int outstanding;
+  private RunCompletion completion;
+  private volatile boolean cancelled;
   
   @Inject
   public CodeRunnerImpl(JavaManager project, ProgressHandler progressHandler,
       Messenger messenger) {
+    this(project, progressHandler, messenger, null);
+  }
+  
+  /**
+   * Create a code runner that first offers every snippet to the given remote
+   * snippet runner, and runs it itself only if that cannot.
+   */
+  public CodeRunnerImpl(JavaManager project, ProgressHandler progressHandler,
+      Messenger messenger, RemoteSnippetRunner remoteSnippetRunner) {
     this.messenger = messenger;
     this.progressHandler = progressHandler;
     this.project = project;
-    listeners = new HashSet<CodeRunListener>();
-    progressSteps = new HashMap<Runnable, RunnableProgressStep>();
+    this.remoteSnippetRunner = remoteSnippetRunner;
+    listeners = new CopyOnWriteArraySet<CodeRunListener>();
+    progressSteps = new ConcurrentHashMap<Runnable, RunnableProgressStep>();
+    outstanding = 0;
+    completion = new RunCompletion();
     cancelled = false;
   }
 
@@ -62,6 +86,13 @@ class CodeRunnerImpl implements CodeRunner {
 
   public void queue(Runnable runnable) {
     RunnableProgressStep step = new RunnableProgressStep(runnable);
+    synchronized (completionLock) {
+      if (outstanding == 0 && completion.isDone()) {
+        completion = new RunCompletion();
+      }
+      outstanding++;
+      step.completion = completion;
+    }
     progressSteps.put(runnable, step);
     progressHandler.step(step);
   }
@@ -78,32 +109,93 @@ class CodeRunnerImpl implements CodeRunner {
     }
   }
 
-  public synchronized void notifyResult(Runnable runnable,
+  public void notifyResult(Runnable runnable,
       CodeSnippetResult result) {
+    RunnableProgressStep step = progressSteps.get(runnable);
+    if (step != null) {
+      step.completion.results.add(result);
+    }
     for (CodeRunListener listener : listeners) {
       listener.acceptCodeRunResult(result);
     }
-    boolean done = true;
-    for (RunnableProgressStep step : progressSteps.values()) {
-      if (!step.isDone()) {
-        done = false;
+  }
+
+  /*
+   * Called exactly once per queued step, after its result (if any) has been
+   * delivered; the last one to finish completes the run.
+   */
+  private void stepFinished(RunnableProgressStep step) {
+    RunCompletion finished = null;
+    synchronized (completionLock) {
+      outstanding--;
+      if (outstanding == 0) {
+        finished = completion;
       }
     }
-    if (done) {
+    if (finished != null) {
+      finished.finish();
       notifyDone();
     }
   }
 
+  /*
+   * Completes when every step queued with it has finished, giving the results
+   * delivered in the meantime.
+   */
+  private class RunCompletion implements Future<List<CodeSnippetResult>> {
+    private final Queue<CodeSnippetResult> results =
+        new ConcurrentLinkedQueue<CodeSnippetResult>();
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile boolean userCancelled = false;
+
+    void finish() {
+      latch.countDown();
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (isDone()) {
+        return false;
+      }
+      userCancelled = true;
+      kill();
+      return true;
+    }
+
+    public boolean isCancelled() {
+      return userCancelled;
+    }
+
+    public boolean isDone() {
+      return latch.getCount() == 0;
+    }
+
+    public List<CodeSnippetResult> get() throws InterruptedException {
+      latch.await();
+      return new ArrayList<CodeSnippetResult>(results);
+    }
+
+    public List<CodeSnippetResult> get(long timeout, TimeUnit unit)
+        throws InterruptedException, TimeoutException {
+      if (!latch.await(timeout, unit)) {
+        throw new TimeoutException();
+      }
+      return new ArrayList<CodeSnippetResult>(results);
+    }
+  }
+
   private class RunnableProgressStep implements ProgressHandler.ProgressStep {
     private final Runnable runnable;
     private Process process;
     private final List<String> cmd;
+    private final AtomicBoolean finished;
+    private RunCompletion completion;
     private volatile boolean done;
     private volatile boolean killed;
 
     public RunnableProgressStep(Runnable runnable) {
       this.runnable = runnable;
       killed = false;
+      finished = new AtomicBoolean(false);
       String classpath = "";
       cmd = new ArrayList<String>();
       try {
@@ -129,6 +221,7 @@ class CodeRunnerImpl implements CodeRunner {
         process.destroy();
         process = null;
       }
+      finish();
     }
 
     public String label() {
@@ -136,39 +229,77 @@ class CodeRunnerImpl implements CodeRunner {
     }
 
     public void run(ProgressMonitor monitor) {
-      if (!killed && !done) {
-        done = false;
-        try {
-          process = new ProcessBuilder(cmd).start();
-          InputStream is = process.getInputStream();
-          ObjectInputStream input = new ObjectInputStream(is);
-          Object result = input.readObject();
-          if (!killed) {
-            runnable.gotErrorOutput(process.getErrorStream());
-            runnable.gotOutput(result);
-            process.destroy();
-          }
-        } catch (Throwable exception) {
-          if (!killed) {
-            runnable.caughtException(exception);
+      try {
+        if (!killed && !done && !runRemotely()) {
+          done = false;
+          try {
+            process = new ProcessBuilder(cmd).start();
+            InputStream is = process.getInputStream();
+            ObjectInputStream input = new ObjectInputStream(is);
+            Object result = input.readObject();
+            if (!killed) {
+              runnable.gotErrorOutput(process.getErrorStream());
+              runnable.gotOutput(result);
+              process.destroy();
+            }
+          } catch (Throwable exception) {
+            if (!killed) {
+              runnable.caughtException(exception);
+            }
           }
         }
+      } finally {
+        finish();
+      }
+    }
+
+    /*
+     * Return true if the remote snippet runner ran the snippet, in which case
+     * its result has been delivered unless the step was killed meanwhile.
+     */
+    private boolean runRemotely() {
+      if (remoteSnippetRunner == null) {
+        return false;
       }
+      CodeSnippetResult result = remoteSnippetRunner.run(project,
+          runnable.getClassToRun(), runnable.getArgsToRun());
+      if (result == null) {
+        return false;
+      }
+      if (!killed) {
+        runnable.gotOutput(result);
+      }
+      return true;
     }
 
     public void cancel() {
-      kill();
       CodeRunnerImpl.this.cancelled = true;
       done = true;
+      kill();
     }
 
     public void complete() {
       done = true;
+      finish();
+    }
+
+    /*
+     * Mark the step as having produced its result, without finishing it: the
+     * result itself is delivered after this.
+     */
+    public void resultReady() {
+      done = true;
     }
 
     public boolean isDone() {
       return done;
     }
+
+    private void finish() {
+      if (finished.compareAndSet(false, true)) {
+        stepFinished(this);
+      }
+    }
   }
 
   public void run(String label, boolean backgroundAutomatically) {
@@ -180,8 +311,21 @@ class CodeRunnerImpl implements CodeRunner {
     run(label, true);
   }
 
+  public Future<List<CodeSnippetResult>> runAsync(String label,
+      boolean backgroundAutomatically) {
+    Future<List<CodeSnippetResult>> result;
+    synchronized (completionLock) {
+      if (outstanding == 0 && !completion.isDone()) {
+        completion.finish();
+      }
+      result = completion;
+    }
+    run(label, backgroundAutomatically);
+    return result;
+  }
+
   public void notifyDone(Runnable runnable) {
-    progressSteps.get(runnable).complete();
+    progressSteps.get(runnable).resultReady();
   }
 
   public void kill() {
@@ -200,12 +344,9 @@ class CodeRunnerImpl implements CodeRunner {
   }
 
   public boolean isDone() {
-    for (RunnableProgressStep step : progressSteps.values()) {
-      if (!step.isDone()) {
-        return false;
-      }
+    synchronized (completionLock) {
+      return outstanding == 0;
     }
-    return true;
   }
 
   public boolean isDone(Runnable runnable) {
@@ -29,6 +29,7 @@ public class CodeRunnerModule extends AbstractModule {
   protected void configure() {
     bindCodeRunnerFactory(bind(CodeRunnerFactory.class));
     bindCodeRunner(bind(CodeRunner.class));
+    bindRemoteSnippetRunner(bind(RemoteSnippetRunner.class));
   }
 
   protected void bindCodeRunnerFactory(
@@ -40,4 +41,9 @@ public class CodeRunnerModule extends AbstractModule {
       AnnotatedBindingBuilder<CodeRunner> bindCodeRunner) {
     bindCodeRunner.toProvider(CodeRunnerFactoryImpl.class);
   }
+
+  protected void bindRemoteSnippetRunner(
+      AnnotatedBindingBuilder<RemoteSnippetRunner> bindRemoteSnippetRunner) {
+    bindRemoteSnippetRunner.to(LocalSnippetRunner.class);
+  }
 }
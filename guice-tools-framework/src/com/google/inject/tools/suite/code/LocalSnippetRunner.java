@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.code;
+
+import java.util.List;
+
+import com.google.inject.Singleton;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+
+/**
+ * The {@link RemoteSnippetRunner} used when there is nowhere else to run the
+ * snippets: the code runner always runs them itself.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+@Singleton
+class LocalSnippetRunner implements RemoteSnippetRunner {
+  public CodeSnippetResult run(JavaManager project, String snippetClass,
+      List<String> args) {
+    return null;
+  }
+  
+  public void addResultListener(JavaManager project, ResultListener listener) {
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.code;
+
+import java.util.List;
+
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+
+/**
+ * Runs snippets for the {@link CodeRunner} somewhere other than in a virtual
+ * machine of their own, such as on a shared analysis server.  Whenever it
+ * cannot, the code runner runs the snippet itself.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public interface RemoteSnippetRunner {
+  /**
+   * Notified when the result of a snippet was recomputed for someone else, so
+   * the result we have is out of date.
+   */
+  public interface ResultListener {
+    public void resultChanged(String snippetClass, List<String> args);
+  }
+  
+  /**
+   * Run the snippet on the given project.
+   * 
+   * @param project the project whose classpath the snippet runs against
+   * @param snippetClass the {@link com.google.inject.tools.suite.snippets.CodeSnippet} to run
+   * @param args the arguments to run it with
+   * @return the result of the snippet, or null if it could not be run remotely
+   */
+  public CodeSnippetResult run(JavaManager project, String snippetClass,
+      List<String> args);
+  
+  /**
+   * Tell the listener when results of snippets on the given project change.
+   */
+  public void addResultListener(JavaManager project, ResultListener listener);
+}
@@ -0,0 +1,696 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.module.ModuleContextRepresentation.ModuleInstanceRepresentation;
+import com.google.inject.tools.suite.snippets.problems.BadClassProblem;
+import com.google.inject.tools.suite.snippets.problems.BindingProblem;
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+import com.google.inject.tools.suite.snippets.problems.CreationProblem;
+import com.google.inject.tools.suite.snippets.problems.InjectorProblem;
+import com.google.inject.tools.suite.snippets.problems.InvalidModuleProblem;
+import com.google.inject.tools.suite.snippets.problems.KeyProblem;
+import com.google.inject.tools.suite.snippets.problems.LocationProblem;
+import com.google.inject.tools.suite.snippets.problems.OutOfScopeProblem;
+import com.google.inject.tools.suite.snippets.problems.ScopeProblem;
+
+/**
+ * The bindings and problems of module contexts computed ahead of time, such as
+ * by the analyzer as part of a library's build, so that the contexts need not
+ * be run.
+ * 
+ * The index is a binary file: a header, then for each context its name, what
+ * it is made of (its modules, or the class defining it), a stamp of the class
+ * files of those classes, its problems and its bindings as written by the
+ * {@link ColumnarBindingTable}.  Everything is plain data, the bindings
+ * kept off the table's columns included; nothing in the index is
+ * deserialized as objects.
+ * 
+ * Libraries ship the index as the {@link #RESOURCE} in their jar, where
+ * {@link #find} looks for it.  Indexes in class folders are ignored, those
+ * being the output of projects still being edited, and an indexed context is
+ * only used for a context made of the same modules whose classes on the
+ * project classpath are the very ones indexed.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class BindingIndex {
+  /**
+   * Where in its jar a library keeps its index.
+   */
+  public static final String RESOURCE = "META-INF/guice-bindings.idx";
+  
+  private static final int MAGIC = 0x47424958;
+  private static final int VERSION = 3;
+  
+  /*
+   * The kinds of problem, as written to the index.
+   */
+  private static final int CODE_PROBLEM = 0;
+  private static final int BAD_CLASS_PROBLEM = 1;
+  private static final int BINDING_PROBLEM = 2;
+  private static final int CREATION_PROBLEM = 3;
+  private static final int INJECTOR_PROBLEM = 4;
+  private static final int INVALID_MODULE_PROBLEM = 5;
+  private static final int KEY_PROBLEM = 6;
+  private static final int LOCATION_PROBLEM = 7;
+  private static final int OUT_OF_SCOPE_PROBLEM = 8;
+  private static final int SCOPE_PROBLEM = 9;
+  
+  /*
+   * The fewest bytes a problem and a stack frame take in the index.
+   */
+  private static final int PROBLEM_BYTES = 13;
+  private static final int FRAME_BYTES = 16;
+  
+  /*
+   * A context in the index.
+   */
+  private static class Entry {
+    final List<String> definition;
+    final List<String> classes;
+    final String stamp;
+    final Set<CodeProblem> problems;
+    final BindingTable bindings;
+    
+    Entry(List<String> definition, List<String> classes, String stamp,
+        Set<CodeProblem> problems, BindingTable bindings) {
+      this.definition = definition;
+      this.classes = classes;
+      this.stamp = stamp;
+      this.problems = problems;
+      this.bindings = bindings;
+    }
+  }
+  
+  private final Map<String, Entry> entries;
+  private final String classpathKey;
+  
+  private BindingIndex(Map<String, Entry> entries, String classpathKey) {
+    this.entries = entries;
+    this.classpathKey = classpathKey;
+  }
+  
+  /**
+   * Write the index of the given contexts; those that failed to run, having
+   * no problems at all, are left out.
+   * 
+   * @param javaManager the classpath the contexts ran on, whose class files of
+   *        the contexts' modules are stamped
+   */
+  public static void write(OutputStream stream,
+      Collection<? extends ModuleContextRepresentation> contexts,
+      JavaManager javaManager) throws IOException {
+    DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(stream));
+    int count = 0;
+    for (ModuleContextRepresentation context : contexts) {
+      if (context.getProblems() != null) {
+        count++;
+      }
+    }
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(count);
+    ClassFiles classFiles = new ClassFiles(classpathEntries(javaManager));
+    try {
+      for (ModuleContextRepresentation context : contexts) {
+        if (context.getProblems() != null) {
+          List<String> classes = classesOf(context);
+          writeString(out, context.getName());
+          writeStrings(out, definitionOf(context));
+          writeStrings(out, classes);
+          writeString(out, classFiles.stamp(classes));
+          writeProblems(out, context.getProblems());
+          new ColumnarBindingTable(context.getBindings()).write(out);
+        }
+      }
+    } finally {
+      classFiles.close();
+    }
+    out.flush();
+  }
+  
+  /**
+   * Read an index written by {@link #write}.  The index is read whole so that
+   * every count and length in it is checked against the bytes left; those
+   * that do not fit throw an IOException.
+   */
+  public static BindingIndex read(InputStream stream) throws IOException {
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(readFully(stream)));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a binding index");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported binding index version " + version);
+    }
+    int count = in.readInt();
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    for (int i = 0; i < count; i++) {
+      String name = readString(in);
+      List<String> definition = readStrings(in);
+      List<String> classes = readStrings(in);
+      String stamp = readString(in);
+      Set<CodeProblem> problems = readProblems(in);
+      entries.put(name, new Entry(definition, classes, stamp, problems,
+          ColumnarBindingTable.read(in)));
+    }
+    return new BindingIndex(entries, null);
+  }
+  
+  /**
+   * Return the index of every context found in the indexes in the jars on the
+   * project classpath, the first index naming a context winning.  Contexts
+   * whose module classes on the classpath are not those indexed are left
+   * out.  Indexes that cannot be read are logged and skipped.
+   */
+  public static BindingIndex find(JavaManager javaManager,
+      Messenger messenger) {
+    List<File> classpath = classpathEntries(javaManager);
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    Set<String> seen = new HashSet<String>();
+    ClassFiles classFiles = new ClassFiles(classpath);
+    try {
+      for (File entry : classpath) {
+        try {
+          BindingIndex index = readJar(entry);
+          if (index == null) {
+            continue;
+          }
+          for (Map.Entry<String, Entry> context : index.entries.entrySet()) {
+            Entry indexed = context.getValue();
+            if (seen.add(context.getKey())
+                && indexed.stamp.equals(classFiles.stamp(indexed.classes))) {
+              entries.put(context.getKey(), indexed);
+            }
+          }
+        } catch (IOException exception) {
+          messenger.logException(
+              "Could not read the binding index of " + entry, exception);
+        } catch (RuntimeException exception) {
+          messenger.logException(
+              "Could not read the binding index of " + entry, exception);
+        }
+      }
+    } finally {
+      classFiles.close();
+    }
+    return new BindingIndex(entries, classpathKey(classpath));
+  }
+  
+  /**
+   * Return true if this index was found on the classpath the java manager has
+   * now, its jars unchanged since.
+   */
+  public boolean isFor(JavaManager javaManager) {
+    return classpathKey != null
+        && classpathKey.equals(classpathKey(classpathEntries(javaManager)));
+  }
+  
+  private static List<File> classpathEntries(JavaManager javaManager) {
+    List<File> entries = new ArrayList<File>();
+    String classpath;
+    try {
+      classpath = javaManager.getProjectClasspath();
+    } catch (Exception exception) {
+      return entries;
+    }
+    if (classpath == null) {
+      return entries;
+    }
+    String delimiter = javaManager.getClasspathDelimiter();
+    if (delimiter == null) {
+      return entries;
+    }
+    for (String entry : classpath.split(Pattern.quote(delimiter))) {
+      if (entry.length() > 0) {
+        entries.add(new File(entry));
+      }
+    }
+    return entries;
+  }
+  
+  /*
+   * Identifies the classpath and the versions of its jars.
+   */
+  private static String classpathKey(List<File> classpath) {
+    StringBuilder key = new StringBuilder();
+    for (File entry : classpath) {
+      key.append(entry.getPath());
+      if (entry.isFile()) {
+        key.append(':').append(entry.length()).append(':')
+            .append(entry.lastModified());
+      }
+      key.append(File.pathSeparatorChar);
+    }
+    return key.toString();
+  }
+  
+  /*
+   * The index in the given jar, null if it has none or is no jar.
+   */
+  private static BindingIndex readJar(File entry) throws IOException {
+    if (!entry.isFile()) {
+      return null;
+    }
+    JarFile jar = new JarFile(entry);
+    try {
+      ZipEntry zipEntry = jar.getEntry(RESOURCE);
+      return zipEntry == null ? null : read(jar.getInputStream(zipEntry));
+    } finally {
+      jar.close();
+    }
+  }
+  
+  /*
+   * What the context is made of: how each of its modules is created, and the
+   * class defining it if it defines its modules itself.
+   */
+  static List<String> definitionOf(ModuleContextRepresentation context) {
+    Set<String> definition = new TreeSet<String>();
+    for (ModuleInstanceRepresentation module : context.getModules()) {
+      definition.add(module.getCreationString());
+    }
+    if (context instanceof ApplicationModuleContextRepresentation) {
+      definition.add("application " + ((ApplicationModuleContextRepresentation)
+          context).getClassName());
+    } else if (context instanceof CustomModuleContextRepresentation) {
+      CustomModuleContextRepresentation custom =
+          (CustomModuleContextRepresentation) context;
+      definition.add("custom " + custom.getClassToUse() + "#"
+          + custom.getMethodToCall());
+    }
+    return new ArrayList<String>(definition);
+  }
+  
+  /*
+   * The classes whose class files are stamped.
+   */
+  private static List<String> classesOf(ModuleContextRepresentation context) {
+    Set<String> classes = new TreeSet<String>();
+    for (ModuleInstanceRepresentation module : context.getModules()) {
+      classes.add(module.getClassName());
+    }
+    if (context instanceof ApplicationModuleContextRepresentation) {
+      classes.add(((ApplicationModuleContextRepresentation) context)
+          .getClassName());
+    } else if (context instanceof CustomModuleContextRepresentation) {
+      classes.add(((CustomModuleContextRepresentation) context)
+          .getClassToUse());
+    }
+    return new ArrayList<String>(classes);
+  }
+  
+  /*
+   * Reads class files off a classpath, keeping the jars open until closed.
+   */
+  private static class ClassFiles {
+    private final List<File> classpath;
+    private final Map<File, JarFile> jars;
+    
+    ClassFiles(List<File> classpath) {
+      this.classpath = classpath;
+      this.jars = new HashMap<File, JarFile>();
+    }
+    
+    /*
+     * A digest of the class files of the classes, first found on the
+     * classpath.
+     */
+    String stamp(List<String> classes) throws IOException {
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException exception) {
+        throw new IllegalStateException(exception.getMessage());
+      }
+      for (String className : classes) {
+        digest.update(className.getBytes("UTF-8"));
+        byte[] bytes = read(className.replace('.', '/') + ".class");
+        if (bytes != null) {
+          digest.update((byte) 1);
+          digest.update(bytes);
+        } else {
+          digest.update((byte) 0);
+        }
+      }
+      StringBuilder stamp = new StringBuilder();
+      for (byte b : digest.digest()) {
+        stamp.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      }
+      return stamp.toString();
+    }
+    
+    private byte[] read(String path) throws IOException {
+      for (File entry : classpath) {
+        if (entry.isDirectory()) {
+          File file = new File(entry, path);
+          if (file.isFile()) {
+            return readFully(new FileInputStream(file));
+          }
+        } else if (entry.isFile()) {
+          JarFile jar = jars.get(entry);
+          if (jar == null) {
+            try {
+              jar = new JarFile(entry);
+            } catch (IOException exception) {
+              continue;
+            }
+            jars.put(entry, jar);
+          }
+          ZipEntry zipEntry = jar.getEntry(path);
+          if (zipEntry != null) {
+            return readFully(jar.getInputStream(zipEntry));
+          }
+        }
+      }
+      return null;
+    }
+    
+    void close() {
+      for (JarFile jar : jars.values()) {
+        try {
+          jar.close();
+        } catch (IOException exception) {
+          // nothing left to do with it
+        }
+      }
+    }
+  }
+  
+  private static byte[] readFully(InputStream in) throws IOException {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = in.read(buffer)) >= 0) {
+        bytes.write(buffer, 0, count);
+      }
+      return bytes.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+  
+  /*
+   * Read a count of items each taking at least the given number of bytes,
+   * checking that that many are left; the stream must know exactly how many
+   * bytes it has left, as one over an array does.
+   */
+  static int readCount(DataInputStream in, int bytesEach) throws IOException {
+    return checkCount(in.readInt(), in, bytesEach);
+  }
+  
+  private static int checkCount(int count, DataInputStream in, int bytesEach)
+      throws IOException {
+    if (count < 0 || count > in.available() / bytesEach) {
+      throw new IOException("Corrupt binding index: count " + count
+          + " with " + in.available() + " bytes left");
+    }
+    return count;
+  }
+  
+  /*
+   * Strings may be longer than writeUTF allows, and null.
+   */
+  static void writeString(DataOutputStream out, String string)
+      throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = string.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+  
+  static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[checkCount(length, in, 1)];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+  
+  private static void writeStrings(DataOutputStream out, List<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+  
+  private static List<String> readStrings(DataInputStream in)
+      throws IOException {
+    int size = readCount(in, 4);
+    List<String> strings = new ArrayList<String>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+  
+  static void writeProblems(DataOutputStream out,
+      Set<? extends CodeProblem> problems) throws IOException {
+    out.writeInt(problems.size());
+    for (CodeProblem problem : problems) {
+      ProblemKind kind = new ProblemKind();
+      problem.accept(kind);
+      out.writeByte(kind.kind);
+      writeString(out, kind.detail);
+      writeString(out, problem.getMessage());
+      writeStackTrace(out, problem.getStackTrace());
+    }
+  }
+  
+  static Set<CodeProblem> readProblems(DataInputStream in)
+      throws IOException {
+    int size = readCount(in, PROBLEM_BYTES);
+    Set<CodeProblem> problems = new HashSet<CodeProblem>();
+    for (int i = 0; i < size; i++) {
+      int kind = in.readByte();
+      String detail = readString(in);
+      String message = readString(in);
+      StackTraceElement[] stackTrace = readStackTrace(in);
+      problems.add(problem(kind, detail, message == null && stackTrace == null
+          ? null : new IndexedThrowable(message, stackTrace)));
+    }
+    return problems;
+  }
+  
+  static void writeStackTrace(DataOutputStream out,
+      StackTraceElement[] stackTrace) throws IOException {
+    if (stackTrace == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(stackTrace.length);
+      for (StackTraceElement frame : stackTrace) {
+        writeString(out, frame.getClassName());
+        writeString(out, frame.getMethodName());
+        writeString(out, frame.getFileName());
+        out.writeInt(frame.getLineNumber());
+      }
+    }
+  }
+  
+  static StackTraceElement[] readStackTrace(DataInputStream in)
+      throws IOException {
+    int frames = in.readInt();
+    if (frames == -1) {
+      return null;
+    }
+    StackTraceElement[] stackTrace =
+        new StackTraceElement[checkCount(frames, in, FRAME_BYTES)];
+    for (int i = 0; i < frames; i++) {
+      stackTrace[i] = new StackTraceElement(readString(in), readString(in),
+          readString(in), in.readInt());
+    }
+    return stackTrace;
+  }
+  
+  private static CodeProblem problem(int kind, String detail,
+      Throwable throwable) throws IOException {
+    switch (kind) {
+      case CODE_PROBLEM:
+        return new CodeProblem(throwable);
+      case BAD_CLASS_PROBLEM:
+        return new BadClassProblem(detail, throwable);
+      case BINDING_PROBLEM:
+        return new BindingProblem(throwable);
+      case CREATION_PROBLEM:
+        return new CreationProblem(throwable);
+      case INJECTOR_PROBLEM:
+        return new InjectorProblem(throwable);
+      case INVALID_MODULE_PROBLEM:
+        return new InvalidModuleProblem(detail, throwable);
+      case KEY_PROBLEM:
+        return new KeyProblem(detail, throwable);
+      case LOCATION_PROBLEM:
+        return new LocationProblem(throwable);
+      case OUT_OF_SCOPE_PROBLEM:
+        return new OutOfScopeProblem(throwable);
+      case SCOPE_PROBLEM:
+        return new ScopeProblem(throwable);
+      default:
+        throw new IOException("Unknown problem kind " + kind);
+    }
+  }
+  
+  /*
+   * Tells the kind of a problem and its detail, if any.
+   */
+  private static class ProblemKind implements CodeProblem.CodeProblemVisitor {
+    int kind;
+    String detail;
+    
+    public void visit(BadClassProblem problem) {
+      kind = BAD_CLASS_PROBLEM;
+      detail = problem.className();
+    }
+    
+    public void visit(BindingProblem problem) {
+      kind = BINDING_PROBLEM;
+    }
+    
+    public void visit(CreationProblem problem) {
+      kind = CREATION_PROBLEM;
+    }
+    
+    public void visit(InjectorProblem problem) {
+      kind = INJECTOR_PROBLEM;
+    }
+    
+    public void visit(InvalidModuleProblem problem) {
+      kind = INVALID_MODULE_PROBLEM;
+      detail = problem.moduleName();
+    }
+    
+    public void visit(KeyProblem problem) {
+      kind = KEY_PROBLEM;
+      detail = problem.bindWhat();
+    }
+    
+    public void visit(LocationProblem problem) {
+      kind = LOCATION_PROBLEM;
+    }
+    
+    public void visit(OutOfScopeProblem problem) {
+      kind = OUT_OF_SCOPE_PROBLEM;
+    }
+    
+    public void visit(ScopeProblem problem) {
+      kind = SCOPE_PROBLEM;
+    }
+    
+    public void visit(CodeProblem problem) {
+      kind = CODE_PROBLEM;
+    }
+  }
+  
+  /*
+   * Gives a problem read from the index the message and stack trace of the
+   * exception it was made from.
+   */
+  private static class IndexedThrowable extends Throwable {
+    private static final long serialVersionUID = -2716311964858207153L;
+    private final String message;
+    
+    IndexedThrowable(String message, StackTraceElement[] stackTrace) {
+      this.message = message;
+      setStackTrace(stackTrace != null ? stackTrace : new StackTraceElement[0]);
+    }
+    
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+    
+    @Override
+    public String toString() {
+      return message;
+    }
+  }
+  
+  /**
+   * Return the names of the contexts in the index.
+   */
+  public Set<String> getContextNames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+  
+  /**
+   * Return true if the index has the given context.
+   */
+  public boolean contains(String contextName) {
+    return entries.containsKey(contextName);
+  }
+  
+  /**
+   * Return true if the index has the given context, made of the same modules.
+   */
+  public boolean matches(ModuleContextRepresentation context) {
+    Entry entry = entries.get(context.getName());
+    return entry != null && entry.definition.equals(definitionOf(context));
+  }
+  
+  /**
+   * Return the problems of the context, or null if the index does not have it.
+   */
+  public Set<CodeProblem> getProblems(String contextName) {
+    Entry entry = entries.get(contextName);
+    return entry == null ? null : entry.problems;
+  }
+  
+  /**
+   * Return the bindings of the context, or null if the index does not have it.
+   */
+  BindingTable getBindings(String contextName) {
+    Entry entry = entries.get(contextName);
+    return entry == null ? null : entry.bindings;
+  }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.util.Set;
+
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+
+/**
+ * The bindings found by running a module context, stored for lookup by the
+ * {@link ModuleContextRepresentationImpl}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+interface BindingTable {
+  /**
+   * Return the binding for the given key, or null if there is none.
+   */
+  public BindingRepresentation get(KeyRepresentation key);
+  
+  /**
+   * Return the keys binding the given type, as guice names it
+   * (i.e. "interface a.b.C" or "class a.b.C").
+   */
+  public Set<KeyRepresentation> keysBinding(String bindWhat);
+  
+  /**
+   * Return all the keys in the table.
+   */
+  public Set<KeyRepresentation> keys();
+  
+  /**
+   * Return the number of keys in the table.
+   */
+  public int size();
+}
@@ -0,0 +1,709 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+
+/**
+ * {@link BindingTable} keeping the bindings in direct (off-heap) buffers laid
+ * out in columns: one int column per field, with every string interned into a
+ * pool of UTF-8 bytes and referred to by id.  Lookups return flyweight
+ * {@link KeyRepresentation}s and {@link BindingRepresentation}s that read
+ * their values from the columns on demand.
+ * 
+ * Rows are sorted by the hash of the bound type so that keys are found by
+ * binary search.  The rare bindings that do not fit the columns (those carrying
+ * problems or a linked binding) are kept on the heap as they were given.
+ * 
+ * A table can be written out and read back with its columns as they are, so
+ * that reading it costs no more than copying the bytes.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class ColumnarBindingTable implements BindingTable {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int NONE = -1;
+  
+  //columns
+  private static final int HASH = 0;
+  private static final int BIND_WHAT = 1;
+  private static final int ANNOTATED_WITH = 2;
+  private static final int FILE = 3;
+  private static final int LOCATION = 4;
+  private static final int LOCATION_DESCRIPTION = 5;
+  private static final int SCOPE = 6;
+  private static final int BOUND_TO = 7;
+  private static final int BOUND_PROVIDER = 8;
+  private static final int BOUND_INSTANCE = 9;
+  private static final int BOUND_CONSTANT = 10;
+  private static final int TRACE_CLASS = 11;
+  private static final int TRACE_METHOD = 12;
+  private static final int FLAGS = 13;
+  private static final int COLUMNS = 14;
+  /*
+   * The fewest bytes a key and a binding kept on the heap take when written,
+   * and how deep linked bindings may go.
+   */
+  private static final int KEY_ON_HEAP_BYTES = 16;
+  private static final int BINDING_ON_HEAP_BYTES = 46;
+  private static final int MAX_LINKS = 256;
+  
+  private static final int[] STRING_COLUMNS = {BIND_WHAT, ANNOTATED_WITH,
+      FILE, LOCATION_DESCRIPTION, SCOPE, BOUND_TO, BOUND_PROVIDER,
+      BOUND_INSTANCE, BOUND_CONSTANT, TRACE_CLASS, TRACE_METHOD};
+  
+  //flags
+  private static final int HAS_BINDING = 1;
+  private static final int HAS_STACK_TRACE = 2;
+  private static final int ON_HEAP = 4;
+  
+  private static final Comparator<Map.Entry<KeyRepresentation, BindingRepresentation>> BY_HASH =
+      new Comparator<Map.Entry<KeyRepresentation, BindingRepresentation>>() {
+    public int compare(Map.Entry<KeyRepresentation, BindingRepresentation> entry1,
+        Map.Entry<KeyRepresentation, BindingRepresentation> entry2) {
+      int hash1 = entry1.getKey().bindWhat().hashCode();
+      int hash2 = entry2.getKey().bindWhat().hashCode();
+      return hash1 < hash2 ? -1 : (hash1 == hash2 ? 0 : 1);
+    }
+  };
+  
+  private final int rows;
+  private final IntBuffer[] columns;
+  private final ByteBuffer strings;
+  private final IntBuffer stringOffsets;
+  private final Map<Integer, KeyRepresentation> keysOnHeap;
+  private final Map<Integer, BindingRepresentation> bindingsOnHeap;
+  
+  public ColumnarBindingTable(Map<KeyRepresentation, BindingRepresentation> bindings) {
+    List<Map.Entry<KeyRepresentation, BindingRepresentation>> entries =
+        new ArrayList<Map.Entry<KeyRepresentation, BindingRepresentation>>(bindings.entrySet());
+    Collections.sort(entries, BY_HASH);
+    rows = entries.size();
+    columns = new IntBuffer[COLUMNS];
+    for (int column = 0; column < COLUMNS; column++) {
+      columns[column] = allocateInts(rows);
+    }
+    keysOnHeap = new HashMap<Integer, KeyRepresentation>();
+    bindingsOnHeap = new HashMap<Integer, BindingRepresentation>();
+    StringPoolBuilder pool = new StringPoolBuilder();
+    for (int row = 0; row < rows; row++) {
+      KeyRepresentation key = entries.get(row).getKey();
+      BindingRepresentation binding = entries.get(row).getValue();
+      put(HASH, row, key.bindWhat().hashCode());
+      put(BIND_WHAT, row, pool.intern(key.bindWhat()));
+      put(ANNOTATED_WITH, row, pool.intern(key.annotatedWith()));
+      if (!key.problems().isEmpty()) {
+        keysOnHeap.put(row, key);
+      }
+      int flags = 0;
+      if (binding != null) {
+        flags |= HAS_BINDING;
+        if (fitsColumns(binding)) {
+          put(FILE, row, pool.intern(binding.file()));
+          put(LOCATION, row, binding.location());
+          put(LOCATION_DESCRIPTION, row, pool.intern(binding.locationDescription()));
+          put(SCOPE, row, pool.intern(binding.scope()));
+          put(BOUND_TO, row, pool.intern(binding.boundTo()));
+          put(BOUND_PROVIDER, row, pool.intern(binding.boundProvider()));
+          put(BOUND_INSTANCE, row, pool.intern(binding.boundInstance()));
+          put(BOUND_CONSTANT, row, pool.intern(binding.boundConstant()));
+          if (binding.stackTrace() != null) {
+            flags |= HAS_STACK_TRACE;
+            put(TRACE_CLASS, row, pool.intern(binding.stackTrace()[0].getClassName()));
+            put(TRACE_METHOD, row, pool.intern(binding.stackTrace()[0].getMethodName()));
+          }
+        } else {
+          flags |= ON_HEAP;
+          bindingsOnHeap.put(row, binding);
+        }
+      }
+      put(FLAGS, row, flags);
+    }
+    strings = pool.strings();
+    stringOffsets = pool.offsets();
+  }
+  
+  private ColumnarBindingTable(int rows, IntBuffer[] columns, ByteBuffer strings,
+      IntBuffer stringOffsets, Map<Integer, KeyRepresentation> keysOnHeap,
+      Map<Integer, BindingRepresentation> bindingsOnHeap) {
+    this.rows = rows;
+    this.columns = columns;
+    this.strings = strings;
+    this.stringOffsets = stringOffsets;
+    this.keysOnHeap = keysOnHeap;
+    this.bindingsOnHeap = bindingsOnHeap;
+  }
+  
+  /**
+   * Write the table as {@link #read(DataInputStream)} reads it: the row count,
+   * the columns, the string offsets and bytes, then the keys and bindings kept
+   * on the heap, written field by field as plain data.
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(rows);
+    for (int column = 0; column < COLUMNS; column++) {
+      writeInts(out, columns[column]);
+    }
+    writeInts(out, stringOffsets);
+    byte[] bytes = new byte[strings.limit()];
+    strings.duplicate().get(bytes);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    out.writeInt(keysOnHeap.size());
+    for (Map.Entry<Integer, KeyRepresentation> key : keysOnHeap.entrySet()) {
+      out.writeInt(key.getKey());
+      writeKey(out, key.getValue());
+    }
+    out.writeInt(bindingsOnHeap.size());
+    for (Map.Entry<Integer, BindingRepresentation> binding
+        : bindingsOnHeap.entrySet()) {
+      out.writeInt(binding.getKey());
+      writeBinding(out, binding.getValue());
+    }
+  }
+  
+  /**
+   * Read a table written by {@link #write(DataOutputStream)}, from a stream
+   * that knows how many bytes it has left.  A table whose counts, columns or
+   * string ids do not fit throws an IOException.
+   */
+  public static ColumnarBindingTable read(DataInputStream in) throws IOException {
+    int rows = BindingIndex.readCount(in, COLUMNS * 4);
+    IntBuffer[] columns = new IntBuffer[COLUMNS];
+    for (int column = 0; column < COLUMNS; column++) {
+      columns[column] = readInts(in);
+      if (columns[column].limit() != rows) {
+        throw new IOException("Corrupt binding table: column " + column
+            + " has " + columns[column].limit() + " of " + rows + " rows");
+      }
+    }
+    IntBuffer stringOffsets = readInts(in);
+    byte[] bytes = new byte[BindingIndex.readCount(in, 1)];
+    in.readFully(bytes);
+    checkStrings(rows, columns, stringOffsets, bytes.length);
+    ByteBuffer strings = ByteBuffer.allocateDirect(bytes.length);
+    strings.put(bytes);
+    strings.clear();
+    Map<Integer, KeyRepresentation> keysOnHeap =
+        new HashMap<Integer, KeyRepresentation>();
+    int keys = BindingIndex.readCount(in, KEY_ON_HEAP_BYTES);
+    for (int i = 0; i < keys; i++) {
+      keysOnHeap.put(readRow(in, rows), readKey(in));
+    }
+    Map<Integer, BindingRepresentation> bindingsOnHeap =
+        new HashMap<Integer, BindingRepresentation>();
+    int bindings = BindingIndex.readCount(in, BINDING_ON_HEAP_BYTES);
+    for (int i = 0; i < bindings; i++) {
+      bindingsOnHeap.put(readRow(in, rows), readBinding(in, 0));
+    }
+    return new ColumnarBindingTable(rows, columns, strings, stringOffsets,
+        keysOnHeap, bindingsOnHeap);
+  }
+  
+  private static int readRow(DataInputStream in, int rows) throws IOException {
+    int row = in.readInt();
+    if (row < 0 || row >= rows) {
+      throw new IOException("Corrupt binding table: row " + row + " of "
+          + rows);
+    }
+    return row;
+  }
+  
+  private static void writeKey(DataOutputStream out, KeyRepresentation key)
+      throws IOException {
+    BindingIndex.writeString(out, key.bindWhat());
+    BindingIndex.writeString(out, key.annotatedWith());
+    BindingIndex.writeProblems(out, key.problems());
+  }
+  
+  private static KeyRepresentation readKey(DataInputStream in)
+      throws IOException {
+    return new StoredKey(BindingIndex.readString(in),
+        BindingIndex.readString(in), BindingIndex.readProblems(in));
+  }
+  
+  private static void writeBinding(DataOutputStream out,
+      BindingRepresentation binding) throws IOException {
+    KeyRepresentation key = binding.key();
+    out.writeBoolean(key != null);
+    if (key != null) {
+      writeKey(out, key);
+    }
+    BindingIndex.writeString(out, binding.file());
+    out.writeInt(binding.location());
+    BindingIndex.writeStackTrace(out, binding.stackTrace());
+    BindingIndex.writeString(out, binding.locationDescription());
+    BindingIndex.writeString(out, binding.scope());
+    BindingIndex.writeString(out, binding.boundTo());
+    BindingIndex.writeString(out, binding.boundProvider());
+    BindingIndex.writeString(out, binding.boundInstance());
+    BindingIndex.writeString(out, binding.boundConstant());
+    BindingIndex.writeProblems(out, binding.problems());
+    BindingRepresentation linkedTo = binding.linkedTo();
+    out.writeBoolean(linkedTo != null);
+    if (linkedTo != null) {
+      writeBinding(out, linkedTo);
+    }
+  }
+  
+  private static BindingRepresentation readBinding(DataInputStream in,
+      int links) throws IOException {
+    if (links > MAX_LINKS) {
+      throw new IOException("Corrupt binding table: bindings linked "
+          + links + " deep");
+    }
+    StoredBinding binding = new StoredBinding();
+    binding.key = in.readBoolean() ? readKey(in) : null;
+    binding.file = BindingIndex.readString(in);
+    binding.location = in.readInt();
+    binding.stackTrace = BindingIndex.readStackTrace(in);
+    binding.locationDescription = BindingIndex.readString(in);
+    binding.scope = BindingIndex.readString(in);
+    binding.boundTo = BindingIndex.readString(in);
+    binding.boundProvider = BindingIndex.readString(in);
+    binding.boundInstance = BindingIndex.readString(in);
+    binding.boundConstant = BindingIndex.readString(in);
+    binding.addProblems(BindingIndex.readProblems(in));
+    binding.linkedTo = in.readBoolean() ? readBinding(in, links + 1) : null;
+    return binding;
+  }
+  
+  private static void writeInts(DataOutputStream out, IntBuffer ints)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(ints.limit() * 4);
+    bytes.asIntBuffer().put(ints.duplicate());
+    out.writeInt(ints.limit());
+    out.write(bytes.array());
+  }
+  
+  private static IntBuffer readInts(DataInputStream in) throws IOException {
+    int size = BindingIndex.readCount(in, 4);
+    byte[] bytes = new byte[size * 4];
+    in.readFully(bytes);
+    IntBuffer ints = allocateInts(size);
+    ints.put(ByteBuffer.wrap(bytes).asIntBuffer());
+    ints.clear();
+    return ints;
+  }
+  
+  /*
+   * The string offsets must run in order through the bytes, and the string
+   * columns refer to strings of the pool.
+   */
+  private static void checkStrings(int rows, IntBuffer[] columns,
+      IntBuffer stringOffsets, int length) throws IOException {
+    int count = stringOffsets.limit() - 1;
+    if (count < 0 || stringOffsets.get(0) != 0
+        || stringOffsets.get(count) != length) {
+      throw new IOException("Corrupt binding table: bad string offsets");
+    }
+    for (int id = 0; id < count; id++) {
+      if (stringOffsets.get(id) > stringOffsets.get(id + 1)) {
+        throw new IOException("Corrupt binding table: bad string offsets");
+      }
+    }
+    for (int column : STRING_COLUMNS) {
+      for (int row = 0; row < rows; row++) {
+        int id = columns[column].get(row);
+        if (id < NONE || id >= count) {
+          throw new IOException("Corrupt binding table: string " + id
+              + " in column " + column + " of a pool of " + count);
+        }
+      }
+    }
+  }
+  
+  /*
+   * The columns hold a single frame stack trace at the binding's own file and
+   * line, which is what BindingRepresentation produces from a binding source.
+   */
+  private static boolean fitsColumns(BindingRepresentation binding) {
+    if (!binding.problems().isEmpty() || binding.linkedTo() != null) {
+      return false;
+    }
+    StackTraceElement[] stackTrace = binding.stackTrace();
+    if (stackTrace == null) {
+      return true;
+    }
+    return stackTrace.length == 1
+        && equal(stackTrace[0].getFileName(), binding.file())
+        && stackTrace[0].getLineNumber() == binding.location();
+  }
+  
+  public BindingRepresentation get(KeyRepresentation key) {
+    int row = find(key);
+    return row == NONE ? null : binding(row);
+  }
+  
+  public Set<KeyRepresentation> keysBinding(String bindWhat) {
+    Set<KeyRepresentation> keys = new HashSet<KeyRepresentation>();
+    int hash = bindWhat.hashCode();
+    for (int row = firstRow(hash); row < rows && get(HASH, row) == hash; row++) {
+      if (bindWhat.equals(string(get(BIND_WHAT, row)))) {
+        keys.add(key(row));
+      }
+    }
+    return keys;
+  }
+  
+  public Set<KeyRepresentation> keys() {
+    Set<KeyRepresentation> keys = new HashSet<KeyRepresentation>();
+    for (int row = 0; row < rows; row++) {
+      keys.add(key(row));
+    }
+    return keys;
+  }
+  
+  public int size() {
+    return rows;
+  }
+  
+  private int find(KeyRepresentation key) {
+    String bindWhat = key.bindWhat();
+    int hash = bindWhat.hashCode();
+    for (int row = firstRow(hash); row < rows && get(HASH, row) == hash; row++) {
+      if (bindWhat.equals(string(get(BIND_WHAT, row)))
+          && equal(key.annotatedWith(), string(get(ANNOTATED_WITH, row)))) {
+        return row;
+      }
+    }
+    return NONE;
+  }
+  
+  private int firstRow(int hash) {
+    int low = 0;
+    int high = rows;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (get(HASH, middle) < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+  
+  private KeyRepresentation key(int row) {
+    KeyRepresentation key = keysOnHeap.get(row);
+    return key != null ? key : new KeyRow(row);
+  }
+  
+  private BindingRepresentation binding(int row) {
+    int flags = get(FLAGS, row);
+    if ((flags & HAS_BINDING) == 0) {
+      return null;
+    }
+    if ((flags & ON_HEAP) != 0) {
+      return bindingsOnHeap.get(row);
+    }
+    return new BindingRow(row);
+  }
+  
+  private int get(int column, int row) {
+    return columns[column].get(row);
+  }
+  
+  private void put(int column, int row, int value) {
+    columns[column].put(row, value);
+  }
+  
+  private String string(int id) {
+    if (id == NONE) {
+      return null;
+    }
+    ByteBuffer bytes = strings.duplicate();
+    bytes.limit(stringOffsets.get(id + 1));
+    bytes.position(stringOffsets.get(id));
+    return UTF8.decode(bytes).toString();
+  }
+  
+  private static boolean equal(String string1, String string2) {
+    return string1 == null ? string2 == null : string1.equals(string2);
+  }
+  
+  private static IntBuffer allocateInts(int size) {
+    return ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+  
+  /*
+   * Interns the strings while the table is being built; only the resulting
+   * bytes and offsets are kept.
+   */
+  private static class StringPoolBuilder {
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private final List<ByteBuffer> encoded = new ArrayList<ByteBuffer>();
+    private int length = 0;
+    
+    public int intern(String string) {
+      if (string == null) {
+        return NONE;
+      }
+      Integer id = ids.get(string);
+      if (id == null) {
+        ByteBuffer bytes = UTF8.encode(string);
+        id = encoded.size();
+        ids.put(string, id);
+        encoded.add(bytes);
+        length += bytes.remaining();
+      }
+      return id;
+    }
+    
+    public ByteBuffer strings() {
+      ByteBuffer strings = ByteBuffer.allocateDirect(length);
+      for (ByteBuffer bytes : encoded) {
+        strings.put(bytes);
+      }
+      strings.clear();
+      return strings;
+    }
+    
+    public IntBuffer offsets() {
+      IntBuffer offsets = allocateInts(encoded.size() + 1);
+      int offset = 0;
+      for (int id = 0; id < encoded.size(); id++) {
+        offsets.put(id, offset);
+        offset += encoded.get(id).limit();
+      }
+      offsets.put(encoded.size(), offset);
+      return offsets;
+    }
+  }
+  
+  /**
+   * Flyweight key reading a row of the table.  It is serialized as a plain
+   * {@link KeyRepresentation}, since the table itself is not serializable.
+   */
+  private class KeyRow extends KeyRepresentation {
+    private static final long serialVersionUID = 2818312085167209541L;
+    private final int row;
+    
+    public KeyRow(int row) {
+      this.row = row;
+    }
+    
+    @Override
+    public String bindWhat() {
+      return string(get(BIND_WHAT, row));
+    }
+    
+    @Override
+    public String annotatedWith() {
+      return string(get(ANNOTATED_WITH, row));
+    }
+    
+    private Object writeReplace() {
+      return new KeyRepresentation(bindWhat(), annotatedWith());
+    }
+  }
+  
+  /**
+   * Flyweight binding reading a row of the table, serialized as a plain
+   * {@link BindingRepresentation}.
+   */
+  private class BindingRow extends BindingRepresentation {
+    private static final long serialVersionUID = -3405769307871327025L;
+    private final int row;
+    
+    public BindingRow(int row) {
+      this.row = row;
+    }
+    
+    @Override
+    public KeyRepresentation key() {
+      return ColumnarBindingTable.this.key(row);
+    }
+    
+    @Override
+    public String file() {
+      return string(get(FILE, row));
+    }
+    
+    @Override
+    public int location() {
+      return get(LOCATION, row);
+    }
+    
+    @Override
+    public String locationDescription() {
+      return string(get(LOCATION_DESCRIPTION, row));
+    }
+    
+    @Override
+    public String scope() {
+      return string(get(SCOPE, row));
+    }
+    
+    @Override
+    public String boundTo() {
+      return string(get(BOUND_TO, row));
+    }
+    
+    @Override
+    public String boundProvider() {
+      return string(get(BOUND_PROVIDER, row));
+    }
+    
+    @Override
+    public String boundInstance() {
+      return string(get(BOUND_INSTANCE, row));
+    }
+    
+    @Override
+    public String boundConstant() {
+      return string(get(BOUND_CONSTANT, row));
+    }
+    
+    @Override
+    public BindingRepresentation linkedTo() {
+      return null;
+    }
+    
+    @Override
+    public StackTraceElement[] stackTrace() {
+      if ((get(FLAGS, row) & HAS_STACK_TRACE) == 0) {
+        return null;
+      }
+      return new StackTraceElement[] {new StackTraceElement(
+          string(get(TRACE_CLASS, row)), string(get(TRACE_METHOD, row)),
+          file(), location())};
+    }
+    
+    private Object writeReplace() {
+      return new BindingRepresentation(this);
+    }
+  }
+  
+  /**
+   * Key kept on the heap as read back from a written table, serialized as a
+   * plain {@link KeyRepresentation}.
+   */
+  private static class StoredKey extends KeyRepresentation {
+    private static final long serialVersionUID = -6215529417024816482L;
+    
+    public StoredKey(String bindWhat, String annotatedWith,
+        Set<CodeProblem> problems) {
+      super(bindWhat, annotatedWith);
+      this.problems.addAll(problems);
+    }
+    
+    private Object writeReplace() {
+      return new KeyRepresentation(this);
+    }
+  }
+  
+  /**
+   * Binding kept on the heap as read back from a written table, serialized as
+   * a plain {@link BindingRepresentation}.
+   */
+  private static class StoredBinding extends BindingRepresentation {
+    private static final long serialVersionUID = 7394146529218130934L;
+    private KeyRepresentation key;
+    private String file;
+    private int location;
+    private StackTraceElement[] stackTrace;
+    private String locationDescription;
+    private String scope;
+    private String boundTo;
+    private String boundProvider;
+    private String boundInstance;
+    private String boundConstant;
+    private BindingRepresentation linkedTo;
+    
+    void addProblems(Set<CodeProblem> problems) {
+      this.problems.addAll(problems);
+    }
+    
+    @Override
+    public KeyRepresentation key() {
+      return key;
+    }
+    
+    @Override
+    public String file() {
+      return file;
+    }
+    
+    @Override
+    public int location() {
+      return location;
+    }
+    
+    @Override
+    public String locationDescription() {
+      return locationDescription;
+    }
+    
+    @Override
+    public String scope() {
+      return scope;
+    }
+    
+    @Override
+    public String boundTo() {
+      return boundTo;
+    }
+    
+    @Override
+    public String boundProvider() {
+      return boundProvider;
+    }
+    
+    @Override
+    public String boundInstance() {
+      return boundInstance;
+    }
+    
+    @Override
+    public String boundConstant() {
+      return boundConstant;
+    }
+    
+    @Override
+    public BindingRepresentation linkedTo() {
+      return linkedTo;
+    }
+    
+    @Override
+    public StackTraceElement[] stackTrace() {
+      return stackTrace;
+    }
+    
+    private Object writeReplace() {
+      return new BindingRepresentation(this);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+
+/**
+ * {@link BindingTable} keeping the bindings as returned by the code runner,
+ * with the keys indexed by the type they bind.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class MapBindingTable implements BindingTable {
+  private final Map<KeyRepresentation, BindingRepresentation> bindings;
+  private final Map<String, Set<KeyRepresentation>> keysByBindWhat;
+  
+  public MapBindingTable(Map<KeyRepresentation, BindingRepresentation> bindings) {
+    this.bindings = bindings;
+    keysByBindWhat = new HashMap<String, Set<KeyRepresentation>>();
+    for (KeyRepresentation key : bindings.keySet()) {
+      Set<KeyRepresentation> keys = keysByBindWhat.get(key.bindWhat());
+      if (keys == null) {
+        keys = new HashSet<KeyRepresentation>();
+        keysByBindWhat.put(key.bindWhat(), keys);
+      }
+      keys.add(key);
+    }
+  }
+  
+  public BindingRepresentation get(KeyRepresentation key) {
+    return bindings.get(key);
+  }
+  
+  public Set<KeyRepresentation> keysBinding(String bindWhat) {
+    Set<KeyRepresentation> keys = keysByBindWhat.get(bindWhat);
+    return keys != null ? new HashSet<KeyRepresentation>(keys)
+        : new HashSet<KeyRepresentation>();
+  }
+  
+  public Set<KeyRepresentation> keys() {
+    return new HashSet<KeyRepresentation>(bindings.keySet());
+  }
+  
+  public int size() {
+    return bindings.size();
+  }
+}
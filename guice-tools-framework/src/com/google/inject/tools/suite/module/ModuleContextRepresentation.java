@@ -18,9 +18,12 @@ package com.google.inject.tools.suite.module;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.inject.tools.suite.snippets.CodeLocation;
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
 import com.google.inject.tools.suite.snippets.problems.CodeProblem;
 
 /**
@@ -174,6 +177,12 @@ public interface ModuleContextRepresentation {
    * @return the locations in code and/or problems in finding bindings
    */
   public Set<CodeLocation> findLocations(String theClass);
+  
+  /**
+   * Return the bindings found the last time this context was run, empty if it
+   * has not been run.
+   */
+  public Map<KeyRepresentation, BindingRepresentation> getBindings();
 
   /**
    * Add the module with the given name to this context.
@@ -16,6 +16,7 @@
 
 package com.google.inject.tools.suite.module;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +32,7 @@ import com.google.inject.tools.suite.snippets.BindingCodeLocation.NoBindingLocat
 import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
 import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
 import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+import com.google.inject.tools.suite.snippets.problems.ProblemPool;
 
 /**
  * {@inheritDoc ModuleContextRepresentation}
@@ -43,16 +45,23 @@ class ModuleContextRepresentationImpl implements
   protected String longName;
   protected String shortName;
   private final Set<ModuleInstanceRepresentation> modules;
-  private Map<KeyRepresentation, BindingRepresentation> bindings;
+  private final Map<String, Integer> moduleNames;
+  private ModuleIndexListener indexListener;
+  private BindingTable bindings;
   private Set<? extends CodeProblem> problems;
   private boolean dirty;
+  private boolean indexable;
+  private boolean storeBindingsOffHeap;
+  private ProblemPool problemPool;
 
   public ModuleContextRepresentationImpl(String moduleClass) {
     this.title = moduleClass;
     this.shortName = ClassNameUtility.shorten(moduleClass);
     this.longName = "Guice.createInjector(new " + moduleClass + "())";
     modules = new HashSet<ModuleInstanceRepresentation>();
+    moduleNames = new HashMap<String, Integer>();
     dirty = true;
+    indexable = true;
   }
 
   public String getShortName() {
@@ -64,9 +73,12 @@ class ModuleContextRepresentationImpl implements
   }
 
   public CodeLocation findLocation(String theClass, String annotatedWith) {
-    for (KeyRepresentation key : identifiers(theClass, annotatedWith)) {
-      if (bindings.get(key) != null) {
-        return new BindingCodeLocation(getName(), key, bindings.get(key));
+    if (bindings != null) {
+      for (KeyRepresentation key : identifiers(theClass, annotatedWith)) {
+        BindingRepresentation binding = bindings.get(key);
+        if (binding != null) {
+          return new BindingCodeLocation(getName(), key, binding);
+        }
       }
     }
     return new NoBindingLocation(theClass);
@@ -98,11 +110,10 @@ class ModuleContextRepresentationImpl implements
   }
   
   public Set<CodeLocation> findLocations(String theClass) {
-    Set<String> theClassIdentifiers = classIdentifiers(theClass);
     Set<CodeLocation> locations = new HashSet<CodeLocation>();
-    if (bindings!=null && bindings.keySet()!=null && !bindings.keySet().isEmpty()) {
-      for (KeyRepresentation key : bindings.keySet()) {
-        if (theClassIdentifiers.contains(key.bindWhat())) {
+    if (bindings != null && bindings.size() > 0) {
+      for (String classIdentifier : classIdentifiers(theClass)) {
+        for (KeyRepresentation key : bindings.keysBinding(classIdentifier)) {
           locations.add(new BindingCodeLocation(getName(), key, bindings.get(key)));
         }
       }
@@ -113,8 +124,55 @@ class ModuleContextRepresentationImpl implements
     return locations;
   }
 
+  public Map<KeyRepresentation, BindingRepresentation> getBindings() {
+    Map<KeyRepresentation, BindingRepresentation> result =
+        new HashMap<KeyRepresentation, BindingRepresentation>();
+    BindingTable table = bindings;
+    if (table != null) {
+      for (KeyRepresentation key : table.keys()) {
+        result.put(key, table.get(key));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Should the bindings from the next run be kept in an off-heap
+   * {@link ColumnarBindingTable} rather than on the heap.
+   */
+  public void setStoreBindingsOffHeap(boolean storeBindingsOffHeap) {
+    this.storeBindingsOffHeap = storeBindingsOffHeap;
+  }
+
+  /**
+   * Share the problems from the next run through the given pool, so that the
+   * same problem found by several contexts is only kept once.
+   */
+  public void setProblemPool(ProblemPool problemPool) {
+    this.problemPool = problemPool;
+  }
+
   public void markDirty() {
     dirty = true;
+    indexable = false;
+  }
+
+  /**
+   * Take the bindings and problems from the index rather than running the
+   * context.  Only done until the context is first marked dirty, since from
+   * then on the index is out of date.
+   * 
+   * @return true if the index had this context, made of the same modules
+   */
+  public boolean loadIndexed(BindingIndex index) {
+    if (!indexable || !index.matches(this)) {
+      return false;
+    }
+    bindings = index.getBindings(getName());
+    problems = problemPool != null ? problemPool.intern(index.getProblems(getName()))
+        : index.getProblems(getName());
+    dirty = false;
+    return true;
   }
 
   public boolean isDirty() {
@@ -134,8 +192,13 @@ class ModuleContextRepresentationImpl implements
       ModuleContextSnippet.ModuleContextResult contextResult =
           (ModuleContextSnippet.ModuleContextResult) result;
       if (getName().equals(contextResult.getName())) {
-        this.bindings = contextResult.getInjector().bindings();
-        this.problems = contextResult.getProblems();
+        Map<KeyRepresentation, BindingRepresentation> results =
+            contextResult.getInjector().bindings();
+        this.bindings = storeBindingsOffHeap ? new ColumnarBindingTable(results)
+            : new MapBindingTable(results);
+        this.problems = problemPool != null
+            ? problemPool.intern(contextResult.getProblems())
+            : contextResult.getProblems();
         dirty = false;
       }
     }
@@ -163,12 +226,30 @@ class ModuleContextRepresentationImpl implements
 
   public synchronized ModuleContextRepresentation add(
       ModuleInstanceRepresentation module) {
-    modules.add(module);
+    if (modules.add(module)) {
+      String name = module.getClassName();
+      Integer count = moduleNames.get(name);
+      moduleNames.put(name, count == null ? 1 : count + 1);
+      if (count == null && indexListener != null) {
+        indexListener.moduleAdded(this, name);
+      }
+    }
     return this;
   }
 
   public synchronized void removeModule(ModuleInstanceRepresentation module) {
-    modules.remove(module);
+    if (modules.remove(module)) {
+      String name = module.getClassName();
+      int count = moduleNames.get(name);
+      if (count > 1) {
+        moduleNames.put(name, count - 1);
+      } else {
+        moduleNames.remove(name);
+        if (indexListener != null) {
+          indexListener.moduleRemoved(this, name);
+        }
+      }
+    }
   }
 
   public synchronized boolean contains(ModuleInstanceRepresentation module) {
@@ -176,12 +257,29 @@ class ModuleContextRepresentationImpl implements
   }
 
   public synchronized boolean contains(String moduleName) {
-    for (ModuleInstanceRepresentation module : modules) {
-      if (module.getClassName().equals(moduleName)) {
-        return true;
-      }
-    }
-    return false;
+    return moduleNames.containsKey(moduleName);
+  }
+
+  /**
+   * Return the class names of the modules in this context.
+   */
+  synchronized Set<String> getModuleNames() {
+    return new HashSet<String>(moduleNames.keySet());
+  }
+
+  /**
+   * Listener notified when a module class name enters or leaves a context, so
+   * that the {@link ModuleManagerImpl} can keep its module to context index
+   * current as contexts discover their modules.
+   */
+  interface ModuleIndexListener {
+    void moduleAdded(ModuleContextRepresentationImpl context, String moduleName);
+
+    void moduleRemoved(ModuleContextRepresentationImpl context, String moduleName);
+  }
+
+  synchronized void setModuleIndexListener(ModuleIndexListener indexListener) {
+    this.indexListener = indexListener;
   }
   
   public synchronized ModuleContextRepresentation addModule(String moduleName) {
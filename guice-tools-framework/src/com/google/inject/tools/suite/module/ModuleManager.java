@@ -20,7 +20,9 @@ import com.google.inject.tools.suite.module.ModuleContextRepresentation;
 import com.google.inject.tools.suite.module.ModuleManager;
 import com.google.inject.tools.suite.module.ModuleRepresentation;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Responsible for tracking the modules which should be run when resolving
@@ -42,6 +44,16 @@ public interface ModuleManager {
    */
   public void addModule(String moduleName, boolean createContext);
 
+  /**
+   * Notify the ModuleManager that several modules have been added at once.
+   * 
+   * @param moduleNames the names of the modules added
+   * @param createContext true if the manager should create a new context for
+   *        each module
+   */
+  public void addModules(Collection<String> moduleNames,
+      boolean createContext);
+
   /**
    * Notify the ModuleManager that a module has been removed by the user.
    * 
@@ -56,7 +68,8 @@ public interface ModuleManager {
   public void clearModules();
 
   /**
-   * Get all modules that have been added for the current project.
+   * Get all modules that have been added for the current project.  The
+   * returned set is an unmodifiable snapshot that later changes do not affect.
    * 
    * @return the {@link ModuleContextRepresentation}s
    */
@@ -70,14 +83,14 @@ public interface ModuleManager {
 
   /**
    * Return a set of all {@link ModuleContextRepresentation}s the manager has
-   * for the current project.
+   * for the current project.  The returned set is an unmodifiable snapshot.
    * 
    * @return the module contexts
    */
   public Set<ModuleContextRepresentation> getModuleContexts();
 
   /**
-   * Return the active contexts.
+   * Return the active contexts as an unmodifiable snapshot.
    */
   public Set<ModuleContextRepresentation> getActiveModuleContexts();
 
@@ -88,6 +101,14 @@ public interface ModuleManager {
    */
   public void moduleChanged(String module);
 
+  /**
+   * Notify the manager that several modules have changed at once; the contexts
+   * containing them are rerun together.
+   * 
+   * @param modules the names of the modules
+   */
+  public void modulesChanged(Collection<String> modules);
+
   /**
    * Update the module contexts by rerunning any dirty.
    * 
@@ -139,6 +160,16 @@ public interface ModuleManager {
   public void update(PostUpdater postUpdater,
       boolean backgroundAutomatically);
 
+  /**
+   * Update the module contexts on the shared executor.
+   * 
+   * @param backgroundAutomatically true if the process should run in the
+   * background
+   * @return the result of the update: true if it succeeded (false if the user
+   * cancelled the operation)
+   */
+  public Future<Boolean> updateAsync(boolean backgroundAutomatically);
+
   /**
    * (Re)run the modules by marking them all as dirty and then updating.
    * 
@@ -164,6 +195,16 @@ public interface ModuleManager {
   public void rerunModules(PostUpdater postUpdater,
       boolean backgroundAutomatically);
 
+  /**
+   * (Re)run the modules on the shared executor.
+   * 
+   * @param backgroundAutomatically true if the process should run in the
+   * background
+   * @return the result of the rerun: true if it succeeded (false if the user
+   * cancelled)
+   */
+  public Future<Boolean> rerunModulesAsync(boolean backgroundAutomatically);
+
   /**
    * True if the module contexts should be run automatically.
    */
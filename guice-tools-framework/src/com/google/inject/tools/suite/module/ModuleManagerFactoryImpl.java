@@ -23,11 +23,14 @@ import com.google.inject.tools.suite.Messenger;
 import com.google.inject.tools.suite.ProblemsHandler;
 import com.google.inject.tools.suite.Settings;
 import com.google.inject.tools.suite.code.CodeRunnerFactory;
+import com.google.inject.tools.suite.code.RemoteSnippetRunner;
 import com.google.inject.tools.suite.module.ModuleManager;
 import com.google.inject.tools.suite.module.ModuleManagerImpl;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Factory to create {@link ModuleManager}s with preconstructed
@@ -41,6 +44,8 @@ class ModuleManagerFactoryImpl implements ModuleManagerFactory {
   private final Provider<CodeRunnerFactory> codeRunnerFactoryProvider;
   private final Provider<JavaManager> javaManagerProvider;
   private final Provider<Settings> settingsProvider;
+  private final Provider<ExecutorService> executorProvider;
+  private final Provider<RemoteSnippetRunner> remoteSnippetRunnerProvider;
   private final Map<JavaManager, ModuleManager> moduleManagerInstances;
 
   @Inject
@@ -49,12 +54,16 @@ class ModuleManagerFactoryImpl implements ModuleManagerFactory {
       Provider<Messenger> messengerProvider,
       Provider<CodeRunnerFactory> codeRunnerFactoryProvider,
       Provider<JavaManager> javaManagerProvider,
-      Provider<Settings> settingsProvider) {
+      Provider<Settings> settingsProvider,
+      Provider<ExecutorService> executorProvider,
+      Provider<RemoteSnippetRunner> remoteSnippetRunnerProvider) {
     this.problemsHandlerProvider = problemsHandlerProvider;
     this.messengerProvider = messengerProvider;
     this.codeRunnerFactoryProvider = codeRunnerFactoryProvider;
     this.javaManagerProvider = javaManagerProvider;
     this.settingsProvider = settingsProvider;
+    this.executorProvider = executorProvider;
+    this.remoteSnippetRunnerProvider = remoteSnippetRunnerProvider;
     this.moduleManagerInstances = new HashMap<JavaManager, ModuleManager>();
   }
 
@@ -63,10 +72,10 @@ class ModuleManagerFactoryImpl implements ModuleManagerFactory {
    */
   public ModuleManager create(JavaManager javaManager, Settings settings) {
     if (moduleManagerInstances.get(javaManager) == null) {
-      moduleManagerInstances.put(javaManager, new ModuleManagerImpl(
-          problemsHandlerProvider.get(),
+      moduleManagerInstances.put(javaManager, listenForResults(javaManager,
+          new ModuleManagerImpl(problemsHandlerProvider.get(),
           messengerProvider.get(), javaManager, codeRunnerFactoryProvider
-          .get(), false, settings));
+          .get(), false, settings, executorProvider.get())));
     }
     return moduleManagerInstances.get(javaManager);
   }
@@ -76,10 +85,10 @@ class ModuleManagerFactoryImpl implements ModuleManagerFactory {
    */
   public ModuleManager create(JavaManager javaManager) {
     if (moduleManagerInstances.get(javaManager) == null) {
-      moduleManagerInstances.put(javaManager, new ModuleManagerImpl(
-          problemsHandlerProvider.get(),
+      moduleManagerInstances.put(javaManager, listenForResults(javaManager,
+          new ModuleManagerImpl(problemsHandlerProvider.get(),
           messengerProvider.get(), javaManager, codeRunnerFactoryProvider
-          .get(), false, settingsProvider.get()));
+          .get(), false, settingsProvider.get(), executorProvider.get())));
     }
     return moduleManagerInstances.get(javaManager);
   }
@@ -88,8 +97,30 @@ class ModuleManagerFactoryImpl implements ModuleManagerFactory {
    * Create a ModuleManager with an injected JavaManager.
    */
   public ModuleManager get() {
-    return new ModuleManagerImpl(problemsHandlerProvider.get(),
-        messengerProvider.get(), javaManagerProvider.get(), codeRunnerFactoryProvider.get(),
-        true, settingsProvider.get());
+    JavaManager javaManager = javaManagerProvider.get();
+    return listenForResults(javaManager, new ModuleManagerImpl(
+        problemsHandlerProvider.get(), messengerProvider.get(), javaManager,
+        codeRunnerFactoryProvider.get(), true, settingsProvider.get(),
+        executorProvider.get()));
+  }
+  
+  /*
+   * Contexts whose results were recomputed elsewhere, such as by another IDE
+   * window sharing the analysis server, are out of date here.
+   */
+  private ModuleManager listenForResults(JavaManager javaManager,
+      final ModuleManager moduleManager) {
+    remoteSnippetRunnerProvider.get().addResultListener(javaManager,
+        new RemoteSnippetRunner.ResultListener() {
+          public void resultChanged(String snippetClass, List<String> args) {
+            if (!args.isEmpty() && moduleManager.getModuleContext(args.get(0)) != null) {
+              moduleManager.moduleContextChanged(args.get(0));
+              if (moduleManager.runAutomatically()) {
+                moduleManager.updateAsync(true);
+              }
+            }
+          }
+        });
+    return moduleManager;
   }
 }
\ No newline at end of file
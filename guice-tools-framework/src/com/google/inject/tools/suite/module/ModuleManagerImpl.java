@@ -30,9 +30,21 @@ import com.google.inject.tools.suite.module.ModuleRepresentation;
 import com.google.inject.tools.suite.module.ModuleRepresentationImpl;
 import com.google.inject.tools.suite.module.ModuleContextRepresentation.ModuleInstanceRepresentation;
 import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+import com.google.inject.tools.suite.snippets.problems.ProblemPool;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Standard implementation of the {@link ModuleManager}.
@@ -40,145 +52,323 @@ import java.util.Set;
  * @author Darren Creutz (dcreutz@gmail.com)
  */
 class ModuleManagerImpl implements ModuleManager,
-    CodeRunner.CodeRunListener {
+    CodeRunner.CodeRunListener,
+    ModuleContextRepresentationImpl.ModuleIndexListener {
   private final ProblemsHandler problemsHandler;
   private final CodeRunnerFactory codeRunnerFactory;
   private final Messenger messenger;
-  private final HashSet<ModuleRepresentationImpl> modules;
-  private final HashSet<ModuleContextRepresentationImpl> moduleContexts;
-  private final HashSet<ModuleContextRepresentationImpl> activeModuleContexts;
+  private final Set<ModuleRepresentationImpl> modules;
+  private final Set<ModuleContextRepresentationImpl> moduleContexts;
+  private final Set<ModuleContextRepresentationImpl> activeModuleContexts;
+  private final ConcurrentMap<String, ModuleRepresentationImpl>
+      modulesByName;
+  private final ConcurrentMap<String, ModuleContextRepresentationImpl>
+      contextsByName;
+  private volatile Snapshot state;
+  private final ConcurrentMap<String, Set<ModuleContextRepresentationImpl>> contextsByModule;
+  private final Object cleanLock = new Object();
   private final JavaManager javaManager;
   private boolean runAutomatically;
   private boolean activateByDefault;
+  private final boolean storeBindingsOffHeap;
+  private final boolean useBindingIndex;
+  private volatile BindingIndex bindingIndex;
+  private final ProblemPool problemPool;
+  private final ExecutorService executor;
+
+  /**
+   * Immutable view of the modules and contexts.  Mutators change the working
+   * sets while holding the manager's lock and publish a new snapshot before
+   * releasing it, so readers never lock or copy and always see a consistent
+   * set of contexts.  Batches of changes, such as the modules found while
+   * initializing, are applied under one lock and published once.
+   */
+  private static final class Snapshot {
+    final Set<ModuleRepresentationImpl> modules;
+    final Set<ModuleContextRepresentationImpl> activeModuleContexts;
+    final Set<ModuleRepresentation> modulesView;
+    final Set<ModuleContextRepresentation> moduleContextsView;
+    final Set<ModuleContextRepresentation> activeModuleContextsView;
+
+    Snapshot(Set<ModuleRepresentationImpl> modules,
+        Set<ModuleContextRepresentationImpl> moduleContexts,
+        Set<ModuleContextRepresentationImpl> activeModuleContexts) {
+      this.modules = Collections.unmodifiableSet(
+          new LinkedHashSet<ModuleRepresentationImpl>(modules));
+      this.activeModuleContexts = Collections.unmodifiableSet(
+          new LinkedHashSet<ModuleContextRepresentationImpl>(
+              activeModuleContexts));
+      this.modulesView =
+          Collections.<ModuleRepresentation>unmodifiableSet(this.modules);
+      this.moduleContextsView =
+          Collections.<ModuleContextRepresentation>unmodifiableSet(
+              new LinkedHashSet<ModuleContextRepresentationImpl>(
+                  moduleContexts));
+      this.activeModuleContextsView =
+          Collections.<ModuleContextRepresentation>unmodifiableSet(
+              this.activeModuleContexts);
+    }
+  }
 
   /**
    * Create a ModuleManagerImpl. This should be done by injection.
    */
   @Inject
   public ModuleManagerImpl(ProblemsHandler problemsHandler, Messenger messenger,
-      JavaManager javaManager, CodeRunnerFactory codeRunnerFactory, Settings settings) {
+      JavaManager javaManager, CodeRunnerFactory codeRunnerFactory, Settings settings,
+      ExecutorService executor) {
     this(problemsHandler, messenger, javaManager,
-        codeRunnerFactory, true, settings);
+        codeRunnerFactory, true, settings, executor);
   }
   
   public ModuleManagerImpl(ProblemsHandler problemsHandler, Messenger messenger,
       JavaManager javaManager, CodeRunnerFactory codeRunnerFactory,
-      boolean waitOnInit, Settings settings) {
+      boolean waitOnInit, Settings settings, ExecutorService executor) {
     this.problemsHandler = problemsHandler;
     this.codeRunnerFactory = codeRunnerFactory;
     this.messenger = messenger;
-    modules = new HashSet<ModuleRepresentationImpl>();
-    moduleContexts = new HashSet<ModuleContextRepresentationImpl>();
-    activeModuleContexts = new HashSet<ModuleContextRepresentationImpl>();
+    modules = new LinkedHashSet<ModuleRepresentationImpl>();
+    moduleContexts = new LinkedHashSet<ModuleContextRepresentationImpl>();
+    activeModuleContexts = new LinkedHashSet<ModuleContextRepresentationImpl>();
+    modulesByName = new ConcurrentHashMap<String, ModuleRepresentationImpl>();
+    contextsByName =
+        new ConcurrentHashMap<String, ModuleContextRepresentationImpl>();
+    state = new Snapshot(modules, moduleContexts, activeModuleContexts);
+    contextsByModule =
+        new ConcurrentHashMap<String, Set<ModuleContextRepresentationImpl>>();
     this.javaManager = javaManager;
     this.runAutomatically = settings.runAutomatically();
     this.activateByDefault = settings.activateByDefault();
+    this.storeBindingsOffHeap = settings.storeBindingsOffHeap();
+    this.useBindingIndex = settings.useBindingIndex();
+    this.problemPool = new ProblemPool();
+    this.executor = executor;
+  }
+
+  private Snapshot snapshot() {
+    return state;
+  }
+
+  /*
+   * Called holding the lock once the sets have changed.
+   */
+  private void publish() {
+    state = new Snapshot(modules, moduleContexts, activeModuleContexts);
+  }
+
+  /*
+   * The mutators below must be called holding the lock; each keeps the name
+   * lookups and the module to context index in step with the sets.  Callers
+   * publish once they are done.
+   */
+  private void putModule(ModuleRepresentationImpl module) {
+    if (modules.add(module)) {
+      modulesByName.put(module.getName(), module);
+    }
+  }
+
+  private void dropModule(ModuleRepresentation module) {
+    if (modules.remove(module)) {
+      ModuleRepresentationImpl named = modulesByName.get(module.getName());
+      if (named != null && named.equals(module)) {
+        modulesByName.remove(module.getName());
+      }
+    }
+  }
+
+  private void putContext(ModuleContextRepresentationImpl moduleContext,
+      boolean active) {
+    if (moduleContexts.add(moduleContext)) {
+      contextsByName.put(moduleContext.getName(), moduleContext);
+      moduleContext.setModuleIndexListener(this);
+      for (String moduleName : moduleContext.getModuleNames()) {
+        moduleAdded(moduleContext, moduleName);
+      }
+    }
+    if (active) {
+      activeModuleContexts.add(moduleContext);
+    }
+  }
+
+  private void dropContext(ModuleContextRepresentation moduleContext) {
+    ModuleContextRepresentationImpl named =
+        contextsByName.get(moduleContext.getName());
+    if (moduleContexts.remove(moduleContext)) {
+      if (named != null && named.equals(moduleContext)) {
+        contextsByName.remove(moduleContext.getName());
+        unindex(named);
+      } else if (moduleContext instanceof ModuleContextRepresentationImpl) {
+        unindex((ModuleContextRepresentationImpl) moduleContext);
+      }
+    }
+    activeModuleContexts.remove(moduleContext);
+  }
+
+  private void unindex(ModuleContextRepresentationImpl moduleContext) {
+    moduleContext.setModuleIndexListener(null);
+    for (String moduleName : moduleContext.getModuleNames()) {
+      moduleRemoved(moduleContext, moduleName);
+    }
+  }
+
+  /*
+   * Called by contexts holding their own locks, so the index is updated
+   * without the manager's lock.  An empty set removed concurrently with an
+   * addition is simply replaced.
+   */
+  public void moduleAdded(ModuleContextRepresentationImpl moduleContext,
+      String moduleName) {
+    while (true) {
+      Set<ModuleContextRepresentationImpl> contexts =
+          contextsByModule.get(moduleName);
+      if (contexts == null) {
+        Set<ModuleContextRepresentationImpl> newContexts =
+            new CopyOnWriteArraySet<ModuleContextRepresentationImpl>();
+        contexts = contextsByModule.putIfAbsent(moduleName, newContexts);
+        if (contexts == null) {
+          contexts = newContexts;
+        }
+      }
+      contexts.add(moduleContext);
+      if (contextsByModule.get(moduleName) == contexts) {
+        return;
+      }
+    }
+  }
+
+  public void moduleRemoved(ModuleContextRepresentationImpl moduleContext,
+      String moduleName) {
+    Set<ModuleContextRepresentationImpl> contexts =
+        contextsByModule.get(moduleName);
+    if (contexts != null) {
+      contexts.remove(moduleContext);
+      if (contexts.isEmpty()) {
+        contextsByModule.remove(moduleName, contexts);
+      }
+    }
+  }
+
+  private Set<ModuleContextRepresentationImpl> contextsContaining(String moduleName) {
+    Set<ModuleContextRepresentationImpl> contexts = contextsByModule.get(moduleName);
+    return contexts != null ? contexts
+        : Collections.<ModuleContextRepresentationImpl>emptySet();
   }
 
   public synchronized void addModule(ModuleRepresentation module,
       boolean createContext) {
     if (javaManager != null) {
-      modules.add((ModuleRepresentationImpl)module);
-      if (module.hasDefaultConstructor()) {
-        ModuleContextRepresentationImpl moduleContext =
-            new ModuleContextRepresentationImpl(module.getName());
-        moduleContext.add(new ModuleInstanceRepresentation(module.getName()));
-        moduleContexts.add(moduleContext);
-        if (createContext) {
-          activeModuleContexts.add(moduleContext);
-        }
-      }
+      insertModule(module, createContext);
+      publish();
     }
   }
 
   public synchronized void addModule(String moduleName, boolean createContext) {
+    addModules(Collections.singleton(moduleName), createContext);
+  }
+
+  public synchronized void addModules(Collection<String> moduleNames,
+      boolean createContext) {
     if (javaManager != null) {
-      for (ModuleRepresentation module : modules) {
-        if (module.getName().equals(moduleName)) {
-          return;
+      for (String moduleName : moduleNames) {
+        if (getModule(moduleName) == null) {
+          insertModule(new ModuleRepresentationImpl(moduleName), createContext);
         }
       }
-      addModule(new ModuleRepresentationImpl(moduleName), createContext);
+      publish();
+    }
+  }
+
+  private void insertModule(ModuleRepresentation module,
+      boolean createContext) {
+    ModuleContextRepresentationImpl moduleContext = null;
+    if (module.hasDefaultConstructor()) {
+      moduleContext = new ModuleContextRepresentationImpl(module.getName());
+      moduleContext.add(new ModuleInstanceRepresentation(module.getName()));
+    }
+    putModule((ModuleRepresentationImpl)module);
+    if (moduleContext != null) {
+      putContext(moduleContext, createContext);
     }
   }
 
   public synchronized void removeModule(String moduleName) {
     if (javaManager != null) {
-      ModuleRepresentation moduleToRemove = null;
-      for (ModuleRepresentation module : modules) {
-        if (module.getName().equals(moduleName)) {
-          moduleToRemove = module;
-        }
+      ModuleRepresentation moduleToRemove = getModule(moduleName);
+      if (moduleToRemove != null) {
+        removeModule(moduleToRemove);
       }
-      removeModule(moduleToRemove);
     }
   }
 
   public synchronized void removeModule(ModuleRepresentation module) {
     if (javaManager != null) {
-      Set<ModuleContextRepresentation> contextsToRemove =
-          new HashSet<ModuleContextRepresentation>();
-      modules.remove(module);
-      for (ModuleContextRepresentation moduleContext : moduleContexts) {
-        if (moduleContext.contains(module.getName())) {
-          contextsToRemove.add(moduleContext);
-        }
-      }
-      for (ModuleContextRepresentation moduleContext : contextsToRemove) {
-        moduleContexts.remove(moduleContext);
-        activeModuleContexts.remove(moduleContext);
+      dropModule(module);
+      for (ModuleContextRepresentationImpl moduleContext
+          : contextsContaining(module.getName())) {
+        dropContext(moduleContext);
       }
+      publish();
     }
   }
 
   public synchronized void clearModules() {
     if (javaManager != null) {
       modules.clear();
+      modulesByName.clear();
+      publish();
     }
   }
 
-  public synchronized Set<ModuleRepresentation> getModules() {
-    return modules != null ? new HashSet<ModuleRepresentation>(modules) : null;
+  public Set<ModuleRepresentation> getModules() {
+    return snapshot().modulesView;
   }
 
-  public synchronized void addModuleContext(
+  public void addModuleContext(
       ModuleContextRepresentation moduleContext, boolean active) {
     if (javaManager != null && moduleContext instanceof ModuleContextRepresentationImpl) {
-      moduleContexts.add((ModuleContextRepresentationImpl)moduleContext);
-      if (active) {
-        activeModuleContexts.add((ModuleContextRepresentationImpl)moduleContext);
-        if (runAutomatically) {
-          cleanModuleContexts(false, true);
-        }
+      synchronized (this) {
+        putContext((ModuleContextRepresentationImpl)moduleContext, active);
+        publish();
+      }
+      if (active && runAutomatically) {
+        cleanModuleContexts(false, true);
       }
     }
   }
 
   public synchronized void clearModuleContexts() {
     if (javaManager != null) {
+      for (ModuleContextRepresentationImpl moduleContext : moduleContexts) {
+        unindex(moduleContext);
+      }
       moduleContexts.clear();
+      contextsByName.clear();
+      publish();
     }
   }
 
-  public synchronized Set<ModuleContextRepresentation> getModuleContexts() {
-    return moduleContexts != null ? new HashSet<ModuleContextRepresentation>(
-        moduleContexts) : null;
+  public Set<ModuleContextRepresentation> getModuleContexts() {
+    return snapshot().moduleContextsView;
   }
 
-  public synchronized Set<ModuleContextRepresentation> getActiveModuleContexts() {
-    return activeModuleContexts != null
-        ? new HashSet<ModuleContextRepresentation>(activeModuleContexts) : null;
+  public Set<ModuleContextRepresentation> getActiveModuleContexts() {
+    return snapshot().activeModuleContextsView;
   }
 
   public void moduleChanged(String moduleName) {
-    synchronized (this) {
-      for (ModuleContextRepresentationImpl moduleContext : moduleContexts) {
-        if (moduleContext.contains(moduleName)) {
-          moduleContext.markDirty();
-        }
-      }
+    modulesChanged(Collections.singleton(moduleName));
+  }
+
+  public void modulesChanged(Collection<String> moduleNames) {
+    Set<ModuleContextRepresentationImpl> dirtyContexts =
+        new HashSet<ModuleContextRepresentationImpl>();
+    for (String moduleName : moduleNames) {
+      dirtyContexts.addAll(contextsContaining(moduleName));
     }
-    if (runAutomatically) {
+    for (ModuleContextRepresentationImpl moduleContext : dirtyContexts) {
+      moduleContext.markDirty();
+    }
+    if (runAutomatically && !moduleNames.isEmpty()) {
       cleanModules(false, true);
       cleanModuleContexts(false, true);
     }
@@ -187,18 +377,13 @@ class ModuleManagerImpl implements ModuleManager,
   public synchronized void removeModuleContext(
       ModuleContextRepresentation moduleContext) {
     if (javaManager != null) {
-      moduleContexts.remove(moduleContext);
-      activeModuleContexts.remove(moduleContext);
+      dropContext(moduleContext);
+      publish();
     }
   }
 
   public synchronized void removeModuleContext(String contextName) {
-    ModuleContextRepresentation moduleContext = null;
-    for (ModuleContextRepresentation context : moduleContexts) {
-      if (context.getName().equals(contextName)) {
-        moduleContext = context;
-      }
-    }
+    ModuleContextRepresentation moduleContext = getModuleContext(contextName);
     if (moduleContext != null) {
       removeModuleContext(moduleContext);
     }
@@ -213,10 +398,8 @@ class ModuleManagerImpl implements ModuleManager,
   }
 
   public boolean rerunModules(boolean waitFor, boolean backgroundAutomatically) {
-    synchronized (this) {
-      for (ModuleContextRepresentationImpl context : activeModuleContexts) {
-        context.markDirty();
-      }
+    for (ModuleContextRepresentationImpl context : snapshot().activeModuleContexts) {
+      context.markDirty();
     }
     return update(waitFor, backgroundAutomatically);
   }
@@ -229,59 +412,109 @@ class ModuleManagerImpl implements ModuleManager,
     return rerunModules(true, true);
   }
 
-  private static abstract class ModuleManagerThread extends Thread {
-    protected final ModuleManagerImpl moduleManager;
-    protected final PostUpdater postUpdater;
-    protected final boolean backgroundAutomatically;
-
-    public ModuleManagerThread(ModuleManagerImpl moduleManager,
-        PostUpdater postUpdater, boolean backgroundAutomatically) {
-      this.moduleManager = moduleManager;
+  /*
+   * An update run in the background.  It is prepared on the executor, which
+   * then returns: the result arrives when the code runner finishes, so no pool
+   * thread waits on work queued to the pool.  Failures are logged here since
+   * the callers of the post updater variants have no future to look at, and
+   * the post updater always runs.
+   */
+  private class BackgroundUpdate
+      implements Runnable, CodeRunner.CodeRunListener {
+    private final PostUpdater postUpdater;
+    private final boolean rerun;
+    private final boolean backgroundAutomatically;
+    private final AtomicBoolean finished;
+    private final FutureTask<Boolean> result;
+    private volatile CodeRunner codeRunner;
+    private volatile boolean success;
+
+    public BackgroundUpdate(PostUpdater postUpdater, boolean rerun,
+        boolean backgroundAutomatically) {
       this.postUpdater = postUpdater;
+      this.rerun = rerun;
       this.backgroundAutomatically = backgroundAutomatically;
+      finished = new AtomicBoolean(false);
+      result = new FutureTask<Boolean>(new Callable<Boolean>() {
+        public Boolean call() {
+          return success;
+        }
+      });
     }
 
-    @Override
     public void run() {
-      boolean result = myTask(backgroundAutomatically);
-      postUpdater.execute(result);
+      try {
+        if (javaManager == null) {
+          finish(true);
+          return;
+        }
+        if (rerun) {
+          for (ModuleContextRepresentationImpl context
+              : snapshot().activeModuleContexts) {
+            context.markDirty();
+          }
+        }
+        CodeRunner runner = queueModuleContexts();
+        if (runner.isDone()) {
+          finish(true);
+          return;
+        }
+        codeRunner = runner;
+        runner.addListener(ModuleManagerImpl.this);
+        runner.addListener(this);
+        runner.run("Running module contexts", backgroundAutomatically);
+      } catch (RuntimeException exception) {
+        messenger.logException("Module update failed", exception);
+        finish(false);
+      }
     }
 
-    protected abstract boolean myTask(boolean backgroundAutomatically);
-  }
-
-  private static class UpdateModulesThread extends ModuleManagerThread {
-    public UpdateModulesThread(ModuleManagerImpl moduleManager,
-        PostUpdater postUpdater, boolean backgroundAutomatically) {
-      super(moduleManager, postUpdater, backgroundAutomatically);
+    public void acceptCodeRunResult(CodeSnippetResult codeRunResult) {
     }
 
-    @Override
-    protected boolean myTask(boolean backgroundAutomatically) {
-      return moduleManager.update(true, backgroundAutomatically);
+    public void acceptUserCancelled() {
+      finish(false);
     }
-  }
 
-  private static class RerunModulesThread extends ModuleManagerThread {
-    public RerunModulesThread(ModuleManagerImpl moduleManager,
-        PostUpdater postUpdater, boolean backgroundAutomatically) {
-      super(moduleManager, postUpdater, backgroundAutomatically);
+    public void acceptDone() {
+      finish(!codeRunner.isCancelled());
     }
 
-    @Override
-    protected boolean myTask(boolean backgroundAutomatically) {
-      return moduleManager.rerunModules(true, backgroundAutomatically);
+    private void finish(boolean success) {
+      if (finished.compareAndSet(false, true)) {
+        this.success = success;
+        result.run();
+        if (postUpdater != null) {
+          postUpdater.execute(success);
+        }
+      }
     }
   }
 
+  private Future<Boolean> updateInBackground(PostUpdater postUpdater,
+      boolean rerun, boolean backgroundAutomatically) {
+    BackgroundUpdate update =
+        new BackgroundUpdate(postUpdater, rerun, backgroundAutomatically);
+    executor.execute(update);
+    return update.result;
+  }
+
   public void update(final PostUpdater postUpdater,
       final boolean backgroundAutomatically) {
-    new UpdateModulesThread(this, postUpdater, backgroundAutomatically).start();
+    updateInBackground(postUpdater, false, backgroundAutomatically);
   }
 
   public void rerunModules(final PostUpdater postUpdater,
       final boolean backgroundAutomatically) {
-    new RerunModulesThread(this, postUpdater, backgroundAutomatically).start();
+    updateInBackground(postUpdater, true, backgroundAutomatically);
+  }
+
+  public Future<Boolean> updateAsync(boolean backgroundAutomatically) {
+    return updateInBackground(null, false, backgroundAutomatically);
+  }
+
+  public Future<Boolean> rerunModulesAsync(boolean backgroundAutomatically) {
+    return updateInBackground(null, true, backgroundAutomatically);
   }
 
   /*
@@ -289,14 +522,7 @@ class ModuleManagerImpl implements ModuleManager,
    */
   protected boolean cleanModuleContexts(boolean waitFor,
       boolean backgroundAutomatically) {
-    CodeRunner codeRunner = codeRunnerFactory.create(javaManager);
-    synchronized (this) {
-      for (ModuleContextRepresentationImpl moduleContext : activeModuleContexts) {
-        if (moduleContext.isDirty()) {
-          moduleContext.clean(codeRunner);
-        }
-      }
-    }
+    CodeRunner codeRunner = queueModuleContexts();
     codeRunner.addListener(this);
     codeRunner.run("Running module contexts", backgroundAutomatically);
     if (waitFor) {
@@ -310,9 +536,46 @@ class ModuleManagerImpl implements ModuleManager,
     return true;
   }
 
+  /*
+   * Return a code runner with the dirty active contexts queued on it, having
+   * loaded those the binding index covers.
+   */
+  private CodeRunner queueModuleContexts() {
+    CodeRunner codeRunner = codeRunnerFactory.create(javaManager);
+    BindingIndex index = useBindingIndex ? getBindingIndex() : null;
+    synchronized (cleanLock) {
+      for (ModuleContextRepresentationImpl moduleContext
+          : snapshot().activeModuleContexts) {
+        if (moduleContext.isDirty()) {
+          moduleContext.setStoreBindingsOffHeap(storeBindingsOffHeap);
+          moduleContext.setProblemPool(problemPool);
+          if (index != null && moduleContext.loadIndexed(index)) {
+            problemsHandler.foundProblems(moduleContext.getProblems());
+          } else {
+            moduleContext.clean(codeRunner);
+          }
+        }
+      }
+    }
+    return codeRunner;
+  }
+
+  /*
+   * The indexes on the project classpath, read again whenever the classpath
+   * or its jars have changed.
+   */
+  private BindingIndex getBindingIndex() {
+    BindingIndex index = bindingIndex;
+    if (index == null || !index.isFor(javaManager)) {
+      index = BindingIndex.find(javaManager, messenger);
+      bindingIndex = index;
+    }
+    return index;
+  }
+
   protected boolean cleanAllModules(boolean waitFor,
       boolean backgroundAutomatically) {
-    return cleanModules(waitFor, backgroundAutomatically, modules);
+    return cleanModules(waitFor, backgroundAutomatically, snapshot().modules);
   }
 
   protected boolean cleanModules(boolean waitFor,
@@ -324,7 +587,7 @@ class ModuleManagerImpl implements ModuleManager,
   protected boolean cleanModules(boolean waitFor,
       boolean backgroundAutomatically, Set<ModuleRepresentationImpl> modulesToClean) {
     CodeRunner codeRunner = codeRunnerFactory.create(javaManager);
-    synchronized (this) {
+    synchronized (cleanLock) {
       for (ModuleRepresentationImpl module : modulesToClean) {
         if (module.isDirty()) {
           module.clean(codeRunner);
@@ -348,26 +611,24 @@ class ModuleManagerImpl implements ModuleManager,
     Set<ModuleRepresentationImpl> activeModules =
         new HashSet<ModuleRepresentationImpl>();
     if (javaManager != null) {
-      for (ModuleContextRepresentationImpl moduleContext : activeModuleContexts) {
+      for (ModuleContextRepresentationImpl moduleContext : snapshot().activeModuleContexts) {
         for (ModuleInstanceRepresentation module : moduleContext.getModules()) {
-          activeModules.add(getModule(module.getClassName()));
+          ModuleRepresentationImpl activeModule = getModule(module.getClassName());
+          if (activeModule != null) {
+            activeModules.add(activeModule);
+          }
         }
       }
     }
     return activeModules;
   }
 
-  protected synchronized ModuleRepresentationImpl getModule(String name) {
-    for (ModuleRepresentationImpl module : modules) {
-      if (module.getName().equals(name)) {
-        return module;
-      }
-    }
-    return null;
+  protected ModuleRepresentationImpl getModule(String name) {
+    return modulesByName.get(name);
   }
 
   public void acceptCodeRunResult(CodeSnippetResult result) {
-    problemsHandler.foundProblems(result.getAllProblems());
+    problemsHandler.foundProblems(problemPool.intern(result.getAllProblems()));
   }
 
   public void acceptUserCancelled() {
@@ -400,11 +661,13 @@ class ModuleManagerImpl implements ModuleManager,
   public synchronized void activateModuleContext(
       ModuleContextRepresentationImpl moduleContext) {
     activeModuleContexts.add(moduleContext);
+    publish();
   }
 
   public synchronized void deactivateModuleContext(
       ModuleContextRepresentation moduleContext) {
     activeModuleContexts.remove(moduleContext);
+    publish();
   }
 
   public void addCustomContext(String contextName) {
@@ -435,35 +698,25 @@ class ModuleManagerImpl implements ModuleManager,
   }
 
   public void moduleContextChanged(String contextName) {
-    ModuleContextRepresentationImpl context = null;
-    synchronized (this) {
-      for (ModuleContextRepresentationImpl moduleContext : moduleContexts) {
-        if (moduleContext.getName().equals(contextName)) {
-          context = moduleContext;
-        }
-      }
-    }
+    ModuleContextRepresentationImpl context =
+        (ModuleContextRepresentationImpl)getModuleContext(contextName);
     if (context != null) {
       context.markDirty();
     }
   }
   
   public ModuleContextRepresentation getModuleContext(String name) {
-    for (ModuleContextRepresentation moduleContext : moduleContexts) {
-      if (moduleContext.getName().equals(name)) {
-        return moduleContext;
-      }
-    }
-    return null;
+    return contextsByName.get(name);
   }
   
-  public ModuleContextRepresentation createModuleContext(String name) {
-    if (getModuleContext(name) != null) {
-      return getModuleContext(name);
+  public synchronized ModuleContextRepresentation createModuleContext(String name) {
+    ModuleContextRepresentation existingContext = getModuleContext(name);
+    if (existingContext != null) {
+      return existingContext;
     }
     ModuleContextRepresentationImpl moduleContext = new ModuleContextRepresentationImpl(name);
-    moduleContexts.add(moduleContext);
-    if (activateByDefault) activeModuleContexts.add(moduleContext);
+    putContext(moduleContext, activateByDefault);
+    publish();
     return moduleContext;
   }
   
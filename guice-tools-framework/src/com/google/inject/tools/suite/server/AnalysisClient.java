@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.code.RemoteSnippetRunner;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+
+/**
+ * {@link RemoteSnippetRunner} running the snippets on an {@link AnalysisServer}
+ * on this machine.
+ * 
+ * The first time a snippet is run any result the server has computed from the
+ * same class files is reused; after that (the code having changed) only a
+ * result newer than the last one we got is.  When the server cannot be reached,
+ * or cannot prove it knows the token in the file only the user can read,
+ * snippets are left to the code runner for a while before trying again.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+@Singleton
+public class AnalysisClient implements RemoteSnippetRunner {
+  /**
+   * How long, in milliseconds, to leave the server alone after failing to
+   * reach it.
+   */
+  static final long RETRY_INTERVAL = 30000;
+  static final int CONNECT_TIMEOUT = 1000;
+  
+  private final int port;
+  private final File tokenFile;
+  private final Messenger messenger;
+  private final ConcurrentMap<List<Object>, Long> sequences;
+  private final ConcurrentMap<List<Object>, Boolean> running;
+  private volatile long unavailableUntil;
+  
+  /**
+   * Create a client of the server on the port given by the
+   * {@value AnalysisServer#PORT_PROPERTY} system property, with the token in
+   * the file given by the {@value AnalysisServer#TOKEN_PROPERTY} system
+   * property or else in the default file of the port.
+   */
+  @Inject
+  public AnalysisClient(Messenger messenger) {
+    this(Integer.getInteger(AnalysisServer.PORT_PROPERTY,
+        AnalysisServer.DEFAULT_PORT), tokenFile(), messenger);
+  }
+  
+  private static File tokenFile() {
+    String tokenFile = System.getProperty(AnalysisServer.TOKEN_PROPERTY);
+    return tokenFile == null ? null : new File(tokenFile);
+  }
+  
+  /**
+   * Create a client of the server on the given port.
+   * 
+   * @param tokenFile the file holding the server's token, or null for the
+   *        default of the port
+   */
+  public AnalysisClient(int port, File tokenFile, Messenger messenger) {
+    this.port = port;
+    this.tokenFile =
+        tokenFile != null ? tokenFile : ServerToken.defaultFile(port);
+    this.messenger = messenger;
+    this.sequences = new ConcurrentHashMap<List<Object>, Long>();
+    this.running = new ConcurrentHashMap<List<Object>, Boolean>();
+    this.unavailableUntil = 0;
+  }
+  
+  /**
+   * Return true if the {@value AnalysisServer#PORT_PROPERTY} system property
+   * asks for the analysis server to be used.
+   */
+  public static boolean isConfigured() {
+    return System.getProperty(AnalysisServer.PORT_PROPERTY) != null;
+  }
+  
+  public CodeSnippetResult run(JavaManager project, String snippetClass,
+      List<String> args) {
+    if (System.currentTimeMillis() < unavailableUntil) {
+      return null;
+    }
+    WorkspaceSpec workspace;
+    try {
+      workspace = WorkspaceSpec.of(project);
+    } catch (Exception exception) {
+      return null;
+    }
+    List<Object> key = key(workspace, snippetClass, args);
+    Long known = sequences.get(key);
+    Socket socket = null;
+    running.put(key, Boolean.TRUE);
+    try {
+      socket = connect();
+      DataInputStream in = input(socket);
+      DataOutputStream out = authenticate(socket, in);
+      ServerProtocol.writeRunSnippet(out, workspace, snippetClass, args,
+          known == null ? -1 : known);
+      long sequence = in.readLong();
+      CodeSnippetResult result = ServerProtocol.readSnippetResult(in);
+      if (result != null) {
+        sequences.put(key, sequence);
+      }
+      return result;
+    } catch (Exception exception) {
+      unavailable(exception);
+      return null;
+    } finally {
+      running.remove(key);
+      close(socket);
+    }
+  }
+  
+  private static List<Object> key(WorkspaceSpec workspace, String snippetClass,
+      List<String> args) {
+    List<Object> key = new ArrayList<Object>(args.size() + 2);
+    key.add(workspace);
+    key.add(snippetClass);
+    key.addAll(args);
+    return key;
+  }
+  
+  private Socket connect() throws IOException {
+    Socket socket = new Socket();
+    socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"),
+        port), CONNECT_TIMEOUT);
+    return socket;
+  }
+  
+  private static DataInputStream input(Socket socket) throws IOException {
+    return new DataInputStream(
+        new BufferedInputStream(socket.getInputStream()));
+  }
+  
+  /*
+   * Make sure the server is the user's own before telling it anything.
+   */
+  private DataOutputStream authenticate(Socket socket, DataInputStream in)
+      throws IOException {
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(socket.getOutputStream()));
+    ServerToken.read(tokenFile).authenticateServer(in, out);
+    return out;
+  }
+  
+  private void unavailable(Exception exception) {
+    unavailableUntil = System.currentTimeMillis() + RETRY_INTERVAL;
+    messenger.logException("Guice analysis server unavailable", exception);
+  }
+  
+  private static void close(Socket socket) {
+    if (socket != null) {
+      try {
+        socket.close();
+      } catch (IOException exception) {
+        // nothing left to do with it
+      }
+    }
+  }
+  
+  /**
+   * Listen to the server for results on the project recomputed by other
+   * clients, reconnecting whenever the connection is lost.
+   */
+  public void addResultListener(JavaManager project, ResultListener listener) {
+    WorkspaceSpec workspace;
+    try {
+      workspace = WorkspaceSpec.of(project);
+    } catch (Exception exception) {
+      return;
+    }
+    Thread thread = new Thread(new Subscription(workspace, listener),
+        "Guice analysis server subscription");
+    thread.setDaemon(true);
+    thread.start();
+  }
+  
+  private class Subscription implements Runnable {
+    private final WorkspaceSpec workspace;
+    private final ResultListener listener;
+    
+    public Subscription(WorkspaceSpec workspace, ResultListener listener) {
+      this.workspace = workspace;
+      this.listener = listener;
+    }
+    
+    public void run() {
+      while (true) {
+        Socket socket = null;
+        try {
+          socket = connect();
+          DataInputStream in = input(socket);
+          ServerProtocol.writeSubscribe(authenticate(socket, in), workspace);
+          while (true) {
+            changed(ServerProtocol.readString(in),
+                ServerProtocol.readStrings(in), in.readLong());
+          }
+        } catch (Exception exception) {
+          // the server is gone, wait for it to come back
+        } finally {
+          close(socket);
+        }
+        try {
+          Thread.sleep(RETRY_INTERVAL);
+        } catch (InterruptedException exception) {
+          return;
+        }
+      }
+    }
+    
+    /*
+     * Changes made by our own runs, and results we already have, are not news.
+     */
+    private void changed(String snippetClass, List<String> args,
+        long sequence) {
+      List<Object> key = key(workspace, snippetClass, args);
+      Long known = sequences.get(key);
+      if (!running.containsKey(key)
+          && (known == null || known < sequence)) {
+        listener.resultChanged(snippetClass, args);
+      }
+    }
+  }
+}
@@ -0,0 +1,396 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Guice;
+import com.google.inject.Provider;
+import com.google.inject.binder.AnnotatedBindingBuilder;
+import com.google.inject.tools.suite.ConcurrentProgressHandler;
+import com.google.inject.tools.suite.GuiceToolsModule;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.ProgressHandler;
+import com.google.inject.tools.suite.analyzer.Analyzer;
+import com.google.inject.tools.suite.code.CodeRunnerFactory;
+
+/**
+ * Server on the loopback interface running snippets for the
+ * {@link AnalysisClient}s of every IDE window on this machine, so that windows
+ * open on the same classpath share one run of each snippet rather than each
+ * running its own virtual machines.
+ * 
+ * The IDEs use the server when started with the {@value #PORT_PROPERTY} system
+ * property set to its port.  Only clients of the same user are served: they
+ * must prove they can read the {@link ServerToken} the server writes to a
+ * file private to its owner, by default in the user's home directory.  The
+ * snippets run with the java command and flags the server was started with,
+ * never with those of a client.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class AnalysisServer {
+  /**
+   * The system property giving the port of the server to the clients.
+   */
+  public static final String PORT_PROPERTY = "guice.tools.server.port";
+  
+  /**
+   * The system property giving the clients the file holding the server's
+   * token, if not the default for the port.
+   */
+  public static final String TOKEN_PROPERTY = "guice.tools.server.token";
+  
+  public static final int DEFAULT_PORT = 17731;
+  
+  /**
+   * How long, in milliseconds, a result is reused by default for clients
+   * knowing of no result at all.
+   */
+  public static final long DEFAULT_MAX_AGE = 30 * 60 * 1000;
+  
+  static final String USAGE =
+      "Usage: java " + AnalysisServer.class.getName() + " [options]\n"
+      + "  -port <port>        the port to listen on, " + DEFAULT_PORT
+      + " by default\n"
+      + "  -jvms <count>       the most virtual machines to run at once\n"
+      + "  -maxage <minutes>   how long to share a result with new windows\n"
+      + "  -java <command>     the java command running the snippets\n"
+      + "  -J<flag>            a flag for the java command\n"
+      + "  -token <file>       where to write the token clients must know\n"
+      + "  -verbose            log the output of the snippets\n";
+  
+  /*
+   * How long a client has to authenticate, in milliseconds.
+   */
+  private static final int HANDSHAKE_TIMEOUT = 10 * 1000;
+  
+  private final ServerSocket serverSocket;
+  private final File tokenFile;
+  private final ServerToken token;
+  private final String javaCommand;
+  private final List<String> javaFlags;
+  private final CodeRunnerFactory codeRunnerFactory;
+  private final Messenger messenger;
+  private final long maxAge;
+  private final AtomicLong sequence;
+  private final ConcurrentMap<WorkspaceSpec, Workspace> workspaces;
+  private volatile boolean stopped;
+  
+  /**
+   * Create a server listening on the given port of the loopback interface, 0
+   * for any free port, and write its token.
+   * 
+   * @param tokenFile where to write the token, or null for the
+   *        {@link ServerToken#defaultFile default} of the port
+   * @param javaCommand the java command running the snippets
+   * @param javaFlags the flags of the java command
+   * @param maxAge how long, in milliseconds, to reuse a result for clients
+   *        knowing of no result at all
+   * @throws IOException if the port or the token file cannot be used
+   */
+  public AnalysisServer(int port, File tokenFile, String javaCommand,
+      List<String> javaFlags, CodeRunnerFactory codeRunnerFactory,
+      Messenger messenger, long maxAge) throws IOException {
+    this.javaCommand = javaCommand;
+    this.javaFlags = new ArrayList<String>(javaFlags);
+    this.codeRunnerFactory = codeRunnerFactory;
+    this.messenger = messenger;
+    this.maxAge = maxAge;
+    this.sequence = new AtomicLong();
+    this.workspaces = new ConcurrentHashMap<WorkspaceSpec, Workspace>();
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(
+        InetAddress.getByName("127.0.0.1"), port));
+    this.tokenFile = tokenFile != null ? tokenFile
+        : ServerToken.defaultFile(serverSocket.getLocalPort());
+    try {
+      this.token = ServerToken.create(this.tokenFile);
+    } catch (IOException exception) {
+      serverSocket.close();
+      throw exception;
+    }
+  }
+  
+  /**
+   * Create a server running at most the given number of virtual machines at
+   * once.
+   */
+  public static AnalysisServer create(int port, File tokenFile,
+      String javaCommand, List<String> javaFlags, int virtualMachines,
+      Messenger messenger, long maxAge) throws IOException {
+    CodeRunnerFactory codeRunnerFactory = Guice.createInjector(
+        new ServerModule(messenger, Executors.newFixedThreadPool(
+            virtualMachines, new DaemonThreadFactory(
+                "Guice analysis server virtual machine"))))
+        .getInstance(CodeRunnerFactory.class);
+    return new AnalysisServer(port, tokenFile, javaCommand, javaFlags,
+        codeRunnerFactory, messenger, maxAge);
+  }
+  
+  /**
+   * The java command of the virtual machine running this code.
+   */
+  public static String currentJavaCommand() {
+    return new File(new File(System.getProperty("java.home"), "bin"), "java")
+        .getPath();
+  }
+  
+  /**
+   * The port the server listens on.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+  
+  /**
+   * Start accepting clients on a daemon thread.
+   */
+  public void start() {
+    Thread thread = new Thread(new Runnable() {
+      public void run() {
+        accept();
+      }
+    }, "Guice analysis server");
+    thread.setDaemon(true);
+    thread.start();
+  }
+  
+  /**
+   * The file holding the token of the server.
+   */
+  public File getTokenFile() {
+    return tokenFile;
+  }
+  
+  /**
+   * Stop accepting clients and remove the token.
+   */
+  public void stop() {
+    stopped = true;
+    try {
+      serverSocket.close();
+    } catch (IOException exception) {
+      // already closed
+    }
+    tokenFile.delete();
+  }
+  
+  private void accept() {
+    while (!stopped) {
+      try {
+        Thread thread = new Thread(new Connection(serverSocket.accept()),
+            "Guice analysis server connection");
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException exception) {
+        if (!stopped) {
+          messenger.logException("Accepting analysis client failed", exception);
+        }
+      }
+    }
+  }
+  
+  private Workspace getWorkspace(WorkspaceSpec spec) {
+    Workspace workspace = workspaces.get(spec);
+    if (workspace == null) {
+      Workspace newWorkspace = new Workspace(spec,
+          spec.javaManager(javaCommand, javaFlags), codeRunnerFactory,
+          messenger, sequence, maxAge);
+      workspace = workspaces.putIfAbsent(spec, newWorkspace);
+      if (workspace == null) {
+        workspace = newWorkspace;
+      }
+    }
+    return workspace;
+  }
+  
+  /*
+   * A connection from a client, handling its one request once the client has
+   * authenticated.
+   */
+  private class Connection implements Runnable {
+    private final Socket socket;
+    
+    public Connection(Socket socket) {
+      this.socket = socket;
+    }
+    
+    public void run() {
+      try {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(socket.getOutputStream()));
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(socket.getInputStream()));
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        try {
+          token.authenticateClient(in, out);
+        } catch (IOException exception) {
+          messenger.logMessage("Refused analysis client: "
+              + exception.getMessage());
+          return;
+        }
+        socket.setSoTimeout(0);
+        int request = in.readInt();
+        if (request == ServerProtocol.RUN_SNIPPET) {
+          WorkspaceSpec spec = WorkspaceSpec.read(in);
+          String snippetClass = ServerProtocol.readString(in);
+          List<String> args = ServerProtocol.readStrings(in);
+          long newerThan = in.readLong();
+          if (!ServerProtocol.isSnippetClass(snippetClass)) {
+            messenger.logMessage("Refused to run " + snippetClass);
+            return;
+          }
+          ServerProtocol.writeSnippetRun(out, getWorkspace(spec).run(
+              snippetClass, args, newerThan, spec.stamp()));
+        } else if (request == ServerProtocol.SUBSCRIBE) {
+          Workspace workspace = getWorkspace(WorkspaceSpec.read(in));
+          workspace.subscribe(out);
+          try {
+            while (in.read() >= 0) {
+              // the client says nothing more; wait for it to hang up
+            }
+          } finally {
+            workspace.unsubscribe(out);
+          }
+        }
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      } catch (Exception exception) {
+        messenger.logCodeRunnerException("Analysis client failed", exception);
+      } finally {
+        try {
+          socket.close();
+        } catch (IOException exception) {
+          // nothing left to do with it
+        }
+      }
+    }
+  }
+  
+  /*
+   * The tools module of the server: the code runners run their snippets
+   * concurrently on the executor bounding the number of virtual machines.
+   */
+  private static class ServerModule extends GuiceToolsModule {
+    private final Messenger messenger;
+    private final Executor virtualMachines;
+    
+    public ServerModule(Messenger messenger, Executor virtualMachines) {
+      this.messenger = messenger;
+      this.virtualMachines = virtualMachines;
+    }
+    
+    @Override
+    protected void bindMessenger(
+        AnnotatedBindingBuilder<Messenger> bindMessenger) {
+      bindMessenger.toInstance(messenger);
+    }
+    
+    @Override
+    protected void bindProgressHandler(
+        AnnotatedBindingBuilder<ProgressHandler> bindProgressHandler) {
+      bindProgressHandler.toProvider(new Provider<ProgressHandler>() {
+        public ProgressHandler get() {
+          return new ConcurrentProgressHandler(virtualMachines, null);
+        }
+      });
+    }
+  }
+  
+  private static class DaemonThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger count = new AtomicInteger();
+    
+    public DaemonThreadFactory(String name) {
+      this.name = name;
+    }
+    
+    public Thread newThread(Runnable runnable) {
+      Thread thread =
+          new Thread(runnable, name + " " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+  
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+    int port = DEFAULT_PORT;
+    int virtualMachines = Runtime.getRuntime().availableProcessors();
+    long maxAge = DEFAULT_MAX_AGE;
+    String javaCommand = currentJavaCommand();
+    List<String> javaFlags = new ArrayList<String>();
+    File tokenFile = null;
+    boolean verbose = false;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("-port") && i + 1 < args.length) {
+          port = Integer.parseInt(args[++i]);
+        } else if (args[i].equals("-jvms") && i + 1 < args.length) {
+          virtualMachines = Integer.parseInt(args[++i]);
+        } else if (args[i].equals("-maxage") && i + 1 < args.length) {
+          maxAge = Long.parseLong(args[++i]) * 60 * 1000;
+        } else if (args[i].equals("-java") && i + 1 < args.length) {
+          javaCommand = args[++i];
+        } else if (args[i].startsWith("-J") && args[i].length() > 2) {
+          javaFlags.add(args[i].substring(2));
+        } else if (args[i].equals("-token") && i + 1 < args.length) {
+          tokenFile = new File(args[++i]);
+        } else if (args[i].equals("-verbose")) {
+          verbose = true;
+        } else {
+          throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+      }
+      if (virtualMachines < 1) {
+        throw new IllegalArgumentException(
+            "At least one virtual machine is needed");
+      }
+    } catch (IllegalArgumentException exception) {
+      System.err.println(exception.getMessage());
+      System.err.println(USAGE);
+      System.exit(Analyzer.USAGE_ERROR);
+      return;
+    }
+    Messenger messenger = new Analyzer.ConsoleMessenger(System.err, verbose);
+    AnalysisServer server = create(port, tokenFile, javaCommand, javaFlags,
+        virtualMachines, messenger, maxAge);
+    messenger.logMessage("Guice analysis server listening on port "
+        + server.getPort() + ", token in " + server.getTokenFile());
+    server.accept();
+  }
+}
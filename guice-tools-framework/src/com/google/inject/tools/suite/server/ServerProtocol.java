@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+import com.google.inject.tools.suite.snippets.SnippetObjectInputStream;
+
+/**
+ * The messages between the {@link AnalysisServer} and its
+ * {@link AnalysisClient}s.
+ * 
+ * A connection starts with the {@link ServerToken} handshake, after which the
+ * client sends one request, written as plain data:
+ * 
+ * <pre>
+ *   RUN_SNIPPET spec snippetClass args newerThan
+ *   SUBSCRIBE spec
+ * </pre>
+ * 
+ * The server answers a run with the sequence number and the serialized result,
+ * and a subscription with one change, as the snippet class, its arguments and
+ * the new sequence number, each time a result is recomputed.
+ * 
+ * The server never deserializes anything a client sends.  The clients
+ * deserialize results from the authenticated server only, and then only the
+ * result classes of the snippets.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class ServerProtocol {
+  static final int RUN_SNIPPET = 1;
+  static final int SUBSCRIBE = 2;
+  
+  /**
+   * The package of the snippets the server agrees to run.
+   */
+  static final String SNIPPETS_PACKAGE =
+      "com.google.inject.tools.suite.snippets.";
+  
+  private static final int MAX_STRING = 1 << 22;
+  private static final int MAX_STRINGS = 1 << 16;
+  private static final int NO_RESULT = -1;
+  
+  private ServerProtocol() {
+  }
+  
+  /**
+   * Whether the server runs the given snippet class for clients.
+   */
+  static boolean isSnippetClass(String snippetClass) {
+    return snippetClass.startsWith(SNIPPETS_PACKAGE)
+        && snippetClass.indexOf('/') < 0;
+  }
+  
+  static void writeString(DataOutputStream out, String string)
+      throws IOException {
+    byte[] bytes = string.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+  
+  static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_STRING) {
+      throw new IOException("Bad string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+  
+  static void writeStrings(DataOutputStream out, List<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(out, string);
+    }
+  }
+  
+  static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    if (size < 0 || size > MAX_STRINGS) {
+      throw new IOException("Bad string count " + size);
+    }
+    List<String> strings = new ArrayList<String>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+  
+  static void writeRunSnippet(DataOutputStream out, WorkspaceSpec spec,
+      String snippetClass, List<String> args, long newerThan)
+      throws IOException {
+    out.writeInt(RUN_SNIPPET);
+    spec.write(out);
+    writeString(out, snippetClass);
+    writeStrings(out, args);
+    out.writeLong(newerThan);
+    out.flush();
+  }
+  
+  static void writeSubscribe(DataOutputStream out, WorkspaceSpec spec)
+      throws IOException {
+    out.writeInt(SUBSCRIBE);
+    spec.write(out);
+    out.flush();
+  }
+  
+  /**
+   * Write the answer to a run: the sequence number and the result, if any.
+   */
+  static void writeSnippetRun(DataOutputStream out, Workspace.SnippetRun run)
+      throws IOException {
+    out.writeLong(run.getSequence());
+    if (run.getResult() == null) {
+      out.writeInt(NO_RESULT);
+    } else {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+      objectOut.writeObject(run.getResult());
+      objectOut.close();
+      out.writeInt(bytes.size());
+      bytes.writeTo(out);
+    }
+    out.flush();
+  }
+  
+  /**
+   * Read the result of a run written by {@link #writeSnippetRun}, or null if
+   * the snippet could not be run.
+   * 
+   * @throws InvalidClassException if the result holds classes other than those
+   *         of snippet results
+   */
+  static CodeSnippetResult readSnippetResult(DataInputStream in)
+      throws IOException {
+    int length = in.readInt();
+    if (length == NO_RESULT) {
+      return null;
+    }
+    if (length < 0) {
+      throw new IOException("Bad result length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return readResult(bytes);
+  }
+  
+  static CodeSnippetResult readResult(byte[] bytes) throws IOException {
+    ObjectInputStream in =
+        new SnippetObjectInputStream(new ByteArrayInputStream(bytes));
+    try {
+      Object result = in.readObject();
+      if (!(result instanceof CodeSnippetResult)) {
+        throw new InvalidClassException(String.valueOf(result),
+            "Not a snippet result");
+      }
+      return (CodeSnippetResult) result;
+    } catch (ClassNotFoundException exception) {
+      throw new InvalidClassException(exception.getMessage());
+    } finally {
+      in.close();
+    }
+  }
+  
+  static void writeChange(DataOutputStream out, String snippetClass,
+      List<String> args, long sequence) throws IOException {
+    writeString(out, snippetClass);
+    writeStrings(out, args);
+    out.writeLong(sequence);
+    out.flush();
+  }
+}
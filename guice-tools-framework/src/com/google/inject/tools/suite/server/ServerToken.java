@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The secret shared by an {@link AnalysisServer} and its clients.
+ * 
+ * The server writes a fresh random token to a file only its owner can read;
+ * a client proves it read the file, and the server proves it wrote it, by
+ * answering a challenge of the other with an HMAC of the token, so the token
+ * itself is never sent.  Other users of the machine cannot connect, and a
+ * client does not talk to a server someone else started on the port.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class ServerToken {
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final int TOKEN_LENGTH = 32;
+  private static final int CHALLENGE_LENGTH = 16;
+  private static final byte[] CLIENT = {'C'};
+  private static final byte[] SERVER = {'S'};
+  
+  private static final SecureRandom random = new SecureRandom();
+  
+  private final String token;
+  
+  private ServerToken(String token) {
+    this.token = token;
+  }
+  
+  /**
+   * Return the file holding the token of the server on the given port, in the
+   * user's home directory.
+   */
+  public static File defaultFile(int port) {
+    return new File(new File(System.getProperty("user.home"), ".guice-tools"),
+        "analysis-server-" + port + ".token");
+  }
+  
+  /**
+   * Write a new token to the given file, readable only by the current user.
+   * 
+   * @throws IOException if the file cannot be written or its permissions
+   *         cannot be restricted
+   */
+  public static ServerToken create(File file) throws IOException {
+    byte[] bytes = new byte[TOKEN_LENGTH];
+    random.nextBytes(bytes);
+    ServerToken token = new ServerToken(toHex(bytes));
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    restrict(directory, "700");
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Cannot replace " + file);
+    }
+    if (!file.createNewFile()) {
+      throw new IOException("Cannot create " + file);
+    }
+    restrict(file, "600");
+    Writer writer = new FileWriter(file);
+    try {
+      writer.write(token.token);
+    } finally {
+      writer.close();
+    }
+    return token;
+  }
+  
+  /*
+   * Make the file accessible to its owner only.  Files in a Windows profile
+   * are private to the user already.
+   */
+  private static void restrict(File file, String mode) throws IOException {
+    if (File.separatorChar == '\\') {
+      return;
+    }
+    Process chmod = Runtime.getRuntime().exec(
+        new String[] {"chmod", mode, file.getAbsolutePath()});
+    try {
+      if (chmod.waitFor() != 0) {
+        throw new IOException("Cannot restrict the permissions of " + file);
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted restricting " + file);
+    }
+  }
+  
+  /**
+   * Read the token in the given file.
+   */
+  public static ServerToken read(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      String token = reader.readLine();
+      if (token == null || token.trim().length() == 0) {
+        throw new IOException("No token in " + file);
+      }
+      return new ServerToken(token.trim());
+    } finally {
+      reader.close();
+    }
+  }
+  
+  /**
+   * Check, on the server, that the client on the other end knows the token,
+   * and prove to it that the server does too.
+   * 
+   * @throws IOException if the client does not know the token
+   */
+  public void authenticateClient(DataInputStream in, DataOutputStream out)
+      throws IOException {
+    byte[] challenge = challenge();
+    out.write(challenge);
+    out.flush();
+    byte[] answer = new byte[mac(CLIENT, challenge).length];
+    in.readFully(answer);
+    byte[] clientChallenge = new byte[CHALLENGE_LENGTH];
+    in.readFully(clientChallenge);
+    if (!isEqual(answer, mac(CLIENT, challenge))) {
+      throw new IOException("Client failed to authenticate");
+    }
+    out.write(mac(SERVER, clientChallenge));
+    out.flush();
+  }
+  
+  /**
+   * Prove to the server on the other end that the client knows the token, and
+   * check that the server does too.
+   * 
+   * @throws IOException if the server does not know the token
+   */
+  public void authenticateServer(DataInputStream in, DataOutputStream out)
+      throws IOException {
+    byte[] challenge = new byte[CHALLENGE_LENGTH];
+    in.readFully(challenge);
+    byte[] clientChallenge = challenge();
+    out.write(mac(CLIENT, challenge));
+    out.write(clientChallenge);
+    out.flush();
+    byte[] answer = new byte[mac(SERVER, clientChallenge).length];
+    in.readFully(answer);
+    if (!isEqual(answer, mac(SERVER, clientChallenge))) {
+      throw new IOException("Server failed to authenticate");
+    }
+  }
+  
+  private static byte[] challenge() {
+    byte[] challenge = new byte[CHALLENGE_LENGTH];
+    random.nextBytes(challenge);
+    return challenge;
+  }
+  
+  /*
+   * The role prefix keeps an answer of one side from being replayed as an
+   * answer of the other.
+   */
+  private byte[] mac(byte[] role, byte[] challenge) throws IOException {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(new SecretKeySpec(token.getBytes("UTF-8"), ALGORITHM));
+      mac.update(role);
+      return mac.doFinal(challenge);
+    } catch (GeneralSecurityException exception) {
+      throw new IOException("Cannot compute " + ALGORITHM + ": "
+          + exception.getMessage());
+    }
+  }
+  
+  /*
+   * Compare in time independent of where the arrays differ.
+   */
+  private static boolean isEqual(byte[] bytes1, byte[] bytes2) {
+    if (bytes1.length != bytes2.length) {
+      return false;
+    }
+    int difference = 0;
+    for (int i = 0; i < bytes1.length; i++) {
+      difference |= bytes1[i] ^ bytes2[i];
+    }
+    return difference == 0;
+  }
+  
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.code.CodeRunner;
+import com.google.inject.tools.suite.code.CodeRunnerFactory;
+import com.google.inject.tools.suite.snippets.CodeSnippet;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+
+/**
+ * The results of the snippets run on one classpath, shared by every client of
+ * the {@link AnalysisServer} working on it.
+ * 
+ * A result is kept with the sequence number of the run that computed it and
+ * the {@link WorkspaceSpec#stamp() stamp} of the classpath it ran against.  A
+ * request newer than the result it knows of reuses a later result computed
+ * from the same code, or waits for the run in progress, and otherwise starts a
+ * new run, which subscribers are told about once it is done.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class Workspace {
+  private final WorkspaceSpec spec;
+  private final JavaManager javaManager;
+  private final CodeRunnerFactory codeRunnerFactory;
+  private final Messenger messenger;
+  private final AtomicLong sequence;
+  private final long maxAge;
+  private final ConcurrentMap<List<String>, Run> runs;
+  private final List<DataOutputStream> subscribers;
+  
+  /*
+   * A run of a snippet, in progress or done.
+   */
+  private class Run {
+    final long sequence;
+    final long started;
+    final String stamp;
+    final FutureTask<CodeSnippetResult> task;
+    
+    Run(final String snippetClass, final List<String> args, String stamp) {
+      this.sequence = Workspace.this.sequence.incrementAndGet();
+      this.started = System.currentTimeMillis();
+      this.stamp = stamp;
+      this.task = new FutureTask<CodeSnippetResult>(
+          new Callable<CodeSnippetResult>() {
+            public CodeSnippetResult call() throws Exception {
+              return runSnippet(snippetClass, args);
+            }
+          });
+    }
+    
+    boolean isCurrent(long newerThan, String currentStamp) {
+      return sequence > newerThan && stamp.equals(currentStamp)
+          && !(newerThan < 0 && isExpired());
+    }
+    
+    boolean isExpired() {
+      return task.isDone() && System.currentTimeMillis() - started > maxAge;
+    }
+  }
+  
+  /**
+   * The result of a run and its sequence number.
+   */
+  public static class SnippetRun {
+    private final CodeSnippetResult result;
+    private final long sequence;
+    
+    SnippetRun(CodeSnippetResult result, long sequence) {
+      this.result = result;
+      this.sequence = sequence;
+    }
+    
+    /**
+     * Return the result, or null if the snippet could not be run.
+     */
+    public CodeSnippetResult getResult() {
+      return result;
+    }
+    
+    public long getSequence() {
+      return sequence;
+    }
+  }
+  
+  /**
+   * Create a workspace.
+   * 
+   * @param javaManager the spec run with the server's own java command and
+   *        flags
+   * @param maxAge how long, in milliseconds, to reuse a result for requests
+   *        that know of no result at all
+   */
+  public Workspace(WorkspaceSpec spec, JavaManager javaManager,
+      CodeRunnerFactory codeRunnerFactory, Messenger messenger,
+      AtomicLong sequence, long maxAge) {
+    this.spec = spec;
+    this.javaManager = javaManager;
+    this.codeRunnerFactory = codeRunnerFactory;
+    this.messenger = messenger;
+    this.sequence = sequence;
+    this.maxAge = maxAge;
+    this.runs = new ConcurrentHashMap<List<String>, Run>();
+    this.subscribers = new CopyOnWriteArrayList<DataOutputStream>();
+  }
+  
+  /**
+   * Return the result of the snippet computed after the given sequence number
+   * from the classpath contents with the given stamp, running it if there is
+   * none.
+   */
+  public SnippetRun run(String snippetClass, List<String> args,
+      long newerThan, String stamp) throws InterruptedException {
+    List<String> key = new ArrayList<String>(args.size() + 1);
+    key.add(snippetClass);
+    key.addAll(args);
+    while (true) {
+      Run run = runs.get(key);
+      boolean rerun = run != null;
+      if (run == null || !run.isCurrent(newerThan, stamp)) {
+        Run newRun = new Run(snippetClass, args, stamp);
+        if (run == null ? runs.putIfAbsent(key, newRun) != null
+            : !runs.replace(key, run, newRun)) {
+          continue;
+        }
+        run = newRun;
+        run.task.run();
+      } else {
+        rerun = false;
+      }
+      CodeSnippetResult result;
+      try {
+        result = run.task.get();
+      } catch (ExecutionException exception) {
+        messenger.logException("Snippet failed on " + spec,
+            exception.getCause());
+        result = null;
+      }
+      if (result == null) {
+        runs.remove(key, run);
+      } else if (rerun) {
+        publish(snippetClass, args, run.sequence);
+      }
+      return new SnippetRun(result, run.sequence);
+    }
+  }
+  
+  private CodeSnippetResult runSnippet(String snippetClass, List<String> args)
+      throws Exception {
+    CodeRunner codeRunner = codeRunnerFactory.create(javaManager);
+    codeRunner.queue(new ForwardedSnippet(codeRunner, snippetClass, args));
+    List<CodeSnippetResult> results =
+        codeRunner.runAsync("Running " + snippetClass, true).get();
+    return results.isEmpty() ? null : results.get(0);
+  }
+  
+  /*
+   * Runs a snippet as a client asked for it.  The snippet class is only known
+   * once constructed, so the check made by the constructor is made against
+   * CodeSnippet itself.
+   */
+  private static class ForwardedSnippet extends CodeRunner.Runnable {
+    private final String snippetClass;
+    private final List<String> args;
+    
+    public ForwardedSnippet(CodeRunner codeRunner, String snippetClass,
+        List<String> args) {
+      super(codeRunner);
+      this.snippetClass = snippetClass;
+      this.args = args;
+    }
+    
+    @Override
+    public String label() {
+      return "Running " + snippetClass;
+    }
+    
+    @Override
+    protected String getFullyQualifiedSnippetClass() {
+      return CodeSnippet.class.getName();
+    }
+    
+    @Override
+    protected List<? extends Object> getSnippetArguments() {
+      return args;
+    }
+    
+    @Override
+    public String getClassToRun() {
+      return snippetClass;
+    }
+  }
+  
+  /**
+   * Write changes on this workspace to the given stream until it fails.
+   */
+  public void subscribe(DataOutputStream subscriber) {
+    subscribers.add(subscriber);
+  }
+  
+  public void unsubscribe(DataOutputStream subscriber) {
+    subscribers.remove(subscriber);
+  }
+  
+  private void publish(String snippetClass, List<String> args, long sequence) {
+    for (DataOutputStream subscriber : subscribers) {
+      try {
+        synchronized (subscriber) {
+          ServerProtocol.writeChange(subscriber, snippetClass, args, sequence);
+        }
+      } catch (IOException exception) {
+        subscribers.remove(subscriber);
+      }
+    }
+  }
+}
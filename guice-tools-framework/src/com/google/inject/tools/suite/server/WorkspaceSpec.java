@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import com.google.inject.tools.suite.JavaManager;
+
+/**
+ * The classpaths a client runs its snippets against.  Clients with equal specs
+ * share their results on the {@link AnalysisServer}.
+ * 
+ * Only the classpaths come from the client: the snippets are always run with
+ * the java command and flags the server itself was configured with.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class WorkspaceSpec {
+  private final String snippetsClasspath;
+  private final String guiceClasspath;
+  private final String projectClasspath;
+  private final String classpathDelimiter;
+  
+  WorkspaceSpec(String snippetsClasspath, String guiceClasspath,
+      String projectClasspath, String classpathDelimiter) {
+    this.snippetsClasspath = snippetsClasspath;
+    this.guiceClasspath = guiceClasspath;
+    this.projectClasspath = projectClasspath;
+    this.classpathDelimiter = classpathDelimiter;
+  }
+  
+  /**
+   * Return the spec of the given java manager.
+   * 
+   * @throws Exception if the java manager cannot tell its classpaths
+   */
+  public static WorkspaceSpec of(JavaManager javaManager) throws Exception {
+    return new WorkspaceSpec(nonNull(javaManager.getSnippetsClasspath()),
+        nonNull(javaManager.getGuiceClasspath()),
+        nonNull(javaManager.getProjectClasspath()),
+        nonNull(javaManager.getClasspathDelimiter()));
+  }
+  
+  private static String nonNull(String string) {
+    return string == null ? "" : string;
+  }
+  
+  /**
+   * Write the spec as {@link #read} reads it.
+   */
+  public void write(DataOutputStream out) throws IOException {
+    ServerProtocol.writeString(out, snippetsClasspath);
+    ServerProtocol.writeString(out, guiceClasspath);
+    ServerProtocol.writeString(out, projectClasspath);
+    ServerProtocol.writeString(out, classpathDelimiter);
+  }
+  
+  public static WorkspaceSpec read(DataInputStream in) throws IOException {
+    return new WorkspaceSpec(ServerProtocol.readString(in),
+        ServerProtocol.readString(in), ServerProtocol.readString(in),
+        ServerProtocol.readString(in));
+  }
+  
+  /**
+   * Return the java manager running snippets against these classpaths with the
+   * given java command and flags.
+   */
+  public JavaManager javaManager(final String javaCommand,
+      final List<String> javaFlags) {
+    return new JavaManager() {
+      public String getJavaCommand() {
+        return javaCommand;
+      }
+      
+      public List<String> getJavaFlags() {
+        return javaFlags;
+      }
+      
+      public String getSnippetsClasspath() {
+        return snippetsClasspath;
+      }
+      
+      public String getGuiceClasspath() {
+        return guiceClasspath;
+      }
+      
+      public String getProjectClasspath() {
+        return projectClasspath;
+      }
+      
+      public String getClasspathDelimiter() {
+        return classpathDelimiter;
+      }
+    };
+  }
+  
+  /**
+   * Return a stamp of the contents of the classpaths: the names, sizes and
+   * modification times of every file on them.  Results computed under another
+   * stamp were computed from other code.
+   */
+  public String stamp() {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException exception) {
+      throw new IllegalStateException(exception.getMessage());
+    }
+    for (String classpath : Arrays.asList(snippetsClasspath, guiceClasspath,
+        projectClasspath)) {
+      if (classpathDelimiter.length() == 0) {
+        stamp(digest, new File(classpath), classpath);
+        continue;
+      }
+      for (String entry : classpath.split(Pattern.quote(classpathDelimiter))) {
+        if (entry.length() > 0) {
+          stamp(digest, new File(entry), entry);
+        }
+      }
+    }
+    StringBuilder stamp = new StringBuilder();
+    for (byte b : digest.digest()) {
+      stamp.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+    }
+    return stamp.toString();
+  }
+  
+  private static void stamp(MessageDigest digest, File file, String name) {
+    digest.update(name.getBytes());
+    if (file.isDirectory()) {
+      String[] children = file.list();
+      if (children != null) {
+        Arrays.sort(children);
+        for (String child : children) {
+          stamp(digest, new File(file, child), name + "/" + child);
+        }
+      }
+    } else if (file.exists()) {
+      digest.update((":" + file.length() + ":" + file.lastModified())
+          .getBytes());
+    } else {
+      digest.update((byte) 0);
+    }
+  }
+  
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof WorkspaceSpec)) {
+      return false;
+    }
+    WorkspaceSpec spec = (WorkspaceSpec) object;
+    return snippetsClasspath.equals(spec.snippetsClasspath)
+        && guiceClasspath.equals(spec.guiceClasspath)
+        && projectClasspath.equals(spec.projectClasspath)
+        && classpathDelimiter.equals(spec.classpathDelimiter);
+  }
+  
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(new Object[] {snippetsClasspath, guiceClasspath,
+        projectClasspath, classpathDelimiter});
+  }
+  
+  @Override
+  public String toString() {
+    return projectClasspath;
+  }
+}
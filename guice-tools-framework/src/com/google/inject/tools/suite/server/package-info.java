@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/**
+ * A local analysis server shared by several IDE windows.
+ * 
+ * <p>
+ * The {@link com.google.inject.tools.suite.server.AnalysisServer} listens on
+ * a loopback port and runs snippets for any number of clients, keeping one
+ * set of results per classpath: a context analyzed for one window is reused
+ * by the others instead of being run again in a virtual machine of their own.
+ * When a result is recomputed, the clients listening on that classpath are
+ * told so they can refresh.
+ * 
+ * <p>
+ * Only clients proving they can read the token the server writes to a file
+ * private to its owner are served, requests are plain data rather than
+ * serialized objects, and the snippets run with the server's own java command
+ * and flags.
+ * 
+ * <p>
+ * The plugins use the server through an
+ * {@link com.google.inject.tools.suite.server.AnalysisClient} bound as the
+ * {@link com.google.inject.tools.suite.code.RemoteSnippetRunner} when the
+ * {@value com.google.inject.tools.suite.server.AnalysisServer#PORT_PROPERTY}
+ * system property is set, and fall back to running the snippets themselves
+ * when the server cannot be reached.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+
+package com.google.inject.tools.suite.server;
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.snippets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link ObjectInputStream} reading the classes of this package, which the
+ * snippets produce, and the few JDK classes they are built from, and refusing
+ * any other class.  Used wherever snippet results are read from outside this
+ * virtual machine, so that what is read cannot construct arbitrary objects.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class SnippetObjectInputStream extends ObjectInputStream {
+  private static final String SNIPPETS_PACKAGE =
+      SnippetObjectInputStream.class.getPackage().getName() + ".";
+  
+  private static final Set<String> JDK_CLASSES =
+      new HashSet<String>(Arrays.asList(
+          "java.lang.Boolean", "java.lang.Enum", "java.lang.Integer",
+          "java.lang.Long", "java.lang.Number", "java.lang.String",
+          "java.lang.StackTraceElement", "java.util.ArrayList",
+          "java.util.HashMap", "java.util.HashSet",
+          "java.util.LinkedHashMap", "java.util.LinkedHashSet",
+          "java.util.LinkedList", "java.util.TreeMap", "java.util.TreeSet",
+          "java.util.Collections$EmptyList", "java.util.Collections$EmptyMap",
+          "java.util.Collections$EmptySet",
+          "java.util.Collections$SingletonList",
+          "java.util.Collections$SingletonMap",
+          "java.util.Collections$SingletonSet",
+          "java.util.Collections$UnmodifiableCollection",
+          "java.util.Collections$UnmodifiableList",
+          "java.util.Collections$UnmodifiableMap",
+          "java.util.Collections$UnmodifiableRandomAccessList",
+          "java.util.Collections$UnmodifiableSet"));
+  
+  public SnippetObjectInputStream(InputStream in) throws IOException {
+    super(in);
+  }
+  
+  @Override
+  protected Class<?> resolveClass(ObjectStreamClass description)
+      throws IOException, ClassNotFoundException {
+    String name = description.getName();
+    while (name.startsWith("[")) {
+      name = name.substring(1);
+    }
+    if (name.startsWith("L") && name.endsWith(";")) {
+      name = name.substring(1, name.length() - 1);
+    }
+    if (!(name.length() == 1 || name.startsWith(SNIPPETS_PACKAGE)
+        || JDK_CLASSES.contains(name))) {
+      throw new InvalidClassException(description.getName(),
+          "Not a class of snippet results");
+    }
+    return super.resolveClass(description);
+  }
+  
+  @Override
+  protected Class<?> resolveProxyClass(String[] interfaces)
+      throws InvalidClassException {
+    throw new InvalidClassException("Proxies are not snippet results");
+  }
+}
@@ -54,6 +54,33 @@ public class BindingRepresentation extends Representation {
 
   private BindingRepresentation linkedTo;
 
+  /**
+   * Constructor for subclasses that supply their values by overriding the
+   * accessors, such as flyweights over stored binding tables.
+   */
+  protected BindingRepresentation() {
+    location = -1;
+  }
+
+  /**
+   * Copy the values of the given binding, such as a flyweight that cannot be
+   * serialized itself.
+   */
+  public BindingRepresentation(BindingRepresentation binding) {
+    file = binding.file();
+    location = binding.location();
+    stackTrace = binding.stackTrace();
+    locationDescription = binding.locationDescription();
+    scope = binding.scope();
+    key = binding.key();
+    boundTo = binding.boundTo();
+    boundProvider = binding.boundProvider();
+    boundInstance = binding.boundInstance();
+    boundConstant = binding.boundConstant();
+    linkedTo = binding.linkedTo();
+    problems.addAll(binding.problems());
+  }
+
   public BindingRepresentation(Binding<?> binding, Injector injector) {
     try {
       binding.acceptScopingVisitor(new BindingScopingVisitor<Void>() {
@@ -224,16 +251,19 @@ public class BindingRepresentation extends Representation {
 
   @Override
   public int hashCode() {
-    return file.hashCode() + location;
+    return (file() == null ? 0 : file().hashCode()) + location();
   }
 
   @Override
   public boolean equals(Object object) {
     if (!(object instanceof BindingRepresentation)) return false;
     BindingRepresentation bindingRepresentation = (BindingRepresentation)object;
+    String file = file();
+    String locationDescription = locationDescription();
+    String scope = scope();
     if (file == null && bindingRepresentation.file() != null) return false;
     if (file != null && !file.equals(bindingRepresentation.file())) return false;
-    if (location != bindingRepresentation.location()) return false;
+    if (location() != bindingRepresentation.location()) return false;
     if (locationDescription == null && bindingRepresentation.locationDescription() != null) return false;
     if (locationDescription != null && !locationDescription.equals(bindingRepresentation.locationDescription())) return false;
     if (scope == null && bindingRepresentation.scope() != null) return false;
@@ -244,29 +274,29 @@ public class BindingRepresentation extends Representation {
   @Override
   public String toString() {
     StringBuilder result = new StringBuilder();
-    if (boundTo != null) {
-      result.append("bound to " + boundTo);
+    if (boundTo() != null) {
+      result.append("bound to " + boundTo());
     }
-    if (boundProvider != null) {
-      result.append("bound to provider " + boundProvider);
+    if (boundProvider() != null) {
+      result.append("bound to provider " + boundProvider());
     }
-    if (boundInstance != null) {
-      result.append(" instance " + boundInstance);
+    if (boundInstance() != null) {
+      result.append(" instance " + boundInstance());
     }
-    if (boundConstant != null) {
-      result.append(" constant " + boundConstant);
+    if (boundConstant() != null) {
+      result.append(" constant " + boundConstant());
     }
 
-    if (file != null) {
-      result.append(" at " + file + ":" + location);
+    if (file() != null) {
+      result.append(" at " + file() + ":" + location());
     } else {
-      result.append(" " + locationDescription);
+      result.append(" " + locationDescription());
     }
-    if (scope != null) {
-      result.append(" in scope " + scope);
+    if (scope() != null) {
+      result.append(" in scope " + scope());
     }
-    if (linkedTo != null) {
-      result.append(" linked by way of (" + linkedTo.toString() + ")");
+    if (linkedTo() != null) {
+      result.append(" linked by way of (" + linkedTo().toString() + ")");
     }
     return result.toString();
   }
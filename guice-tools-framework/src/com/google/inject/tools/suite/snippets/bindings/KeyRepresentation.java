@@ -30,6 +30,13 @@ public class KeyRepresentation extends Representation {
   private String bindWhat;
   private String annotatedWith;
   
+  /**
+   * Constructor for subclasses that supply their values by overriding the
+   * accessors, such as flyweights over stored binding tables.
+   */
+  protected KeyRepresentation() {
+  }
+  
   public KeyRepresentation(Key<?> key) {
     try {
       this.bindWhat = key.getTypeLiteral().getType().toString();
@@ -55,8 +62,18 @@ public class KeyRepresentation extends Representation {
     this.annotatedWith = annotatedWith;
   }
   
+  /**
+   * Copy the values of the given key, such as a flyweight that cannot be
+   * serialized itself.
+   */
+  public KeyRepresentation(KeyRepresentation key) {
+    this.bindWhat = key.bindWhat();
+    this.annotatedWith = key.annotatedWith();
+    problems.addAll(key.problems());
+  }
+  
   public boolean binds(String theClass) {
-    return bindWhat.equals("interface " + theClass) || bindWhat.equals("class " + theClass);
+    return bindWhat().equals("interface " + theClass) || bindWhat().equals("class " + theClass);
   }
   
   public String bindWhat() {
@@ -71,22 +88,22 @@ public class KeyRepresentation extends Representation {
   public boolean equals(Object object) {
     if (!(object instanceof KeyRepresentation)) return false;
     KeyRepresentation key = (KeyRepresentation)object;
-    if (!bindWhat.equals(key.bindWhat)) return false;
-    return annotatedWith==null ? key.annotatedWith==null :
-      annotatedWith.equals(key.annotatedWith);
+    if (!bindWhat().equals(key.bindWhat())) return false;
+    return annotatedWith()==null ? key.annotatedWith()==null :
+      annotatedWith().equals(key.annotatedWith());
   }
   
   @Override
   public int hashCode() {
-    return bindWhat.hashCode();
+    return bindWhat().hashCode();
   }
   
   @Override
   public String toString() {
-    if (annotatedWith == null) {
-      return "Key binding " + bindWhat;
+    if (annotatedWith() == null) {
+      return "Key binding " + bindWhat();
     } else {
-      return "Key binding " + bindWhat + " annotated with " + annotatedWith;
+      return "Key binding " + bindWhat() + " annotated with " + annotatedWith();
     }
   }
 }
\ No newline at end of file
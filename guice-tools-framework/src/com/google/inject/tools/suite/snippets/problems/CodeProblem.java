@@ -16,8 +16,12 @@
 
 package com.google.inject.tools.suite.snippets.problems;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+
 import com.google.inject.tools.suite.snippets.CodeLocation;
+import com.google.inject.tools.suite.snippets.problems.StackTracePool.InternedStackTrace;
 
 /**
  * Represents a problem found involving the user's guice code, such as a
@@ -47,7 +51,8 @@ public class CodeProblem implements Serializable {
   private static final long serialVersionUID = 705475501616525997L;
   
   protected String message;
-  protected final StackTraceElement[] stacktrace;
+  protected StackTraceElement[] stacktrace;
+  private transient InternedStackTrace internedStackTrace;
 
   /**
    * Create a CodeProblem representation.
@@ -77,12 +82,34 @@ public class CodeProblem implements Serializable {
   }
 
   /**
-   * Return the stack trace of the problem.
+   * Return the stack trace of the problem.  Once the problem has been shared
+   * through a {@link ProblemPool} the trace is rebuilt on every call, so
+   * callers should only ask for it when it is to be displayed.
    */
-  public StackTraceElement[] getStackTrace() {
+  public synchronized StackTraceElement[] getStackTrace() {
+    if (internedStackTrace != null) {
+      return internedStackTrace.materialize();
+    }
     return stacktrace;
   }
   
+  /**
+   * Move the stack trace of this problem into the given pool.
+   */
+  synchronized void internStackTrace(StackTracePool pool) {
+    if (stacktrace != null) {
+      internedStackTrace = pool.intern(stacktrace);
+      stacktrace = null;
+    }
+  }
+  
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    ObjectOutputStream.PutField fields = stream.putFields();
+    fields.put("message", message);
+    fields.put("stacktrace", getStackTrace());
+    stream.writeFields();
+  }
+  
   public void accept(CodeProblemVisitor visitor) {
     visitor.visit(this);
   }
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.snippets.problems;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deduplicates the {@link CodeProblem}s found across the module contexts of a
+ * project.  Problems of the same type with the same message and the same top
+ * frames are replaced by a single shared instance whose stack trace lives in a
+ * {@link StackTracePool}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ProblemPool {
+  /**
+   * Number of frames from the top of the trace that identify a problem.
+   */
+  static final int TOP_FRAMES = 5;
+  
+  private final StackTracePool stackTraces;
+  private final Map<ProblemKey, ProblemReference> problems;
+  private final ReferenceQueue<CodeProblem> collected;
+  
+  public ProblemPool() {
+    this(new StackTracePool());
+  }
+  
+  public ProblemPool(StackTracePool stackTraces) {
+    this.stackTraces = stackTraces;
+    problems = new HashMap<ProblemKey, ProblemReference>();
+    collected = new ReferenceQueue<CodeProblem>();
+  }
+  
+  /**
+   * Return the shared instance of the given problem.
+   */
+  public synchronized CodeProblem intern(CodeProblem problem) {
+    purge();
+    ProblemKey key = new ProblemKey(problem);
+    ProblemReference reference = problems.get(key);
+    CodeProblem interned = reference == null ? null : reference.get();
+    if (interned == null) {
+      problem.internStackTrace(stackTraces);
+      problems.put(key, new ProblemReference(key, problem, collected));
+      interned = problem;
+    }
+    return interned;
+  }
+  
+  /**
+   * Return the shared instances of the given problems.
+   */
+  public Set<CodeProblem> intern(Set<? extends CodeProblem> problems) {
+    if (problems == null) {
+      return null;
+    }
+    Set<CodeProblem> interned = new HashSet<CodeProblem>();
+    for (CodeProblem problem : problems) {
+      interned.add(intern(problem));
+    }
+    return interned;
+  }
+  
+  /**
+   * Return the number of distinct problems currently in the pool.
+   */
+  public synchronized int size() {
+    purge();
+    return problems.size();
+  }
+  
+  private void purge() {
+    ProblemReference reference;
+    while ((reference = (ProblemReference)collected.poll()) != null) {
+      if (problems.get(reference.key) == reference) {
+        problems.remove(reference.key);
+      }
+    }
+  }
+  
+  private static class ProblemReference extends WeakReference<CodeProblem> {
+    private final ProblemKey key;
+    
+    public ProblemReference(ProblemKey key, CodeProblem problem,
+        ReferenceQueue<CodeProblem> queue) {
+      super(problem, queue);
+      this.key = key;
+    }
+  }
+  
+  private static class ProblemKey {
+    private final Class<?> type;
+    private final String description;
+    private final List<String> topFrames;
+    
+    public ProblemKey(CodeProblem problem) {
+      type = problem.getClass();
+      description = problem.toString();
+      topFrames = new ArrayList<String>();
+      StackTraceElement[] stackTrace = problem.getStackTrace();
+      if (stackTrace != null) {
+        for (int i = 0; i < stackTrace.length && i < TOP_FRAMES; i++) {
+          topFrames.add(stackTrace[i].toString());
+        }
+      }
+    }
+    
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof ProblemKey)) return false;
+      ProblemKey key = (ProblemKey)object;
+      return type.equals(key.type)
+          && (description == null ? key.description == null : description.equals(key.description))
+          && topFrames.equals(key.topFrames);
+    }
+    
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(new Object[] {type, description, topFrames});
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.snippets.problems;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of stack frames shared by the {@link CodeProblem}s of a project, so
+ * that the same trace reported by many module contexts is stored only once.
+ * Frames and traces are held weakly and disappear with the last problem
+ * referring to them.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class StackTracePool {
+  /**
+   * An interned stack trace.  The frames are shared and never handed out
+   * directly; {@link #materialize()} returns a copy.
+   */
+  public static final class InternedStackTrace {
+    private final StackTraceElement[] frames;
+    private final int hashCode;
+    
+    private InternedStackTrace(StackTraceElement[] frames) {
+      this.frames = frames;
+      this.hashCode = Arrays.hashCode(frames);
+    }
+    
+    /**
+     * Return the number of frames in the trace.
+     */
+    public int size() {
+      return frames.length;
+    }
+    
+    /**
+     * Return the frame at the given depth (0 being the top of the trace).
+     */
+    public StackTraceElement frame(int index) {
+      return frames[index];
+    }
+    
+    /**
+     * Return a new array holding the trace.
+     */
+    public StackTraceElement[] materialize() {
+      StackTraceElement[] stackTrace = new StackTraceElement[frames.length];
+      System.arraycopy(frames, 0, stackTrace, 0, frames.length);
+      return stackTrace;
+    }
+    
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof InternedStackTrace)) return false;
+      return Arrays.equals(frames, ((InternedStackTrace)object).frames);
+    }
+    
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+  
+  private final Map<StackTraceElement, WeakReference<StackTraceElement>> frames;
+  private final Map<InternedStackTrace, WeakReference<InternedStackTrace>> traces;
+  
+  public StackTracePool() {
+    frames = new WeakHashMap<StackTraceElement, WeakReference<StackTraceElement>>();
+    traces = new WeakHashMap<InternedStackTrace, WeakReference<InternedStackTrace>>();
+  }
+  
+  /**
+   * Intern the given stack trace, returning the shared copy of it.
+   */
+  public synchronized InternedStackTrace intern(StackTraceElement[] stackTrace) {
+    StackTraceElement[] internedFrames = new StackTraceElement[stackTrace.length];
+    for (int i = 0; i < stackTrace.length; i++) {
+      internedFrames[i] = internFrame(stackTrace[i]);
+    }
+    InternedStackTrace trace = new InternedStackTrace(internedFrames);
+    InternedStackTrace interned = get(traces.get(trace));
+    if (interned == null) {
+      traces.put(trace, new WeakReference<InternedStackTrace>(trace));
+      interned = trace;
+    }
+    return interned;
+  }
+  
+  private StackTraceElement internFrame(StackTraceElement frame) {
+    StackTraceElement interned = get(frames.get(frame));
+    if (interned == null) {
+      frames.put(frame, new WeakReference<StackTraceElement>(frame));
+      interned = frame;
+    }
+    return interned;
+  }
+  
+  private static <T> T get(WeakReference<T> reference) {
+    return reference == null ? null : reference.get();
+  }
+  
+  /**
+   * Return the number of distinct traces currently in the pool.
+   */
+  public synchronized int size() {
+    return traces.size();
+  }
+}
@@ -16,11 +16,14 @@
 
 package com.google.inject.tools.suite;
 
-
+import com.google.inject.tools.suite.analyzer.AnalyzerTest;
 import com.google.inject.tools.suite.code.CodeRunnerTest;
+import com.google.inject.tools.suite.module.BindingIndexTest;
+import com.google.inject.tools.suite.module.ColumnarBindingTableTest;
 import com.google.inject.tools.suite.module.ModuleContextRepresentationTest;
 import com.google.inject.tools.suite.module.ModuleManagerTest;
 import com.google.inject.tools.suite.module.ModuleRepresentationTest;
+import com.google.inject.tools.suite.server.AnalysisServerTest;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -34,13 +37,19 @@ public class AllTests {
   public static Test suite() {
     TestSuite suite = new TestSuite();
 
+    suite.addTestSuite(AnalyzerTest.class);
+    suite.addTestSuite(AnalysisServerTest.class);
+    suite.addTestSuite(BindingIndexTest.class);
     suite.addTestSuite(BindingRepresentationTest.class);
     suite.addTestSuite(CodeRunnerTest.class);
+    suite.addTestSuite(ColumnarBindingTableTest.class);
+    suite.addTestSuite(ConcurrentProgressHandlerTest.class);
     suite.addTestSuite(ModuleContextRepresentationTest.class);
     suite.addTestSuite(ModuleRepresentationTest.class);
     suite.addTestSuite(ModuleManagerTest.class);
     suite.addTestSuite(ModuleSnippetTest.class);
     suite.addTestSuite(ModuleContextSnippetTest.class);
+    suite.addTestSuite(ProblemPoolTest.class);
     suite.addTestSuite(SampleToolsFrameworkUseCase.class);
 
     return suite;
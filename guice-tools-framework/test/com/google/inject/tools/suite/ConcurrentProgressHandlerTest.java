@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.tools.suite.ProgressHandler.DependentProgressStep;
+import com.google.inject.tools.suite.ProgressHandler.ProgressMonitor;
+import com.google.inject.tools.suite.ProgressHandler.ProgressStep;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test the {@link ConcurrentProgressHandler}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ConcurrentProgressHandlerTest extends TestCase {
+  private static class TestStep implements DependentProgressStep {
+    private final String label;
+    private final List<String> log;
+    private final Collection<ProgressStep> dependencies;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    
+    public TestStep(String label, List<String> log, ProgressStep... dependencies) {
+      this.label = label;
+      this.log = log;
+      this.dependencies = new ArrayList<ProgressStep>();
+      Collections.addAll(this.dependencies, dependencies);
+    }
+    
+    public Collection<ProgressStep> dependencies() {
+      return dependencies;
+    }
+    
+    public String label() {
+      return label;
+    }
+    
+    public void run(ProgressMonitor monitor) {
+      monitor.begin(label, 2);
+      monitor.worked(1);
+      log.add(label);
+      monitor.done();
+    }
+    
+    public void cancel() {
+      cancelled = true;
+    }
+    
+    public void complete() {
+      done = true;
+    }
+    
+    public boolean isDone() {
+      return done;
+    }
+  }
+  
+  private static class CountingMonitor implements ProgressMonitor {
+    private int units;
+    private int worked;
+    private boolean done;
+    
+    public void begin(String label, int units) {
+      this.units = units;
+    }
+    
+    public ProgressMonitor getSubMonitor(int parentunits) {
+      return this;
+    }
+    
+    public synchronized void worked(int workedunits) {
+      worked += workedunits;
+    }
+    
+    public void done() {
+      done = true;
+    }
+  }
+  
+  public void testDependenciesRunFirst() throws Exception {
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    ConcurrentProgressHandler handler = new ConcurrentProgressHandler();
+    TestStep modules = new TestStep("modules", log);
+    TestStep contexts = new TestStep("contexts", log, modules);
+    TestStep results = new TestStep("results", log, contexts, modules);
+    handler.step(results);
+    handler.step(contexts);
+    handler.step(modules);
+    handler.go("test", true);
+    handler.waitFor();
+    assertTrue(handler.isDone());
+    assertEquals(3, log.size());
+    assertEquals("modules", log.get(0));
+    assertEquals("contexts", log.get(1));
+    assertEquals("results", log.get(2));
+    assertTrue(results.isDone());
+  }
+  
+  public void testIndependentStepsRunConcurrently() throws Exception {
+    final CountDownLatch bothRunning = new CountDownLatch(2);
+    final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    ConcurrentProgressHandler handler = new ConcurrentProgressHandler();
+    for (int i = 0; i < 2; i++) {
+      handler.step(new TestStep("project " + i, log) {
+        @Override
+        public void run(ProgressMonitor monitor) {
+          bothRunning.countDown();
+          try {
+            if (bothRunning.await(10, TimeUnit.SECONDS)) {
+              super.run(monitor);
+            }
+          } catch (InterruptedException e) {}
+        }
+      });
+    }
+    handler.go("test", true);
+    handler.waitFor();
+    assertEquals(2, log.size());
+  }
+  
+  public void testProgressIsAggregated() throws Exception {
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    CountingMonitor monitor = new CountingMonitor();
+    ConcurrentProgressHandler handler = new ConcurrentProgressHandler(monitor);
+    handler.step(new TestStep("one", log));
+    handler.step(new TestStep("two", log));
+    handler.go("test", true);
+    handler.waitFor();
+    assertEquals(2 * ConcurrentProgressHandler.STEP_UNITS, monitor.units);
+    assertEquals(monitor.units, monitor.worked);
+    assertTrue(monitor.done);
+    assertEquals(1.0, handler.getProgress(), 0.0001);
+  }
+  
+  public void testDependentsOfCancelledStepsAreCancelled() throws Exception {
+    final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    final ConcurrentProgressHandler handler = new ConcurrentProgressHandler();
+    TestStep modules = new TestStep("modules", log) {
+      @Override
+      public void run(ProgressMonitor monitor) {
+        handler.cancel();
+      }
+    };
+    TestStep contexts = new TestStep("contexts", log, modules);
+    handler.step(modules);
+    handler.step(contexts);
+    handler.go("test", true);
+    handler.waitFor();
+    assertTrue(handler.isCancelled());
+    assertTrue(log.isEmpty());
+    assertTrue(contexts.cancelled);
+    assertTrue(contexts.isDone());
+  }
+  
+  public void testCircularDependenciesAreCancelled() throws Exception {
+    List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    ConcurrentProgressHandler handler = new ConcurrentProgressHandler();
+    TestStep first = new TestStep("first", log);
+    TestStep second = new TestStep("second", log, first);
+    first.dependencies.add(second);
+    TestStep independent = new TestStep("independent", log);
+    handler.step(first);
+    handler.step(second);
+    handler.step(independent);
+    handler.go("test", true);
+    handler.waitFor();
+    assertEquals(Collections.singletonList("independent"), log);
+    assertTrue(first.cancelled);
+    assertTrue(second.cancelled);
+  }
+}
@@ -29,6 +29,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Fake objects for use in testing.
@@ -130,6 +133,18 @@ public class Fakes {
     public void run(String label) {
     }
 
+    public Future<List<CodeSnippetResult>> runAsync(String label,
+        boolean backgroundAutomatically) {
+      FutureTask<List<CodeSnippetResult>> future =
+          new FutureTask<List<CodeSnippetResult>>(new Callable<List<CodeSnippetResult>>() {
+            public List<CodeSnippetResult> call() {
+              return Collections.<CodeSnippetResult>emptyList();
+            }
+          });
+      future.run();
+      return future;
+    }
+
     public void waitFor() {
     }
 
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+import com.google.inject.tools.suite.snippets.problems.CreationProblem;
+import com.google.inject.tools.suite.snippets.problems.InjectorProblem;
+import com.google.inject.tools.suite.snippets.problems.ProblemPool;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test the {@link ProblemPool}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ProblemPoolTest extends TestCase {
+  private static Throwable brokenBaseModule() {
+    return new IllegalStateException("broken base module");
+  }
+  
+  // the problems a context installing the broken base module reports
+  private static Set<CodeProblem> contextProblems() {
+    Set<CodeProblem> problems = new HashSet<CodeProblem>();
+    for (int i = 0; i < 2; i++) {
+      problems.add(new CreationProblem(brokenBaseModule()));
+    }
+    return problems;
+  }
+  
+  public void testSameProblemIsShared() throws Exception {
+    ProblemPool pool = new ProblemPool();
+    List<Set<CodeProblem>> contexts = new ArrayList<Set<CodeProblem>>();
+    for (int i = 0; i < 3; i++) {
+      contexts.add(pool.intern(contextProblems()));
+    }
+    assertEquals(1, contexts.get(0).size());
+    assertEquals(contexts.get(0), contexts.get(1));
+    assertEquals(contexts.get(0), contexts.get(2));
+    assertEquals(1, pool.size());
+  }
+  
+  public void testDistinctProblemsAreKept() throws Exception {
+    ProblemPool pool = new ProblemPool();
+    Throwable throwable = brokenBaseModule();
+    CodeProblem creation = pool.intern(new CreationProblem(throwable));
+    CodeProblem injector = pool.intern(new InjectorProblem(throwable));
+    CodeProblem other = pool.intern(new CreationProblem(
+        new IllegalStateException("another module")));
+    assertNotSame(creation, injector);
+    assertNotSame(creation, other);
+    assertEquals(3, pool.size());
+  }
+  
+  public void testStackTraceIsMaterialized() throws Exception {
+    Throwable throwable = brokenBaseModule();
+    CodeProblem problem = new ProblemPool().intern(new CreationProblem(throwable));
+    assertTrue(Arrays.equals(throwable.getStackTrace(), problem.getStackTrace()));
+    assertNotSame(problem.getStackTrace(), problem.getStackTrace());
+  }
+  
+  public void testInternedProblemSerializesItsStackTrace() throws Exception {
+    Throwable throwable = brokenBaseModule();
+    CodeProblem problem = new ProblemPool().intern(new CreationProblem(throwable));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(problem);
+    out.close();
+    CodeProblem read = (CodeProblem)new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertEquals(problem.getMessage(), read.getMessage());
+    assertTrue(Arrays.equals(throwable.getStackTrace(), read.getStackTrace()));
+  }
+}
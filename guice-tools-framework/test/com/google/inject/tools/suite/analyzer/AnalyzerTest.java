@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.analyzer;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.inject.tools.suite.SampleModuleScenario;
+import com.google.inject.tools.suite.SampleModuleScenario.BrokenModule;
+import com.google.inject.tools.suite.SampleModuleScenario.ModuleWithArguments;
+import com.google.inject.tools.suite.SampleModuleScenario.Service;
+import com.google.inject.tools.suite.SampleModuleScenario.WorkingModule;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test the {@link Analyzer} on the modules of the sample scenario.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class AnalyzerTest extends TestCase {
+  private static final String CLASSPATH = System.getProperty("java.class.path");
+  
+  private final Analyzer.ConsoleMessenger messenger =
+      new Analyzer.ConsoleMessenger(System.err, false);
+  
+  public void testParseOptions() throws Exception {
+    Analyzer.Options options = Analyzer.Options.parse("-cp", "a.jar", "-jvms", "3",
+        "-J-Xmx256m", "-custom", "a.B#modules", "-package", "a",
+        "a.Module1", "a.Module2");
+    assertEquals("a.jar", options.getClasspath());
+    assertEquals(3, options.getVirtualMachines());
+    assertEquals(Collections.singletonList("-Xmx256m"), options.getJavaFlags());
+    assertEquals(Collections.singletonList("a.B#modules"), options.getCustomContexts());
+    assertEquals(Collections.singletonList("a"), options.getPackages());
+    assertEquals(2, options.getModules().size());
+    assertNull(options.getOutput());
+  }
+  
+  public void testParseRejectsBadUsage() throws Exception {
+    for (String[] args : new String[][] {{"-classpath"}, {"-jvms", "0"},
+        {"-custom", "a.B"}, {"-unknown"}}) {
+      try {
+        Analyzer.Options.parse(args);
+        fail("Accepted " + args[0]);
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+  
+  public void testScannerFindsCreatableModules() throws Exception {
+    AnalyzerJavaManager javaManager = new AnalyzerJavaManager(
+        Analyzer.Options.parse("-cp", CLASSPATH));
+    File testClasses = new File(SampleModuleScenario.class.getProtectionDomain()
+        .getCodeSource().getLocation().toURI());
+    Set<String> modules = new ModuleScanner(messenger,
+        javaManager.getClasspathEntries(), Collections.singletonList(testClasses),
+        Collections.singletonList("com.google.inject.tools.suite")).findModules();
+    assertTrue(modules.contains(WorkingModule.class.getName()));
+    assertTrue(modules.contains(BrokenModule.class.getName()));
+    assertFalse(modules.contains(ModuleWithArguments.class.getName()));
+  }
+  
+  public void testAnalyzeReportsBindingsAndProblems() throws Exception {
+    // run the contexts with the flags this virtual machine was given
+    List<String> args = new ArrayList<String>();
+    for (String flag : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      args.add("-J" + flag);
+    }
+    Collections.addAll(args, "-cp", CLASSPATH, "-jvms", "2",
+        WorkingModule.class.getName(), BrokenModule.class.getName());
+    Analyzer.Options options = Analyzer.Options.parse(args.toArray(new String[0]));
+    StringWriter report = new StringWriter();
+    int status = new Analyzer(options, messenger).analyze(report);
+    assertEquals(Analyzer.PROBLEMS, status);
+    String xml = report.toString();
+    assertTrue(xml, xml.contains("<context name=\"" + WorkingModule.class.getName()
+        + "\" status=\"ok\">"));
+    assertTrue(xml, xml.contains("<context name=\"" + BrokenModule.class.getName()
+        + "\" status=\"problems\">"));
+    assertTrue(xml, xml.contains("key=\"interface " + Service.class.getName() + "\""));
+    assertTrue(xml, xml.contains("<problem "));
+  }
+  
+  public void testEscape() throws Exception {
+    assertEquals("&lt;a href=&quot;x&quot;&gt; &amp; b", 
+        ReportWriter.escape("<a href=\"x\"> & b"));
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.benchmark;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A timed operation of the tools suite, run at several sizes.
+ * 
+ * Each size is set up once, then the operation is run for a warmup period and
+ * for a measured period, and the mean time per operation is reported.  The
+ * periods and sizes come from the {@value #WARMUP_PROPERTY},
+ * {@value #TIME_PROPERTY} and {@value #SIZES_PROPERTY} system properties.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public abstract class Benchmark {
+  public static final String WARMUP_PROPERTY = "benchmark.warmup";
+  public static final String TIME_PROPERTY = "benchmark.time";
+  public static final String SIZES_PROPERTY = "benchmark.sizes";
+  
+  private static final long MILLIS = 1000 * 1000;
+  
+  /*
+   * Receives what every operation returns, so that the work is not optimized
+   * away.
+   */
+  private static volatile int sink;
+  
+  private final String name;
+  
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Prepare the operation for the given size.
+   */
+  protected abstract void setUp(int size) throws Exception;
+  
+  /**
+   * Run the operation once, returning something depending on its result.
+   */
+  protected abstract Object run() throws Exception;
+  
+  /**
+   * Release what the last size set up.
+   */
+  protected void tearDown() throws Exception {
+  }
+  
+  /**
+   * Return the mean nanoseconds per operation at the given size.
+   */
+  public double measure(int size) throws Exception {
+    setUp(size);
+    try {
+      loop(Long.getLong(WARMUP_PROPERTY, 1000) * MILLIS);
+      long measureNanos = Long.getLong(TIME_PROPERTY, 3000) * MILLIS;
+      long start = System.nanoTime();
+      long operations = loop(measureNanos);
+      return (double) (System.nanoTime() - start) / operations;
+    } finally {
+      tearDown();
+    }
+  }
+  
+  /*
+   * Run the operation until the given time has passed, at least once.
+   */
+  private long loop(long nanos) throws Exception {
+    long end = System.nanoTime() + nanos;
+    long operations = 0;
+    do {
+      Object result = run();
+      sink ^= System.identityHashCode(result);
+      operations++;
+    } while (System.nanoTime() < end);
+    return operations;
+  }
+  
+  /**
+   * Return the sizes to run at, 10, 100 and 1000 unless the
+   * {@value #SIZES_PROPERTY} system property lists others.
+   */
+  public static List<Integer> sizes() {
+    List<Integer> sizes = new ArrayList<Integer>();
+    for (String size : System.getProperty(SIZES_PROPERTY, "10,100,1000").split(",")) {
+      sizes.add(Integer.valueOf(size.trim()));
+    }
+    return sizes;
+  }
+  
+  /**
+   * Run the benchmarks whose names contain one of the filters, all of them if
+   * there are no filters, at every size and print a line for each.
+   */
+  public static void runAll(PrintStream out, String[] filters,
+      Benchmark... benchmarks) throws Exception {
+    out.println(String.format("%-45s %8s %16s", "Benchmark", "Size", "ns/op"));
+    for (Benchmark benchmark : benchmarks) {
+      if (matches(benchmark.getName(), filters)) {
+        for (int size : sizes()) {
+          out.println(String.format("%-45s %8d %16.1f", benchmark.getName(), size,
+              benchmark.measure(size)));
+        }
+      }
+    }
+  }
+  
+  private static boolean matches(String name, String[] filters) {
+    if (filters.length == 0) {
+      return true;
+    }
+    for (String filter : filters) {
+      if (name.contains(filter)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
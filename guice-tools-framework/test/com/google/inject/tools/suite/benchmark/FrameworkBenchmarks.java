@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.binder.AnnotatedBindingBuilder;
+import com.google.inject.tools.suite.Fakes.FakeMessenger;
+import com.google.inject.tools.suite.GuiceToolsModule;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.code.CodeRunner;
+import com.google.inject.tools.suite.code.CodeRunnerFactory;
+import com.google.inject.tools.suite.module.ModuleContextRepresentation;
+import com.google.inject.tools.suite.module.ModuleManager;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+import com.google.inject.tools.suite.snippets.ModuleContextSnippet;
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.InjectorRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+
+/**
+ * Benchmarks of the hot paths of the tools suite: running a context in a
+ * virtual machine of its own, sending its result back, representing its
+ * injector, looking up its bindings and telling the contexts their modules
+ * changed.  The size is the number of bindings of the context, or for the
+ * module changes the number of contexts.
+ * 
+ * Run with the names of the benchmarks to run, or none to run them all, as in
+ * <code>java -Dbenchmark.sizes=10,1000 FrameworkBenchmarks Result</code>.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class FrameworkBenchmarks {
+  /**
+   * The result of a context made of a {@link SizedModule}, computed in this
+   * virtual machine.
+   */
+  static ModuleContextSnippet.ModuleContextResult contextResult(String name,
+      int bindings) {
+    ModuleContextSnippet.ModuleContextResult result = new ModuleContextSnippet(
+        Collections.singleton(new ModuleContextSnippet.ModuleRepresentation(
+            new SizedModule(bindings))), name).getResult();
+    if (!result.getProblems().isEmpty()) {
+      throw new IllegalStateException("The context failed: " + result.getProblems());
+    }
+    return result;
+  }
+  
+  static Injector toolsInjector(final JavaManager javaManager) {
+    return Guice.createInjector(new GuiceToolsModule() {
+      @Override
+      protected void bindJavaManager(
+          AnnotatedBindingBuilder<JavaManager> bindJavaManager) {
+        bindJavaManager.toInstance(javaManager);
+      }
+      
+      @Override
+      protected void bindMessenger(
+          AnnotatedBindingBuilder<Messenger> bindMessenger) {
+        bindMessenger.to(FakeMessenger.class);
+      }
+    });
+  }
+  
+  /**
+   * Runs a context of a {@link SizedModule} through a code runner, from
+   * starting the virtual machine to reading its result back.
+   */
+  static class CodeRunnerRoundTrip extends Benchmark {
+    private CodeRunnerFactory codeRunnerFactory;
+    private JavaManager javaManager;
+    
+    public CodeRunnerRoundTrip() {
+      super("CodeRunner round trip");
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      javaManager = new ClasspathJavaManager(size);
+      codeRunnerFactory = toolsInjector(javaManager).getInstance(CodeRunnerFactory.class);
+    }
+    
+    @Override
+    protected Object run() throws Exception {
+      CodeRunner codeRunner = codeRunnerFactory.create(javaManager);
+      codeRunner.queue(new SizedContextRunnable(codeRunner));
+      List<CodeSnippetResult> results = codeRunner.runAsync("Benchmark", true).get();
+      if (results.isEmpty()) {
+        throw new IllegalStateException("The context did not run");
+      }
+      return results.get(0);
+    }
+  }
+  
+  /*
+   * Runs the sized module as a context, as the module manager would.
+   */
+  private static class SizedContextRunnable extends CodeRunner.Runnable {
+    public SizedContextRunnable(CodeRunner codeRunner) {
+      super(codeRunner);
+    }
+    
+    @Override
+    public String label() {
+      return "Running sized context";
+    }
+    
+    @Override
+    protected String getFullyQualifiedSnippetClass() {
+      return ModuleContextSnippet.class.getName();
+    }
+    
+    @Override
+    protected List<? extends Object> getSnippetArguments() {
+      return Arrays.asList(SizedModule.class.getName(), "1",
+          SizedModule.class.getName(), "0");
+    }
+  }
+  
+  /*
+   * The classpath and flags of this virtual machine, telling the sized module
+   * how many bindings to make.
+   */
+  private static class ClasspathJavaManager implements JavaManager {
+    private final int bindings;
+    
+    public ClasspathJavaManager(int bindings) {
+      this.bindings = bindings;
+    }
+    
+    public String getJavaCommand() {
+      return System.getProperty("java.home") + File.separator + "bin"
+          + File.separator + "java";
+    }
+    
+    public List<String> getJavaFlags() {
+      List<String> flags = new ArrayList<String>();
+      for (String flag : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+        if (!flag.startsWith("-D" + SizedModule.BINDINGS_PROPERTY + "=")) {
+          flags.add(flag);
+        }
+      }
+      flags.add("-D" + SizedModule.BINDINGS_PROPERTY + "=" + bindings);
+      return flags;
+    }
+    
+    public String getProjectClasspath() {
+      return System.getProperty("java.class.path");
+    }
+    
+    public String getGuiceClasspath() {
+      return "";
+    }
+    
+    public String getSnippetsClasspath() {
+      return "";
+    }
+    
+    public String getClasspathDelimiter() {
+      return File.pathSeparator;
+    }
+  }
+  
+  /**
+   * Writes the result of a context as the snippet does with
+   * {@link com.google.inject.tools.suite.snippets.CodeSnippet#printResult},
+   * once the result has been computed.
+   */
+  static class ResultEncoding extends Benchmark {
+    private CodeSnippetResult result;
+    
+    public ResultEncoding() {
+      super("ModuleContextResult encode");
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      result = contextResult("Encoded", size);
+    }
+    
+    @Override
+    protected Object run() throws Exception {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(result);
+      out.close();
+      return bytes;
+    }
+  }
+  
+  /**
+   * Reads the result of a context back, as the code runner does.
+   */
+  static class ResultDecoding extends Benchmark {
+    private byte[] bytes;
+    
+    public ResultDecoding() {
+      super("ModuleContextResult decode");
+    }
+    
+    @Override
+    protected void setUp(int size) throws Exception {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new ModuleContextSnippet(Collections.singleton(
+          new ModuleContextSnippet.ModuleRepresentation(new SizedModule(size))),
+          "Decoded").printResult(out);
+      bytes = out.toByteArray();
+    }
+    
+    @Override
+    protected Object run() throws Exception {
+      return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+  }
+  
+  /**
+   * Creates the injector of a module and represents its bindings, the bulk of
+   * what a context snippet does.
+   */
+  static class InjectorRepresentationConstruction extends Benchmark {
+    private Module module;
+    
+    public InjectorRepresentationConstruction() {
+      super("InjectorRepresentation construction");
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      module = new SizedModule(size);
+    }
+    
+    @Override
+    protected Object run() {
+      return new InjectorRepresentation(Collections.singleton(module));
+    }
+  }
+  
+  /**
+   * Looks up the bindings of a context, as the find bindings action does.
+   */
+  abstract static class Lookup extends Benchmark {
+    protected ModuleContextRepresentation context;
+    protected String[] classes;
+    protected String[] annotations;
+    protected int next;
+    
+    protected Lookup(String name) {
+      super(name);
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      ModuleManager moduleManager =
+          toolsInjector(new ClasspathJavaManager(size)).getInstance(ModuleManager.class);
+      moduleManager.setRunAutomatically(false);
+      context = moduleManager.createModuleContext("Lookup");
+      // deliver the result as the code runner would
+      ((CodeRunner.CodeRunListener) context).acceptCodeRunResult(
+          contextResult("Lookup", size));
+      Map<KeyRepresentation, BindingRepresentation> bindings = context.getBindings();
+      classes = new String[bindings.size()];
+      annotations = new String[bindings.size()];
+      int i = 0;
+      for (KeyRepresentation key : bindings.keySet()) {
+        String bindWhat = key.bindWhat();
+        classes[i] = bindWhat.substring(bindWhat.indexOf(' ') + 1);
+        annotations[i] = key.annotatedWith();
+        i++;
+      }
+      next = 0;
+    }
+    
+    protected int nextKey() {
+      next = next + 1 < classes.length ? next + 1 : 0;
+      return next;
+    }
+  }
+  
+  static class FindLocation extends Lookup {
+    public FindLocation() {
+      super("ModuleContextRepresentation.findLocation");
+    }
+    
+    @Override
+    protected Object run() {
+      int key = nextKey();
+      return context.findLocation(classes[key], annotations[key]);
+    }
+  }
+  
+  static class FindLocations extends Lookup {
+    public FindLocations() {
+      super("ModuleContextRepresentation.findLocations");
+    }
+    
+    @Override
+    protected Object run() {
+      return context.findLocations(classes[nextKey()]);
+    }
+  }
+  
+  /**
+   * Tells a workspace of contexts that modules changed: one module in one
+   * context, and a module shared by all of them.
+   */
+  abstract static class ModuleChanged extends Benchmark {
+    protected ModuleManager moduleManager;
+    protected int contexts;
+    
+    protected ModuleChanged(String name) {
+      super(name);
+    }
+    
+    @Override
+    protected void setUp(int size) {
+      moduleManager = toolsInjector(new ClasspathJavaManager(0))
+          .getInstance(ModuleManager.class);
+      moduleManager.setRunAutomatically(false);
+      contexts = size;
+      for (int i = 0; i < size; i++) {
+        moduleManager.createModuleContext("Context" + i)
+            .addModule("Module" + i).addModule("SharedModule");
+      }
+    }
+  }
+  
+  static class OneModuleChanged extends ModuleChanged {
+    private int next;
+    
+    public OneModuleChanged() {
+      super("ModuleManager.moduleChanged (one context)");
+    }
+    
+    @Override
+    protected Object run() {
+      next = next + 1 < contexts ? next + 1 : 0;
+      moduleManager.moduleChanged("Module" + next);
+      return moduleManager;
+    }
+  }
+  
+  static class SharedModuleChanged extends ModuleChanged {
+    public SharedModuleChanged() {
+      super("ModuleManager.moduleChanged (all contexts)");
+    }
+    
+    @Override
+    protected Object run() {
+      moduleManager.moduleChanged("SharedModule");
+      return moduleManager;
+    }
+  }
+  
+  public static void main(String[] args) throws Exception {
+    Benchmark.runAll(System.out, args,
+        new CodeRunnerRoundTrip(),
+        new ResultEncoding(),
+        new ResultDecoding(),
+        new InjectorRepresentationConstruction(),
+        new FindLocation(),
+        new FindLocations(),
+        new OneModuleChanged(),
+        new SharedModuleChanged());
+    System.exit(0);
+  }
+}
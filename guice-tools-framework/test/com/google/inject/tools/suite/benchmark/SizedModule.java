@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.name.Names;
+import com.google.inject.tools.suite.SampleModuleScenario.Service;
+import com.google.inject.tools.suite.SampleModuleScenario.ServiceImpl;
+
+/**
+ * A module making a given number of bindings, a mix of linked, constant,
+ * instance and provider bindings of the same few types under different names.
+ * 
+ * Created by its default constructor, as the snippets do, it makes the number
+ * of bindings given by the {@value #BINDINGS_PROPERTY} system property.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class SizedModule extends AbstractModule {
+  public static final String BINDINGS_PROPERTY = "benchmark.bindings";
+  
+  private final int bindings;
+  
+  public SizedModule() {
+    this(Integer.getInteger(BINDINGS_PROPERTY, 100));
+  }
+  
+  public SizedModule(int bindings) {
+    this.bindings = bindings;
+  }
+  
+  public static class ServiceProvider implements Provider<Service> {
+    public Service get() {
+      return new ServiceImpl();
+    }
+  }
+  
+  @Override
+  protected void configure() {
+    for (int i = 0; i < bindings; i++) {
+      switch (i % 4) {
+        case 0:
+          bind(Key.get(Service.class, Names.named("linked" + i))).to(ServiceImpl.class);
+          break;
+        case 1:
+          bindConstant().annotatedWith(Names.named("constant" + i)).to(i);
+          break;
+        case 2:
+          bind(Key.get(String.class, Names.named("instance" + i))).toInstance("value" + i);
+          break;
+        default:
+          bind(Key.get(Service.class, Names.named("provided" + i)))
+              .toProvider(ServiceProvider.class);
+          break;
+      }
+    }
+  }
+}
@@ -107,6 +107,19 @@ public class CodeRunnerTest extends TestCase implements
     assertTrue(hitDone);
   }
 
+  public void testCodeRunnerAsync() throws Exception {
+    CodeRunner runner = new CodeRunnerImpl(new FakeJavaProject(),
+        new FakeProgressHandler(), new FakeMessenger());
+    runner.addListener(this);
+    for (int i = 0; i < 3; i++) {
+      runner.queue(new TestRunnable(runner, 100));
+    }
+    List<CodeSnippetResult> results = runner.runAsync("", false).get();
+    assertEquals(3, results.size());
+    assertTrue(runner.isDone());
+    assertTrue(hitDone);
+  }
+
   public void acceptCodeRunResult(CodeSnippetResult result) {
     hitResult = true;
     assertTrue(result instanceof TestSnippet.TestSnippetResult);
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import com.google.inject.Module;
+import com.google.inject.tools.suite.Fakes.FakeJavaManager;
+import com.google.inject.tools.suite.Fakes.FakeMessenger;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.SampleModuleScenario.BrokenModule;
+import com.google.inject.tools.suite.SampleModuleScenario.MockInjectedInterface;
+import com.google.inject.tools.suite.SampleModuleScenario.Service;
+import com.google.inject.tools.suite.SampleModuleScenario.WorkingModule;
+import com.google.inject.tools.suite.SampleModuleScenario.WorkingModule2;
+import com.google.inject.tools.suite.module.ModuleContextRepresentation.ModuleInstanceRepresentation;
+import com.google.inject.tools.suite.snippets.BindingCodeLocation;
+import com.google.inject.tools.suite.snippets.ModuleContextSnippet;
+import com.google.inject.tools.suite.snippets.problems.CodeProblem;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test writing, finding and loading a {@link BindingIndex}.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class BindingIndexTest extends TestCase {
+  private ModuleContextRepresentationImpl workingContext;
+  private ModuleContextRepresentationImpl brokenContext;
+  private ModuleContextRepresentationImpl unrunContext;
+  private File directory;
+  
+  @Override
+  protected void setUp() throws Exception {
+    workingContext = run(WorkingModule.class);
+    brokenContext = run(BrokenModule.class);
+    unrunContext = new ModuleContextRepresentationImpl("Never Run");
+    directory = File.createTempFile("bindings", "");
+    directory.delete();
+    directory.mkdir();
+  }
+  
+  @Override
+  protected void tearDown() throws Exception {
+    delete(directory);
+  }
+  
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+  
+  private static ModuleContextRepresentationImpl run(
+      Class<? extends Module> moduleClass) {
+    ModuleContextRepresentationImpl context = context(moduleClass);
+    context.acceptCodeRunResult(new ModuleContextSnippet(
+        Collections.singleton(new ModuleContextSnippet.ModuleRepresentation(
+            moduleClass, null, null)), moduleClass.getName()).getResult());
+    return context;
+  }
+  
+  private static ModuleContextRepresentationImpl context(
+      Class<? extends Module> moduleClass) {
+    ModuleContextRepresentationImpl context =
+        new ModuleContextRepresentationImpl(moduleClass.getName());
+    context.add(new ModuleInstanceRepresentation(moduleClass.getName()));
+    return context;
+  }
+  
+  /*
+   * A project whose classpath is the given entries followed by the classpath
+   * of this virtual machine.
+   */
+  private static JavaManager project(final String... entries) {
+    return new FakeJavaManager() {
+      @Override
+      public String getProjectClasspath() {
+        StringBuilder classpath = new StringBuilder();
+        for (String entry : entries) {
+          classpath.append(entry).append(File.pathSeparator);
+        }
+        return classpath + System.getProperty("java.class.path");
+      }
+      
+      @Override
+      public String getClasspathDelimiter() {
+        return File.pathSeparator;
+      }
+    };
+  }
+  
+  private BindingIndex writeAndRead() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BindingIndex.write(out,
+        Arrays.asList(workingContext, brokenContext, unrunContext), project());
+    return BindingIndex.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+  
+  private File writeJar(String name) throws Exception {
+    File jar = new File(directory, name);
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      out.putNextEntry(new ZipEntry(BindingIndex.RESOURCE));
+      BindingIndex.write(out, Collections.singleton(workingContext),
+          project());
+      out.closeEntry();
+    } finally {
+      out.close();
+    }
+    return jar;
+  }
+  
+  public void testWriteAndRead() throws Exception {
+    BindingIndex index = writeAndRead();
+    assertEquals(2, index.getContextNames().size());
+    assertFalse(index.contains(unrunContext.getName()));
+    for (ModuleContextRepresentationImpl context : Arrays.asList(workingContext,
+        brokenContext)) {
+      assertEquals(context.getProblems().toString(),
+          index.getProblems(context.getName()).toString());
+      assertEquals(context.getBindings().keySet(),
+          index.getBindings(context.getName()).keys());
+    }
+    assertTrue(index.getProblems(WorkingModule.class.getName()).isEmpty());
+    assertFalse(index.getProblems(BrokenModule.class.getName()).isEmpty());
+    CodeProblem problem = brokenContext.getProblems().iterator().next();
+    CodeProblem indexed =
+        index.getProblems(BrokenModule.class.getName()).iterator().next();
+    assertEquals(problem.getClass(), indexed.getClass());
+    assertEquals(problem.getMessage(), indexed.getMessage());
+    assertEquals(problem.getStackTrace().length,
+        indexed.getStackTrace().length);
+    for (int i = 0; i < problem.getStackTrace().length; i++) {
+      StackTraceElement frame = problem.getStackTrace()[i];
+      StackTraceElement indexedFrame = indexed.getStackTrace()[i];
+      assertEquals(frame.getClassName(), indexedFrame.getClassName());
+      assertEquals(frame.getMethodName(), indexedFrame.getMethodName());
+      assertEquals(frame.getLineNumber(), indexedFrame.getLineNumber());
+    }
+  }
+  
+  public void testRejectsOtherFiles() throws Exception {
+    try {
+      BindingIndex.read(
+          new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+      fail("Read a file that is not an index");
+    } catch (IOException expected) {
+    }
+  }
+  
+  public void testContextLoadsFromIndexUntilChanged() throws Exception {
+    BindingIndex index = writeAndRead();
+    ModuleContextRepresentationImpl context = context(WorkingModule.class);
+    assertTrue(context.isDirty());
+    assertTrue(context.loadIndexed(index));
+    assertFalse(context.isDirty());
+    assertTrue(context.getProblems().isEmpty());
+    assertTrue(context.findLocation(MockInjectedInterface.class.getName(), null)
+        instanceof BindingCodeLocation);
+    assertEquals(2, context.findLocations(Service.class.getName()).size());
+    context.markDirty();
+    assertFalse(context.loadIndexed(index));
+    assertFalse(
+        new ModuleContextRepresentationImpl("Not Indexed").loadIndexed(index));
+  }
+  
+  public void testContextOfOtherModulesIsNotLoaded() throws Exception {
+    BindingIndex index = writeAndRead();
+    ModuleContextRepresentationImpl context = context(WorkingModule.class);
+    context.add(
+        new ModuleInstanceRepresentation(WorkingModule2.class.getName()));
+    assertFalse(context.loadIndexed(index));
+    assertTrue(context.isDirty());
+  }
+  
+  public void testFindInJarsOnProjectClasspath() throws Exception {
+    File jar = writeJar("library.jar");
+    JavaManager project = project("no-such.jar", jar.getPath());
+    BindingIndex index = BindingIndex.find(project, new FakeMessenger());
+    assertEquals(Collections.singleton(WorkingModule.class.getName()),
+        index.getContextNames());
+    assertTrue(index.isFor(project));
+    assertFalse(index.isFor(project(jar.getPath())));
+  }
+  
+  public void testIgnoresIndexesInClassFolders() throws Exception {
+    File file = new File(directory, BindingIndex.RESOURCE);
+    file.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(file);
+    try {
+      BindingIndex.write(out, Collections.singleton(workingContext),
+          project());
+    } finally {
+      out.close();
+    }
+    assertTrue(BindingIndex.find(project(directory.getPath()),
+        new FakeMessenger()).getContextNames().isEmpty());
+  }
+  
+  public void testIgnoresContextsWhoseClassesChanged() throws Exception {
+    File jar = writeJar("library.jar");
+    File classes = new File(directory, "classes");
+    File classFile = new File(classes,
+        WorkingModule.class.getName().replace('.', '/') + ".class");
+    classFile.getParentFile().mkdirs();
+    OutputStream out = new FileOutputStream(classFile);
+    try {
+      out.write(new byte[] {1, 2, 3});
+    } finally {
+      out.close();
+    }
+    assertTrue(BindingIndex.find(project(classes.getPath(), jar.getPath()),
+        new FakeMessenger()).getContextNames().isEmpty());
+  }
+  
+  public void testFindWithoutClasspath() throws Exception {
+    assertTrue(BindingIndex.find(new FakeJavaManager(), new FakeMessenger())
+        .getContextNames().isEmpty());
+  }
+}
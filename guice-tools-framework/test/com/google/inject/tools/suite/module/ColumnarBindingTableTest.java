@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.module;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.inject.Module;
+import com.google.inject.tools.suite.SampleModuleScenario.MockInjectedInterface;
+import com.google.inject.tools.suite.SampleModuleScenario.Service;
+import com.google.inject.tools.suite.SampleModuleScenario.WorkingModule;
+import com.google.inject.tools.suite.snippets.bindings.BindingRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.InjectorRepresentation;
+import com.google.inject.tools.suite.snippets.bindings.KeyRepresentation;
+import com.google.inject.tools.suite.snippets.problems.KeyProblem;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test the {@link ColumnarBindingTable} against the bindings it was built
+ * from.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class ColumnarBindingTableTest extends TestCase {
+  private Map<KeyRepresentation, BindingRepresentation> bindings;
+  private ColumnarBindingTable table;
+  
+  @Override
+  protected void setUp() throws Exception {
+    bindings = new InjectorRepresentation(
+        Collections.<Module>singleton(new WorkingModule())).bindings();
+    table = new ColumnarBindingTable(bindings);
+  }
+  
+  public void testEveryBindingIsFound() throws Exception {
+    assertEquals(bindings.size(), table.size());
+    for (KeyRepresentation key : bindings.keySet()) {
+      BindingRepresentation expected = bindings.get(key);
+      BindingRepresentation binding = table.get(key);
+      if (expected == null) {
+        assertNull(binding);
+      } else {
+        assertEquals(expected, binding);
+        assertEquals(expected.toString(), binding.toString());
+        assertEquals(expected.boundTo(), binding.boundTo());
+        assertEquals(expected.boundProvider(), binding.boundProvider());
+        assertEquals(expected.boundInstance(), binding.boundInstance());
+        assertEquals(expected.problems(), binding.problems());
+        assertEquals(key, binding.key());
+        if (expected.stackTrace() == null) {
+          assertNull(binding.stackTrace());
+        } else {
+          assertEquals(expected.stackTrace()[0].toString(),
+              binding.stackTrace()[0].toString());
+        }
+      }
+    }
+  }
+  
+  public void testKeys() throws Exception {
+    assertEquals(bindings.keySet(), table.keys());
+    assertEquals(bindings.keySet(), new MapBindingTable(bindings).keys());
+  }
+  
+  public void testKeysBinding() throws Exception {
+    String service = "interface " + Service.class.getName();
+    assertEquals(new MapBindingTable(bindings).keysBinding(service),
+        table.keysBinding(service));
+    assertEquals(2, table.keysBinding(service).size());
+    assertTrue(table.keysBinding("interface not.Bound").isEmpty());
+  }
+  
+  public void testMissingKeys() throws Exception {
+    String injected = "interface " + MockInjectedInterface.class.getName();
+    assertNotNull(table.get(new KeyRepresentation(injected, null)));
+    assertNull(table.get(new KeyRepresentation(injected, "@not.Bound")));
+    assertNull(table.get(new KeyRepresentation("interface not.Bound", null)));
+  }
+  
+  public void testWriteAndRead() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    table.write(out);
+    out.close();
+    ColumnarBindingTable read = ColumnarBindingTable.read(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(table.size(), read.size());
+    assertEquals(table.keys(), read.keys());
+    for (KeyRepresentation key : bindings.keySet()) {
+      BindingRepresentation binding = read.get(key);
+      assertEquals(table.get(key), binding);
+      if (binding != null) {
+        assertEquals(table.get(key).toString(), binding.toString());
+      }
+    }
+  }
+  
+  public void testWriteAndReadRowsOnHeap() throws Exception {
+    KeyRepresentation brokenKey =
+        new KeyRepresentation("interface broken.Key", null) {
+      {
+        problems.add(new KeyProblem("interface broken.Key",
+            new Exception("broken key")));
+      }
+    };
+    final BindingRepresentation target =
+        table.get(bindings.keySet().iterator().next());
+    BindingRepresentation linked = new BindingRepresentation(target) {
+      @Override
+      public BindingRepresentation linkedTo() {
+        return target;
+      }
+    };
+    Map<KeyRepresentation, BindingRepresentation> onHeap =
+        new HashMap<KeyRepresentation, BindingRepresentation>();
+    onHeap.put(brokenKey, null);
+    onHeap.put(new KeyRepresentation("interface linked.Key", null), linked);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    new ColumnarBindingTable(onHeap).write(out);
+    out.close();
+    ColumnarBindingTable read = ColumnarBindingTable.read(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    KeyRepresentation readKey = read.keysBinding("interface broken.Key")
+        .iterator().next();
+    assertEquals(1, readKey.problems().size());
+    assertEquals(brokenKey.problems().iterator().next().toString(),
+        readKey.problems().iterator().next().toString());
+    BindingRepresentation readLinked =
+        read.get(new KeyRepresentation("interface linked.Key", null));
+    assertEquals(linked.toString(), readLinked.toString());
+    assertEquals(target, readLinked.linkedTo());
+  }
+  
+  public void testReadRejectsCorruptTables() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    table.write(out);
+    out.close();
+    byte[] written = bytes.toByteArray();
+    ByteBuffer.wrap(written).putInt(0, Integer.MAX_VALUE);
+    assertUnreadable(written);
+    ByteBuffer.wrap(written).putInt(0, -2);
+    assertUnreadable(written);
+    ByteBuffer.wrap(written).putInt(0, table.size() - 1);
+    assertUnreadable(written);
+  }
+  
+  private void assertUnreadable(byte[] bytes) {
+    try {
+      ColumnarBindingTable.read(
+          new DataInputStream(new ByteArrayInputStream(bytes)));
+      fail("Read a corrupt binding table");
+    } catch (IOException expected) {
+    }
+  }
+  
+  public void testRowsSerializeWithoutTheTable() throws Exception {
+    for (KeyRepresentation key : bindings.keySet()) {
+      BindingRepresentation binding = table.get(key);
+      if (binding == null) {
+        continue;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(binding);
+      out.close();
+      ObjectInputStream in = new ObjectInputStream(
+          new ByteArrayInputStream(bytes.toByteArray()));
+      BindingRepresentation copy = (BindingRepresentation) in.readObject();
+      assertEquals(binding, copy);
+      assertEquals(binding.toString(), copy.toString());
+      assertEquals(key, copy.key());
+    }
+  }
+  
+  public void testEmptyTable() throws Exception {
+    ColumnarBindingTable empty = new ColumnarBindingTable(
+        new HashMap<KeyRepresentation, BindingRepresentation>());
+    assertEquals(0, empty.size());
+    assertNull(empty.get(new KeyRepresentation("interface not.Bound", null)));
+  }
+}
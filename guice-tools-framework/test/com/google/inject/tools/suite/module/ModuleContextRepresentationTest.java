@@ -37,7 +37,11 @@ import junit.framework.TestCase;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Unit test the {@link ModuleContextRepresentationImpl}.
@@ -132,6 +136,20 @@ public class ModuleContextRepresentationTest extends TestCase {
       run(label, true);
     }
 
+    public Future<List<CodeSnippetResult>> runAsync(String label,
+        boolean backgroundAutomatically) {
+      final CodeSnippetResult result = simulatedSnippetResult();
+      FutureTask<List<CodeSnippetResult>> future =
+          new FutureTask<List<CodeSnippetResult>>(new Callable<List<CodeSnippetResult>>() {
+            public List<CodeSnippetResult> call() {
+              notifyResult(null, result);
+              return Collections.singletonList(result);
+            }
+          });
+      future.run();
+      return future;
+    }
+
     private ModuleContextSnippet.ModuleContextResult simulatedSnippetResult() {
       Map<Key<?>, Binding<?>> bindings = new HashMap<Key<?>, Binding<?>>();
       Binding<?> binding =
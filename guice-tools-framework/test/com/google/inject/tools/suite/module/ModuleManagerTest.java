@@ -34,6 +34,8 @@ import junit.framework.TestCase;
 
 import org.easymock.EasyMock;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -87,6 +89,142 @@ public class ModuleManagerTest extends TestCase {
     assertTrue(moduleManager.getModuleContexts().isEmpty());
   }
 
+  /**
+   * Test that the sets handed out are snapshots unaffected by later changes.
+   */
+  public void testModuleContextSnapshots() throws Exception {
+    JavaManager project = new FakeJavaManager();
+    ModuleContextRepresentation firstContext =
+        new ModuleContextRepresentationImpl("First Context");
+    ModuleContextRepresentation secondContext =
+        new ModuleContextRepresentationImpl("Second Context");
+
+    Injector injector =
+        Guice.createInjector(new MockingGuiceToolsModule()
+            .useRealModuleManager()
+            .useCodeRunner(new FakeCodeRunner()));
+
+    ModuleManagerImpl moduleManager = (ModuleManagerImpl)
+        injector.getInstance(ModuleManagerFactory.class).create(project);
+    moduleManager.setRunAutomatically(false);
+    moduleManager.addModuleContext(firstContext, true);
+    Set<ModuleContextRepresentation> contexts = moduleManager.getModuleContexts();
+    Set<ModuleContextRepresentation> activeContexts =
+        moduleManager.getActiveModuleContexts();
+    assertSame(contexts, moduleManager.getModuleContexts());
+    moduleManager.addModuleContext(secondContext, true);
+    moduleManager.deactivateModuleContext(firstContext);
+    assertEquals(1, contexts.size());
+    assertTrue(activeContexts.contains(firstContext));
+    assertEquals(2, moduleManager.getModuleContexts().size());
+    assertFalse(moduleManager.getActiveModuleContexts().contains(firstContext));
+    assertTrue(moduleManager.getActiveModuleContexts().contains(secondContext));
+    try {
+      contexts.clear();
+      fail("Module context snapshots should be unmodifiable");
+    } catch (UnsupportedOperationException expected) {}
+  }
+
+  /**
+   * Test that module changes reach exactly the contexts containing the module,
+   * including modules a context discovers after it was added.
+   */
+  public void testModuleChangedMarksContainingContexts() throws Exception {
+    JavaManager project = new FakeJavaManager();
+    Injector injector =
+        Guice.createInjector(new MockingGuiceToolsModule()
+            .useRealModuleManager()
+            .useCodeRunner(new FakeCodeRunner()));
+    ModuleManagerImpl moduleManager = (ModuleManagerImpl)
+        injector.getInstance(ModuleManagerFactory.class).create(project);
+    moduleManager.setRunAutomatically(false);
+    RecordingModuleContext firstContext = new RecordingModuleContext("First");
+    firstContext.addModule("FirstModule");
+    RecordingModuleContext secondContext = new RecordingModuleContext("Second");
+    moduleManager.addModuleContext(firstContext, true);
+    moduleManager.addModuleContext(secondContext, true);
+    secondContext.addModule("SecondModule");
+    assertSame(secondContext, moduleManager.getModuleContext("Second"));
+
+    moduleManager.moduleChanged("SecondModule");
+    assertEquals(0, firstContext.markedDirty);
+    assertEquals(1, secondContext.markedDirty);
+
+    moduleManager.removeModuleContext("Second");
+    moduleManager.moduleChanged("SecondModule");
+    moduleManager.moduleChanged("FirstModule");
+    assertEquals(1, firstContext.markedDirty);
+    assertEquals(1, secondContext.markedDirty);
+    assertNull(moduleManager.getModuleContext("Second"));
+  }
+
+  public void testModulesChangedMarksEachContextOnce() throws Exception {
+    JavaManager project = new FakeJavaManager();
+    Injector injector =
+        Guice.createInjector(new MockingGuiceToolsModule()
+            .useRealModuleManager()
+            .useCodeRunner(new FakeCodeRunner()));
+    ModuleManagerImpl moduleManager = (ModuleManagerImpl)
+        injector.getInstance(ModuleManagerFactory.class).create(project);
+    moduleManager.setRunAutomatically(false);
+    RecordingModuleContext firstContext = new RecordingModuleContext("First");
+    firstContext.addModule("FirstModule");
+    firstContext.addModule("SharedModule");
+    RecordingModuleContext secondContext = new RecordingModuleContext("Second");
+    secondContext.addModule("SecondModule");
+    moduleManager.addModuleContext(firstContext, true);
+    moduleManager.addModuleContext(secondContext, true);
+
+    moduleManager.modulesChanged(Arrays.asList("FirstModule", "SharedModule"));
+    assertEquals(1, firstContext.markedDirty);
+    assertEquals(0, secondContext.markedDirty);
+
+    moduleManager.modulesChanged(Collections.<String>emptySet());
+    assertEquals(1, firstContext.markedDirty);
+    assertEquals(0, secondContext.markedDirty);
+  }
+
+  /**
+   * Test that modules added in a batch appear together and skip duplicates.
+   */
+  public void testAddModules() throws Exception {
+    JavaManager project = new FakeJavaManager();
+    Injector injector =
+        Guice.createInjector(new MockingGuiceToolsModule()
+            .useRealModuleManager()
+            .useCodeRunner(new FakeCodeRunner()));
+    ModuleManagerImpl moduleManager = (ModuleManagerImpl)
+        injector.getInstance(ModuleManagerFactory.class).create(project);
+    moduleManager.setRunAutomatically(false);
+    moduleManager.addModule("FirstModule", false);
+    Set<ModuleRepresentation> modules = moduleManager.getModules();
+
+    moduleManager.addModules(
+        Arrays.asList("FirstModule", "SecondModule", "ThirdModule"), false);
+    assertEquals(1, modules.size());
+    Set<String> names = new HashSet<String>();
+    for (ModuleRepresentation module : moduleManager.getModules()) {
+      names.add(module.getName());
+    }
+    assertEquals(new HashSet<String>(
+        Arrays.asList("FirstModule", "SecondModule", "ThirdModule")), names);
+  }
+
+  private static class RecordingModuleContext
+      extends ModuleContextRepresentationImpl {
+    int markedDirty;
+
+    RecordingModuleContext(String name) {
+      super(name);
+    }
+
+    @Override
+    public void markDirty() {
+      markedDirty++;
+      super.markDirty();
+    }
+  }
+
   /**
    * Test that adding and removing modules works as expected.
    */
@@ -29,6 +29,10 @@ import com.google.inject.tools.suite.snippets.problems.CodeProblem;
 import junit.framework.TestCase;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Unit test the {@link ModuleRepresentationImpl}.
@@ -120,6 +124,20 @@ public class ModuleRepresentationTest extends TestCase {
       run(label, true);
     }
 
+    public Future<List<CodeSnippetResult>> runAsync(String label,
+        boolean backgroundAutomatically) {
+      final CodeSnippetResult result = simulatedSnippetResult();
+      FutureTask<List<CodeSnippetResult>> future =
+          new FutureTask<List<CodeSnippetResult>>(new Callable<List<CodeSnippetResult>>() {
+            public List<CodeSnippetResult> call() {
+              notifyResult(null, result);
+              return Collections.singletonList(result);
+            }
+          });
+      future.run();
+      return future;
+    }
+
     private ModuleSnippet.ModuleResult simulatedSnippetResult() {
       return new ModuleSnippet.ModuleResult(WorkingModule.class.getName(),
           Collections.<CodeProblem> emptySet(), true, Collections
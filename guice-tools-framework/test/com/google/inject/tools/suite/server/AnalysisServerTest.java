@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.inject.tools.suite.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.tools.suite.Fakes;
+import com.google.inject.tools.suite.JavaManager;
+import com.google.inject.tools.suite.SampleModuleScenario.BrokenModule;
+import com.google.inject.tools.suite.SampleModuleScenario.WorkingModule;
+import com.google.inject.tools.suite.code.RemoteSnippetRunner;
+import com.google.inject.tools.suite.snippets.CodeSnippetResult;
+import com.google.inject.tools.suite.snippets.ModuleContextSnippet;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test the {@link AnalysisServer} and {@link AnalysisClient} on a context
+ * of the sample scenario.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+public class AnalysisServerTest extends TestCase {
+  private static final String SNIPPET = ModuleContextSnippet.class.getName();
+  private static final List<String> ARGS = Arrays.asList(
+      WorkingModule.class.getName(), "1", WorkingModule.class.getName(), "0");
+  
+  private File classes;
+  private File tokenFile;
+  private AnalysisServer server;
+  private JavaManager project;
+  private WorkspaceSpec workspace;
+  
+  @Override
+  protected void setUp() throws Exception {
+    classes = File.createTempFile("classes", "");
+    classes.delete();
+    classes.mkdir();
+    tokenFile = new File(classes.getPath() + ".token");
+    server = AnalysisServer.create(0, tokenFile,
+        AnalysisServer.currentJavaCommand(),
+        ManagementFactory.getRuntimeMXBean().getInputArguments(), 2,
+        new Fakes.FakeMessenger(), AnalysisServer.DEFAULT_MAX_AGE);
+    server.start();
+    project = new ClasspathJavaManager(classes);
+    workspace = WorkspaceSpec.of(project);
+  }
+  
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop();
+    for (File file : classes.listFiles()) {
+      file.delete();
+    }
+    classes.delete();
+  }
+  
+  public void testRunsAreShared() throws Exception {
+    Workspace.SnippetRun first = request(-1);
+    assertNotNull(first.getResult());
+    Workspace.SnippetRun cached = request(-1);
+    assertEquals(first.getSequence(), cached.getSequence());
+    Workspace.SnippetRun rerun = request(first.getSequence());
+    assertNotNull(rerun.getResult());
+    assertTrue(rerun.getSequence() > first.getSequence());
+  }
+  
+  public void testChangedClassesAreRerun() throws Exception {
+    Workspace.SnippetRun first = request(-1);
+    Writer writer = new FileWriter(new File(classes, "Changed.class"));
+    writer.write("changed");
+    writer.close();
+    Workspace.SnippetRun rerun = request(-1);
+    assertNotNull(rerun.getResult());
+    assertTrue(rerun.getSequence() > first.getSequence());
+  }
+  
+  public void testTokenIsPrivate() throws Exception {
+    if (File.separatorChar == '/') {
+      Process ls = Runtime.getRuntime().exec(
+          new String[] {"ls", "-l", tokenFile.getPath()});
+      String listing = new BufferedReader(
+          new InputStreamReader(ls.getInputStream())).readLine();
+      assertTrue(listing, listing.startsWith("-rw-------"));
+    }
+  }
+  
+  public void testClientsWithoutTokenAreRefused() throws Exception {
+    File wrongToken = new File(classes, "wrong.token");
+    Writer writer = new FileWriter(wrongToken);
+    writer.write("wrong");
+    writer.close();
+    Socket socket = new Socket("127.0.0.1", server.getPort());
+    try {
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      ServerToken.read(wrongToken).authenticateServer(in, out);
+      fail("Server answered a client without its token");
+    } catch (IOException exception) {
+      // refused
+    } finally {
+      socket.close();
+    }
+    AnalysisClient client = new AnalysisClient(server.getPort(), wrongToken,
+        new Fakes.FakeMessenger());
+    assertNull(client.run(project, SNIPPET, ARGS));
+  }
+  
+  public void testOnlyResultClassesAreRead() throws Exception {
+    Workspace.SnippetRun run = request(Arrays.asList(
+        BrokenModule.class.getName(), "1", BrokenModule.class.getName(), "0"),
+        -1);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ServerProtocol.writeSnippetRun(new DataOutputStream(bytes), run);
+    DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    assertEquals(run.getSequence(), in.readLong());
+    CodeSnippetResult result = ServerProtocol.readSnippetResult(in);
+    assertFalse(run.getResult().getAllProblems().isEmpty());
+    assertEquals(run.getResult().getAllProblems().size(),
+        result.getAllProblems().size());
+    bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(new Date());
+    out.close();
+    try {
+      ServerProtocol.readResult(bytes.toByteArray());
+      fail("Read a date as a snippet result");
+    } catch (InvalidClassException exception) {
+      // refused
+    }
+  }
+  
+  public void testClientsAreToldOfNewResults() throws Exception {
+    final CountDownLatch changed = new CountDownLatch(1);
+    new AnalysisClient(server.getPort(), tokenFile, new Fakes.FakeMessenger())
+        .addResultListener(project, new RemoteSnippetRunner.ResultListener() {
+          public void resultChanged(String snippetClass, List<String> args) {
+            if (snippetClass.equals(SNIPPET) && args.equals(ARGS)) {
+              changed.countDown();
+            }
+          }
+        });
+    // the subscription is made in the background, so rerun until it is heard of
+    long sequence = request(-1).getSequence();
+    for (int i = 0; i < 10 && changed.getCount() > 0; i++) {
+      sequence = request(sequence).getSequence();
+      changed.await(1, TimeUnit.SECONDS);
+    }
+    assertEquals(0, changed.getCount());
+  }
+  
+  public void testClientRunsOnServer() throws Exception {
+    AnalysisClient client = new AnalysisClient(server.getPort(), tokenFile,
+        new Fakes.FakeMessenger());
+    assertNotNull(client.run(project, SNIPPET, ARGS));
+  }
+  
+  public void testClientFallsBackWithoutServer() throws Exception {
+    server.stop();
+    AnalysisClient client = new AnalysisClient(server.getPort(), tokenFile,
+        new Fakes.FakeMessenger());
+    assertNull(client.run(project, SNIPPET, ARGS));
+  }
+  
+  private Workspace.SnippetRun request(long newerThan) throws Exception {
+    return request(ARGS, newerThan);
+  }
+  
+  private Workspace.SnippetRun request(List<String> args, long newerThan)
+      throws Exception {
+    Socket socket = new Socket("127.0.0.1", server.getPort());
+    try {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      ServerToken.read(tokenFile).authenticateServer(in, out);
+      ServerProtocol.writeRunSnippet(out, workspace, SNIPPET, args, newerThan);
+      long sequence = in.readLong();
+      return new Workspace.SnippetRun(
+          ServerProtocol.readSnippetResult(in), sequence);
+    } finally {
+      socket.close();
+    }
+  }
+  
+  /*
+   * Runs the snippets on the classpath of this virtual machine and the given
+   * class folder.  The java command and flags are the server's business.
+   */
+  private static class ClasspathJavaManager implements JavaManager {
+    private final File classes;
+    
+    public ClasspathJavaManager(File classes) {
+      this.classes = classes;
+    }
+    
+    public String getJavaCommand() {
+      return "untrusted-java";
+    }
+    
+    public List<String> getJavaFlags() {
+      return new ArrayList<String>(Arrays.asList("-Duntrusted=true"));
+    }
+    
+    public String getProjectClasspath() {
+      return System.getProperty("java.class.path") + File.pathSeparator
+          + classes.getPath();
+    }
+    
+    public String getGuiceClasspath() {
+      return "";
+    }
+    
+    public String getSnippetsClasspath() {
+      return "";
+    }
+    
+    public String getClasspathDelimiter() {
+      return File.pathSeparator;
+    }
+  }
+}
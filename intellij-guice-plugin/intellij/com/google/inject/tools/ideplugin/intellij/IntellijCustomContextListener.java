@@ -14,35 +14,52 @@
  * the License.
  */
 
+
 package com.google.inject.tools.ideplugin.intellij;
 
-import java.util.Set;
-import java.util.Collections;
+import java.util.concurrent.ExecutorService;
 
 import com.google.inject.Inject;
+import com.google.inject.Module;
 import com.google.inject.tools.ideplugin.CustomContextDefinitionSource;
-import com.google.inject.tools.ideplugin.JavaProject;
-import com.google.inject.tools.ideplugin.AbstractSourceImpl;
 import com.google.inject.tools.suite.Messenger;
-import com.google.inject.tools.suite.ProgressHandler.ProgressMonitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiType;
 
-class IntellijCustomContextListener extends
-    AbstractSourceImpl implements CustomContextDefinitionSource {
-  public boolean isListeningForChanges() {
-    return false;
+/**
+ * IntelliJ implementation of the {@link CustomContextDefinitionSource}: the
+ * classes implementing Iterable&lt;Module&gt;.
+ * 
+ * {@inheritDoc CustomContextDefinitionSource}
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class IntellijCustomContextListener extends IntellijSourceImpl
+    implements CustomContextDefinitionSource {
+  @Inject
+  public IntellijCustomContextListener(Messenger messenger,
+      ExecutorService executor) {
+    super(messenger, executor);
   }
 
-  public void listenForChanges(boolean listenForChanges) {
+  @Override
+  protected String getTypeName() {
+    return Iterable.class.getName();
   }
 
-  @Inject
-  public IntellijCustomContextListener(Messenger messenger) {
-    super(messenger);
-  }
-  
   @Override
-  protected Set<String> locate(JavaProject javaProject, ProgressMonitor monitor)
-      throws Throwable {
-    return Collections.<String>emptySet();
+  protected boolean isTypeWeCareAbout(PsiClass psiClass) {
+    for (PsiClassType type : psiClass.getImplementsListTypes()) {
+      PsiClass resolved = type.resolve();
+      PsiType[] parameters = type.getParameters();
+      if (resolved != null
+          && Iterable.class.getName().equals(resolved.getQualifiedName())
+          && parameters.length == 1
+          && Module.class.getName().equals(parameters[0].getCanonicalText())) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -1,26 +1,67 @@
 package com.google.inject.tools.ideplugin.intellij;
 
+import com.google.inject.Guice;
 import com.google.inject.tools.ideplugin.JavaProject;
 import com.google.inject.tools.ideplugin.IDEPluginSettings;
+import com.google.inject.tools.suite.snippets.CodeSnippet;
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.projectRoots.ProjectJdk;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.OrderRootType;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 
+import net.sf.cglib.proxy.Enhancer;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Created by IntelliJ IDEA.
- * User: d
- * Date: Sep 21, 2007
- * Time: 9:44:05 PM
- * To change this template use File | Settings | File Templates.
+ * IntelliJ implementation of the {@link JavaProject}.
+ * 
+ * The classpath and java command of a project are worked out from its modules'
+ * order entries and its JDK the first time they are asked for, and kept until
+ * IntelliJ reports that the project roots changed or the project is closed.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
  */
 public class IntellijJavaProject extends JavaProject {
+  private static final ConcurrentMap<Project, ProjectPaths> projectPaths =
+      new ConcurrentHashMap<Project, ProjectPaths>();
+  private static volatile String guiceClasspath;
+
   private final Project project;
 
   public IntellijJavaProject(Project project) {
     this.project = project;
   }
 
+  /**
+   * Return the underlying IntelliJ project.
+   */
+  public Project getProject() {
+    return project;
+  }
+
   public void saveSettings(IDEPluginSettings projectSettings) {
     //To change body of implemented methods use File | Settings | File Templates.
   }
@@ -30,11 +71,11 @@ public class IntellijJavaProject extends JavaProject {
   }
 
   public String getName() {
-    return null;  //To change body of implemented methods use File | Settings | File Templates.
+    return project.getName();
   }
 
   public String getJavaCommand() throws Exception {
-    return "java";
+    return paths().javaCommand();
   }
 
   public List<String> getJavaFlags() throws Exception {
@@ -42,14 +83,130 @@ public class IntellijJavaProject extends JavaProject {
   }
 
   public String getSnippetsClasspath() throws Exception {
-    return null;  //To change body of implemented methods use File | Settings | File Templates.
+    return PathManager.getJarPathForClass(CodeSnippet.class);
   }
 
   public String getGuiceClasspath() throws Exception {
-    return null;  //To change body of implemented methods use File | Settings | File Templates.
+    if (guiceClasspath == null) {
+      guiceClasspath = PathManager.getJarPathForClass(Guice.class)
+          + getClasspathDelimiter() + PathManager.getJarPathForClass(MethodInterceptor.class)
+          + getClasspathDelimiter() + PathManager.getJarPathForClass(ClassReader.class)
+          + getClasspathDelimiter() + PathManager.getJarPathForClass(Enhancer.class);
+    }
+    return guiceClasspath;
   }
 
   public String getProjectClasspath() throws Exception {
-    return null;  //To change body of implemented methods use File | Settings | File Templates.
+    return paths().classpath();
+  }
+
+  private ProjectPaths paths() {
+    ProjectPaths paths = projectPaths.get(project);
+    if (paths == null) {
+      ProjectPaths newPaths =
+          new ProjectPaths(project, getClasspathDelimiter());
+      paths = projectPaths.putIfAbsent(project, newPaths);
+      if (paths == null) {
+        paths = newPaths;
+        Disposer.register(project, paths);
+        project.getMessageBus().connect(paths)
+            .subscribe(ProjectTopics.PROJECT_ROOTS, paths);
+      }
+    }
+    return paths;
+  }
+
+  /*
+   * The classpath and java command of one project, computed on demand and
+   * forgotten whenever the roots of the project change.  Disposed with the
+   * project, which also disconnects it from the project's roots.
+   */
+  private static class ProjectPaths
+      implements ModuleRootListener, Disposable {
+    private final Project project;
+    private final String delimiter;
+    private volatile String classpath;
+    private volatile String javaCommand;
+
+    ProjectPaths(Project project, String delimiter) {
+      this.project = project;
+      this.delimiter = delimiter;
+    }
+
+    public void beforeRootsChange(ModuleRootEvent event) {
+    }
+
+    public void rootsChanged(ModuleRootEvent event) {
+      classpath = null;
+      javaCommand = null;
+    }
+
+    public void dispose() {
+      projectPaths.remove(project, this);
+    }
+
+    String classpath() {
+      String result = classpath;
+      if (result == null) {
+        result = ApplicationManager.getApplication().runReadAction(
+            new Computable<String>() {
+              public String compute() {
+                return computeClasspath();
+              }
+            });
+        classpath = result;
+      }
+      return result;
+    }
+
+    /*
+     * The class roots and output folders of every module, in order and
+     * without duplicates; must be called in a read action.
+     */
+    private String computeClasspath() {
+      Set<String> paths = new LinkedHashSet<String>();
+      for (Module module : ModuleManager.getInstance(project).getModules()) {
+        for (VirtualFile root : ModuleRootManager.getInstance(module)
+            .getFiles(OrderRootType.CLASSES_AND_OUTPUT)) {
+          paths.add(localPath(root));
+        }
+      }
+      StringBuilder result = new StringBuilder();
+      for (String path : paths) {
+        if (result.length() > 0) {
+          result.append(delimiter);
+        }
+        result.append(path);
+      }
+      return result.toString();
+    }
+
+    private String localPath(VirtualFile root) {
+      String path = VfsUtil.urlToPath(root.getUrl());
+      if (path.endsWith("!/")) {
+        path = path.substring(0, path.length() - 2);
+      }
+      return path.replace('/', File.separatorChar);
+    }
+
+    String javaCommand() {
+      String result = javaCommand;
+      if (result == null) {
+        result = "java";
+        ProjectJdk jdk = ProjectRootManager.getInstance(project).getProjectJdk();
+        if (jdk != null && jdk.getHomePath() != null) {
+          File bin = new File(jdk.getHomePath(), "bin");
+          for (String name : new String[] {"java", "java.exe"}) {
+            File java = new File(bin, name);
+            if (java.isFile()) {
+              result = java.getAbsolutePath();
+              break;
+            }
+          }
+        }
+        javaCommand = result;
+      }
+      return result;
+    }
   }
 }
@@ -14,33 +14,37 @@
  * the License.
  */
 
+
 package com.google.inject.tools.ideplugin.intellij;
 
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.google.inject.Inject;
-import com.google.inject.tools.ideplugin.JavaProject;
+import com.google.inject.Module;
 import com.google.inject.tools.ideplugin.ModulesSource;
-import com.google.inject.tools.ideplugin.AbstractSourceImpl;
 import com.google.inject.tools.suite.Messenger;
-import com.google.inject.tools.suite.ProgressHandler.ProgressMonitor;
+import com.intellij.psi.PsiClass;
 
-class IntellijModulesListener extends AbstractSourceImpl implements ModulesSource {
+/**
+ * IntelliJ implementation of the {@link ModulesSource}.
+ * 
+ * {@inheritDoc ModulesSource}
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+class IntellijModulesListener extends IntellijSourceImpl implements ModulesSource {
   @Inject
-  public IntellijModulesListener(Messenger messenger) {
-    super(messenger);
+  public IntellijModulesListener(Messenger messenger, ExecutorService executor) {
+    super(messenger, executor);
   }
-  
+
   @Override
-  protected Set<String> locate(JavaProject javaProject, ProgressMonitor monitor)
-      throws Throwable {
-    return null;
-  }
-  
-  public boolean isListeningForChanges() {
-    return false;
+  protected String getTypeName() {
+    return Module.class.getName();
   }
-  
-  public void listenForChanges(boolean listenForChanges) {
+
+  @Override
+  protected boolean isTypeWeCareAbout(PsiClass psiClass) {
+    return true;
   }
 }
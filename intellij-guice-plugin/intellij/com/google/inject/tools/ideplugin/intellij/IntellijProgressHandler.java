@@ -16,35 +16,269 @@
 
 package com.google.inject.tools.ideplugin.intellij;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.tools.suite.ConcurrentProgressHandler;
 import com.google.inject.tools.suite.ProgressHandler;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.progress.PerformInBackgroundOption;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
 
+/**
+ * IntelliJ implementation of the {@link ProgressHandler}.
+ * 
+ * {@inheritDoc ProgressHandler}
+ * 
+ * The steps are run as a cancellable background task with a progress
+ * indicator.  Within the task they run concurrently on the shared executor,
+ * with {@link DependentProgressStep}s held back until their dependencies are
+ * complete.  Waiting for the handler from the event dispatch thread shows a
+ * modal progress dialog rather than freezing the UI.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
 class IntellijProgressHandler implements ProgressHandler {
+  /**
+   * How often, in milliseconds, the task checks whether it was cancelled.
+   */
+  static final int CANCEL_POLL_INTERVAL = 100;
+  
+  private final ExecutorService executor;
+  private final List<ProgressStep> steps;
+  private volatile CountDownLatch finished;
+  private volatile boolean cancelled;
+  private volatile boolean done;
+  private volatile ConcurrentProgressHandler handler;
+  private String label;
+  private Runnable executeAfter;
+  
+  @Inject
+  public IntellijProgressHandler(ExecutorService executor) {
+    this.executor = executor;
+    this.steps = new ArrayList<ProgressStep>();
+    this.finished = new CountDownLatch(0);
+    this.cancelled = false;
+    this.done = false;
+    this.executeAfter = null;
+  }
   
   public void go(String label, boolean backgroundAutomatically) {
-    
+    go(label, backgroundAutomatically, false);
   }
   
-  public void go(String label, boolean backgroundAutomatically, boolean cancelThread) {
-    
+  /**
+   * Start the background task and return immediately.  The task polls its
+   * indicator for cancellation itself, so no separate thread is needed.
+   * 
+   * Off the event dispatch thread the task is started in any modality state,
+   * so that it still starts while {@link #waitFor()} shows its modal dialog.
+   */
+  public void go(String label, boolean backgroundAutomatically,
+      boolean cancelThread) {
+    this.label = label;
+    done = false;
+    cancelled = false;
+    finished = new CountDownLatch(1);
+    final StepsTask task =
+        new StepsTask(project(), label, backgroundAutomatically);
+    if (ApplicationManager.getApplication().isDispatchThread()) {
+      ProgressManager.getInstance().run(task);
+    } else {
+      ApplicationManager.getApplication().invokeLater(new Runnable() {
+        public void run() {
+          ProgressManager.getInstance().run(task);
+        }
+      }, ModalityState.any());
+    }
   }
   
-  public boolean isCancelled() {
-    return false;
+  /*
+   * The IntelliJ project the steps work on, if any, so the progress shows up
+   * in that project's frame.
+   */
+  private Project project() {
+    for (ProgressStep step : steps) {
+      if (step instanceof ProjectProgressStep
+          && ((ProjectProgressStep) step).project() instanceof IntellijJavaProject) {
+        return ((IntellijJavaProject) ((ProjectProgressStep) step).project()).getProject();
+      }
+    }
+    return null;
   }
   
-  public void step(ProgressStep step) {
+  private class StepsTask extends Task.Backgroundable {
+    private volatile boolean started;
     
+    public StepsTask(Project project, String label, boolean backgroundAutomatically) {
+      super(project, label, true, backgroundAutomatically
+          ? PerformInBackgroundOption.ALWAYS_BACKGROUND
+          : PerformInBackgroundOption.DEAF);
+      started = false;
+    }
+    
+    public void run(ProgressIndicator indicator) {
+      started = true;
+      indicator.setText(label);
+      final CountDownLatch stepsDone = new CountDownLatch(1);
+      ConcurrentProgressHandler stepsHandler =
+          new ConcurrentProgressHandler(executor, new IndicatorMonitor(indicator));
+      for (ProgressStep step : steps) {
+        stepsHandler.step(step);
+      }
+      stepsHandler.executeAfter(new Runnable() {
+        public void run() {
+          stepsDone.countDown();
+        }
+      });
+      handler = stepsHandler;
+      stepsHandler.go(label, true);
+      try {
+        while (!stepsDone.await(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+          if (indicator.isCanceled() && !cancelled) {
+            cancel();
+          }
+        }
+      } catch (InterruptedException exception) {
+        cancel();
+      }
+    }
+    
+    @Override
+    public void onSuccess() {
+      finish(started);
+    }
+    
+    @Override
+    public void onCancel() {
+      cancelled = true;
+      finish(started);
+    }
   }
   
-  public void waitFor() {
+  /*
+   * Runs the code to execute after the steps; if the task never got to run,
+   * the steps are cancelled so that nothing waits on them.
+   */
+  private void finish(boolean started) {
+    if (!started) {
+      for (ProgressStep step : steps) {
+        step.cancel();
+        step.complete();
+      }
+    }
+    done = true;
+    finished.countDown();
+    if (executeAfter != null) {
+      executeAfter.run();
+    }
+  }
+  
+  /*
+   * Cancel the steps of the running task.
+   */
+  private void cancel() {
+    cancelled = true;
+    ConcurrentProgressHandler stepsHandler = handler;
+    if (stepsHandler != null) {
+      stepsHandler.cancel();
+    }
+  }
+  
+  /*
+   * Reports the progress aggregated over the steps to the task's indicator.
+   */
+  private static class IndicatorMonitor implements ProgressMonitor {
+    private final ProgressIndicator indicator;
+    private int total;
+    private int worked;
+    
+    public IndicatorMonitor(ProgressIndicator indicator) {
+      this.indicator = indicator;
+      this.total = 0;
+      this.worked = 0;
+    }
     
+    public synchronized void begin(String label, int units) {
+      total = units;
+      worked = 0;
+      indicator.setIndeterminate(units <= 0);
+      indicator.setFraction(0);
+    }
+    
+    public ProgressMonitor getSubMonitor(int parentunits) {
+      return this;
+    }
+    
+    public synchronized void worked(int workedunits) {
+      worked += workedunits;
+      if (total > 0) {
+        indicator.setFraction(Math.min((double) worked / total, 1));
+      }
+    }
+    
+    public synchronized void done() {
+      indicator.setFraction(1);
+    }
+  }
+  
+  /**
+   * Wait for the steps to be done.  On the event dispatch thread the wait runs
+   * under a modal progress dialog, which keeps the UI painting and lets the
+   * user cancel the steps.
+   */
+  public void waitFor() throws InterruptedException {
+    if (done) {
+      return;
+    }
+    if (!ApplicationManager.getApplication().isDispatchThread()) {
+      finished.await();
+      return;
+    }
+    final CountDownLatch waitingOn = finished;
+    boolean completed = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+        new Runnable() {
+          public void run() {
+            ProgressIndicator indicator =
+                ProgressManager.getInstance().getProgressIndicator();
+            try {
+              while (!waitingOn.await(CANCEL_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (indicator != null && indicator.isCanceled()) {
+                  cancel();
+                  return;
+                }
+              }
+            } catch (InterruptedException exception) {
+              cancel();
+            }
+          }
+        }, label, true, project());
+    if (!completed) {
+      cancel();
+    }
+  }
+  
+  public boolean isCancelled() {
+    return cancelled;
   }
   
   public boolean isDone() {
-    return true;
+    return done;
+  }
+  
+  public void step(ProgressStep step) {
+    steps.add(step);
   }
   
   public void executeAfter(Runnable executeAfter) {
-    
+    this.executeAfter = executeAfter;
   }
 }
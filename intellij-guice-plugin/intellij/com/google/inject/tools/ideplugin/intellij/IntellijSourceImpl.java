@@ -0,0 +1,396 @@
+/**
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package com.google.inject.tools.ideplugin.intellij;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.inject.Inject;
+import com.google.inject.tools.ideplugin.AbstractSourceImpl;
+import com.google.inject.tools.ideplugin.JavaProject;
+import com.google.inject.tools.suite.Messenger;
+import com.google.inject.tools.suite.ProgressHandler.ProgressMonitor;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileDocumentManagerAdapter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.searches.ClassInheritorsSearch;
+
+/**
+ * IntelliJ implementation of a {@link com.google.inject.tools.ideplugin.Source}
+ * of the classes in a project extending a given type.
+ * 
+ * The classes are found initially with an inheritor search, which is answered
+ * from IntelliJ's indexes; after that only the files that PSI events report
+ * as changed are examined again, in the background.  PSI events fire as the
+ * user types, so they only report classes added or removed; classes are
+ * reported as changed when their file is saved.
+ * 
+ * @author Darren Creutz (dcreutz@gmail.com)
+ */
+abstract class IntellijSourceImpl extends AbstractSourceImpl {
+  private final ExecutorService executor;
+  private final Map<Project, Map<String, Set<String>>> typesByFile;
+  private final Map<Project, ChangeListener> changeListeners;
+  private final Map<String, PendingFile> pendingFiles;
+  private final AtomicBoolean updatingFiles;
+  private boolean listenForChanges;
+
+  @Inject
+  public IntellijSourceImpl(Messenger messenger, ExecutorService executor) {
+    super(messenger);
+    this.executor = executor;
+    typesByFile = new HashMap<Project, Map<String, Set<String>>>();
+    changeListeners = new HashMap<Project, ChangeListener>();
+    pendingFiles = new LinkedHashMap<String, PendingFile>();
+    updatingFiles = new AtomicBoolean(false);
+  }
+
+  /**
+   * Return the fully qualified name of the type to find the subclasses of.
+   */
+  protected abstract String getTypeName();
+
+  /**
+   * Return true if the subclass should be reported.
+   */
+  protected abstract boolean isTypeWeCareAbout(PsiClass psiClass);
+
+  public synchronized boolean isListeningForChanges() {
+    return listenForChanges;
+  }
+
+  public synchronized void listenForChanges(boolean listenForChanges) {
+    if (listenForChanges && !this.listenForChanges) {
+      for (JavaProject project : projects) {
+        startListening(project);
+      }
+    }
+    if (!listenForChanges && this.listenForChanges) {
+      for (Map.Entry<Project, ChangeListener> entry
+          : changeListeners.entrySet()) {
+        PsiManager.getInstance(entry.getKey())
+            .removePsiTreeChangeListener(entry.getValue());
+        FileDocumentManager.getInstance().removeFileDocumentManagerListener(
+            entry.getValue().saveListener);
+      }
+      changeListeners.clear();
+    }
+    this.listenForChanges = listenForChanges;
+  }
+
+  @Override
+  protected synchronized void initialize(JavaProject javaManager) {
+    super.initialize(javaManager);
+    if (listenForChanges) {
+      startListening(javaManager);
+    }
+  }
+
+  private void startListening(JavaProject javaManager) {
+    Project project = ((IntellijJavaProject) javaManager).getProject();
+    if (!changeListeners.containsKey(project)) {
+      ChangeListener listener =
+          new ChangeListener((IntellijJavaProject) javaManager);
+      changeListeners.put(project, listener);
+      PsiManager.getInstance(project).addPsiTreeChangeListener(listener);
+      FileDocumentManager.getInstance().addFileDocumentManagerListener(
+          listener.saveListener);
+    }
+  }
+
+  @Override
+  protected Set<String> locate(JavaProject javaProject, ProgressMonitor monitor)
+      throws Throwable {
+    final Project project = ((IntellijJavaProject) javaProject).getProject();
+    Map<String, Set<String>> files =
+        ApplicationManager.getApplication().runReadAction(
+            new Computable<Map<String, Set<String>>>() {
+              public Map<String, Set<String>> compute() {
+                return findTypes(project);
+              }
+            });
+    Set<String> names = new HashSet<String>();
+    for (Set<String> fileNames : files.values()) {
+      names.addAll(fileNames);
+    }
+    synchronized (this) {
+      typesByFile.put(project, files);
+    }
+    return names;
+  }
+
+  /*
+   * Must be called in a read action.
+   */
+  private Map<String, Set<String>> findTypes(Project project) {
+    Map<String, Set<String>> files = new HashMap<String, Set<String>>();
+    PsiClass supertype = findSupertype(project);
+    if (supertype == null) {
+      return files;
+    }
+    Collection<PsiClass> inheritors = ClassInheritorsSearch.search(supertype,
+        GlobalSearchScope.projectScope(project), true).findAll();
+    for (PsiClass psiClass : inheritors) {
+      if (isCandidate(psiClass)) {
+        String file = fileKey(psiClass.getContainingFile());
+        Set<String> names = files.get(file);
+        if (names == null) {
+          names = new HashSet<String>();
+          files.put(file, names);
+        }
+        names.add(binaryName(psiClass));
+      }
+    }
+    return files;
+  }
+
+  private PsiClass findSupertype(Project project) {
+    return PsiManager.getInstance(project).findClass(getTypeName(),
+        GlobalSearchScope.allScope(project));
+  }
+
+  private boolean isCandidate(PsiClass psiClass) {
+    return psiClass.getQualifiedName() != null
+        && !psiClass.isInterface()
+        && !psiClass.hasModifierProperty(PsiModifier.ABSTRACT)
+        && isTypeWeCareAbout(psiClass);
+  }
+
+  /*
+   * The name the class is loaded by, with '$' separating nested classes.
+   */
+  private static String binaryName(PsiClass psiClass) {
+    PsiClass containingClass = psiClass.getContainingClass();
+    if (containingClass == null) {
+      return psiClass.getQualifiedName();
+    }
+    return binaryName(containingClass) + "$" + psiClass.getName();
+  }
+
+  private static String fileKey(PsiFile file) {
+    return file.getVirtualFile() != null ? file.getVirtualFile().getUrl()
+        : file.getName();
+  }
+
+  /*
+   * Re-examine a single file and report the classes it gained or lost, and
+   * if the file was saved the classes it still has as changed.  Must be called
+   * in a read action.
+   */
+  private void fileChanged(IntellijJavaProject javaProject, String fileKey,
+      PsiJavaFile file, boolean saved) {
+    Project project = javaProject.getProject();
+    PsiClass supertype = findSupertype(project);
+    Set<String> current = new HashSet<String>();
+    if (file != null && file.isValid() && supertype != null) {
+      List<PsiClass> classes = new ArrayList<PsiClass>();
+      collectClasses(file.getClasses(), classes);
+      for (PsiClass psiClass : classes) {
+        if (psiClass.isInheritor(supertype, true) && isCandidate(psiClass)) {
+          current.add(binaryName(psiClass));
+        }
+      }
+    }
+    Set<String> previous;
+    synchronized (this) {
+      Map<String, Set<String>> files = typesByFile.get(project);
+      if (files == null) {
+        return;
+      }
+      previous = files.get(fileKey);
+      if (previous == null) {
+        previous = new HashSet<String>();
+      }
+      if (current.isEmpty()) {
+        files.remove(fileKey);
+      } else {
+        files.put(fileKey, current);
+      }
+    }
+    for (String oldType : previous) {
+      if (!current.contains(oldType)) {
+        removed(javaProject, oldType);
+      }
+    }
+    for (String newType : current) {
+      if (!previous.contains(newType)) {
+        added(javaProject, newType);
+      } else if (saved) {
+        changed(javaProject, newType);
+      }
+    }
+  }
+
+  private void collectClasses(PsiClass[] classes, List<PsiClass> collected) {
+    for (PsiClass psiClass : classes) {
+      collected.add(psiClass);
+      collectClasses(psiClass.getInnerClasses(), collected);
+    }
+  }
+
+  private static class PendingFile {
+    final IntellijJavaProject project;
+    final PsiJavaFile file;
+    final boolean saved;
+
+    PendingFile(IntellijJavaProject project, PsiJavaFile file, boolean saved) {
+      this.project = project;
+      this.file = file;
+      this.saved = saved;
+    }
+  }
+
+  /*
+   * PSI events and saves arrive on the event thread inside write actions; the
+   * files they name are queued and examined by a single task on the executor.
+   */
+  private void queueFile(IntellijJavaProject project, String fileKey,
+      PsiJavaFile file, boolean saved) {
+    synchronized (pendingFiles) {
+      PendingFile pending = pendingFiles.get(fileKey);
+      boolean wasSaved = pending != null && pending.saved;
+      pendingFiles.put(fileKey,
+          new PendingFile(project, file, saved || wasSaved));
+    }
+    if (updatingFiles.compareAndSet(false, true)) {
+      executor.execute(new Runnable() {
+        public void run() {
+          processPendingFiles();
+        }
+      });
+    }
+  }
+
+  private void processPendingFiles() {
+    while (true) {
+      final Map<String, PendingFile> files;
+      synchronized (pendingFiles) {
+        if (pendingFiles.isEmpty()) {
+          updatingFiles.set(false);
+          return;
+        }
+        files = new LinkedHashMap<String, PendingFile>(pendingFiles);
+        pendingFiles.clear();
+      }
+      ApplicationManager.getApplication().runReadAction(new Runnable() {
+        public void run() {
+          for (Map.Entry<String, PendingFile> entry : files.entrySet()) {
+            try {
+              fileChanged(entry.getValue().project, entry.getKey(),
+                  entry.getValue().file, entry.getValue().saved);
+            } catch (Throwable throwable) {
+              hadProblem(throwable);
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /*
+   * Saved files are only examined if they hold classes we already report;
+   * classes appearing in other files are found from the PSI events.
+   */
+  private synchronized boolean hasTypes(IntellijJavaProject project,
+      String fileKey) {
+    Map<String, Set<String>> files = typesByFile.get(project.getProject());
+    return files != null && files.containsKey(fileKey);
+  }
+
+  private class ChangeListener extends PsiTreeChangeAdapter {
+    private final IntellijJavaProject project;
+    private final FileDocumentManagerAdapter saveListener =
+        new FileDocumentManagerAdapter() {
+      @Override
+      public void beforeDocumentSaving(Document document) {
+        PsiFile file = PsiDocumentManager.getInstance(project.getProject())
+            .getPsiFile(document);
+        if (file instanceof PsiJavaFile && file.isValid()
+            && hasTypes(project, fileKey(file))) {
+          queueFile(project, fileKey(file), (PsiJavaFile) file, true);
+        }
+      }
+    };
+
+    ChangeListener(IntellijJavaProject project) {
+      this.project = project;
+    }
+
+    @Override
+    public void beforeChildRemoval(PsiTreeChangeEvent event) {
+      if (event.getChild() instanceof PsiJavaFile) {
+        queueFile(project, fileKey((PsiFile) event.getChild()), null, false);
+      }
+    }
+
+    @Override
+    public void childAdded(PsiTreeChangeEvent event) {
+      fileEvent(event);
+    }
+
+    @Override
+    public void childRemoved(PsiTreeChangeEvent event) {
+      fileEvent(event);
+    }
+
+    @Override
+    public void childReplaced(PsiTreeChangeEvent event) {
+      fileEvent(event);
+    }
+
+    @Override
+    public void childMoved(PsiTreeChangeEvent event) {
+      fileEvent(event);
+    }
+
+    @Override
+    public void childrenChanged(PsiTreeChangeEvent event) {
+      fileEvent(event);
+    }
+
+    private void fileEvent(PsiTreeChangeEvent event) {
+      PsiFile file = event.getFile();
+      if (file == null && event.getChild() instanceof PsiFile) {
+        file = (PsiFile) event.getChild();
+      }
+      if (file instanceof PsiJavaFile && file.isValid()) {
+        queueFile(project, fileKey(file), (PsiJavaFile) file, false);
+      }
+    }
+  }
+}
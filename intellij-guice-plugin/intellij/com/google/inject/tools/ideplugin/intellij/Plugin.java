@@ -1,7 +1,11 @@
 package com.google.inject.tools.ideplugin.intellij;
 
+import com.google.inject.tools.suite.SharedExecutorProvider;
 import com.intellij.openapi.components.ApplicationComponent;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 /**
  * Created by IntelliJ IDEA.
  * User: d
@@ -11,24 +15,27 @@ import com.intellij.openapi.components.ApplicationComponent;
  */
 public class Plugin implements ApplicationComponent {
   private static IntellijGuicePlugin guicePlugin;
-  private static Thread initThread;
+  private static Future<?> initialization;
 
   public void initComponent() {
-    initThread = new Thread() {
-      @Override
+    initialization =
+        SharedExecutorProvider.sharedExecutor().submit(new Runnable() {
       public void run() {
         guicePlugin = new IntellijGuicePlugin();
-        initThread = null;
       }
-    };
-    initThread.start();
+    });
   }
 
   public static IntellijGuicePlugin getGuicePlugin() {
-    if (initThread != null) {
+    if (initialization != null) {
       try {
-        initThread.join();
-      } catch (InterruptedException e) {}
+        initialization.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        new IntellijMessenger().logException(
+            "Guice plugin initialization failed", e.getCause());
+      }
     }
     return guicePlugin;
   }